@@ -24,11 +24,10 @@ package de.upb.crc901.services;
 import Catalano.Imaging.FastBitmap;
 import Catalano.Imaging.Concurrent.Filters.Grayscale;
 
-import jaicore.ml.core.SimpleInstanceImpl;
+import de.upb.crc901.services.types.DoubleArrayInstance;
 import jaicore.ml.interfaces.Instance;
 
 import java.lang.reflect.Method;
-import java.util.Iterator;
 
 import org.apache.commons.lang3.reflect.MethodUtils;
 
@@ -69,11 +68,9 @@ public class CatalanoWrapper {
 		int row = 0;
 		int column = 0;
 		int color = 0;
-		Iterator<Double> it = inst.iterator();
-		it.next();
-		it.next();
-		while (it.hasNext()) {
-			int val = it.next().intValue();
+		double[] values = toDoubleArray(inst);
+		for (int index = 2; index < values.length; index++) {
+			int val = (int) values[index];
 			image[row][column][color++] = val;
 
 			/* switch to next column/row if color/col has reached maximum respectively */
@@ -93,11 +90,9 @@ public class CatalanoWrapper {
 		int[][] image = new int[(inst.getNumberOfColumns() - 2) / width][width];
 		int row = 0;
 		int col = 0;
-		Iterator<Double> it = inst.iterator();
-		it.next();
-		it.next();
-		while (it.hasNext()) {
-			int val = it.next().intValue();
+		double[] values = toDoubleArray(inst);
+		for (int index = 2; index < values.length; index++) {
+			int val = (int) values[index];
 			image[row][col++] = val;
 
 			/* switch to next row if col has reached width */
@@ -110,34 +105,55 @@ public class CatalanoWrapper {
 	}
 
 	public static Instance fastBitmap2Instance(final FastBitmap fb) {
-		Instance instance = new SimpleInstanceImpl();
 		int[][][] image = fb.toMatrixRGBAsInt();
-		instance.add(new Double(fb.getWidth()));
-		instance.add(1.0); // code for rgb images
+		int size = 2;
+		for (int i = 0; i < image.length; i++) {
+			for (int j = 0; j < image[i].length; j++) {
+				size += image[i][j].length;
+			}
+		}
+		double[] values = new double[size];
+		values[0] = fb.getWidth();
+		values[1] = 1.0; // code for rgb images
+		int index = 2;
 		for (int i = 0; i < image.length; i++) {
 			for (int j = 0; j < image[i].length; j++) {
 				for (int k = 0; k < image[i][j].length; k++) {
-					instance.add(new Double(image[i][j][k]));
+					values[index++] = image[i][j][k];
 				}
 			}
 		}
-		return instance;
+		return new DoubleArrayInstance(values);
 	}
 
 	public static Instance fastBitmap2GrayScaledInstance(final FastBitmap fb) {
 
-		Instance instance = new SimpleInstanceImpl();
 		if (!fb.isGrayscale()) {
 			new Grayscale().applyInPlace(fb);
 		}
 		int[][] image = fb.toMatrixGrayAsInt();
-		instance.add(new Double(fb.getWidth()));
-		instance.add(0.0); // code for grayscale
+		int size = 2;
+		for (int i = 0; i < image.length; i++) {
+			size += image[i].length;
+		}
+		double[] values = new double[size];
+		values[0] = fb.getWidth();
+		values[1] = 0.0; // code for grayscale
+		int index = 2;
 		for (int i = 0; i < image.length; i++) {
 			for (int j = 0; j < image[i].length; j++) {
-				instance.add(new Double(image[i][j]));
+				values[index++] = image[i][j];
 			}
 		}
-		return instance;
+		return new DoubleArrayInstance(values);
+	}
+
+	/**
+	 * Returns the values of the instance without boxing them.
+	 */
+	private static double[] toDoubleArray(Instance inst) {
+		double[] values = new double[inst.getNumberOfColumns()];
+		DoubleArrayInstance.copy(inst, values, values.length);
+		return values;
 	}
 }
@@ -1,13 +1,17 @@
 package de.upb.crc901.services.streamhandlers;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
 
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
 
+import de.upb.crc901.services.core.SerializationHints;
 import de.upb.crc901.services.core.StreamHandler;
-import jaicore.ml.core.SimpleInstanceImpl;
+import de.upb.crc901.services.types.DoubleArrayInstance;
 import jaicore.ml.interfaces.Instance;
 
 /**
@@ -15,47 +19,94 @@ import jaicore.ml.interfaces.Instance;
  * 
  * Example of instance: [1.0,2.0,3.0]
  * 
- * Parses example of instance: {"0":1.0,"2":2.0,"3":3.0}
+ * Example of sparse instance: {"0":1.0,"2":2.0,"3":3.0}
+ * 
+ * Each instance is written in the form that is smaller: sparse if less than
+ * 40% of its values aren't zero, dense otherwise. The reader recognizes the
+ * form by the json token: an object is sparse, an array is dense.
+ * 
+ * If values are packed (see InstancesStreamHandler.PACKED_VALUES): {"dtype":"i8","data":"AQID"}
+ * 
+ * The values are read into a primitive array. read returns a
+ * DoubleArrayInstance. Values of DoubleArrayInstances are written without
+ * boxing them.
  * 
  * @author aminfaez
  *
  */
 public class InstanceStreamHandler implements StreamHandler<Instance> {
-	
-	
+
 	@Override
 	public Instance read(JsonParser jsonIn) throws IOException {
-		Instance instance = new SimpleInstanceImpl();
-		readInto(jsonIn, instance);
-		
-		
-		return instance;
+		Values values = new Values(16);
+		readValues(jsonIn, values);
+		return new DoubleArrayInstance(values.trimmed());
 	}
+
 	public void readInto(JsonParser jsonIn, Instance instance) throws IOException{
+		Values values = new Values(16);
+		readValues(jsonIn, values);
+		instance.addAll(new DoubleArrayInstance(values.array, 0, values.size));
+	}
+
+	/**
+	 * Appends the values of the next instance to the given values.
+	 */
+	void readValues(JsonParser jsonIn, Values values) throws IOException {
 		while(jsonIn.getCurrentToken() != JsonToken.START_OBJECT && jsonIn.getCurrentToken() != JsonToken.START_ARRAY) {
 			jsonIn.nextToken();
 		}
 		if(jsonIn.getCurrentToken() == JsonToken.START_OBJECT) {
-			read_sparse(jsonIn, instance);
+			read_sparse(jsonIn, values);
 		} else {
-			read_nonesprase(jsonIn, instance);
+			read_nonesprase(jsonIn, values);
 		}
 	}
 	
 	public void read_sparse(JsonParser jsonIn, Instance instance) throws IOException {
+		Values values = new Values(16);
+		read_sparse(jsonIn, values);
+		instance.addAll(new DoubleArrayInstance(values.array, 0, values.size));
+	}
+
+	private void read_sparse(JsonParser jsonIn, Values values) throws IOException {
 		assert (jsonIn.currentToken() == JsonToken.START_OBJECT);
+		int start = values.size; // position of the first value of the instance
 		int lastIndex = -1; // points towards last index that was added to instance
+		PackedValues packedType = null;
+		byte[] packedData = null;
 		while(jsonIn.nextToken() != JsonToken.END_OBJECT) {
 			if(jsonIn.currentToken() == JsonToken.FIELD_NAME) {
 			    String fieldname = jsonIn.getCurrentName();
+			    if ("dtype".equals(fieldname)) { // packed instance
+			    		jsonIn.nextToken();
+			    		packedType = PackedValues.fromToken(jsonIn.getValueAsString());
+			    		continue;
+			    }
+			    if ("data".equals(fieldname)) {
+			    		jsonIn.nextToken();
+			    		packedData = jsonIn.getBinaryValue();
+			    		continue;
+			    }
 			    int currentIndex = Integer.parseInt(fieldname); // current index is set to the given value
-			    jsonIn.nextToken();
-			    Double value = jsonIn.getValueAsDouble(); 
-			    while(lastIndex < currentIndex) {
-			    		instance.add(0D); // fill zeros until the current index is reached
-			    		lastIndex++;
+			    double value = readValue(jsonIn, jsonIn.nextToken());
+			    if(currentIndex <= lastIndex) {
+			    		values.array[start + currentIndex] = value;
+			    		continue;
 			    }
-			    instance.set(currentIndex, value); // set current index.
+			    // fill zeros until the current index is reached:
+			    values.addZeros(currentIndex - lastIndex - 1);
+			    values.add(value);
+			    lastIndex = currentIndex;
+			}
+		}
+		if (packedData != null) {
+			if (packedType == null || packedData.length % packedType.size != 0) {
+				throw new IOException("The packed instance has no type or a broken data block.");
+			}
+			ByteBuffer buffer = ByteBuffer.wrap(packedData).order(ByteOrder.LITTLE_ENDIAN);
+			for (int index = 0; index < packedData.length; index += packedType.size) {
+				values.add(packedType.get(buffer, index));
 			}
 		}
 	}
@@ -64,56 +115,201 @@ public class InstanceStreamHandler implements StreamHandler<Instance> {
 	 * Overloaded read method to be used with LabeledInstance instead of only with instance.
 	 */
 	public void read_nonesprase(JsonParser jsonIn, Instance instance) throws IOException {
+		Values values = new Values(16);
+		read_nonesprase(jsonIn, values);
+		instance.addAll(new DoubleArrayInstance(values.array, 0, values.size));
+	}
+
+	private void read_nonesprase(JsonParser jsonIn, Values values) throws IOException {
 		assert (jsonIn.currentToken() == JsonToken.START_ARRAY);
 		
-		while(jsonIn.nextToken() != JsonToken.END_ARRAY) {
-			JsonToken token = jsonIn.currentToken();
-			if(token.isNumeric()) {
-				instance.add(jsonIn.getNumberValue().doubleValue());
-			}else if("NaN".equals(jsonIn.getValueAsString())){
-				instance.add(Double.NaN);
-			}
-			else {
-				throw new IOException("Type mismatch: " + token.asString() + " isn't numeric.");
+		JsonToken token;
+		while((token = jsonIn.nextToken()) != JsonToken.END_ARRAY) {
+			values.add(readValue(jsonIn, token));
+		}
+	}
+
+	/**
+	 * Reads a number. NaN and infinite values are written as strings.
+	 */
+	static double readValue(JsonParser jsonIn, JsonToken token) throws IOException {
+		if(token.isNumeric()) {
+			return jsonIn.getDoubleValue();
+		}
+		if(token == JsonToken.VALUE_STRING) {
+			switch (jsonIn.getText()) {
+			case "NaN":
+				return Double.NaN;
+			case "Infinity":
+				return Double.POSITIVE_INFINITY;
+			case "-Infinity":
+				return Double.NEGATIVE_INFINITY;
 			}
 		}
+		throw new IOException("Type mismatch: " + token.asString() + " isn't numeric.");
 	}
 
 	public void write(JsonGenerator jsonOut, Instance data) throws IOException {
-		write_sparse(jsonOut, data);
+		writeValues(jsonOut, Values.of(data));
+	}
+
+	/**
+	 * Writes the values in the form that is chosen by write.
+	 */
+	void writeValues(JsonGenerator jsonOut, Values values) throws IOException {
+		if (InstancesStreamHandler.isPacking()) {
+			write_packed(jsonOut, values);
+		} else if (isSparse(values)) {
+			write_sparse(jsonOut, values);
+		} else {
+			write_nonesparse(jsonOut, values);
+		}
+	}
+
+	/**
+	 * Returns true if the sparse form of the instance is smaller. A value in the
+	 * sparse form takes about 6 more characters for its index, while a zero in
+	 * the dense form takes about 4 characters.
+	 */
+	static boolean isSparse(Values data) {
+		int maxNonZeros = data.size * 2 / 5;
+		int nonZeros = 0;
+		for (int position = data.offset, end = data.offset + data.size; position < end; position++) {
+			if (Double.doubleToRawLongBits(data.array[position]) != 0L && ++nonZeros >= maxNonZeros) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Packs all values into one type, e.g. {"dtype":"i8","data":"AQID"}.
+	 */
+	public void write_packed(JsonGenerator jsonOut, Instance data) throws IOException {
+		write_packed(jsonOut, Values.of(data));
+	}
+
+	private void write_packed(JsonGenerator jsonOut, Values data) throws IOException {
+		double[] values = data.trimmed();
+		PackedValues type = PackedValues.typeOf(values, SerializationHints.isSet(InstancesStreamHandler.FLOAT32_VALUES));
+		ByteBuffer buffer = ByteBuffer.allocate(values.length * type.size).order(ByteOrder.LITTLE_ENDIAN);
+		for (double value : values) {
+			type.put(buffer, value);
+		}
+		jsonOut.writeStartObject();
+		jsonOut.writeStringField("dtype", type.token);
+		jsonOut.writeFieldName("data");
+		jsonOut.writeBinary(buffer.array());
+		jsonOut.writeEndObject();
 	}
 
 	public void write_sparse(JsonGenerator jsonOut, Instance data) throws IOException {
+		write_sparse(jsonOut, Values.of(data));
+	}
+
+	private void write_sparse(JsonGenerator jsonOut, Values data) throws IOException {
 		jsonOut.writeStartObject();
-		for(int index = 0, size = data.getNumberOfColumns(); index < size; index++) {
-			double value = data.get(index);
+		for(int index = 0, size = data.size; index < size; index++) {
+			double value = data.array[data.offset + index];
 			
-			if(value != 0D || index == size - 1) { 
+			if(Double.doubleToRawLongBits(value) != 0L || index == size - 1) { 
 				// if it isnt 0 write it's index and value as a sparse format.
 				// always write last value to keep the bound at the other side
-				jsonOut.writeNumberField(index+"", value);
+				jsonOut.writeFieldName(Integer.toString(index));
+				writeValue(jsonOut, value);
 			}
 		}
 		jsonOut.writeEndObject();
 	}
 
 	public void write_nonesparse(JsonGenerator jsonOut, Instance data) throws IOException {
-		Instance instance = (Instance) data;
+		write_nonesparse(jsonOut, Values.of(data));
+	}
+
+	private void write_nonesparse(JsonGenerator jsonOut, Values data) throws IOException {
 		jsonOut.writeStartArray();
-		for(Double value : instance) {
-			if(Double.NaN == value) {
-				jsonOut.writeString("NaN");
-			} else {
-				jsonOut.writeNumber(value);
-			}
+		for(int position = data.offset, end = data.offset + data.size; position < end; position++) {
+			writeValue(jsonOut, data.array[position]);
 		}
 		jsonOut.writeEndArray();
 	}
 
+	static void writeValue(JsonGenerator jsonOut, double value) throws IOException {
+		if(Double.isNaN(value) || Double.isInfinite(value)) {
+			jsonOut.writeString(Double.toString(value));
+		} else {
+			jsonOut.writeNumber(value);
+		}
+	}
+
 	@Override
 	public Class<Instance> getSupportedSemanticClass() {
 		return Instance.class;
 	}
 
+	/**
+	 * The values [offset, offset + size) of a primitive array. When values are
+	 * read, the array grows as values are added.
+	 */
+	static final class Values {
+		double[] array;
+		int offset = 0;
+		int size = 0;
+
+		Values(int capacity) {
+			array = new double[capacity];
+		}
+
+		Values(double[] array, int offset, int size) {
+			this.array = array;
+			this.offset = offset;
+			this.size = size;
+		}
+
+		/**
+		 * The values of the given instance. The array of a DoubleArrayInstance is
+		 * used as it is, other instances are copied.
+		 */
+		static Values of(Instance instance) {
+			if (instance instanceof DoubleArrayInstance) {
+				DoubleArrayInstance arrayInstance = (DoubleArrayInstance) instance;
+				return new Values(arrayInstance.array(), arrayInstance.offset(), arrayInstance.size());
+			}
+			int columns = instance.getNumberOfColumns();
+			double[] values = new double[columns];
+			DoubleArrayInstance.copy(instance, values, columns);
+			return new Values(values, 0, columns);
+		}
+
+		void add(double value) {
+			if (offset + size == array.length) {
+				array = Arrays.copyOf(array, Math.max(16, array.length * 2));
+			}
+			array[offset + size++] = value;
+		}
+
+		void addZeros(int count) {
+			if (offset + size + count > array.length) {
+				array = Arrays.copyOf(array, Math.max(offset + size + count, array.length * 2));
+			}
+			// the array is filled with zeros beyond size.
+			size += count;
+		}
+
+		/**
+		 * Removes all values, so the next instance can be read into the array.
+		 */
+		void clear() {
+			Arrays.fill(array, offset, offset + size, 0.0);
+			size = 0;
+		}
+
+		double[] trimmed() {
+			if (offset == 0 && size == array.length) {
+				return array;
+			}
+			return Arrays.copyOfRange(array, offset, offset + size);
+		}
+	}
 
 }
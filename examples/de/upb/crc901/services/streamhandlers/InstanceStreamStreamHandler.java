@@ -0,0 +1,65 @@
+package de.upb.crc901.services.streamhandlers;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import de.upb.crc901.services.core.StreamHandler;
+import de.upb.crc901.services.types.InstanceStream;
+import jaicore.ml.interfaces.Instance;
+
+/**
+ * Streamhandler implementation for the semantic type: InstanceStream
+ * 
+ * Example of instancestream: {"rows":[{"0":1.0,"1":2.0},{"0":3.0,"1":4.0}]}
+ * 
+ * The rows are read lazily while the returned stream is iterated.
+ * 
+ * @author aminfaez
+ *
+ */
+public class InstanceStreamStreamHandler implements StreamHandler<InstanceStream> {
+
+	/** Amount of rows after which the written rows are flushed to the wire. */
+	private static final int FLUSH_INTERVAL = 1000;
+
+	private InstanceStreamHandler delegateRowStreamHandler = new InstanceStreamHandler();
+
+	@Override
+	public Class<InstanceStream> getSupportedSemanticClass() {
+		return InstanceStream.class;
+	}
+
+	@Override
+	public InstanceStream read(JsonParser jsonIn) throws IOException {
+		while (jsonIn.nextToken() != JsonToken.END_OBJECT) {
+			if ("rows".equals(jsonIn.getCurrentName())) {
+				jsonIn.nextToken();
+				// the rows are parsed once they are requested.
+				return new InstanceStream(new JsonRowIterator<>(jsonIn, delegateRowStreamHandler::read));
+			}
+		}
+		// no rows at all:
+		return new InstanceStream(new JsonRowIterator<>(null, delegateRowStreamHandler::read));
+	}
+
+	@Override
+	public void write(JsonGenerator jsonOut, InstanceStream data) throws IOException {
+		jsonOut.writeStartObject();
+		jsonOut.writeFieldName("rows");
+		jsonOut.writeStartArray();
+		int rowCount = 0;
+		for (Instance row : data) {
+			delegateRowStreamHandler.write(jsonOut, row);
+			if (++rowCount % FLUSH_INTERVAL == 0) {
+				// let the receiver start working on the rows written so far.
+				jsonOut.flush();
+			}
+		}
+		jsonOut.writeEndArray();
+		jsonOut.writeEndObject();
+	}
+
+}
@@ -1,13 +1,19 @@
 package de.upb.crc901.services.streamhandlers;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
 import java.util.List;
 
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
 
+import de.upb.crc901.services.core.SerializationHints;
 import de.upb.crc901.services.core.StreamHandler;
+import de.upb.crc901.services.streamhandlers.InstanceStreamHandler.Values;
+import de.upb.crc901.services.types.DoubleArrayInstances;
 import jaicore.ml.core.SimpleInstancesImpl;
 import jaicore.ml.interfaces.Instance;
 import jaicore.ml.interfaces.Instances;
@@ -17,21 +23,63 @@ import jaicore.ml.interfaces.Instances;
  * 
  * Example of instances: [[1.0,2.0,3.0],[4.0,5.0,6.0]]
  * 
+ * If the hint PACKED_VALUES or FLOAT32_VALUES is set, the values are packed
+ * column by column into a binary block. The type of each column is chosen by
+ * PackedValues: {"rows":2,"columns":3,"dtypes":["i8","f32","f64"],"data":"..."}
+ * 
+ * The values of all rows are read into one primitive array, see
+ * DoubleArrayInstances.
+ * 
  * @author aminfaez
  *
  */
 public class InstancesStreamHandler implements StreamHandler<Instances>{
 	
+	/**
+	 * Hint of a receiver that reads packed values. Values are packed without
+	 * losing precision.
+	 */
+	public static final String PACKED_VALUES = "packed-values";
+
+	/**
+	 * Hint of a receiver that reads packed values and accepts values that are
+	 * reduced to float32.
+	 */
+	public static final String FLOAT32_VALUES = "float32-values";
+
 	InstanceStreamHandler instanceHandlerDelegate = new InstanceStreamHandler();
+
+	/**
+	 * Returns true if values are packed for the receiver of the current thread.
+	 */
+	static boolean isPacking() {
+		return SerializationHints.isSet(PACKED_VALUES) || SerializationHints.isSet(FLOAT32_VALUES);
+	}
 	
 	@Override
 	public Instances read(JsonParser jsonIn) throws IOException {
-		Instances instances = new SimpleInstancesImpl();
+		if (jsonIn.currentToken() == JsonToken.START_OBJECT) {
+			return readPacked(jsonIn);
+		}
+		// the values of all rows are read into one array.
+		Values values = new Values(1024);
+		int rows = 0;
+		int columns = -1;
 		while(jsonIn.nextToken() != JsonToken.END_ARRAY) {
-			Instance instance =  instanceHandlerDelegate.read(jsonIn);
-			instances.add(instance);
+			int start = values.size;
+			instanceHandlerDelegate.readValues(jsonIn, values);
+			int rowColumns = values.size - start;
+			if (columns < 0) {
+				columns = rowColumns;
+			} else if (rowColumns != columns) {
+				throw new IllegalArgumentException("Cannot add " + rowColumns + "-valued instance to dataset with " + columns + " instances.");
+			}
+			rows++;
+		}
+		if (rows == 0) {
+			return new SimpleInstancesImpl();
 		}
-		return instances;
+		return new DoubleArrayInstances(values.trimmed(), rows, columns);
 	}
 	
 
@@ -44,11 +92,131 @@ public class InstancesStreamHandler implements StreamHandler<Instances>{
 	 * Overloaded method to be used with any list of instance.
 	 */
 	public void writeList(JsonGenerator jsonOut, List<? extends Instance> data) throws IOException {
-		jsonOut.writeStartArray();
-		for(Instance instance : data) {
-			instanceHandlerDelegate.write(jsonOut, instance);
+		if (isPacking() && writePacked(jsonOut, data)) {
+			return;
+		}
+		// large lists are encoded on several cores.
+		ParallelArrayWriter.writeArray(jsonOut, data, instanceHandlerDelegate::write);
+	}
+
+	/**
+	 * Writes the values column by column in the packed form.
+	 * 
+	 * @return false if nothing was written because the rows have different
+	 *         amounts of columns.
+	 */
+	private boolean writePacked(JsonGenerator jsonOut, List<? extends Instance> data) throws IOException {
+		int rows = data.size();
+		int columns = rows == 0 ? 0 : data.get(0).getNumberOfColumns();
+		double[][] columnValues = new double[columns][rows];
+		int row = 0;
+		for (Instance instance : data) {
+			if (instance.getNumberOfColumns() != columns) {
+				return false;
+			}
+			Values values = Values.of(instance);
+			for (int column = 0; column < columns; column++) {
+				columnValues[column][row] = values.array[values.offset + column];
+			}
+			row++;
+		}
+		writePackedColumns(jsonOut, columnValues, rows);
+		return true;
+	}
+
+	/**
+	 * Writes the packed form of the given columns, which have the given amount of
+	 * rows each.
+	 */
+	static void writePackedColumns(JsonGenerator jsonOut, double[][] columnValues, int rows) throws IOException {
+		int columns = columnValues.length;
+		boolean lossyFloat32 = SerializationHints.isSet(FLOAT32_VALUES);
+		PackedValues[] types = new PackedValues[columns];
+		int bytes = 0;
+		for (int column = 0; column < columns; column++) {
+			types[column] = PackedValues.typeOf(columnValues[column], lossyFloat32);
+			bytes += types[column].size * rows;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+		for (int column = 0; column < columns; column++) {
+			for (double value : columnValues[column]) {
+				types[column].put(buffer, value);
+			}
+		}
+		jsonOut.writeStartObject();
+		jsonOut.writeNumberField("rows", rows);
+		jsonOut.writeNumberField("columns", columns);
+		jsonOut.writeArrayFieldStart("dtypes");
+		for (PackedValues type : types) {
+			jsonOut.writeString(type.token);
 		}
 		jsonOut.writeEndArray();
+		jsonOut.writeFieldName("data");
+		jsonOut.writeBinary(buffer.array());
+		jsonOut.writeEndObject();
+	}
+
+	private Instances readPacked(JsonParser jsonIn) throws IOException {
+		PackedBlock block = readPackedBlock(jsonIn);
+		return new DoubleArrayInstances(block.values, block.rows, block.columns);
+	}
+
+	/**
+	 * Reads the packed form into one array, row after row.
+	 */
+	static PackedBlock readPackedBlock(JsonParser jsonIn) throws IOException {
+		int rows = 0;
+		List<PackedValues> types = new ArrayList<>();
+		byte[] data = new byte[0];
+		while (jsonIn.nextToken() != JsonToken.END_OBJECT) {
+			String fieldname = jsonIn.getCurrentName();
+			jsonIn.nextToken();
+			if ("rows".equals(fieldname)) {
+				rows = jsonIn.getIntValue();
+			} else if ("dtypes".equals(fieldname)) {
+				while (jsonIn.nextToken() != JsonToken.END_ARRAY) {
+					types.add(PackedValues.fromToken(jsonIn.getValueAsString()));
+				}
+			} else if ("data".equals(fieldname)) {
+				data = jsonIn.getBinaryValue();
+			} else {
+				jsonIn.skipChildren();
+			}
+		}
+		int columns = types.size();
+		int[] columnStart = new int[columns];
+		int bytes = 0;
+		for (int column = 0; column < columns; column++) {
+			columnStart[column] = bytes;
+			bytes += types.get(column).size * rows;
+		}
+		if (bytes != data.length) {
+			throw new IOException("The data block doesn't contain " + rows + " rows of the types " + types + ".");
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+		double[] values = new double[rows * columns];
+		for (int column = 0; column < columns; column++) {
+			PackedValues type = types.get(column);
+			for (int row = 0; row < rows; row++) {
+				values[row * columns + column] = type.get(buffer, columnStart[column] + row * type.size);
+			}
+		}
+		return new PackedBlock(values, rows, columns);
+	}
+
+	/**
+	 * Values of packed rows, row after row.
+	 */
+	static final class PackedBlock {
+		final double[] values;
+		final int rows;
+		final int columns;
+
+		PackedBlock(double[] values, int rows, int columns) {
+			this.values = values;
+			this.rows = rows;
+			this.columns = columns;
+		}
 	}
 
 	@Override
@@ -0,0 +1,85 @@
+package de.upb.crc901.services.streamhandlers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Lazily parses the elements of a json array that is the last field of an
+ * object. Every element is parsed when it is requested. After the last element
+ * the parser is positioned at the end of the enclosing object.
+ * 
+ * Used by the stream handlers of the row streams.
+ * 
+ * @author aminfaez
+ *
+ * @param <R>
+ *            type of the rows
+ */
+class JsonRowIterator<R> implements Iterator<R> {
+
+	/**
+	 * Parses a single row. The parser is positioned at the first token of the
+	 * row.
+	 */
+	interface RowReader<R> {
+		R read(JsonParser jsonIn) throws IOException;
+	}
+
+	private final RowReader<R> rowReader;
+
+	/** Null when all rows have been read. */
+	private JsonParser jsonIn;
+
+	private R nextRow;
+
+	/**
+	 * @param jsonIn
+	 *            parser positioned at the start of the array. If null there are
+	 *            no rows.
+	 */
+	JsonRowIterator(JsonParser jsonIn, RowReader<R> rowReader) {
+		this.jsonIn = jsonIn;
+		this.rowReader = rowReader;
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (nextRow != null) {
+			return true;
+		}
+		if (jsonIn == null) {
+			return false;
+		}
+		try {
+			JsonToken token = jsonIn.nextToken();
+			if (token != null && token != JsonToken.END_ARRAY) {
+				nextRow = rowReader.read(jsonIn);
+				return true;
+			}
+			// end of rows:
+			if (token == JsonToken.END_ARRAY) {
+				jsonIn.nextToken(); // end of the enclosing object
+			}
+			jsonIn = null;
+			return false;
+		} catch (IOException e) {
+			jsonIn = null;
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public R next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		R row = nextRow;
+		nextRow = null;
+		return row;
+	}
+}
@@ -0,0 +1,55 @@
+package de.upb.crc901.services.streamhandlers;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+
+import de.upb.crc901.services.core.StreamHandler;
+import de.upb.crc901.services.types.LabelStream;
+
+/**
+ * Streamhandler implementation for the semantic type: LabelStream
+ * 
+ * Example of labelstream: ["A","B","A"]
+ * 
+ * The generator is flushed after every chunk of labels, so the receiver gets
+ * the first labels while the following ones are still being produced.
+ * 
+ * @author aminfaez
+ *
+ */
+public class LabelStreamStreamHandler implements StreamHandler<LabelStream> {
+
+	private StringListStreamHandler delegateStringListStreamHandler = new StringListStreamHandler();
+
+	@Override
+	public Class<LabelStream> getSupportedSemanticClass() {
+		return LabelStream.class;
+	}
+
+	@Override
+	public LabelStream read(JsonParser jsonIn) throws IOException {
+		return new LabelStream(delegateStringListStreamHandler.read(jsonIn));
+	}
+
+	@Override
+	public void write(JsonGenerator jsonOut, LabelStream data) throws IOException {
+		try {
+			jsonOut.writeStartArray();
+			Iterator<List<String>> chunks = data.chunks();
+			while (chunks.hasNext()) {
+				for (String label : chunks.next()) {
+					jsonOut.writeString(label);
+				}
+				jsonOut.flush();
+			}
+			jsonOut.writeEndArray();
+		} finally {
+			data.close();
+		}
+	}
+
+}
@@ -0,0 +1,79 @@
+package de.upb.crc901.services.streamhandlers;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import de.upb.crc901.services.core.StreamHandler;
+import de.upb.crc901.services.types.LabeledInstanceStream;
+import jaicore.ml.interfaces.LabeledInstance;
+
+/**
+ * Streamhandler implementation for the semantic type: LabeledInstanceStream
+ * 
+ * Example of labeledinstancestream:
+ * {"classes":["A","B"],"rows":[{"attributes":[1.0,2.0],"label":"A"},{"attributes":[3.0,4.0],"label":"B"}]}
+ * 
+ * "classes" is optional. The rows are written last and are read lazily while
+ * the returned stream is iterated.
+ * 
+ * @author aminfaez
+ *
+ */
+public class LabeledInstanceStreamStreamHandler implements StreamHandler<LabeledInstanceStream> {
+
+	/** Amount of rows after which the written rows are flushed to the wire. */
+	private static final int FLUSH_INTERVAL = 1000;
+
+	private LabeledInstanceStreamHandler delegateRowStreamHandler = new LabeledInstanceStreamHandler();
+	private StringListStreamHandler delegateStringListStreamHandler = new StringListStreamHandler();
+
+	@Override
+	public Class<LabeledInstanceStream> getSupportedSemanticClass() {
+		return LabeledInstanceStream.class;
+	}
+
+	@Override
+	public LabeledInstanceStream read(JsonParser jsonIn) throws IOException {
+		List<String> classes = null;
+		while (jsonIn.nextToken() != JsonToken.END_OBJECT) {
+			String fieldname = jsonIn.getCurrentName();
+			if ("classes".equals(fieldname)) {
+				jsonIn.nextToken();
+				classes = delegateStringListStreamHandler.read(jsonIn);
+			}
+			if ("rows".equals(fieldname)) {
+				jsonIn.nextToken();
+				// the rows are parsed once they are requested.
+				return new LabeledInstanceStream(classes, new JsonRowIterator<>(jsonIn, delegateRowStreamHandler::read));
+			}
+		}
+		// no rows at all:
+		return new LabeledInstanceStream(classes, new JsonRowIterator<>(null, delegateRowStreamHandler::read));
+	}
+
+	@Override
+	public void write(JsonGenerator jsonOut, LabeledInstanceStream data) throws IOException {
+		jsonOut.writeStartObject();
+		if (data.hasClasses()) {
+			jsonOut.writeFieldName("classes");
+			delegateStringListStreamHandler.write(jsonOut, data.getClasses());
+		}
+		jsonOut.writeFieldName("rows");
+		jsonOut.writeStartArray();
+		int rowCount = 0;
+		for (LabeledInstance<String> row : data) {
+			delegateRowStreamHandler.write(jsonOut, row);
+			if (++rowCount % FLUSH_INTERVAL == 0) {
+				// let the receiver start working on the rows written so far.
+				jsonOut.flush();
+			}
+		}
+		jsonOut.writeEndArray();
+		jsonOut.writeEndObject();
+	}
+
+}
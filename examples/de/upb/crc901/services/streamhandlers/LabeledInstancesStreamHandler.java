@@ -1,6 +1,7 @@
 package de.upb.crc901.services.streamhandlers;
 
 import java.io.IOException;
+import java.util.AbstractList;
 import java.util.List;
 
 import com.fasterxml.jackson.core.JsonGenerator;
@@ -8,8 +9,11 @@ import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
 
 import de.upb.crc901.services.core.StreamHandler;
+import de.upb.crc901.services.types.DoubleArrayInstance;
+import de.upb.crc901.services.types.DoubleArrayLabeledInstance;
 import jaicore.ml.core.SimpleLabeledInstanceImpl;
 import jaicore.ml.core.SimpleLabeledInstancesImpl;
+import jaicore.ml.interfaces.Instance;
 import jaicore.ml.interfaces.Instances;
 import jaicore.ml.interfaces.LabeledInstance;
 import jaicore.ml.interfaces.LabeledInstances;
@@ -19,6 +23,12 @@ import jaicore.ml.interfaces.LabeledInstances;
  * 
  * Example of labeledinstances: {"instances":[[1.0,2.0],[3.0,4.0]],"labels":["A","B"]}
  * 
+ * The labels are written and read by StringListStreamHandler, so they are
+ * dictionary encoded if the hint StringListStreamHandler.LABEL_DICTIONARY is set:
+ * {"instances":[[1.0,2.0],[3.0,4.0]],"labels":{"dictionary":["A"],"codes":[0,0]}}
+ * 
+ * The rows that are read share one primitive array, see DoubleArrayLabeledInstance.
+ * 
  * @author aminfaez
  *
  */
@@ -39,11 +49,17 @@ public class LabeledInstancesStreamHandler implements StreamHandler<LabeledInsta
 		jsonOut.writeFieldName("instances");
 		delegateInstancesStreamHandler.writeList(jsonOut, data);
 		jsonOut.writeFieldName("labels");
-		jsonOut.writeStartArray();
-		for(LabeledInstance<String> labeledInstance : data) {
-			jsonOut.writeString(labeledInstance.getLabel());
-		}
-		jsonOut.writeEndArray();
+		delegateStringListStreamHandler.write(jsonOut, new AbstractList<String>() {
+			@Override
+			public String get(int index) {
+				return data.get(index).getLabel();
+			}
+
+			@Override
+			public int size() {
+				return data.size();
+			}
+		});
 		jsonOut.writeEndObject();
 	}
 
@@ -64,9 +80,17 @@ public class LabeledInstancesStreamHandler implements StreamHandler<LabeledInsta
 		    }
 		}
 		for(int i = 0; i <  labels.size(); i ++) {
+			Instance row = instances.get(i);
+			if (row instanceof DoubleArrayInstance) {
+				// the labeled row shares the values of the row.
+				DoubleArrayInstance arrayRow = (DoubleArrayInstance) row;
+				labeledInstances.add(new DoubleArrayLabeledInstance(arrayRow.array(), arrayRow.offset(),
+						arrayRow.size(), labels.get(i)));
+				continue;
+			}
 			LabeledInstance<String> instance = new SimpleLabeledInstanceImpl();
 			instance.setLabel(labels.get(i));
-			instance.addAll(instances.get(i));
+			instance.addAll(row);
 			labeledInstances.add(instance);
 		}
 		return labeledInstances;
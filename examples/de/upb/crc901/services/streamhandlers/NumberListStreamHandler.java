@@ -0,0 +1,57 @@
+package de.upb.crc901.services.streamhandlers;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import de.upb.crc901.services.core.StreamHandler;
+import de.upb.crc901.services.types.NumberList;
+
+/**
+ * Streamhandler implementation for the semantic type: NumberList
+ * 
+ * Example of numberlist: [0.5,1.0,"NaN"]
+ * 
+ * @author aminfaez
+ *
+ */
+public class NumberListStreamHandler implements StreamHandler<NumberList> {
+
+	@Override
+	public NumberList read(JsonParser jsonIn) throws IOException {
+		NumberList numbers = new NumberList();
+		assert jsonIn.currentToken() == JsonToken.START_ARRAY;
+		while (jsonIn.nextToken() != JsonToken.END_ARRAY) {
+			JsonToken token = jsonIn.currentToken();
+			if (token.isNumeric()) {
+				numbers.add(jsonIn.getDoubleValue());
+			} else if ("NaN".equals(jsonIn.getValueAsString())) {
+				numbers.add(Double.NaN);
+			} else {
+				throw new IOException("Type mismatch: " + token.asString() + " isn't numeric.");
+			}
+		}
+		return numbers;
+	}
+
+	@Override
+	public void write(JsonGenerator jsonOut, NumberList data) throws IOException {
+		jsonOut.writeStartArray();
+		for (Double number : data) {
+			if (number.isNaN()) {
+				jsonOut.writeString("NaN");
+			} else {
+				jsonOut.writeNumber(number);
+			}
+		}
+		jsonOut.writeEndArray();
+	}
+
+	@Override
+	public Class<NumberList> getSupportedSemanticClass() {
+		return NumberList.class;
+	}
+
+}
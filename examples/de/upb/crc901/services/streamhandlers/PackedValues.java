@@ -0,0 +1,176 @@
+package de.upb.crc901.services.streamhandlers;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The binary types numeric values are packed into by the streamhandlers if
+ * the hint InstancesStreamHandler.PACKED_VALUES or
+ * InstancesStreamHandler.FLOAT32_VALUES is set. The type of a block of values
+ * is written in front of it, e.g. "i8", so the reader knows how to unpack them.
+ * Values are little-endian.
+ *
+ * Integral values are packed into the smallest integer type that holds all of
+ * them, e.g. pixels of an image into unsigned bytes. Other values are packed as float32 if that doesn't change them, or if
+ * float32 was requested, and as float64 otherwise.
+ *
+ * @author aminfaez
+ *
+ */
+enum PackedValues {
+	INT8("i8", 1) {
+		@Override
+		void put(ByteBuffer buffer, double value) {
+			buffer.put((byte) value);
+		}
+
+		@Override
+		double get(ByteBuffer buffer, int index) {
+			return buffer.get(index);
+		}
+	},
+	UINT8("u8", 1) {
+		@Override
+		void put(ByteBuffer buffer, double value) {
+			buffer.put((byte) value);
+		}
+
+		@Override
+		double get(ByteBuffer buffer, int index) {
+			return buffer.get(index) & 0xFF;
+		}
+	},
+	INT16("i16", 2) {
+		@Override
+		void put(ByteBuffer buffer, double value) {
+			buffer.putShort((short) value);
+		}
+
+		@Override
+		double get(ByteBuffer buffer, int index) {
+			return buffer.getShort(index);
+		}
+	},
+	UINT16("u16", 2) {
+		@Override
+		void put(ByteBuffer buffer, double value) {
+			buffer.putShort((short) value);
+		}
+
+		@Override
+		double get(ByteBuffer buffer, int index) {
+			return buffer.getShort(index) & 0xFFFF;
+		}
+	},
+	INT32("i32", 4) {
+		@Override
+		void put(ByteBuffer buffer, double value) {
+			buffer.putInt((int) value);
+		}
+
+		@Override
+		double get(ByteBuffer buffer, int index) {
+			return buffer.getInt(index);
+		}
+	},
+	FLOAT32("f32", 4) {
+		@Override
+		void put(ByteBuffer buffer, double value) {
+			buffer.putFloat((float) value);
+		}
+
+		@Override
+		double get(ByteBuffer buffer, int index) {
+			return buffer.getFloat(index);
+		}
+	},
+	FLOAT64("f64", 8) {
+		@Override
+		void put(ByteBuffer buffer, double value) {
+			buffer.putDouble(value);
+		}
+
+		@Override
+		double get(ByteBuffer buffer, int index) {
+			return buffer.getDouble(index);
+		}
+	};
+
+	/**
+	 * Name of the type in the json header.
+	 */
+	final String token;
+
+	/**
+	 * Bytes per value.
+	 */
+	final int size;
+
+	PackedValues(String token, int size) {
+		this.token = token;
+		this.size = size;
+	}
+
+	/**
+	 * Appends the value to the buffer.
+	 */
+	abstract void put(ByteBuffer buffer, double value);
+
+	/**
+	 * Reads the value at the given byte index of the buffer.
+	 */
+	abstract double get(ByteBuffer buffer, int index);
+
+	static PackedValues fromToken(String token) {
+		for (PackedValues type : values()) {
+			if (type.token.equals(token)) {
+				return type;
+			}
+		}
+		throw new IllegalArgumentException("Unknown value type: " + token);
+	}
+
+	/**
+	 * Returns the smallest type that holds the given values exactly. If
+	 * lossyFloat32 is true, values that aren't integral are packed as float32
+	 * even if they lose precision.
+	 */
+	static PackedValues typeOf(double[] values, boolean lossyFloat32) {
+		long min = 0, max = 0;
+		boolean integral = true;
+		boolean exactFloat = true;
+		for (double value : values) {
+			// -0.0 would lose its sign as an integer.
+			if (integral && value == Math.rint(value) && Math.abs(value) <= Integer.MAX_VALUE
+					&& Double.doubleToRawLongBits(value) != NEGATIVE_ZERO) {
+				min = Math.min(min, (long) value);
+				max = Math.max(max, (long) value);
+			} else {
+				integral = false;
+			}
+			if (exactFloat && !Double.isNaN(value) && (double) (float) value != value) {
+				exactFloat = false;
+			}
+			if (!integral && (!exactFloat || lossyFloat32)) {
+				break;
+			}
+		}
+		if (integral) {
+			if (min >= Byte.MIN_VALUE && max <= Byte.MAX_VALUE) {
+				return INT8;
+			}
+			if (min >= 0 && max <= 0xFF) {
+				return UINT8;
+			}
+			if (min >= Short.MIN_VALUE && max <= Short.MAX_VALUE) {
+				return INT16;
+			}
+			if (min >= 0 && max <= 0xFFFF) {
+				return UINT16;
+			}
+			return INT32;
+		}
+		return exactFloat || lossyFloat32 ? FLOAT32 : FLOAT64;
+	}
+
+	private static final long NEGATIVE_ZERO = Double.doubleToRawLongBits(-0.0);
+}
@@ -0,0 +1,173 @@
+package de.upb.crc901.services.streamhandlers;
+
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import de.upb.crc901.services.core.SerializationHints;
+
+/**
+ * Writes large arrays of rows on several cores. The rows are split into chunks
+ * of CHUNK_ROWS rows, which are encoded concurrently on the common fork-join
+ * pool into pooled buffers. The encoded chunks are appended to the output in
+ * order, so the output is the same as if the rows were written one after
+ * another. Only a few chunks per core are encoded ahead of the output, so the
+ * memory used doesn't depend on the amount of rows.
+ *
+ * Small arrays and generators that pretty print are written by the calling
+ * thread.
+ *
+ * @author aminfaez
+ *
+ */
+final class ParallelArrayWriter {
+
+	/** Amount of rows that are encoded by one task. */
+	private static final int CHUNK_ROWS = 1024;
+
+	/** Arrays with less rows are written by the calling thread. */
+	private static final int PARALLEL_MIN_ROWS = 8 * CHUNK_ROWS;
+
+	/** Amount of chunks that are encoded ahead of the output per core. */
+	private static final int CHUNKS_AHEAD_PER_CORE = 2;
+
+	private static final int MAX_POOLED_BUFFERS = 64;
+
+	/** Buffers bigger than this aren't pooled. */
+	private static final int MAX_POOLED_CHARS = 1 << 22;
+
+	private static final SerializedString VALUE_SEPARATOR = new SerializedString(",");
+
+	private static final JsonFactory jsonFactory = new JsonFactory();
+
+	private static final BlockingQueue<ChunkBuffer> bufferPool = new ArrayBlockingQueue<>(MAX_POOLED_BUFFERS);
+
+	private ParallelArrayWriter() {
+	}
+
+	/**
+	 * Writes a single row. Row writers are called concurrently.
+	 */
+	interface RowWriter<T> {
+		void write(JsonGenerator jsonOut, T row) throws IOException;
+	}
+
+	/**
+	 * Writes the given rows as a json array.
+	 */
+	static <T> void writeArray(JsonGenerator jsonOut, List<T> rows, RowWriter<? super T> rowWriter)
+			throws IOException {
+		jsonOut.writeStartArray();
+		if (rows.size() < PARALLEL_MIN_ROWS || jsonOut.getPrettyPrinter() != null
+				|| ForkJoinPool.getCommonPoolParallelism() < 2) {
+			for (T row : rows) {
+				rowWriter.write(jsonOut, row);
+			}
+		} else {
+			writeChunks(jsonOut, rows, rowWriter);
+		}
+		jsonOut.writeEndArray();
+	}
+
+	private static <T> void writeChunks(JsonGenerator jsonOut, List<T> rows, RowWriter<? super T> rowWriter)
+			throws IOException {
+		// the hints are bound to this thread. The tasks encode the rows for the same receiver.
+		Set<String> hints = SerializationHints.current();
+		int chunks = (rows.size() + CHUNK_ROWS - 1) / CHUNK_ROWS;
+		int chunksAhead = ForkJoinPool.getCommonPoolParallelism() * CHUNKS_AHEAD_PER_CORE;
+		Deque<ForkJoinTask<ChunkBuffer>> pending = new ArrayDeque<>(chunksAhead);
+		int submitted = 0;
+		try {
+			for (int written = 0; written < chunks; written++) {
+				while (submitted < chunks && pending.size() < chunksAhead) {
+					int from = submitted * CHUNK_ROWS;
+					int to = Math.min(rows.size(), from + CHUNK_ROWS);
+					pending.add(ForkJoinPool.commonPool()
+							.submit(() -> encode(jsonOut, rows.subList(from, to), rowWriter, hints)));
+					submitted++;
+				}
+				ChunkBuffer buffer = pending.poll().get();
+				jsonOut.writeRawValue(buffer.chars(), 0, buffer.size());
+				release(buffer);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			// Mask this excpetion
+			throw new RuntimeException(e.getCause());
+		} finally {
+			for (ForkJoinTask<ChunkBuffer> task : pending) {
+				task.cancel(false);
+			}
+		}
+	}
+
+	/**
+	 * Encodes the given rows separated by commas, like they are written inside of
+	 * an array.
+	 */
+	private static <T> ChunkBuffer encode(JsonGenerator jsonOut, List<T> rows, RowWriter<? super T> rowWriter,
+			Set<String> hints) throws IOException {
+		Set<String> workerHints = SerializationHints.current();
+		SerializationHints.set(hints);
+		ChunkBuffer buffer = borrow();
+		try (JsonGenerator chunkOut = jsonFactory.createGenerator(buffer)) {
+			chunkOut.overrideStdFeatures(jsonOut.getFeatureMask(), -1);
+			chunkOut.setCharacterEscapes(jsonOut.getCharacterEscapes());
+			chunkOut.setHighestNonEscapedChar(jsonOut.getHighestEscapedChar());
+			chunkOut.setRootValueSeparator(VALUE_SEPARATOR);
+			for (T row : rows) {
+				rowWriter.write(chunkOut, row);
+			}
+		} finally {
+			SerializationHints.set(workerHints);
+		}
+		return buffer;
+	}
+
+	private static ChunkBuffer borrow() {
+		ChunkBuffer buffer = bufferPool.poll();
+		return buffer == null ? new ChunkBuffer() : buffer;
+	}
+
+	private static void release(ChunkBuffer buffer) {
+		if (buffer.capacity() <= MAX_POOLED_CHARS) {
+			buffer.reset();
+			bufferPool.offer(buffer);
+		}
+	}
+
+	/**
+	 * Gives access to the characters without copying them.
+	 */
+	private static final class ChunkBuffer extends CharArrayWriter {
+
+		ChunkBuffer() {
+			super(1 << 14);
+		}
+
+		char[] chars() {
+			return buf;
+		}
+
+		int capacity() {
+			return buf.length;
+		}
+	}
+}
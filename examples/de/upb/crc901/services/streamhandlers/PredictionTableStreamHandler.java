@@ -0,0 +1,81 @@
+package de.upb.crc901.services.streamhandlers;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import de.upb.crc901.services.core.StreamHandler;
+import de.upb.crc901.services.types.PredictionTable;
+
+/**
+ * Streamhandler implementation for the semantic type: PredictionTable
+ * 
+ * The labels are written once. Each model is written as an array of label
+ * indices.
+ * 
+ * Example of predictiontable: {"labels":["A","B"],"predictions":[[0,1,1],[0,0,1]]}
+ * 
+ * @author aminfaez
+ *
+ */
+public class PredictionTableStreamHandler implements StreamHandler<PredictionTable> {
+
+	@Override
+	public PredictionTable read(JsonParser jsonIn) throws IOException {
+		assert jsonIn.currentToken() == JsonToken.START_OBJECT;
+		List<String> labels = new ArrayList<>();
+		List<int[]> columns = new ArrayList<>();
+		while (jsonIn.nextToken() != JsonToken.END_OBJECT) {
+			String fieldname = jsonIn.getCurrentName();
+			jsonIn.nextToken();
+			if ("labels".equals(fieldname)) {
+				while (jsonIn.nextToken() != JsonToken.END_ARRAY) {
+					labels.add(jsonIn.getValueAsString());
+				}
+			} else if ("predictions".equals(fieldname)) {
+				while (jsonIn.nextToken() != JsonToken.END_ARRAY) {
+					int[] column = new int[16];
+					int size = 0;
+					while (jsonIn.nextToken() != JsonToken.END_ARRAY) {
+						if (size == column.length) {
+							column = Arrays.copyOf(column, size * 2);
+						}
+						column[size++] = jsonIn.getIntValue();
+					}
+					columns.add(Arrays.copyOf(column, size));
+				}
+			} else {
+				jsonIn.skipChildren();
+			}
+		}
+		return new PredictionTable(labels, columns);
+	}
+
+	@Override
+	public void write(JsonGenerator jsonOut, PredictionTable data) throws IOException {
+		jsonOut.writeStartObject();
+		jsonOut.writeArrayFieldStart("labels");
+		for (String label : data.getLabels()) {
+			jsonOut.writeString(label);
+		}
+		jsonOut.writeEndArray();
+		jsonOut.writeArrayFieldStart("predictions");
+		for (int model = 0; model < data.getNumberOfModels(); model++) {
+			int[] column = data.getColumn(model);
+			jsonOut.writeArray(column, 0, column.length);
+		}
+		jsonOut.writeEndArray();
+		jsonOut.writeEndObject();
+	}
+
+	@Override
+	public Class<PredictionTable> getSupportedSemanticClass() {
+		return PredictionTable.class;
+	}
+
+}
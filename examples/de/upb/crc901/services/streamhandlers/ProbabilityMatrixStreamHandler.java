@@ -0,0 +1,103 @@
+package de.upb.crc901.services.streamhandlers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import de.upb.crc901.services.core.StreamHandler;
+import de.upb.crc901.services.types.ProbabilityMatrix;
+
+/**
+ * Streamhandler implementation for the semantic type: ProbabilityMatrix
+ * 
+ * The labels are written once. The probabilities are written as one base64
+ * encoded block of little endian floats ("float32") or doubles ("float64"), row
+ * after row.
+ * 
+ * Example of probabilitymatrix:
+ * {"labels":["A","B"],"rows":2,"dtype":"float32","data":"AACAPwAAAAAAAAA/AAAAPw=="}
+ * 
+ * @author aminfaez
+ *
+ */
+public class ProbabilityMatrixStreamHandler implements StreamHandler<ProbabilityMatrix> {
+
+	private static final String FLOAT32 = "float32";
+	private static final String FLOAT64 = "float64";
+
+	@Override
+	public ProbabilityMatrix read(JsonParser jsonIn) throws IOException {
+		assert jsonIn.currentToken() == JsonToken.START_OBJECT;
+		List<String> labels = new ArrayList<>();
+		int rows = 0;
+		String dtype = FLOAT64;
+		byte[] data = new byte[0];
+		while (jsonIn.nextToken() != JsonToken.END_OBJECT) {
+			String fieldname = jsonIn.getCurrentName();
+			jsonIn.nextToken();
+			if ("labels".equals(fieldname)) {
+				while (jsonIn.nextToken() != JsonToken.END_ARRAY) {
+					labels.add(jsonIn.getValueAsString());
+				}
+			} else if ("rows".equals(fieldname)) {
+				rows = jsonIn.getIntValue();
+			} else if ("dtype".equals(fieldname)) {
+				dtype = jsonIn.getValueAsString();
+			} else if ("data".equals(fieldname)) {
+				data = jsonIn.getBinaryValue();
+			} else {
+				jsonIn.skipChildren();
+			}
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+		double[] values = new double[rows * labels.size()];
+		boolean singlePrecision = FLOAT32.equals(dtype);
+		if (!singlePrecision && !FLOAT64.equals(dtype)) {
+			throw new IOException("Unknown dtype: " + dtype);
+		}
+		if (data.length != values.length * (singlePrecision ? 4 : 8)) {
+			throw new IOException("The data block doesn't contain " + values.length + " " + dtype + " values.");
+		}
+		for (int i = 0; i < values.length; i++) {
+			values[i] = singlePrecision ? buffer.getFloat() : buffer.getDouble();
+		}
+		return new ProbabilityMatrix(labels, rows, values, singlePrecision);
+	}
+
+	@Override
+	public void write(JsonGenerator jsonOut, ProbabilityMatrix data) throws IOException {
+		jsonOut.writeStartObject();
+		jsonOut.writeArrayFieldStart("labels");
+		for (String label : data.getLabels()) {
+			jsonOut.writeString(label);
+		}
+		jsonOut.writeEndArray();
+		jsonOut.writeNumberField("rows", data.getNumberOfRows());
+		jsonOut.writeStringField("dtype", data.isSinglePrecision() ? FLOAT32 : FLOAT64);
+		double[] values = data.getValues();
+		ByteBuffer buffer = ByteBuffer.allocate(values.length * (data.isSinglePrecision() ? 4 : 8))
+				.order(ByteOrder.LITTLE_ENDIAN);
+		for (double value : values) {
+			if (data.isSinglePrecision()) {
+				buffer.putFloat((float) value);
+			} else {
+				buffer.putDouble(value);
+			}
+		}
+		jsonOut.writeFieldName("data");
+		jsonOut.writeBinary(buffer.array());
+		jsonOut.writeEndObject();
+	}
+
+	@Override
+	public Class<ProbabilityMatrix> getSupportedSemanticClass() {
+		return ProbabilityMatrix.class;
+	}
+
+}
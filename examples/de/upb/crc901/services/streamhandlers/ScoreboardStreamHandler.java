@@ -0,0 +1,79 @@
+package de.upb.crc901.services.streamhandlers;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import de.upb.crc901.services.core.ServiceHandle;
+import de.upb.crc901.services.core.StreamHandler;
+import de.upb.crc901.services.types.Scoreboard;
+
+/**
+ * Streamhandler implementation for the semantic type: Scoreboard
+ * 
+ * Example of scoreboard:
+ * [{"options":"-C 0.25","score":0.9,"service":{"classpath":"weka.classifiers.trees.J48","host":"local","id":"..."}},{"options":"-C 0.5","score":0.8}]
+ * 
+ * @author aminfaez
+ *
+ */
+public class ScoreboardStreamHandler implements StreamHandler<Scoreboard> {
+
+	private ServiceHandleStreamHandler delegateServiceHandleStreamHandler = new ServiceHandleStreamHandler();
+
+	@Override
+	public Scoreboard read(JsonParser jsonIn) throws IOException {
+		List<Scoreboard.Entry> entries = new ArrayList<>();
+		assert jsonIn.currentToken() == JsonToken.START_ARRAY;
+		while (jsonIn.nextToken() != JsonToken.END_ARRAY) {
+			String options = null;
+			double score = Double.NaN;
+			ServiceHandle service = null;
+			while (jsonIn.nextToken() != JsonToken.END_OBJECT) {
+				String fieldname = jsonIn.getCurrentName();
+				jsonIn.nextToken();
+				if ("options".equals(fieldname)) {
+					options = jsonIn.getValueAsString();
+				} else if ("score".equals(fieldname)) {
+					score = jsonIn.currentToken().isNumeric() ? jsonIn.getDoubleValue() : Double.NaN;
+				} else if ("service".equals(fieldname)) {
+					service = delegateServiceHandleStreamHandler.read(jsonIn);
+				} else {
+					jsonIn.skipChildren();
+				}
+			}
+			entries.add(new Scoreboard.Entry(options, score, service));
+		}
+		return new Scoreboard(entries);
+	}
+
+	@Override
+	public void write(JsonGenerator jsonOut, Scoreboard data) throws IOException {
+		jsonOut.writeStartArray();
+		for (Scoreboard.Entry entry : data) {
+			jsonOut.writeStartObject();
+			jsonOut.writeStringField("options", entry.getOptions());
+			if (Double.isNaN(entry.getScore())) {
+				jsonOut.writeStringField("score", "NaN");
+			} else {
+				jsonOut.writeNumberField("score", entry.getScore());
+			}
+			if (entry.hasService()) {
+				jsonOut.writeFieldName("service");
+				delegateServiceHandleStreamHandler.write(jsonOut, entry.getService());
+			}
+			jsonOut.writeEndObject();
+		}
+		jsonOut.writeEndArray();
+	}
+
+	@Override
+	public Class<Scoreboard> getSupportedSemanticClass() {
+		return Scoreboard.class;
+	}
+
+}
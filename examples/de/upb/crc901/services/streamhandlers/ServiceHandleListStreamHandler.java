@@ -0,0 +1,50 @@
+package de.upb.crc901.services.streamhandlers;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import de.upb.crc901.services.core.ServiceHandle;
+import de.upb.crc901.services.core.StreamHandler;
+import de.upb.crc901.services.types.ServiceHandleList;
+
+/**
+ * Streamhandler implementation for the semantic type: ServiceHandleList
+ * 
+ * Example of servicehandlelist:
+ * [{"classpath":"weka.classifiers.trees.J48","host":"localhost:8000","id":"..."}]
+ * 
+ * @author aminfaez
+ *
+ */
+public class ServiceHandleListStreamHandler implements StreamHandler<ServiceHandleList> {
+
+	private ServiceHandleStreamHandler delegateServiceHandleStreamHandler = new ServiceHandleStreamHandler();
+
+	@Override
+	public ServiceHandleList read(JsonParser jsonIn) throws IOException {
+		ServiceHandleList services = new ServiceHandleList();
+		assert jsonIn.currentToken() == JsonToken.START_ARRAY;
+		while (jsonIn.nextToken() != JsonToken.END_ARRAY) {
+			services.add(delegateServiceHandleStreamHandler.read(jsonIn));
+		}
+		return services;
+	}
+
+	@Override
+	public void write(JsonGenerator jsonOut, ServiceHandleList data) throws IOException {
+		jsonOut.writeStartArray();
+		for (ServiceHandle service : data) {
+			delegateServiceHandleStreamHandler.write(jsonOut, service);
+		}
+		jsonOut.writeEndArray();
+	}
+
+	@Override
+	public Class<ServiceHandleList> getSupportedSemanticClass() {
+		return ServiceHandleList.class;
+	}
+
+}
@@ -0,0 +1,149 @@
+package de.upb.crc901.services.streamhandlers;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import de.upb.crc901.services.core.StreamHandler;
+import de.upb.crc901.services.types.SparseInstances;
+
+/**
+ * Streamhandler implementation for the semantic type: SparseInstances
+ *
+ * The rows are written in CSR layout. "pointers" contains the position of the
+ * first value of each row and the amount of values at the end:
+ * {"columns":4,"pointers":[0,2,3],"indices":[0,3,1],"values":[1.0,2.0,3.0]}
+ * are the rows [1,0,0,2] and [0,3,0,0].
+ *
+ * @author aminfaez
+ *
+ */
+public class SparseInstancesStreamHandler implements StreamHandler<SparseInstances> {
+
+	@Override
+	public SparseInstances read(JsonParser jsonIn) throws IOException {
+		return readCsr(jsonIn, null).toInstances();
+	}
+
+	@Override
+	public void write(JsonGenerator jsonOut, SparseInstances data) throws IOException {
+		jsonOut.writeStartObject();
+		writeCsr(jsonOut, data);
+		jsonOut.writeEndObject();
+	}
+
+	/**
+	 * Writes the fields of the CSR layout.
+	 */
+	static void writeCsr(JsonGenerator jsonOut, SparseInstances data) throws IOException {
+		jsonOut.writeNumberField("columns", data.getNumberOfColumns());
+		jsonOut.writeArrayFieldStart("pointers");
+		for (int row = 0; row < data.getNumberOfRows(); row++) {
+			jsonOut.writeNumber(data.rowStart(row));
+		}
+		jsonOut.writeNumber(data.getNumberOfValues());
+		jsonOut.writeEndArray();
+		jsonOut.writeArrayFieldStart("indices");
+		for (int position = 0; position < data.getNumberOfValues(); position++) {
+			jsonOut.writeNumber(data.indexAt(position));
+		}
+		jsonOut.writeEndArray();
+		jsonOut.writeArrayFieldStart("values");
+		for (int position = 0; position < data.getNumberOfValues(); position++) {
+			InstanceStreamHandler.writeValue(jsonOut, data.valueAt(position));
+		}
+		jsonOut.writeEndArray();
+	}
+
+	/**
+	 * Reads the fields of the CSR layout. Fields that it doesn't know are handed
+	 * to otherFields.
+	 */
+	static Csr readCsr(JsonParser jsonIn, FieldReader otherFields) throws IOException {
+		assert jsonIn.currentToken() == JsonToken.START_OBJECT;
+		Csr csr = new Csr();
+		while (jsonIn.nextToken() != JsonToken.END_OBJECT) {
+			String fieldname = jsonIn.getCurrentName();
+			JsonToken token = jsonIn.nextToken();
+			if ("columns".equals(fieldname)) {
+				csr.columns = jsonIn.getIntValue();
+			} else if ("pointers".equals(fieldname)) {
+				csr.pointers = readInts(jsonIn);
+			} else if ("indices".equals(fieldname)) {
+				csr.indices = readInts(jsonIn);
+			} else if ("values".equals(fieldname)) {
+				double[] values = new double[16];
+				int count = 0;
+				while ((token = jsonIn.nextToken()) != JsonToken.END_ARRAY) {
+					if (count == values.length) {
+						values = Arrays.copyOf(values, count * 2);
+					}
+					values[count++] = InstanceStreamHandler.readValue(jsonIn, token);
+				}
+				csr.values = Arrays.copyOf(values, count);
+			} else if (otherFields != null) {
+				otherFields.read(fieldname, jsonIn);
+			} else {
+				jsonIn.skipChildren();
+			}
+		}
+		csr.check();
+		return csr;
+	}
+
+	private static int[] readInts(JsonParser jsonIn) throws IOException {
+		int[] ints = new int[16];
+		int count = 0;
+		while (jsonIn.nextToken() != JsonToken.END_ARRAY) {
+			if (count == ints.length) {
+				ints = Arrays.copyOf(ints, count * 2);
+			}
+			ints[count++] = jsonIn.getIntValue();
+		}
+		return Arrays.copyOf(ints, count);
+	}
+
+	@Override
+	public Class<SparseInstances> getSupportedSemanticClass() {
+		return SparseInstances.class;
+	}
+
+	interface FieldReader {
+		void read(String fieldname, JsonParser jsonIn) throws IOException;
+	}
+
+	/**
+	 * The arrays of the CSR layout as they were read.
+	 */
+	static final class Csr {
+		int columns = 0;
+		int[] pointers = { 0 };
+		int[] indices = new int[0];
+		double[] values = new double[0];
+
+		int rows() {
+			return pointers.length - 1;
+		}
+
+		private void check() throws IOException {
+			if (pointers.length == 0 || pointers[0] != 0 || indices.length != values.length
+					|| pointers[pointers.length - 1] != values.length) {
+				throw new IOException("The pointers don't match the " + values.length + " values.");
+			}
+		}
+
+		/**
+		 * Creates instances that take over the arrays.
+		 */
+		SparseInstances toInstances() throws IOException {
+			try {
+				return new SparseInstances(columns, pointers, indices, values);
+			} catch (IllegalArgumentException e) {
+				throw new IOException(e.getMessage(), e);
+			}
+		}
+	}
+}
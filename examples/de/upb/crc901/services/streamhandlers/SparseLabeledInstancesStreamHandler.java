@@ -0,0 +1,68 @@
+package de.upb.crc901.services.streamhandlers;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+
+import de.upb.crc901.services.core.StreamHandler;
+import de.upb.crc901.services.streamhandlers.SparseInstancesStreamHandler.Csr;
+import de.upb.crc901.services.types.SparseLabeledInstances;
+
+/**
+ * Streamhandler implementation for the semantic type: SparseLabeledInstances
+ *
+ * The rows are written like SparseInstances and the labels by
+ * StringListStreamHandler:
+ * {"columns":4,"pointers":[0,2,3],"indices":[0,3,1],"values":[1.0,2.0,3.0],"labels":["A","B"]}
+ *
+ * @author aminfaez
+ *
+ */
+public class SparseLabeledInstancesStreamHandler implements StreamHandler<SparseLabeledInstances> {
+
+	private StringListStreamHandler delegateStringListStreamHandler = new StringListStreamHandler();
+
+	@Override
+	public SparseLabeledInstances read(JsonParser jsonIn) throws IOException {
+		List<List<String>> labels = new ArrayList<>(1);
+		Csr csr = SparseInstancesStreamHandler.readCsr(jsonIn, (fieldname, parser) -> {
+			if ("labels".equals(fieldname)) {
+				labels.add(delegateStringListStreamHandler.read(parser));
+			} else {
+				parser.skipChildren();
+			}
+		});
+		if (labels.isEmpty() || labels.get(0).size() != csr.rows()) {
+			throw new IOException("Expected a label for each of the " + csr.rows() + " rows.");
+		}
+		return new SparseLabeledInstances(csr.toInstances(), labels.get(0));
+	}
+
+	@Override
+	public void write(JsonGenerator jsonOut, SparseLabeledInstances data) throws IOException {
+		jsonOut.writeStartObject();
+		SparseInstancesStreamHandler.writeCsr(jsonOut, data.getInstances());
+		jsonOut.writeFieldName("labels");
+		delegateStringListStreamHandler.write(jsonOut, new AbstractList<String>() {
+			@Override
+			public String get(int index) {
+				return data.get(index).getLabel();
+			}
+
+			@Override
+			public int size() {
+				return data.size();
+			}
+		});
+		jsonOut.writeEndObject();
+	}
+
+	@Override
+	public Class<SparseLabeledInstances> getSupportedSemanticClass() {
+		return SparseLabeledInstances.class;
+	}
+}
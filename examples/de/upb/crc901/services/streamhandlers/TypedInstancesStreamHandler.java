@@ -0,0 +1,131 @@
+package de.upb.crc901.services.streamhandlers;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import de.upb.crc901.services.core.StreamHandler;
+import de.upb.crc901.services.types.DoubleArrayInstance;
+import de.upb.crc901.services.types.TypedInstances;
+import jaicore.ml.interfaces.Instance;
+import jaicore.ml.interfaces.Instances;
+
+/**
+ * Streamhandler implementation for the semantic type: TypedInstances
+ *
+ * Example of typed instances:
+ * {"attributes":[{"name":"width"},{"name":"color","values":["red","blue"]}],"class":1,"rows":[[2.5,1.0],[0.5,0.0]]}
+ *
+ * Numeric attributes have no values. The values of nominal attributes are the
+ * indices of their values. The rows are written and read by
+ * InstancesStreamHandler, so they are packed if the receiver reads packed
+ * values, which turns the indices into single bytes.
+ *
+ * @author aminfaez
+ *
+ */
+public class TypedInstancesStreamHandler implements StreamHandler<TypedInstances> {
+
+	private InstancesStreamHandler delegateInstancesStreamHandler = new InstancesStreamHandler();
+
+	@Override
+	public TypedInstances read(JsonParser jsonIn) throws IOException {
+		List<String> names = new ArrayList<>();
+		List<List<String>> nominalValues = new ArrayList<>();
+		int classIndex = -1;
+		Instances rows = null;
+		while (jsonIn.nextToken() != JsonToken.END_OBJECT) {
+			String fieldname = jsonIn.getCurrentName();
+			jsonIn.nextToken();
+			if ("attributes".equals(fieldname)) {
+				while (jsonIn.nextToken() != JsonToken.END_ARRAY) {
+					readAttribute(jsonIn, names, nominalValues);
+				}
+			} else if ("class".equals(fieldname)) {
+				classIndex = jsonIn.getIntValue();
+			} else if ("rows".equals(fieldname)) {
+				rows = delegateInstancesStreamHandler.read(jsonIn);
+			} else {
+				jsonIn.skipChildren();
+			}
+		}
+		TypedInstances typed = new TypedInstances(names, nominalValues, classIndex);
+		if (rows != null) {
+			double[] row = new double[names.size()];
+			for (Instance instance : rows) {
+				if (instance.getNumberOfColumns() != row.length) {
+					throw new IOException("Rows with " + instance.getNumberOfColumns() + " values don't match "
+							+ row.length + " attributes.");
+				}
+				DoubleArrayInstance.copy(instance, row, row.length);
+				typed.addRow(row);
+			}
+		}
+		return typed;
+	}
+
+	/**
+	 * Reads an attribute of the header and adds its name and values to the given
+	 * lists.
+	 */
+	static void readAttribute(JsonParser jsonIn, List<String> names, List<List<String>> nominalValues)
+			throws IOException {
+		String name = null;
+		List<String> values = null;
+		while (jsonIn.nextToken() != JsonToken.END_OBJECT) {
+			String fieldname = jsonIn.getCurrentName();
+			jsonIn.nextToken();
+			if ("name".equals(fieldname)) {
+				name = jsonIn.getValueAsString();
+			} else if ("values".equals(fieldname)) {
+				values = new ArrayList<>();
+				while (jsonIn.nextToken() != JsonToken.END_ARRAY) {
+					values.add(jsonIn.getValueAsString());
+				}
+			} else {
+				jsonIn.skipChildren();
+			}
+		}
+		names.add(name == null ? "a" + (names.size() + 1) : name);
+		nominalValues.add(values);
+	}
+
+	@Override
+	public void write(JsonGenerator jsonOut, TypedInstances data) throws IOException {
+		jsonOut.writeStartObject();
+		jsonOut.writeArrayFieldStart("attributes");
+		for (int att = 0; att < data.getNumberOfAttributes(); att++) {
+			writeAttribute(jsonOut, data.getAttributeName(att), data.getNominalValues(att));
+		}
+		jsonOut.writeEndArray();
+		jsonOut.writeNumberField("class", data.getClassIndex());
+		jsonOut.writeFieldName("rows");
+		delegateInstancesStreamHandler.writeList(jsonOut, data.getRows());
+		jsonOut.writeEndObject();
+	}
+
+	/**
+	 * Writes an attribute of the header. values is null for numeric attributes.
+	 */
+	static void writeAttribute(JsonGenerator jsonOut, String name, List<String> values) throws IOException {
+		jsonOut.writeStartObject();
+		jsonOut.writeStringField("name", name);
+		if (values != null) {
+			jsonOut.writeArrayFieldStart("values");
+			for (String value : values) {
+				jsonOut.writeString(value);
+			}
+			jsonOut.writeEndArray();
+		}
+		jsonOut.writeEndObject();
+	}
+
+	@Override
+	public Class<TypedInstances> getSupportedSemanticClass() {
+		return TypedInstances.class;
+	}
+}
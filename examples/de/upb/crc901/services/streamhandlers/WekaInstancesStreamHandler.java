@@ -0,0 +1,225 @@
+package de.upb.crc901.services.streamhandlers;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import de.upb.crc901.services.core.StreamHandler;
+import de.upb.crc901.services.streamhandlers.InstanceStreamHandler.Values;
+import de.upb.crc901.services.streamhandlers.InstancesStreamHandler.PackedBlock;
+import de.upb.crc901.services.types.TypedInstances;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+
+/**
+ * Streamhandler implementation for the semantic type: WekaInstances
+ *
+ * Writes weka instances straight from their header and the values of their
+ * rows and reads them straight into weka DenseInstances, so no JAICore
+ * instances are created in between. The header is written like the header of
+ * TypedInstances:
+ * {"relation":"iris","attributes":[{"name":"width"},{"name":"color","values":["red","blue"]}],"class":1,"rows":[[2.5,1.0],[0.5,0.0]]}
+ *
+ * The rows are written like InstancesStreamHandler writes them: each row dense
+ * or sparse, or all rows packed column by column if the receiver reads packed
+ * values. "weights" is only written if a row doesn't have the weight 1. Only
+ * numeric and nominal attributes are supported.
+ *
+ * @author aminfaez
+ *
+ */
+public class WekaInstancesStreamHandler implements StreamHandler<Instances> {
+
+	private InstanceStreamHandler instanceHandlerDelegate = new InstanceStreamHandler();
+
+	@Override
+	public Instances read(JsonParser jsonIn) throws IOException {
+		String relation = "JASE weka dataset";
+		List<String> names = new ArrayList<>();
+		List<List<String>> nominalValues = new ArrayList<>();
+		int classIndex = -1;
+		double[] weights = null;
+		Instances instances = null;
+		while (jsonIn.nextToken() != JsonToken.END_OBJECT) {
+			String fieldname = jsonIn.getCurrentName();
+			JsonToken token = jsonIn.nextToken();
+			if ("relation".equals(fieldname)) {
+				relation = jsonIn.getValueAsString();
+			} else if ("attributes".equals(fieldname)) {
+				while (jsonIn.nextToken() != JsonToken.END_ARRAY) {
+					TypedInstancesStreamHandler.readAttribute(jsonIn, names, nominalValues);
+				}
+			} else if ("class".equals(fieldname)) {
+				classIndex = jsonIn.getIntValue();
+			} else if ("weights".equals(fieldname)) {
+				Values values = new Values(16);
+				instanceHandlerDelegate.readValues(jsonIn, values);
+				weights = values.trimmed();
+			} else if ("rows".equals(fieldname)) {
+				if (names.isEmpty()) {
+					throw new IOException("The attributes need to precede the rows.");
+				}
+				instances = new Instances(relation, toAttributes(names, nominalValues), 0);
+				if (token == JsonToken.START_OBJECT) {
+					readPackedRows(jsonIn, instances);
+				} else {
+					readRows(jsonIn, instances);
+				}
+			} else {
+				jsonIn.skipChildren();
+			}
+		}
+		if (instances == null) {
+			instances = new Instances(relation, toAttributes(names, nominalValues), 0);
+		}
+		if (classIndex >= instances.numAttributes()) {
+			throw new IOException("The class index " + classIndex + " isn't an attribute.");
+		}
+		instances.setClassIndex(classIndex);
+		if (weights != null) {
+			if (weights.length != instances.size()) {
+				throw new IOException(weights.length + " weights don't match " + instances.size() + " rows.");
+			}
+			for (int row = 0; row < weights.length; row++) {
+				instances.instance(row).setWeight(weights[row]);
+			}
+		}
+		return instances;
+	}
+
+	private static ArrayList<Attribute> toAttributes(List<String> names, List<List<String>> nominalValues) {
+		ArrayList<Attribute> attributes = new ArrayList<>(names.size());
+		for (int att = 0; att < names.size(); att++) {
+			List<String> values = nominalValues.get(att);
+			attributes.add(values == null ? new Attribute(names.get(att)) : new Attribute(names.get(att), values));
+		}
+		return attributes;
+	}
+
+	/**
+	 * Reads dense or sparse rows. Each row is read into the array that its
+	 * DenseInstance keeps.
+	 */
+	private void readRows(JsonParser jsonIn, Instances instances) throws IOException {
+		int width = instances.numAttributes();
+		int[] nominalSizes = nominalSizes(instances);
+		while (jsonIn.nextToken() != JsonToken.END_ARRAY) {
+			Values values = new Values(width);
+			instanceHandlerDelegate.readValues(jsonIn, values);
+			if (values.size != width) {
+				throw new IOException("Rows with " + values.size + " values don't match " + width + " attributes.");
+			}
+			checkNominalValues(instances, nominalSizes, values.array);
+			instances.add(new DenseInstance(1.0, values.array));
+		}
+	}
+
+	private void readPackedRows(JsonParser jsonIn, Instances instances) throws IOException {
+		PackedBlock block = InstancesStreamHandler.readPackedBlock(jsonIn);
+		int width = instances.numAttributes();
+		if (block.rows > 0 && block.columns != width) {
+			throw new IOException("Rows with " + block.columns + " values don't match " + width + " attributes.");
+		}
+		int[] nominalSizes = nominalSizes(instances);
+		for (int row = 0; row < block.rows; row++) {
+			double[] values = Arrays.copyOfRange(block.values, row * width, (row + 1) * width);
+			checkNominalValues(instances, nominalSizes, values);
+			instances.add(new DenseInstance(1.0, values));
+		}
+	}
+
+	/**
+	 * Returns the amount of values of each nominal attribute and -1 for each
+	 * numeric one.
+	 */
+	private static int[] nominalSizes(Instances instances) {
+		int[] sizes = new int[instances.numAttributes()];
+		for (int att = 0; att < sizes.length; att++) {
+			Attribute attribute = instances.attribute(att);
+			sizes[att] = attribute.isNominal() ? attribute.numValues() : -1;
+		}
+		return sizes;
+	}
+
+	/**
+	 * Makes sure that the value of each nominal attribute is missing or the index
+	 * of one of its values, like TypedInstances.addRow does.
+	 */
+	private static void checkNominalValues(Instances instances, int[] nominalSizes, double[] row) throws IOException {
+		for (int att = 0; att < row.length; att++) {
+			double value = row[att];
+			if (nominalSizes[att] >= 0 && !Double.isNaN(value)
+					&& (value != (int) value || value < 0 || value >= nominalSizes[att])) {
+				throw new IOException(
+						value + " isn't a value index of the nominal attribute " + instances.attribute(att).name() + ".");
+			}
+		}
+	}
+
+	@Override
+	public void write(JsonGenerator jsonOut, Instances data) throws IOException {
+		if (!TypedInstances.isSupported(data)) {
+			throw new IllegalArgumentException("Only numeric and nominal attributes are supported.");
+		}
+		int width = data.numAttributes();
+		jsonOut.writeStartObject();
+		jsonOut.writeStringField("relation", data.relationName());
+		jsonOut.writeArrayFieldStart("attributes");
+		for (int att = 0; att < width; att++) {
+			Attribute attribute = data.attribute(att);
+			TypedInstancesStreamHandler.writeAttribute(jsonOut, attribute.name(),
+					TypedInstances.nominalValuesOf(attribute));
+		}
+		jsonOut.writeEndArray();
+		jsonOut.writeNumberField("class", data.classIndex());
+		if (hasWeights(data)) {
+			jsonOut.writeArrayFieldStart("weights");
+			for (Instance instance : data) {
+				InstanceStreamHandler.writeValue(jsonOut, instance.weight());
+			}
+			jsonOut.writeEndArray();
+		}
+		jsonOut.writeFieldName("rows");
+		if (InstancesStreamHandler.isPacking()) {
+			double[][] columnValues = new double[width][data.size()];
+			int row = 0;
+			for (Instance instance : data) {
+				for (int att = 0; att < width; att++) {
+					columnValues[att][row] = instance.value(att);
+				}
+				row++;
+			}
+			InstancesStreamHandler.writePackedColumns(jsonOut, columnValues, data.size());
+		} else {
+			ParallelArrayWriter.writeArray(jsonOut, data, (rowOut, instance) -> {
+				Values values = new Values(new double[width], 0, width);
+				for (int att = 0; att < width; att++) {
+					values.array[att] = instance.value(att);
+				}
+				instanceHandlerDelegate.writeValues(rowOut, values);
+			});
+		}
+		jsonOut.writeEndObject();
+	}
+
+	private static boolean hasWeights(Instances data) {
+		for (Instance instance : data) {
+			if (instance.weight() != 1.0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public Class<Instances> getSupportedSemanticClass() {
+		return Instances.class;
+	}
+}
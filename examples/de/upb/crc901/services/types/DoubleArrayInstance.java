@@ -0,0 +1,122 @@
+package de.upb.crc901.services.types;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jaicore.ml.interfaces.Instance;
+
+/**
+ * Instance whose values are a range of a primitive double array. Several rows
+ * can share one array, see DoubleArrayInstances. Values can be replaced but
+ * the amount of values is fixed.
+ *
+ * Use getValue or copy to read the values without boxing them.
+ *
+ * @author aminfaez
+ *
+ */
+public class DoubleArrayInstance extends AbstractList<Double> implements Instance {
+
+	private final double[] values;
+	private final int offset;
+	private final int columns;
+
+	public DoubleArrayInstance(double[] values) {
+		this(values, 0, values.length);
+	}
+
+	/**
+	 * View of the values [offset, offset + columns) of the given array. The array
+	 * isn't copied.
+	 */
+	public DoubleArrayInstance(double[] values, int offset, int columns) {
+		if (offset < 0 || columns < 0 || offset + columns > values.length) {
+			throw new IndexOutOfBoundsException(
+					"Range [" + offset + ", " + (offset + columns) + ") of an array of length " + values.length);
+		}
+		this.values = values;
+		this.offset = offset;
+		this.columns = columns;
+	}
+
+	public double getValue(int index) {
+		if (index < 0 || index >= columns) {
+			throw new IndexOutOfBoundsException("Column " + index + " of " + columns);
+		}
+		return values[offset + index];
+	}
+
+	/**
+	 * The array that contains the values of this instance.
+	 */
+	public double[] array() {
+		return values;
+	}
+
+	/**
+	 * Position of the first value of this instance in array().
+	 */
+	public int offset() {
+		return offset;
+	}
+
+	public double[] toDoubleArray() {
+		return Arrays.copyOfRange(values, offset, offset + columns);
+	}
+
+	/**
+	 * Copies the first columns values of the given instance into target. Values of
+	 * DoubleArrayInstances and SparseInstances are copied without boxing them.
+	 */
+	public static void copy(Instance instance, double[] target, int columns) {
+		if (instance instanceof DoubleArrayInstance) {
+			DoubleArrayInstance source = (DoubleArrayInstance) instance;
+			if (columns > source.columns) {
+				throw new IndexOutOfBoundsException("Column " + (columns - 1) + " of " + source.columns);
+			}
+			System.arraycopy(source.values, source.offset, target, 0, columns);
+		} else if (instance instanceof SparseInstances.Row && columns == instance.getNumberOfColumns()) {
+			Arrays.fill(target, 0, columns, 0.0);
+			((SparseInstances.Row) instance).copyTo(target);
+		} else {
+			for (int index = 0; index < columns; index++) {
+				target[index] = instance.get(index);
+			}
+		}
+	}
+
+	@Override
+	public Double get(int index) {
+		return getValue(index);
+	}
+
+	@Override
+	public Double set(int index, Double element) {
+		double previous = getValue(index);
+		values[offset + index] = element;
+		return previous;
+	}
+
+	@Override
+	public int size() {
+		return columns;
+	}
+
+	@Override
+	public int getNumberOfColumns() {
+		return columns;
+	}
+
+	@Override
+	public String toJson() {
+		try {
+			return new ObjectMapper().writeValueAsString(this);
+		} catch (JsonProcessingException e) {
+			// Mask this excpetion
+			throw new RuntimeException(e);
+		}
+	}
+}
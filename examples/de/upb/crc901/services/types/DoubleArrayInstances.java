@@ -0,0 +1,35 @@
+package de.upb.crc901.services.types;
+
+import jaicore.ml.core.SimpleInstancesImpl;
+
+/**
+ * Instances whose values are stored row by row in one primitive double array.
+ * Each row is a DoubleArrayInstance view of its range of the array, so reading
+ * or converting the values doesn't allocate an object per value.
+ *
+ * It is a SimpleInstancesImpl, so it is accepted wherever the streamhandlers'
+ * instances were accepted before. Rows that are added later are kept as they
+ * are.
+ *
+ * @author aminfaez
+ *
+ */
+public class DoubleArrayInstances extends SimpleInstancesImpl {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Creates the rows as views of the given array, which contains rows * columns
+	 * values. The array isn't copied.
+	 */
+	public DoubleArrayInstances(double[] values, int rows, int columns) {
+		super(rows);
+		if ((long) rows * columns > values.length) {
+			throw new IllegalArgumentException(
+					"An array of length " + values.length + " doesn't hold " + rows + " rows of " + columns + " columns.");
+		}
+		for (int row = 0; row < rows; row++) {
+			add(new DoubleArrayInstance(values, row * columns, columns));
+		}
+	}
+}
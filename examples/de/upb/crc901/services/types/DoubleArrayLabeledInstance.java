@@ -0,0 +1,50 @@
+package de.upb.crc901.services.types;
+
+import java.util.Objects;
+
+import jaicore.ml.interfaces.LabeledInstance;
+
+/**
+ * DoubleArrayInstance with a label. LabeledInstancesStreamHandler reads the
+ * rows of labeled instances as views of one primitive array.
+ *
+ * @author aminfaez
+ *
+ */
+public class DoubleArrayLabeledInstance extends DoubleArrayInstance implements LabeledInstance<String> {
+
+	private String label;
+
+	public DoubleArrayLabeledInstance(double[] values, int offset, int columns, String label) {
+		super(values, offset, columns);
+		this.label = label;
+	}
+
+	@Override
+	public String getLabel() {
+		return label;
+	}
+
+	@Override
+	public void setLabel(String label) {
+		this.label = label;
+	}
+
+	@Override
+	public String toString() {
+		return "{data=" + super.toString() + ", label=" + label + "}";
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * super.hashCode() + Objects.hashCode(label);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof LabeledInstance<?>) || !super.equals(obj)) {
+			return false;
+		}
+		return Objects.equals(label, ((LabeledInstance<?>) obj).getLabel());
+	}
+}
@@ -0,0 +1,24 @@
+package de.upb.crc901.services.types;
+
+import java.util.Iterator;
+
+import jaicore.ml.interfaces.Instance;
+
+/**
+ * Instances that are streamed row by row. See RowStream.
+ * 
+ * Semantic type: InstanceStream
+ * 
+ * @author aminfaez
+ *
+ */
+public class InstanceStream extends RowStream<Instance> {
+
+	public InstanceStream(Iterable<? extends Instance> rows) {
+		this(rows.iterator());
+	}
+
+	public InstanceStream(Iterator<? extends Instance> rows) {
+		super(rows);
+	}
+}
@@ -0,0 +1,111 @@
+package de.upb.crc901.services.types;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * Labels that are produced chunk by chunk, e.g. predictions that are made
+ * while the response is being written. Each chunk is written and flushed as
+ * soon as it is available.
+ * 
+ * A stream can only be iterated once. On the receiving side the labels are read
+ * completely.
+ * 
+ * Semantic type: LabelStream
+ * 
+ * @author aminfaez
+ *
+ */
+public class LabelStream implements Iterable<String>, Closeable {
+
+	private final Iterator<? extends List<String>> chunks;
+
+	/** Set to true when the chunks were handed out. */
+	private boolean iterated = false;
+
+	/**
+	 * Creates a stream which consists of the given labels.
+	 */
+	public LabelStream(List<String> labels) {
+		this(Collections.singletonList(labels).iterator());
+	}
+
+	/**
+	 * Creates a stream which takes its labels from the given chunks. If chunks is
+	 * Closeable, it is closed together with this stream.
+	 */
+	public LabelStream(Iterator<? extends List<String>> chunks) {
+		this.chunks = Objects.requireNonNull(chunks);
+	}
+
+	/**
+	 * Returns the iterator over the chunks of labels.
+	 * 
+	 * @throws IllegalStateException
+	 *             if the stream was already iterated.
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized Iterator<List<String>> chunks() {
+		if (iterated) {
+			throw new IllegalStateException("A LabelStream can only be iterated once.");
+		}
+		iterated = true;
+		return (Iterator<List<String>>) chunks;
+	}
+
+	@Override
+	public Iterator<String> iterator() {
+		Iterator<List<String>> chunkIterator = chunks();
+		return new Iterator<String>() {
+			Iterator<String> currentChunk = Collections.emptyIterator();
+
+			@Override
+			public boolean hasNext() {
+				while (!currentChunk.hasNext() && chunkIterator.hasNext()) {
+					currentChunk = chunkIterator.next().iterator();
+				}
+				return currentChunk.hasNext();
+			}
+
+			@Override
+			public String next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return currentChunk.next();
+			}
+		};
+	}
+
+	/**
+	 * Collects all labels in a list.
+	 */
+	public List<String> toList() {
+		List<String> labels = new ArrayList<>();
+		for (String label : this) {
+			labels.add(label);
+		}
+		return labels;
+	}
+
+	/**
+	 * Stops the production of labels.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (chunks instanceof Closeable) {
+			((Closeable) chunks).close();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "LabelStream";
+	}
+}
@@ -0,0 +1,65 @@
+package de.upb.crc901.services.types;
+
+import java.util.Iterator;
+import java.util.List;
+
+import jaicore.ml.interfaces.LabeledInstance;
+
+/**
+ * Labeled instances that are streamed row by row. See RowStream.
+ * 
+ * Semantic type: LabeledInstanceStream
+ * 
+ * @author aminfaez
+ *
+ */
+public class LabeledInstanceStream extends RowStream<LabeledInstance<String>> {
+
+	/** Class labels that may occur in the stream. Null if they are not known. */
+	private final List<String> classes;
+
+	/**
+	 * Creates a stream over the given rows.
+	 * 
+	 * @param classes
+	 *            all class labels that can occur in rows or null if unknown.
+	 */
+	public LabeledInstanceStream(List<String> classes, Iterable<? extends LabeledInstance<String>> rows) {
+		this(classes, rows.iterator());
+	}
+
+	public LabeledInstanceStream(Iterable<? extends LabeledInstance<String>> rows) {
+		this(null, rows);
+	}
+
+	/**
+	 * Creates a stream that takes its rows from the given iterator.
+	 * 
+	 * @param classes
+	 *            all class labels that can occur in rows or null if unknown.
+	 */
+	public LabeledInstanceStream(List<String> classes, Iterator<? extends LabeledInstance<String>> rows) {
+		super(rows);
+		this.classes = classes;
+	}
+
+	/**
+	 * Returns true if the class labels of this stream are known in advance.
+	 */
+	public boolean hasClasses() {
+		return classes != null;
+	}
+
+	/**
+	 * Returns the class labels that can occur in this stream. Null if they are
+	 * not known.
+	 */
+	public List<String> getClasses() {
+		return classes;
+	}
+
+	@Override
+	public String toString() {
+		return super.toString() + (hasClasses() ? classes.toString() : "");
+	}
+}
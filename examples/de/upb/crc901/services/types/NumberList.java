@@ -0,0 +1,32 @@
+package de.upb.crc901.services.types;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * A list of numbers, e.g. the scores of the folds of a cross validation.
+ * 
+ * Semantic type: NumberList
+ * 
+ * @author aminfaez
+ *
+ */
+public class NumberList extends ArrayList<Double> {
+
+	private static final long serialVersionUID = 1L;
+
+	public NumberList() {
+		super();
+	}
+
+	public NumberList(Collection<? extends Double> numbers) {
+		super(numbers);
+	}
+
+	public NumberList(double[] numbers) {
+		super(numbers.length);
+		for (double number : numbers) {
+			add(number);
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package de.upb.crc901.services.types;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Predictions of several models for the same rows. Each model has one column,
+ * that contains the index of the predicted label for every row. The labels are
+ * shared by all models.
+ * 
+ * Semantic type: PredictionTable
+ * 
+ * @author aminfaez
+ *
+ */
+public class PredictionTable {
+
+	private final List<String> labels;
+
+	private final List<int[]> columns;
+
+	public PredictionTable(List<String> labels, List<int[]> columns) {
+		this.labels = Collections.unmodifiableList(new ArrayList<>(labels));
+		this.columns = new ArrayList<>(columns);
+	}
+
+	/**
+	 * Creates the table from the predicted labels of each model. The labels are
+	 * collected in the order they appear.
+	 */
+	public static PredictionTable fromPredictions(List<List<String>> predictions) {
+		List<String> labels = new ArrayList<>();
+		Map<String, Integer> indices = new HashMap<>();
+		List<int[]> columns = new ArrayList<>(predictions.size());
+		for (List<String> modelPredictions : predictions) {
+			int[] column = new int[modelPredictions.size()];
+			for (int row = 0; row < column.length; row++) {
+				String label = modelPredictions.get(row);
+				Integer index = indices.get(label);
+				if (index == null) {
+					index = labels.size();
+					indices.put(label, index);
+					labels.add(label);
+				}
+				column[row] = index;
+			}
+			columns.add(column);
+		}
+		return new PredictionTable(labels, columns);
+	}
+
+	public List<String> getLabels() {
+		return labels;
+	}
+
+	public int getNumberOfModels() {
+		return columns.size();
+	}
+
+	/**
+	 * Returns the label indices predicted by the given model. The array isn't
+	 * copied.
+	 */
+	public int[] getColumn(int model) {
+		return columns.get(model);
+	}
+
+	/**
+	 * Returns the labels predicted by the given model.
+	 */
+	public List<String> getPredictions(int model) {
+		int[] column = columns.get(model);
+		List<String> predictions = new ArrayList<>(column.length);
+		for (int index : column) {
+			predictions.add(labels.get(index));
+		}
+		return predictions;
+	}
+}
@@ -0,0 +1,104 @@
+package de.upb.crc901.services.types;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Class probabilities of several rows, e.g. the distributions predicted by a
+ * classifier. The probabilities are kept in one array, row after row. Column j
+ * contains the probability of the j-th label.
+ * 
+ * If the matrix is single precision, the probabilities are sent as 32 bit
+ * floats, which halves the size on the wire.
+ * 
+ * Semantic type: ProbabilityMatrix
+ * 
+ * @author aminfaez
+ *
+ */
+public class ProbabilityMatrix {
+
+	private final List<String> labels;
+
+	private final int rows;
+
+	private final double[] values;
+
+	private final boolean singlePrecision;
+
+	/**
+	 * @param values
+	 *            the probabilities row after row. Its length needs to be rows *
+	 *            labels.size().
+	 */
+	public ProbabilityMatrix(List<String> labels, int rows, double[] values, boolean singlePrecision) {
+		if (values.length != rows * labels.size()) {
+			throw new IllegalArgumentException("Expected " + rows * labels.size() + " values for " + rows
+					+ " rows and " + labels.size() + " labels, but got " + values.length + ".");
+		}
+		this.labels = Collections.unmodifiableList(new ArrayList<>(labels));
+		this.rows = rows;
+		this.values = values;
+		this.singlePrecision = singlePrecision;
+	}
+
+	public List<String> getLabels() {
+		return labels;
+	}
+
+	public int getNumberOfRows() {
+		return rows;
+	}
+
+	public int getNumberOfLabels() {
+		return labels.size();
+	}
+
+	public boolean isSinglePrecision() {
+		return singlePrecision;
+	}
+
+	/**
+	 * Returns the probability of the given label index for the given row.
+	 */
+	public double get(int row, int label) {
+		return values[row * labels.size() + label];
+	}
+
+	/**
+	 * Returns a copy of the distribution of the given row.
+	 */
+	public double[] getRow(int row) {
+		double[] distribution = new double[labels.size()];
+		System.arraycopy(values, row * labels.size(), distribution, 0, distribution.length);
+		return distribution;
+	}
+
+	/**
+	 * Returns the array that contains the probabilities row after row. The array
+	 * isn't copied.
+	 */
+	public double[] getValues() {
+		return values;
+	}
+
+	/**
+	 * Returns the label with the highest probability of each row. The first label
+	 * wins ties.
+	 */
+	public List<String> toLabels() {
+		List<String> predictions = new ArrayList<>(rows);
+		int width = labels.size();
+		for (int row = 0; row < rows; row++) {
+			int best = 0;
+			for (int label = 1; label < width; label++) {
+				if (values[row * width + label] > values[row * width + best]) {
+					best = label;
+				}
+			}
+			predictions.add(labels.get(best));
+		}
+		return predictions;
+	}
+}
@@ -0,0 +1,82 @@
+package de.upb.crc901.services.types;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Objects;
+
+import de.upb.crc901.services.core.StreamedData;
+
+/**
+ * Base class of data whose rows are handed to the consumer one by one instead
+ * of being collected in memory first. On the receiving side the rows are parsed
+ * from the request body as they are requested, so a service can work on the
+ * first rows while the following ones are still being transmitted.
+ * 
+ * A stream can only be iterated once.
+ * 
+ * @author aminfaez
+ *
+ * @param <R>
+ *            type of the rows
+ */
+public abstract class RowStream<R> implements Iterable<R>, StreamedData {
+
+	private final Iterator<? extends R> rows;
+
+	/** Set to true when the iterator was handed out. */
+	private boolean iterated = false;
+
+	protected RowStream(Iterator<? extends R> rows) {
+		this.rows = Objects.requireNonNull(rows);
+	}
+
+	/**
+	 * Returns the iterator over the rows. The iterator may be used by a different
+	 * thread than the one that calls skipRemaining.
+	 * 
+	 * @throws IllegalStateException
+	 *             if the stream was already iterated.
+	 */
+	@Override
+	public synchronized Iterator<R> iterator() {
+		if (iterated) {
+			throw new IllegalStateException(getClass().getSimpleName() + " can only be iterated once.");
+		}
+		iterated = true;
+		return new Iterator<R>() {
+			@Override
+			public boolean hasNext() {
+				synchronized (rows) {
+					return rows.hasNext();
+				}
+			}
+
+			@Override
+			public R next() {
+				synchronized (rows) {
+					return rows.next();
+				}
+			}
+		};
+	}
+
+	@Override
+	public void skipRemaining() throws IOException {
+		synchronized (this) {
+			iterated = true;
+		}
+		while (true) {
+			synchronized (rows) {
+				if (!rows.hasNext()) {
+					return;
+				}
+				rows.next();
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName();
+	}
+}
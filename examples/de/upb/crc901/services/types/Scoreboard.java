@@ -0,0 +1,102 @@
+package de.upb.crc901.services.types;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import de.upb.crc901.services.core.ServiceHandle;
+import de.upb.crc901.services.core.ServiceHandleContainer;
+
+/**
+ * Result of a hyperparameter sweep. Contains one entry per candidate ordered by
+ * score, the best candidate first. Only the best candidates carry the handle of
+ * their trained service.
+ * 
+ * Semantic type: Scoreboard
+ * 
+ * @author aminfaez
+ *
+ */
+public class Scoreboard implements Iterable<Scoreboard.Entry>, ServiceHandleContainer {
+
+	/**
+	 * Score of a single candidate.
+	 */
+	public static class Entry {
+		private final String options;
+		private final double score;
+		private ServiceHandle service;
+
+		/**
+		 * @param options
+		 *            the options of the candidate.
+		 * @param score
+		 *            the validation score. NaN if the candidate failed.
+		 * @param service
+		 *            the trained candidate or null if it wasn't kept.
+		 */
+		public Entry(String options, double score, ServiceHandle service) {
+			this.options = options;
+			this.score = score;
+			this.service = service;
+		}
+
+		public String getOptions() {
+			return options;
+		}
+
+		public double getScore() {
+			return score;
+		}
+
+		public boolean hasService() {
+			return service != null;
+		}
+
+		public ServiceHandle getService() {
+			return service;
+		}
+
+		@Override
+		public String toString() {
+			return score + " [" + options + "]" + (hasService() ? " " + service.getClasspath() + "/" + service.getId() : "");
+		}
+	}
+
+	private final List<Entry> entries;
+
+	public Scoreboard(List<Entry> entries) {
+		this.entries = new ArrayList<>(entries);
+	}
+
+	public List<Entry> getEntries() {
+		return Collections.unmodifiableList(entries);
+	}
+
+	/**
+	 * Returns the best entry or null if the scoreboard is empty.
+	 */
+	public Entry getBest() {
+		return entries.isEmpty() ? null : entries.get(0);
+	}
+
+	@Override
+	public Iterator<Entry> iterator() {
+		return getEntries().iterator();
+	}
+
+	@Override
+	public void translateServiceHandles(String from, String to) {
+		for (Entry entry : entries) {
+			if (entry.hasService() && entry.service.getHost().equals(from)) {
+				entry.service = entry.service.withExternalHost(to);
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "Scoreboard" + entries;
+	}
+}
@@ -0,0 +1,38 @@
+package de.upb.crc901.services.types;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import de.upb.crc901.services.core.ServiceHandle;
+import de.upb.crc901.services.core.ServiceHandleContainer;
+
+/**
+ * A list of service handles, e.g. the trained models that are evaluated on the
+ * same data.
+ * 
+ * Semantic type: ServiceHandleList
+ * 
+ * @author aminfaez
+ *
+ */
+public class ServiceHandleList extends ArrayList<ServiceHandle> implements ServiceHandleContainer {
+
+	private static final long serialVersionUID = 1L;
+
+	public ServiceHandleList() {
+		super();
+	}
+
+	public ServiceHandleList(Collection<? extends ServiceHandle> services) {
+		super(services);
+	}
+
+	@Override
+	public void translateServiceHandles(String from, String to) {
+		for (int i = 0; i < size(); i++) {
+			if (get(i).getHost().equals(from)) {
+				set(i, get(i).withExternalHost(to));
+			}
+		}
+	}
+}
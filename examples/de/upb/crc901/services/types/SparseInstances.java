@@ -0,0 +1,308 @@
+package de.upb.crc901.services.types;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jaicore.basic.FileUtil;
+import jaicore.ml.interfaces.Instance;
+import jaicore.ml.interfaces.Instances;
+
+/**
+ * Instances that only store their non-zero values, in compressed sparse row
+ * (CSR) layout: the column indices and values of all rows are concatenated and
+ * the values of row i are at the positions [rowStart(i), rowEnd(i)).
+ *
+ * The rows are read-only views of the arrays. Rows are appended by addRow.
+ * WekaClassifierWrapper converts the rows into weka SparseInstances, so the
+ * zeros are never materialized.
+ *
+ * @author aminfaez
+ *
+ */
+public class SparseInstances extends AbstractList<Instance> implements Instances {
+
+	private final int columns;
+
+	private int rows = 0;
+
+	/**
+	 * rowPointers[i] is the position of the first value of row i.
+	 * rowPointers[rows] is the amount of values.
+	 */
+	private int[] rowPointers = new int[16];
+
+	private int[] indices = new int[16];
+
+	private double[] values = new double[16];
+
+	public SparseInstances(int columns) {
+		if (columns < 0) {
+			throw new IllegalArgumentException("Negative amount of columns: " + columns);
+		}
+		this.columns = columns;
+	}
+
+	/**
+	 * Creates instances that take over the given arrays of the CSR layout without
+	 * copying them. Stored zeros are kept.
+	 *
+	 * @param rowPointers
+	 *            position of the first value of each row and the amount of values
+	 *            at the end.
+	 */
+	public SparseInstances(int columns, int[] rowPointers, int[] indices, double[] values) {
+		this(columns);
+		int rows = rowPointers.length - 1;
+		if (rows < 0 || rowPointers[0] != 0 || indices.length != values.length
+				|| rowPointers[rows] != values.length) {
+			throw new IllegalArgumentException("The row pointers don't match the " + values.length + " values.");
+		}
+		for (int row = 0; row < rows; row++) {
+			if (rowPointers[row + 1] < rowPointers[row]) {
+				throw new IllegalArgumentException("The row pointers aren't ascending at row " + row + ".");
+			}
+			int previous = -1;
+			for (int position = rowPointers[row]; position < rowPointers[row + 1]; position++) {
+				int index = indices[position];
+				if (index <= previous || index >= columns) {
+					throw new IllegalArgumentException("The column index " + index
+							+ " isn't ascending or exceeds " + columns + " columns.");
+				}
+				previous = index;
+			}
+		}
+		this.rows = rows;
+		this.rowPointers = rowPointers;
+		this.indices = indices;
+		this.values = values;
+	}
+
+	/**
+	 * Appends a row with the given non-zero values. Zeros are dropped.
+	 *
+	 * @param rowIndices
+	 *            column indices of the values in ascending order.
+	 * @param rowValues
+	 *            values of the columns.
+	 * @param count
+	 *            amount of values taken from the arrays.
+	 */
+	public void addRow(int[] rowIndices, double[] rowValues, int count) {
+		int start = rowPointers[rows];
+		ensureCapacity(start + count);
+		int end = start;
+		int previous = -1;
+		for (int k = 0; k < count; k++) {
+			int index = rowIndices[k];
+			if (index <= previous || index >= columns) {
+				throw new IllegalArgumentException("The column index " + index + " isn't ascending or exceeds "
+						+ columns + " columns.");
+			}
+			previous = index;
+			// zeros are dropped, but -0.0 keeps its sign.
+			if (Double.doubleToRawLongBits(rowValues[k]) != 0L) {
+				indices[end] = index;
+				values[end] = rowValues[k];
+				end++;
+			}
+		}
+		if (rows + 2 > rowPointers.length) {
+			rowPointers = Arrays.copyOf(rowPointers, rowPointers.length * 2);
+		}
+		rows++;
+		rowPointers[rows] = end;
+		modCount++;
+	}
+
+	/**
+	 * Appends the non-zero values of the given dense row.
+	 */
+	public void addRow(double[] denseRow) {
+		if (denseRow.length != columns) {
+			throw new IllegalArgumentException(
+					"Cannot add " + denseRow.length + "-valued instance to dataset with " + columns + " columns.");
+		}
+		int[] rowIndices = new int[columns];
+		for (int index = 0; index < columns; index++) {
+			rowIndices[index] = index;
+		}
+		addRow(rowIndices, denseRow, columns);
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > indices.length) {
+			int newLength = Math.max(capacity, indices.length * 2);
+			indices = Arrays.copyOf(indices, newLength);
+			values = Arrays.copyOf(values, newLength);
+		}
+	}
+
+	/**
+	 * Position of the first value of the given row.
+	 */
+	public int rowStart(int row) {
+		return rowPointers[row];
+	}
+
+	/**
+	 * Position after the last value of the given row.
+	 */
+	public int rowEnd(int row) {
+		return rowPointers[row + 1];
+	}
+
+	/**
+	 * Column index of the value at the given position.
+	 */
+	public int indexAt(int position) {
+		return indices[position];
+	}
+
+	/**
+	 * The value at the given position.
+	 */
+	public double valueAt(int position) {
+		return values[position];
+	}
+
+	/**
+	 * Amount of non-zero values of all rows.
+	 */
+	public int getNumberOfValues() {
+		return rowPointers[rows];
+	}
+
+	@Override
+	public Row get(int index) {
+		if (index < 0 || index >= rows) {
+			throw new IndexOutOfBoundsException("Row " + index + " of " + rows);
+		}
+		return new Row(this, index);
+	}
+
+	@Override
+	public int size() {
+		return rows;
+	}
+
+	@Override
+	public int getNumberOfRows() {
+		return rows;
+	}
+
+	@Override
+	public int getNumberOfColumns() {
+		return columns;
+	}
+
+	@Override
+	public String toJson() {
+		try {
+			return new ObjectMapper().writeValueAsString(this);
+		} catch (JsonProcessingException e) {
+			// Mask this excpetion
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Appends the rows of a json array of dense rows.
+	 */
+	@Override
+	public void addAllFromJson(String jsonString) throws IOException {
+		JsonNode root = new ObjectMapper().readTree(jsonString);
+		if (!root.isArray()) {
+			throw new IllegalArgumentException("Root node from parsed JSON tree is not an array!");
+		}
+		for (JsonNode rowNode : root) {
+			double[] denseRow = new double[rowNode.size()];
+			for (int index = 0; index < denseRow.length; index++) {
+				denseRow[index] = rowNode.get(index).asDouble();
+			}
+			addRow(denseRow);
+		}
+	}
+
+	@Override
+	public void addAllFromJson(File jsonFile) throws IOException {
+		addAllFromJson(FileUtil.readFileAsString(jsonFile));
+	}
+
+	/**
+	 * Read-only view of a row. Values that aren't stored are 0.
+	 */
+	public static class Row extends AbstractList<Double> implements Instance {
+
+		private final SparseInstances data;
+		private final int row;
+
+		protected Row(SparseInstances data, int row) {
+			this.data = data;
+			this.row = row;
+		}
+
+		/**
+		 * Position of the first value of this row in the arrays of the instances.
+		 */
+		public int start() {
+			return data.rowStart(row);
+		}
+
+		public int end() {
+			return data.rowEnd(row);
+		}
+
+		public int indexAt(int position) {
+			return data.indexAt(position);
+		}
+
+		public double valueAt(int position) {
+			return data.valueAt(position);
+		}
+
+		/**
+		 * Writes the values of this row into the given array, which is expected to
+		 * be filled with zeros.
+		 */
+		public void copyTo(double[] denseRow) {
+			for (int position = start(), end = end(); position < end; position++) {
+				denseRow[data.indices[position]] = data.values[position];
+			}
+		}
+
+		@Override
+		public Double get(int index) {
+			if (index < 0 || index >= data.columns) {
+				throw new IndexOutOfBoundsException("Column " + index + " of " + data.columns);
+			}
+			int position = Arrays.binarySearch(data.indices, start(), end(), index);
+			return position < 0 ? 0.0 : data.values[position];
+		}
+
+		@Override
+		public int size() {
+			return data.columns;
+		}
+
+		@Override
+		public int getNumberOfColumns() {
+			return data.columns;
+		}
+
+		@Override
+		public String toJson() {
+			try {
+				return new ObjectMapper().writeValueAsString(this);
+			} catch (JsonProcessingException e) {
+				// Mask this excpetion
+				throw new RuntimeException(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,174 @@
+package de.upb.crc901.services.types;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import jaicore.basic.FileUtil;
+import jaicore.ml.interfaces.LabeledInstance;
+import jaicore.ml.interfaces.LabeledInstances;
+
+/**
+ * Labeled version of SparseInstances: the rows are stored in CSR layout and
+ * every row has a label.
+ *
+ * @author aminfaez
+ *
+ */
+public class SparseLabeledInstances extends AbstractList<LabeledInstance<String>>
+		implements LabeledInstances<String> {
+
+	private final SparseInstances rows;
+
+	private final ArrayList<String> labels = new ArrayList<>();
+
+	public SparseLabeledInstances(int columns) {
+		this.rows = new SparseInstances(columns);
+	}
+
+	/**
+	 * Labels the given rows without copying them.
+	 */
+	public SparseLabeledInstances(SparseInstances rows, List<String> labels) {
+		if (rows.getNumberOfRows() != labels.size()) {
+			throw new IllegalArgumentException(
+					labels.size() + " labels don't match " + rows.getNumberOfRows() + " rows.");
+		}
+		this.rows = rows;
+		this.labels.addAll(labels);
+	}
+
+	/**
+	 * Appends a labeled row. See SparseInstances.addRow.
+	 */
+	public void addRow(int[] rowIndices, double[] rowValues, int count, String label) {
+		rows.addRow(rowIndices, rowValues, count);
+		labels.add(label);
+		modCount++;
+	}
+
+	/**
+	 * Returns the unlabeled rows.
+	 */
+	public SparseInstances getInstances() {
+		return rows;
+	}
+
+	@Override
+	public Row get(int index) {
+		if (index < 0 || index >= labels.size()) {
+			throw new IndexOutOfBoundsException("Row " + index + " of " + labels.size());
+		}
+		return new Row(this, index);
+	}
+
+	@Override
+	public int size() {
+		return labels.size();
+	}
+
+	@Override
+	public int getNumberOfRows() {
+		return labels.size();
+	}
+
+	@Override
+	public int getNumberOfColumns() {
+		return rows.getNumberOfColumns();
+	}
+
+	/**
+	 * Returns the distinct labels in the order they first occur.
+	 */
+	@Override
+	public ArrayList<String> getOccurringLabels() {
+		return new ArrayList<>(new LinkedHashSet<>(labels));
+	}
+
+	/**
+	 * Writes the dense rows and the labels like SimpleLabeledInstancesImpl:
+	 * {"instances":[[1.0,0.0],[0.0,2.0]],"labels":["A","B"]}
+	 */
+	@Override
+	public String toJson() {
+		ObjectMapper mapper = new ObjectMapper();
+		ObjectNode root = mapper.createObjectNode();
+		ArrayNode instances = root.putArray("instances");
+		ArrayNode labelsNode = root.putArray("labels");
+		for (LabeledInstance<String> row : this) {
+			ArrayNode rowNode = instances.addArray();
+			for (Double value : row) {
+				rowNode.add(value);
+			}
+			labelsNode.add(row.getLabel());
+		}
+		try {
+			return mapper.writeValueAsString(root);
+		} catch (JsonProcessingException e) {
+			// Mask this excpetion
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Appends the rows of json written by toJson.
+	 */
+	@Override
+	public void addAllFromJson(String jsonString) throws IOException {
+		JsonNode root = new ObjectMapper().readTree(jsonString);
+		JsonNode instances = root.get("instances");
+		JsonNode labelsNode = root.get("labels");
+		if (instances == null || labelsNode == null || instances.size() != labelsNode.size()) {
+			throw new IllegalArgumentException("Expected the fields instances and labels of the same size.");
+		}
+		int index = 0;
+		for (JsonNode rowNode : instances) {
+			double[] denseRow = new double[rowNode.size()];
+			for (int column = 0; column < denseRow.length; column++) {
+				denseRow[column] = rowNode.get(column).asDouble();
+			}
+			rows.addRow(denseRow);
+			labels.add(labelsNode.get(index++).asText());
+			modCount++;
+		}
+	}
+
+	@Override
+	public void addAllFromJson(File jsonFile) throws IOException {
+		addAllFromJson(FileUtil.readFileAsString(jsonFile));
+	}
+
+	/**
+	 * Read-only view of a labeled row. The label can be replaced.
+	 */
+	public static class Row extends SparseInstances.Row implements LabeledInstance<String> {
+
+		private final SparseLabeledInstances data;
+		private final int row;
+
+		protected Row(SparseLabeledInstances data, int row) {
+			super(data.rows, row);
+			this.data = data;
+			this.row = row;
+		}
+
+		@Override
+		public String getLabel() {
+			return data.labels.get(row);
+		}
+
+		@Override
+		public void setLabel(String label) {
+			data.labels.set(row, label);
+		}
+	}
+}
@@ -0,0 +1,265 @@
+package de.upb.crc901.services.types;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import jaicore.ml.interfaces.Instance;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+
+/**
+ * Dataset whose header describes each attribute as numeric or nominal. The
+ * values of a nominal attribute are the indices of its values, like in weka,
+ * so a nominal attribute stays a single column instead of being binarized.
+ * Missing values are NaN.
+ *
+ * The values are kept in one array, row after row. The class attribute, if
+ * there is one, is a column like any other.
+ *
+ * Semantic type: TypedInstances
+ *
+ * @author aminfaez
+ *
+ */
+public class TypedInstances {
+
+	private final List<String> names;
+
+	/** The values of each nominal attribute. null for numeric attributes. */
+	private final List<List<String>> nominalValues;
+
+	private final int classIndex;
+
+	private double[] values;
+
+	private int rows = 0;
+
+	/**
+	 * @param names
+	 *            names of the attributes.
+	 * @param nominalValues
+	 *            values of each attribute, null for numeric attributes.
+	 * @param classIndex
+	 *            index of the class attribute or -1.
+	 */
+	public TypedInstances(List<String> names, List<List<String>> nominalValues, int classIndex) {
+		if (names.size() != nominalValues.size()) {
+			throw new IllegalArgumentException(
+					names.size() + " attribute names don't match " + nominalValues.size() + " attribute types.");
+		}
+		if (classIndex < -1 || classIndex >= names.size()) {
+			throw new IllegalArgumentException("The class index " + classIndex + " isn't an attribute.");
+		}
+		this.names = Collections.unmodifiableList(new ArrayList<>(names));
+		List<List<String>> values = new ArrayList<>(nominalValues.size());
+		for (List<String> attributeValues : nominalValues) {
+			values.add(attributeValues == null ? null : Collections.unmodifiableList(new ArrayList<>(attributeValues)));
+		}
+		this.nominalValues = Collections.unmodifiableList(values);
+		this.classIndex = classIndex;
+		this.values = new double[Math.max(16, names.size() * 16)];
+	}
+
+	/**
+	 * Appends a row. The values of nominal attributes are the indices of their
+	 * values.
+	 */
+	public void addRow(double[] row) {
+		int attributes = getNumberOfAttributes();
+		if (row.length != attributes) {
+			throw new IllegalArgumentException(
+					"Cannot add " + row.length + "-valued row to dataset with " + attributes + " attributes.");
+		}
+		for (int att = 0; att < attributes; att++) {
+			List<String> attributeValues = nominalValues.get(att);
+			if (attributeValues != null && !Double.isNaN(row[att])
+					&& (row[att] != (int) row[att] || row[att] < 0 || row[att] >= attributeValues.size())) {
+				throw new IllegalArgumentException(
+						row[att] + " isn't a value index of the nominal attribute " + names.get(att) + ".");
+			}
+		}
+		int start = rows * attributes;
+		if (start + attributes > values.length) {
+			values = Arrays.copyOf(values, Math.max(start + attributes, values.length * 2));
+		}
+		System.arraycopy(row, 0, values, start, attributes);
+		rows++;
+	}
+
+	public int getNumberOfRows() {
+		return rows;
+	}
+
+	public int getNumberOfAttributes() {
+		return names.size();
+	}
+
+	public String getAttributeName(int att) {
+		return names.get(att);
+	}
+
+	public boolean isNominal(int att) {
+		return nominalValues.get(att) != null;
+	}
+
+	/**
+	 * Returns the values of the nominal attribute or null if it is numeric.
+	 */
+	public List<String> getNominalValues(int att) {
+		return nominalValues.get(att);
+	}
+
+	/**
+	 * Returns the index of the class attribute or -1.
+	 */
+	public int getClassIndex() {
+		return classIndex;
+	}
+
+	public double get(int row, int att) {
+		return values[row * names.size() + att];
+	}
+
+	/**
+	 * Returns the rows as views of the array of this dataset.
+	 */
+	public List<Instance> getRows() {
+		double[] rowValues = values;
+		int attributes = names.size();
+		int size = rows;
+		return new AbstractList<Instance>() {
+			@Override
+			public Instance get(int row) {
+				if (row < 0 || row >= size) {
+					throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+				}
+				return new DoubleArrayInstance(rowValues, row * attributes, attributes);
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+		};
+	}
+
+	/**
+	 * Creates weka instances with an equivalent header. Each row gets its own
+	 * copy of the values.
+	 */
+	public Instances toWekaInstances() {
+		int[] order = new int[names.size()];
+		for (int att = 0; att < order.length; att++) {
+			order[att] = att;
+		}
+		return toWekaInstances(order, classIndex);
+	}
+
+	/**
+	 * Like toWekaInstances, but the class attribute is moved behind the other
+	 * attributes.
+	 */
+	public Instances toWekaInstancesClassLast() {
+		if (classIndex < 0 || classIndex == names.size() - 1) {
+			return toWekaInstances();
+		}
+		int[] order = new int[names.size()];
+		int position = 0;
+		for (int att = 0; att < order.length; att++) {
+			if (att != classIndex) {
+				order[position++] = att;
+			}
+		}
+		order[position] = classIndex;
+		return toWekaInstances(order, position);
+	}
+
+	/**
+	 * @param order
+	 *            the attribute of this dataset for each weka attribute.
+	 */
+	private Instances toWekaInstances(int[] order, int wekaClassIndex) {
+		ArrayList<Attribute> attributes = new ArrayList<>(order.length);
+		for (int att : order) {
+			List<String> attributeValues = nominalValues.get(att);
+			attributes.add(attributeValues == null ? new Attribute(names.get(att))
+					: new Attribute(names.get(att), new ArrayList<>(attributeValues)));
+		}
+		Instances wekaInstances = new Instances("JASE typed dataset", attributes, rows);
+		wekaInstances.setClassIndex(wekaClassIndex);
+		int width = names.size();
+		for (int row = 0; row < rows; row++) {
+			double[] rowValues = new double[width];
+			for (int att = 0; att < width; att++) {
+				rowValues[att] = values[row * width + order[att]];
+			}
+			wekaInstances.add(new DenseInstance(1.0, rowValues));
+		}
+		return wekaInstances;
+	}
+
+	/**
+	 * Returns true if all attributes of the header are numeric or nominal.
+	 */
+	public static boolean isSupported(Instances header) {
+		for (int att = 0; att < header.numAttributes(); att++) {
+			Attribute attribute = header.attribute(att);
+			if (!attribute.isNumeric() && !attribute.isNominal()) {
+				return false;
+			}
+			if (attribute.isNumeric() && attribute.type() != Attribute.NUMERIC) {
+				// dates are numeric but need their format.
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the values of the given nominal attribute or null if it isn't
+	 * nominal.
+	 */
+	public static List<String> nominalValuesOf(Attribute attribute) {
+		if (!attribute.isNominal()) {
+			return null;
+		}
+		List<String> attributeValues = new ArrayList<>(attribute.numValues());
+		for (int value = 0; value < attribute.numValues(); value++) {
+			attributeValues.add(attribute.value(value));
+		}
+		return attributeValues;
+	}
+
+	/**
+	 * Copies the header and the values of the given weka instances.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if an attribute isn't numeric or nominal.
+	 */
+	public static TypedInstances fromWekaInstances(Instances wekaInstances) {
+		if (!isSupported(wekaInstances)) {
+			throw new IllegalArgumentException("Only numeric and nominal attributes are supported.");
+		}
+		int width = wekaInstances.numAttributes();
+		List<String> names = new ArrayList<>(width);
+		List<List<String>> nominalValues = new ArrayList<>(width);
+		for (int att = 0; att < width; att++) {
+			Attribute attribute = wekaInstances.attribute(att);
+			names.add(attribute.name());
+			nominalValues.add(nominalValuesOf(attribute));
+		}
+		TypedInstances typed = new TypedInstances(names, nominalValues, wekaInstances.classIndex());
+		typed.values = new double[Math.max(16, wekaInstances.size() * width)];
+		for (weka.core.Instance instance : wekaInstances) {
+			for (int att = 0; att < width; att++) {
+				typed.values[typed.rows * width + att] = instance.value(att);
+			}
+			typed.rows++;
+		}
+		return typed;
+	}
+}
@@ -0,0 +1,32 @@
+package de.upb.crc901.services.typeserializers;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import de.upb.crc901.services.core.IOntologySerializer;
+import de.upb.crc901.services.core.JASEDataObject;
+import jaicore.ml.interfaces.Instances;
+
+public class DoubleArrayInstancesOntologySerializer implements IOntologySerializer<Instances> {
+
+	private static final List<String> supportedTypes = Arrays.asList(new String[] { "Instances" });
+
+	public Instances unserialize(final JASEDataObject jdo) {
+		if (jdo.getData() instanceof Instances) {
+			return (Instances) jdo.getData();
+		} else {
+			throw typeMismatch(jdo);
+		}
+	}
+
+	@Override
+	public JASEDataObject serialize(Instances object) {
+		return new JASEDataObject("Instances", object);
+	}
+
+	@Override
+	public Collection<String> getSupportedSemanticTypes() {
+		return supportedTypes;
+	}
+}
@@ -0,0 +1,26 @@
+package de.upb.crc901.services.typeserializers;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import de.upb.crc901.services.core.IOntologySerializer;
+import de.upb.crc901.services.core.JASEDataObject;
+import de.upb.crc901.services.types.InstanceStream;
+
+public class InstanceStreamOntologySerializer implements IOntologySerializer<InstanceStream> {
+
+	private static final List<String> supportedTypes = Arrays.asList(new String[] { "InstanceStream" });
+
+	public InstanceStream unserialize(final JASEDataObject jdo) {
+		return (InstanceStream) jdo.getData();
+	}
+
+	public JASEDataObject serialize(final InstanceStream stream) {
+		return new JASEDataObject("InstanceStream", stream);
+	}
+
+	public Collection<String> getSupportedSemanticTypes() {
+		return supportedTypes;
+	}
+}
@@ -5,7 +5,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Enumeration;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.collections4.ListUtils;
 import org.apache.commons.lang3.NotImplementedException;
@@ -13,56 +15,248 @@ import org.apache.commons.lang3.NotImplementedException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import de.upb.crc901.services.ExchangeTest;
+import de.upb.crc901.services.core.ConversionCache;
 import de.upb.crc901.services.core.IOntologySerializer;
 import de.upb.crc901.services.core.JASEDataObject;
+import de.upb.crc901.services.core.SerializationHints;
 import de.upb.crc901.services.core.TimeLogger;
+import de.upb.crc901.services.types.DoubleArrayInstance;
+import de.upb.crc901.services.types.DoubleArrayLabeledInstance;
+import de.upb.crc901.services.types.TypedInstances;
 import jaicore.ml.WekaUtil;
 import jaicore.ml.core.SimpleInstancesImpl;
-import jaicore.ml.core.SimpleLabeledInstanceImpl;
 import jaicore.ml.core.SimpleLabeledInstancesImpl;
 import jaicore.ml.core.WekaCompatibleInstancesImpl;
+import jaicore.ml.interfaces.LabeledInstance;
 import jaicore.ml.interfaces.LabeledInstances;
 import weka.core.Attribute;
 import weka.core.DenseInstance;
 import weka.core.Instance;
 import weka.core.Instances;
+import weka.core.Utils;
 import weka.filters.Filter;
 import weka.filters.unsupervised.attribute.NominalToBinary;
 
 public class InstancesOntologySerializer implements IOntologySerializer<Instances>  {
 	
-	private static final List<String> supportedTypes = Arrays.asList(new String[] {"Instances", "LabeledInstances"});
+	private static final List<String> supportedTypes = Arrays.asList(new String[] {"Instances", "LabeledInstances", "TypedInstances", "WekaInstances"});
+	
+	/**
+	 * Hint of a receiver that interprets the value indices of nominal attributes itself.
+	 * If it is set, nominal attributes aren't binarized when labeled instances are serialized.
+	 */
+	public static final String NATIVE_NOMINALS = "native-nominals";
+	
+	/**
+	 * Hint of a receiver that reads TypedInstances. If it is set, labeled instances
+	 * with numeric and nominal attributes are serialized with their header, so
+	 * nominal attributes stay single columns of value indices.
+	 */
+	public static final String TYPED_INSTANCES = "typed-instances";
+	
+	/**
+	 * Hint of a receiver that reads WekaInstances. If it is set, weka instances with numeric
+	 * and nominal attributes are sent as they are, without being converted at all.
+	 */
+	public static final String WEKA_INSTANCES = "weka-instances";
+	
+	private static final int MAX_CACHED_PLANS = 32;
+	
+	/**
+	 * Binarization plans of the recently serialized headers.
+	 */
+	private static final Map<List<Object>, BinarizationPlan> plans = new LinkedHashMap<List<Object>, BinarizationPlan>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<List<Object>, BinarizationPlan> eldest) {
+			return size() > MAX_CACHED_PLANS;
+		}
+	};
 	
 	public  Instances unserialize(final JASEDataObject jdo) {
 //		TimeLogger.STOP_TIME("labeledinstances -> wekainstance started");
-		if(jdo.getData() instanceof jaicore.ml.interfaces.Instances) {
-//			TimeLogger.STOP_TIME("unserialize done");
-			return WekaUtil.fromJAICoreInstances((jaicore.ml.interfaces.Instances)jdo.getData());
-		} else if(jdo.getData() instanceof LabeledInstances<?>) {
-			return WekaUtil.fromJAICoreInstances((LabeledInstances<String>)jdo.getData());
+		Object data = jdo.getData();
+		Instances converted;
+		if(data instanceof Instances) {
+			converted = (Instances) data;
+		}
+		else if(data instanceof jaicore.ml.interfaces.Instances) {
+			jaicore.ml.interfaces.Instances instances = (jaicore.ml.interfaces.Instances) data;
+			converted = ConversionCache.shared().computeIfAbsent(instances, Instances.class,
+					cellCount(instances.getNumberOfRows(), instances.getNumberOfColumns()),
+					() -> fromJAICoreInstances(instances));
+		} else if(data instanceof LabeledInstances<?>) {
+			LabeledInstances<String> labeledInstances = (LabeledInstances<String>) data;
+			converted = ConversionCache.shared().computeIfAbsent(labeledInstances, Instances.class,
+					cellCount(labeledInstances.getNumberOfRows(), labeledInstances.getNumberOfColumns() + 1),
+					() -> fromJAICoreLabeledInstances(labeledInstances));
+		} else if(data instanceof TypedInstances) {
+			TypedInstances typedInstances = (TypedInstances) data;
+			converted = ConversionCache.shared().computeIfAbsent(typedInstances, Instances.class,
+					cellCount(typedInstances.getNumberOfRows(), typedInstances.getNumberOfAttributes()),
+					typedInstances::toWekaInstances);
 		}
 		else {
 			throw typeMismatch(jdo);
 		}
+		// the conversion or the received instances are shared. Hand out a copy whose structure can be changed freely.
+		// The attribute values are shared by the copy.
+		return new Instances(converted);
+	}
+
+	/**
+	 * Converts the given instances by copying the values of each row into an array. 
+	 * All rows share the same header.
+	 */
+	private static Instances fromJAICoreInstances(jaicore.ml.interfaces.Instances instances) {
+		int numAttributes = instances.getNumberOfColumns();
+		ArrayList<Attribute> attributes = new ArrayList<>(numAttributes);
+		for (int i = 1; i <= numAttributes; i++) {
+			attributes.add(new Attribute("a" + i));
+		}
+		Instances wekaInstances = new Instances("JAICore-extracted dataset", attributes, instances.getNumberOfRows());
+		for (jaicore.ml.interfaces.Instance instance : instances) {
+			double[] values = new double[numAttributes];
+			DoubleArrayInstance.copy(instance, values, numAttributes);
+			wekaInstances.add(new DenseInstance(1.0, values));
+		}
+		return wekaInstances;
+	}
+
+	/**
+	 * Like fromJAICoreInstances, with the label as the last attribute. The header is the same
+	 * as the one of WekaUtil.fromJAICoreInstances: the values of the class attribute are the
+	 * labels in the order they occur.
+	 */
+	private static Instances fromJAICoreLabeledInstances(LabeledInstances<String> labeledInstances) {
+		int columns = labeledInstances.getNumberOfColumns();
+		ArrayList<Attribute> attributes = new ArrayList<>(columns + 1);
+		for (int i = 1; i <= columns; i++) {
+			attributes.add(new Attribute("a" + i));
+		}
+		Attribute classAttribute = new Attribute("label", labeledInstances.getOccurringLabels());
+		attributes.add(classAttribute);
+		Instances wekaInstances = new Instances("JAICore-extracted dataset", attributes, labeledInstances.getNumberOfRows());
+		wekaInstances.setClassIndex(columns);
+		for (LabeledInstance<String> labeledInstance : labeledInstances) {
+			double[] values = new double[columns + 1];
+			DoubleArrayInstance.copy(labeledInstance, values, columns);
+			int classValue = classAttribute.indexOfValue(labeledInstance.getLabel());
+			values[columns] = classValue < 0 ? Utils.missingValue() : classValue;
+			wekaInstances.add(new DenseInstance(1.0, values));
+		}
+		return wekaInstances;
+	}
+
+	private static long cellCount(int rows, int columns) {
+		return ((long) rows) * columns;
 	}
 
 	public JASEDataObject serialize(Instances wekaInstances) {
 //		TimeLogger.STOP_TIME("wekainstance -> labeledinstances with size: " + wekaInstances.size() + " started");
-		if (wekaInstances.classIndex() < 0) {
+		if (SerializationHints.isSet(WEKA_INSTANCES) && TypedInstances.isSupported(wekaInstances)) {
+			return new JASEDataObject("WekaInstances", wekaInstances);
+		}
+		else if (wekaInstances.classIndex() < 0) {
 			return new JASEDataObject("Instances", WekaUtil.toJAICoreInstances(wekaInstances));
 		}
+		else if (SerializationHints.isSet(TYPED_INSTANCES) && TypedInstances.isSupported(wekaInstances)) {
+			return new JASEDataObject("TypedInstances", TypedInstances.fromWekaInstances(wekaInstances));
+		}
 		else{
-			if(WekaUtil.needsBinarization(wekaInstances, true)) {
-				weka.filters.unsupervised.attribute.NominalToBinary toBinFilter = new weka.filters.unsupervised.attribute.NominalToBinary();
-				try {
-					toBinFilter.setInputFormat(wekaInstances);
-					wekaInstances = Filter.useFilter(wekaInstances, toBinFilter);
-				} catch (Exception e) {
-					e.printStackTrace();
-					throw new RuntimeException(e);
+			boolean binarize = !SerializationHints.isSet(NATIVE_NOMINALS);
+			BinarizationPlan plan = planFor(wekaInstances, binarize);
+			WekaCompatibleInstancesImpl labeledInstances = new WekaCompatibleInstancesImpl(plan.classes);
+			for (Instance instance : wekaInstances) {
+				labeledInstances.add(plan.apply(instance));
+			}
+			return new JASEDataObject("LabeledInstances", labeledInstances);
+		}
+	}
+
+	/**
+	 * Returns the plan of the given header. Plans are cached, so datasets with the same
+	 * header, e.g. consecutive results of a filter, share one plan.
+	 */
+	private static BinarizationPlan planFor(Instances header, boolean binarize) {
+		List<Object> key = new ArrayList<>(header.numAttributes() + 2);
+		key.add(header.classIndex());
+		key.add(binarize);
+		for (int i = 0; i < header.numAttributes(); i++) {
+			key.add(header.attribute(i));
+		}
+		synchronized (plans) {
+			BinarizationPlan plan = plans.get(key);
+			if (plan == null) {
+				plan = new BinarizationPlan(header, binarize && WekaUtil.needsBinarization(header, true));
+				plans.put(key, plan);
+			}
+			return plan;
+		}
+	}
+
+	/**
+	 * Maps the attributes of a header to the columns of labeled instances. Does the same
+	 * as weka's NominalToBinary filter with default options if binarize is set: 
+	 * Nominal attributes with more than 2 values are replaced by one column per value.
+	 * Other attributes are copied. The class attribute becomes the label.
+	 */
+	private static final class BinarizationPlan {
+		/** attribute indices of the input, without the class index */
+		final int[] attributes;
+		/** amount of columns each attribute is mapped to. 0 means the attribute is copied. */
+		final int[] oneHotWidths;
+		/** total amount of columns */
+		final int columns;
+		final int classIndex;
+		final List<String> classes;
+
+		BinarizationPlan(Instances header, boolean binarize) {
+			classIndex = header.classIndex();
+			attributes = new int[header.numAttributes() - 1];
+			oneHotWidths = new int[attributes.length];
+			int column = 0;
+			int i = 0;
+			for (int att = 0; att < header.numAttributes(); att++) {
+				if (att == classIndex) {
+					continue;
+				}
+				Attribute attribute = header.attribute(att);
+				attributes[i] = att;
+				if (binarize && attribute.isNominal() && attribute.numValues() > 2) {
+					oneHotWidths[i] = attribute.numValues();
+					column += attribute.numValues();
+				} else {
+					column++;
+				}
+				i++;
+			}
+			columns = column;
+			classes = WekaUtil.getClassesDeclaredInDataset(header);
+		}
+
+		/**
+		 * Writes the columns of the given row into an array of its own, which the
+		 * returned labeled instance wraps.
+		 */
+		DoubleArrayLabeledInstance apply(Instance instance) {
+			double[] values = new double[columns];
+			int column = 0;
+			for (int i = 0; i < attributes.length; i++) {
+				double value = instance.value(attributes[i]);
+				int width = oneHotWidths[i];
+				if (width == 0) {
+					values[column++] = value;
+				} else {
+					if (Double.isNaN(value)) { // missing values are missing in every column.
+						Arrays.fill(values, column, column + width, value);
+					} else {
+						values[column + (int) value] = 1;
+					}
+					column += width;
 				}
 			}
-			return new JASEDataObject("LabeledInstances", WekaUtil.toJAICoreLabeledInstances(wekaInstances));
+			String label = instance.classAttribute().value((int) instance.value(classIndex));
+			return new DoubleArrayLabeledInstance(values, 0, columns, label);
 		}
 	}
 
@@ -0,0 +1,26 @@
+package de.upb.crc901.services.typeserializers;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import de.upb.crc901.services.core.IOntologySerializer;
+import de.upb.crc901.services.core.JASEDataObject;
+import de.upb.crc901.services.types.LabelStream;
+
+public class LabelStreamOntologySerializer implements IOntologySerializer<LabelStream> {
+
+	private static final List<String> supportedTypes = Arrays.asList(new String[] { "LabelStream" });
+
+	public LabelStream unserialize(final JASEDataObject jdo) {
+		return (LabelStream) jdo.getData();
+	}
+
+	public JASEDataObject serialize(final LabelStream stream) {
+		return new JASEDataObject("LabelStream", stream);
+	}
+
+	public Collection<String> getSupportedSemanticTypes() {
+		return supportedTypes;
+	}
+}
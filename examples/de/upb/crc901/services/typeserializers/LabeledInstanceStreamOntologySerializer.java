@@ -0,0 +1,26 @@
+package de.upb.crc901.services.typeserializers;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import de.upb.crc901.services.core.IOntologySerializer;
+import de.upb.crc901.services.core.JASEDataObject;
+import de.upb.crc901.services.types.LabeledInstanceStream;
+
+public class LabeledInstanceStreamOntologySerializer implements IOntologySerializer<LabeledInstanceStream> {
+
+	private static final List<String> supportedTypes = Arrays.asList(new String[] { "LabeledInstanceStream" });
+
+	public LabeledInstanceStream unserialize(final JASEDataObject jdo) {
+		return (LabeledInstanceStream) jdo.getData();
+	}
+
+	public JASEDataObject serialize(final LabeledInstanceStream stream) {
+		return new JASEDataObject("LabeledInstanceStream", stream);
+	}
+
+	public Collection<String> getSupportedSemanticTypes() {
+		return supportedTypes;
+	}
+}
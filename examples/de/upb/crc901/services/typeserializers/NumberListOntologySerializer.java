@@ -0,0 +1,26 @@
+package de.upb.crc901.services.typeserializers;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import de.upb.crc901.services.core.IOntologySerializer;
+import de.upb.crc901.services.core.JASEDataObject;
+import de.upb.crc901.services.types.NumberList;
+
+public class NumberListOntologySerializer implements IOntologySerializer<NumberList> {
+
+	private static final List<String> supportedTypes = Arrays.asList(new String[] { "NumberList" });
+
+	public NumberList unserialize(final JASEDataObject jdo) {
+		return (NumberList) jdo.getData();
+	}
+
+	public JASEDataObject serialize(final NumberList stream) {
+		return new JASEDataObject("NumberList", stream);
+	}
+
+	public Collection<String> getSupportedSemanticTypes() {
+		return supportedTypes;
+	}
+}
@@ -0,0 +1,26 @@
+package de.upb.crc901.services.typeserializers;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import de.upb.crc901.services.core.IOntologySerializer;
+import de.upb.crc901.services.core.JASEDataObject;
+import de.upb.crc901.services.types.PredictionTable;
+
+public class PredictionTableOntologySerializer implements IOntologySerializer<PredictionTable> {
+
+	private static final List<String> supportedTypes = Arrays.asList(new String[] { "PredictionTable" });
+
+	public PredictionTable unserialize(final JASEDataObject jdo) {
+		return (PredictionTable) jdo.getData();
+	}
+
+	public JASEDataObject serialize(final PredictionTable table) {
+		return new JASEDataObject("PredictionTable", table);
+	}
+
+	public Collection<String> getSupportedSemanticTypes() {
+		return supportedTypes;
+	}
+}
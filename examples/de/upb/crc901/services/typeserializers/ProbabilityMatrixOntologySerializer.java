@@ -0,0 +1,26 @@
+package de.upb.crc901.services.typeserializers;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import de.upb.crc901.services.core.IOntologySerializer;
+import de.upb.crc901.services.core.JASEDataObject;
+import de.upb.crc901.services.types.ProbabilityMatrix;
+
+public class ProbabilityMatrixOntologySerializer implements IOntologySerializer<ProbabilityMatrix> {
+
+	private static final List<String> supportedTypes = Arrays.asList(new String[] { "ProbabilityMatrix" });
+
+	public ProbabilityMatrix unserialize(final JASEDataObject jdo) {
+		return (ProbabilityMatrix) jdo.getData();
+	}
+
+	public JASEDataObject serialize(final ProbabilityMatrix matrix) {
+		return new JASEDataObject("ProbabilityMatrix", matrix);
+	}
+
+	public Collection<String> getSupportedSemanticTypes() {
+		return supportedTypes;
+	}
+}
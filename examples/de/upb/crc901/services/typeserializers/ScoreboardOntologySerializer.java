@@ -0,0 +1,26 @@
+package de.upb.crc901.services.typeserializers;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import de.upb.crc901.services.core.IOntologySerializer;
+import de.upb.crc901.services.core.JASEDataObject;
+import de.upb.crc901.services.types.Scoreboard;
+
+public class ScoreboardOntologySerializer implements IOntologySerializer<Scoreboard> {
+
+	private static final List<String> supportedTypes = Arrays.asList(new String[] { "Scoreboard" });
+
+	public Scoreboard unserialize(final JASEDataObject jdo) {
+		return (Scoreboard) jdo.getData();
+	}
+
+	public JASEDataObject serialize(final Scoreboard stream) {
+		return new JASEDataObject("Scoreboard", stream);
+	}
+
+	public Collection<String> getSupportedSemanticTypes() {
+		return supportedTypes;
+	}
+}
@@ -0,0 +1,26 @@
+package de.upb.crc901.services.typeserializers;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import de.upb.crc901.services.core.IOntologySerializer;
+import de.upb.crc901.services.core.JASEDataObject;
+import de.upb.crc901.services.types.ServiceHandleList;
+
+public class ServiceHandleListOntologySerializer implements IOntologySerializer<ServiceHandleList> {
+
+	private static final List<String> supportedTypes = Arrays.asList(new String[] { "ServiceHandleList" });
+
+	public ServiceHandleList unserialize(final JASEDataObject jdo) {
+		return (ServiceHandleList) jdo.getData();
+	}
+
+	public JASEDataObject serialize(final ServiceHandleList services) {
+		return new JASEDataObject("ServiceHandleList", services);
+	}
+
+	public Collection<String> getSupportedSemanticTypes() {
+		return supportedTypes;
+	}
+}
@@ -0,0 +1,26 @@
+package de.upb.crc901.services.typeserializers;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import de.upb.crc901.services.core.IOntologySerializer;
+import de.upb.crc901.services.core.JASEDataObject;
+import de.upb.crc901.services.types.SparseInstances;
+
+public class SparseInstancesOntologySerializer implements IOntologySerializer<SparseInstances> {
+
+	private static final List<String> supportedTypes = Arrays.asList(new String[] { "SparseInstances" });
+
+	public SparseInstances unserialize(final JASEDataObject jdo) {
+		return (SparseInstances) jdo.getData();
+	}
+
+	public JASEDataObject serialize(final SparseInstances instances) {
+		return new JASEDataObject("SparseInstances", instances);
+	}
+
+	public Collection<String> getSupportedSemanticTypes() {
+		return supportedTypes;
+	}
+}
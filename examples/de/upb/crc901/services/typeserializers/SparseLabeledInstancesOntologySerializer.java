@@ -0,0 +1,26 @@
+package de.upb.crc901.services.typeserializers;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import de.upb.crc901.services.core.IOntologySerializer;
+import de.upb.crc901.services.core.JASEDataObject;
+import de.upb.crc901.services.types.SparseLabeledInstances;
+
+public class SparseLabeledInstancesOntologySerializer implements IOntologySerializer<SparseLabeledInstances> {
+
+	private static final List<String> supportedTypes = Arrays.asList(new String[] { "SparseLabeledInstances" });
+
+	public SparseLabeledInstances unserialize(final JASEDataObject jdo) {
+		return (SparseLabeledInstances) jdo.getData();
+	}
+
+	public JASEDataObject serialize(final SparseLabeledInstances linstances) {
+		return new JASEDataObject("SparseLabeledInstances", linstances);
+	}
+
+	public Collection<String> getSupportedSemanticTypes() {
+		return supportedTypes;
+	}
+}
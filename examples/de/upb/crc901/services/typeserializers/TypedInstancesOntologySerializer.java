@@ -0,0 +1,26 @@
+package de.upb.crc901.services.typeserializers;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import de.upb.crc901.services.core.IOntologySerializer;
+import de.upb.crc901.services.core.JASEDataObject;
+import de.upb.crc901.services.types.TypedInstances;
+
+public class TypedInstancesOntologySerializer implements IOntologySerializer<TypedInstances> {
+
+	private static final List<String> supportedTypes = Arrays.asList(new String[] { "TypedInstances" });
+
+	public TypedInstances unserialize(final JASEDataObject jdo) {
+		return (TypedInstances) jdo.getData();
+	}
+
+	public JASEDataObject serialize(final TypedInstances instances) {
+		return new JASEDataObject("TypedInstances", instances);
+	}
+
+	public Collection<String> getSupportedSemanticTypes() {
+		return supportedTypes;
+	}
+}
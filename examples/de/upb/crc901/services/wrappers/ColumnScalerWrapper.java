@@ -0,0 +1,357 @@
+package de.upb.crc901.services.wrappers;
+
+import java.lang.reflect.Constructor;
+import java.util.Iterator;
+import java.util.stream.IntStream;
+
+import de.upb.crc901.services.core.JASEDataObject;
+import de.upb.crc901.services.types.DoubleArrayInstance;
+import de.upb.crc901.services.types.InstanceStream;
+import jaicore.ml.core.SimpleInstancesImpl;
+import jaicore.ml.interfaces.Instance;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.filters.unsupervised.attribute.Normalize;
+import weka.filters.unsupervised.attribute.Standardize;
+
+/**
+ * Replaces the weka implementation of Normalize and Standardize. The statistics
+ * and the transformation are calculated on arrays of the columns, instead of
+ * pushing every row through the filter as a weka instance. Each column is
+ * handled by its own task, so large datasets are scaled in parallel.
+ *
+ * The values are calculated in the same order as weka calculates them, so the
+ * output is exactly the output of the weka filter. The options of the filter,
+ * e.g. the scale of Normalize, are read from the delegate. Other filters are
+ * handed to WekaFilterWrapper.
+ *
+ * @author aminfaez
+ *
+ */
+public class ColumnScalerWrapper extends WekaFilterWrapper {
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Header of the training data. Null if train wasn't called.
+	 */
+	private Instances header;
+
+	/**
+	 * Index of the class attribute in header, whose values are missing in the
+	 * preprocessed data. -1 if there is none.
+	 */
+	private int classIndex;
+
+	/**
+	 * Marks the attributes that are scaled: numeric attributes that aren't the
+	 * class.
+	 */
+	private boolean[] scaled;
+
+	/**
+	 * For Normalize the minimum, for Standardize the mean of each attribute.
+	 */
+	private double[] offset;
+
+	/**
+	 * For Normalize the maximum, for Standardize the standard deviation of each
+	 * attribute.
+	 */
+	private double[] spread;
+
+	/**
+	 * Scale and translation of Normalize.
+	 */
+	private double scale;
+	private double translation;
+
+	public ColumnScalerWrapper(Constructor<? extends Object> delegateConstructor, JASEDataObject[] values) {
+		super(delegateConstructor, values);
+	}
+
+	private boolean isNormalize() {
+		return super.delegate instanceof Normalize;
+	}
+
+	/**
+	 * Returns false if the delegate isn't supported and WekaFilterWrapper needs
+	 * to handle it.
+	 */
+	private boolean isNative() {
+		return super.delegate instanceof Normalize || super.delegate instanceof Standardize;
+	}
+
+	/**
+	 * Calculates the statistics of the numeric attributes in the given instances.
+	 */
+	@Override
+	public void train(Instances instances) throws Exception {
+		if (!isNative()) {
+			super.train(instances);
+			return;
+		}
+		boolean ignoreClass = isNormalize() ? ((Normalize) super.delegate).getIgnoreClass()
+				: ((Standardize) super.delegate).getIgnoreClass();
+		int attributes = instances.numAttributes();
+		int ignoredIndex = ignoreClass ? -1 : instances.classIndex();
+		boolean[] newScaled = new boolean[attributes];
+		double[] weights = new double[instances.numInstances()];
+		for (int row = 0; row < weights.length; row++) {
+			weights[row] = instances.instance(row).weight();
+		}
+		double[] newOffset = new double[attributes];
+		double[] newSpread = new double[attributes];
+		IntStream.range(0, attributes).parallel().forEach(att -> {
+			if (!instances.attribute(att).isNumeric() || att == ignoredIndex) {
+				return;
+			}
+			newScaled[att] = true;
+			double[] column = instances.attributeToDoubleArray(att);
+			if (isNormalize()) {
+				minMax(column, att, newOffset, newSpread);
+			} else {
+				meanStdDev(column, weights, att, newOffset, newSpread);
+			}
+		});
+		synchronized (this) {
+			header = new Instances(instances, 0);
+			classIndex = instances.classIndex();
+			scaled = newScaled;
+			offset = newOffset;
+			spread = newSpread;
+			if (isNormalize()) {
+				scale = ((Normalize) super.delegate).getScale();
+				translation = ((Normalize) super.delegate).getTranslation();
+			}
+		}
+	}
+
+	/**
+	 * Minimum and maximum of the column like Normalize.batchFinished. NaN if the
+	 * column has no values.
+	 */
+	private static void minMax(double[] column, int att, double[] min, double[] max) {
+		double minimum = Double.NaN;
+		double maximum = 0;
+		for (double value : column) {
+			if (Double.isNaN(value)) {
+				continue;
+			}
+			if (Double.isNaN(minimum)) {
+				minimum = maximum = value;
+				continue;
+			}
+			if (value < minimum) {
+				minimum = value;
+			}
+			if (value > maximum) {
+				maximum = value;
+			}
+		}
+		min[att] = minimum;
+		max[att] = maximum;
+	}
+
+	/**
+	 * Mean and standard deviation of the column like Instances.meanOrMode and
+	 * Instances.variance.
+	 */
+	private static void meanStdDev(double[] column, double[] weights, int att, double[] means, double[] stdDevs) {
+		double found = 0.0;
+		double sum = 0.0;
+		for (int row = 0; row < column.length; row++) {
+			if (Double.isNaN(column[row])) {
+				continue;
+			}
+			found += weights[row];
+			sum += weights[row] * column[row];
+		}
+		means[att] = found <= 0.0 ? 0.0 : sum / found;
+
+		double mean = 0.0;
+		double var = Double.NaN;
+		double sumWeights = 0.0;
+		for (int row = 0; row < column.length; row++) {
+			double value = column[row];
+			if (Double.isNaN(value)) {
+				continue;
+			}
+			double weight = weights[row];
+			if (Double.isNaN(var)) {
+				mean = value;
+				sumWeights = weight;
+				var = 0.0;
+				continue;
+			}
+			double delta = weight * (value - mean);
+			sumWeights += weight;
+			mean += delta / sumWeights;
+			var += delta * (value - mean);
+		}
+		if (sumWeights <= 1.0) {
+			var = Double.NaN;
+		} else {
+			var /= sumWeights - 1.0;
+			if (var < 0.0) {
+				var = 0.0;
+			}
+		}
+		stdDevs[att] = Math.sqrt(var);
+	}
+
+	/**
+	 * Scales the given data with the statistics of the training data. The columns
+	 * of the data are the attributes of the training data without the class
+	 * attribute, which is missing in the returned instances.
+	 */
+	@Override
+	public Instances preprocess(SimpleInstancesImpl instances) throws Exception {
+		if (!isNative()) {
+			return super.preprocess(instances);
+		}
+		Instances trainedHeader = trainedHeader();
+		int attributes = trainedHeader.numAttributes();
+		int rows = instances.size();
+		double[][] columns = new double[attributes][rows];
+		for (int row = 0; row < rows; row++) {
+			Instance instance = instances.get(row);
+			checkColumns(instance.getNumberOfColumns());
+			int column = 0;
+			for (int att = 0; att < attributes; att++) {
+				columns[att][row] = att == classIndex ? weka.core.Utils.missingValue() : instance.get(column++);
+			}
+		}
+		IntStream.range(0, attributes).parallel().forEach(att -> scaleColumn(columns[att], att));
+		Instances result = new Instances(trainedHeader, rows);
+		for (int row = 0; row < rows; row++) {
+			double[] values = new double[attributes];
+			for (int att = 0; att < attributes; att++) {
+				values[att] = columns[att][row];
+			}
+			result.add(new DenseInstance(1.0, values));
+		}
+		return result;
+	}
+
+	/**
+	 * Scales weka instances with the structure of the training data, e.g. inside
+	 * of a pipeline. The class attribute is kept.
+	 */
+	@Override
+	Instances transform(Instances instances) throws Exception {
+		if (!isNative()) {
+			return super.transform(instances);
+		}
+		Instances trainedHeader = trainedHeader();
+		int attributes = trainedHeader.numAttributes();
+		if (instances.numAttributes() != attributes) {
+			throw new RuntimeException("Data column size (=" + instances.numAttributes()
+					+ ") doesn't match the column size of the training data(=" + attributes + ").");
+		}
+		double[][] columns = new double[attributes][];
+		IntStream.range(0, attributes).parallel().forEach(att -> {
+			columns[att] = instances.attributeToDoubleArray(att);
+			scaleColumn(columns[att], att);
+		});
+		Instances result = new Instances(trainedHeader, instances.numInstances());
+		for (int row = 0; row < instances.numInstances(); row++) {
+			double[] values = new double[attributes];
+			for (int att = 0; att < attributes; att++) {
+				values[att] = columns[att][row];
+			}
+			result.add(new DenseInstance(instances.instance(row).weight(), values));
+		}
+		return result;
+	}
+
+	/**
+	 * Scales the rows while they are streamed. The class value is dropped from the
+	 * rows, like WekaFilterWrapper.preprocess_stream does.
+	 */
+	@Override
+	public InstanceStream preprocess_stream(InstanceStream instances) {
+		if (!isNative()) {
+			return super.preprocess_stream(instances);
+		}
+		int attributes = trainedHeader().numAttributes();
+		Iterator<Instance> rows = instances.iterator();
+		return new InstanceStream(new Iterator<Instance>() {
+			@Override
+			public boolean hasNext() {
+				return rows.hasNext();
+			}
+
+			@Override
+			public Instance next() {
+				Instance row = rows.next();
+				checkColumns(row.getNumberOfColumns());
+				double[] values = new double[row.getNumberOfColumns()];
+				DoubleArrayInstance.copy(row, values, values.length);
+				int column = 0;
+				for (int att = 0; att < attributes; att++) {
+					if (att != classIndex) {
+						values[column] = scaleValue(values[column], att);
+						column++;
+					}
+				}
+				return new DoubleArrayInstance(values);
+			}
+		});
+	}
+
+	private synchronized Instances trainedHeader() {
+		if (header == null) {
+			throw new IllegalStateException(super.delegate.getClass().getName()
+					+ " needs to be trained before data can be preprocessed.");
+		}
+		return header;
+	}
+
+	private void checkColumns(int columns) {
+		int expectedColumns = header.numAttributes() - (classIndex < 0 ? 0 : 1);
+		if (columns != expectedColumns) {
+			throw new RuntimeException("Data column size (=" + columns
+					+ ") doesn't match the column size of the training data(=" + expectedColumns + ").");
+		}
+	}
+
+	private void scaleColumn(double[] column, int att) {
+		if (!scaled[att]) {
+			return;
+		}
+		for (int row = 0; row < column.length; row++) {
+			column[row] = scaleValue(column[row], att);
+		}
+	}
+
+	/**
+	 * Scales the value like Normalize.convertInstance or
+	 * Standardize.convertInstance. Missing values stay missing.
+	 */
+	private double scaleValue(double value, int att) {
+		if (!scaled[att] || Double.isNaN(value)) {
+			return value;
+		}
+		double result;
+		if (isNormalize()) {
+			double min = offset[att];
+			double max = spread[att];
+			if (Double.isNaN(min) || max == min) {
+				result = 0.0;
+			} else {
+				result = (value - min) / (max - min) * scale + translation;
+			}
+		} else {
+			double stdDev = spread[att];
+			result = stdDev > 0.0 ? (value - offset[att]) / stdDev : value - offset[att];
+		}
+		if (Double.isNaN(result)) {
+			throw new RuntimeException("A NaN value was generated while scaling attribute " + header.attribute(att).name());
+		}
+		return result;
+	}
+}
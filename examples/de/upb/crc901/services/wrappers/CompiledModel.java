@@ -0,0 +1,25 @@
+package de.upb.crc901.services.wrappers;
+
+import java.io.Serializable;
+
+/**
+ * A trained classifier whose model was extracted into primitive arrays, so rows
+ * can be classified without creating weka instances. Implementations only read
+ * their arrays while classifying and can be used by several threads at once.
+ * 
+ * @author aminfaez
+ *
+ */
+interface CompiledModel extends Serializable {
+
+	/**
+	 * Returned by classify if the row needs to be classified by the weka model.
+	 */
+	int UNHANDLED = -1;
+
+	/**
+	 * Returns the index of the predicted class of the row or UNHANDLED. The row
+	 * contains the value of each attribute at its index.
+	 */
+	int classify(double[] row);
+}
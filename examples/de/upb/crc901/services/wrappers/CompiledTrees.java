@@ -0,0 +1,400 @@
+package de.upb.crc901.services.wrappers;
+
+import java.lang.reflect.Field;
+import java.util.Arrays;
+
+import weka.classifiers.Classifier;
+import weka.classifiers.meta.Bagging;
+import weka.classifiers.trees.J48;
+import weka.classifiers.trees.RandomTree;
+import weka.classifiers.trees.j48.BinC45Split;
+import weka.classifiers.trees.j48.C45Split;
+import weka.classifiers.trees.j48.ClassifierSplitModel;
+import weka.classifiers.trees.j48.ClassifierTree;
+import weka.classifiers.trees.j48.NoSplit;
+import weka.core.Instances;
+import weka.core.Utils;
+
+/**
+ * A trained tree model that is flattened into primitive arrays. Supports
+ * RandomTree, J48 and bagged ensembles of them like RandomForest.
+ *
+ * Every node is an index into the arrays. The children of a node are stored
+ * next to each other, starting at firstChild. Leafs point to their class
+ * distribution in leafDistributions. Classifying a row only reads the arrays,
+ * so instances of this class can be used by several threads at once.
+ *
+ * The predictions are the same as the ones of the trained weka model. Rows that
+ * have a missing value in an attribute that is tested on the path are not
+ * handled and are left to the weka model.
+ *
+ * @author aminfaez
+ *
+ */
+final class CompiledTrees implements CompiledModel {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final byte LEAF = 0;
+	/** RandomTree: first child if value < split. */
+	private static final byte NUMERIC_LESS = 1;
+	/** J48: first child if value <= split. */
+	private static final byte NUMERIC_LESS_OR_EQUAL = 2;
+	/** Child at the index of the value. */
+	private static final byte NOMINAL = 3;
+	/** J48 with binary splits: first child if the value equals split. */
+	private static final byte NOMINAL_EQUAL = 4;
+
+	/**
+	 * Tolerance used by weka's Utils.smOrEq and Utils.gr.
+	 */
+	private static final double SMALL = 1e-6;
+
+	private final int numClasses;
+
+	/**
+	 * If true the class distributions of the trees are summed up like weka's
+	 * Bagging does. Otherwise there is a single tree.
+	 */
+	private final boolean ensemble;
+
+	/**
+	 * If true the class is chosen like J48 does, otherwise like
+	 * AbstractClassifier.classifyInstance does.
+	 */
+	private final boolean j48Rule;
+
+	private final int[] roots;
+
+	private final byte[] kind;
+	private final int[] attribute;
+	private final double[] split;
+	private final int[] firstChild;
+	private final int[] childCount;
+	/** Offset of the distribution of a leaf in leafDistributions. */
+	private final int[] leafOffset;
+	private final double[] leafDistributions;
+
+	private CompiledTrees(Builder builder, int[] roots, boolean ensemble, boolean j48Rule) {
+		this.numClasses = builder.numClasses;
+		this.roots = roots;
+		this.ensemble = ensemble;
+		this.j48Rule = j48Rule;
+		this.kind = Arrays.copyOf(builder.kind, builder.size);
+		this.attribute = Arrays.copyOf(builder.attribute, builder.size);
+		this.split = Arrays.copyOf(builder.split, builder.size);
+		this.firstChild = Arrays.copyOf(builder.firstChild, builder.size);
+		this.childCount = Arrays.copyOf(builder.childCount, builder.size);
+		this.leafOffset = Arrays.copyOf(builder.leafOffset, builder.size);
+		this.leafDistributions = Arrays.copyOf(builder.leafDistributions, builder.distributionSize);
+	}
+
+	/**
+	 * Flattens the given trained classifier. Returns null if the classifier or
+	 * one of its trees isn't supported.
+	 */
+	static CompiledTrees compile(Classifier classifier, int numClasses) {
+		try {
+			Builder builder = new Builder(numClasses);
+			if (classifier instanceof Bagging) {
+				Classifier[] members = (Classifier[]) field(classifier, "m_Classifiers");
+				if (members == null || members.length == 0 || isNumeric(classifier)) {
+					return null;
+				}
+				int[] roots = new int[members.length];
+				for (int i = 0; i < members.length; i++) {
+					roots[i] = builder.addClassifier(members[i]);
+					if (roots[i] < 0) {
+						return null;
+					}
+				}
+				return new CompiledTrees(builder, roots, true, false);
+			}
+			int root = builder.addClassifier(classifier);
+			if (root < 0) {
+				return null;
+			}
+			return new CompiledTrees(builder, new int[] { root }, false, classifier instanceof J48);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// the model isn't built like expected.
+			return null;
+		}
+	}
+
+	@Override
+	public int classify(double[] row) {
+		if (!ensemble) {
+			int leaf = findLeaf(roots[0], row);
+			if (leaf < 0) {
+				return UNHANDLED;
+			}
+			return j48Rule ? j48MaxIndex(leafOffset[leaf]) : maxIndex(leafDistributions, leafOffset[leaf]);
+		}
+		double[] sums = new double[numClasses];
+		for (int root : roots) {
+			int leaf = findLeaf(root, row);
+			if (leaf < 0) {
+				return UNHANDLED;
+			}
+			int offset = leafOffset[leaf];
+			for (int c = 0; c < numClasses; c++) {
+				sums[c] += leafDistributions[offset + c];
+			}
+		}
+		// Bagging normalizes the sums unless they are zero.
+		double sum = Utils.sum(sums);
+		if (!Utils.eq(sum, 0)) {
+			Utils.normalize(sums, sum);
+		}
+		return maxIndex(sums, 0);
+	}
+
+	private int findLeaf(int node, double[] row) {
+		while (kind[node] != LEAF) {
+			double value = row[attribute[node]];
+			if (Double.isNaN(value)) {
+				return -1;
+			}
+			int child;
+			switch (kind[node]) {
+			case NUMERIC_LESS:
+				child = value < split[node] ? 0 : 1;
+				break;
+			case NUMERIC_LESS_OR_EQUAL:
+				child = value - split[node] < SMALL ? 0 : 1;
+				break;
+			case NOMINAL_EQUAL:
+				child = (int) split[node] == (int) value ? 0 : 1;
+				break;
+			default:
+				child = (int) value;
+				if (child < 0 || child >= childCount[node]) {
+					return -1;
+				}
+			}
+			node = firstChild[node] + child;
+		}
+		return node;
+	}
+
+	/**
+	 * Index of the biggest value like AbstractClassifier.classifyInstance. 0 if no
+	 * value is positive.
+	 */
+	private int maxIndex(double[] distributions, int offset) {
+		double max = 0;
+		int maxIndex = 0;
+		for (int c = 0; c < numClasses; c++) {
+			if (distributions[offset + c] > max) {
+				max = distributions[offset + c];
+				maxIndex = c;
+			}
+		}
+		return maxIndex;
+	}
+
+	/**
+	 * Index of the biggest value like ClassifierTree.classifyInstance.
+	 */
+	private int j48MaxIndex(int offset) {
+		double max = -1;
+		int maxIndex = 0;
+		for (int c = 0; c < numClasses; c++) {
+			if (Utils.gr(leafDistributions[offset + c], max)) {
+				max = leafDistributions[offset + c];
+				maxIndex = c;
+			}
+		}
+		return maxIndex;
+	}
+
+	private static boolean isNumeric(Classifier bagging) throws ReflectiveOperationException {
+		return (Boolean) field(bagging, "m_Numeric");
+	}
+
+	/**
+	 * Reads a field that weka doesn't expose.
+	 */
+	static Object field(Object owner, String name) throws ReflectiveOperationException {
+		Class<?> clazz = owner.getClass();
+		while (clazz != null) {
+			try {
+				Field field = clazz.getDeclaredField(name);
+				field.setAccessible(true);
+				return field.get(owner);
+			} catch (NoSuchFieldException e) {
+				clazz = clazz.getSuperclass();
+			}
+		}
+		throw new NoSuchFieldException(name);
+	}
+
+	/**
+	 * Collects the nodes in growing arrays.
+	 */
+	private static final class Builder {
+		final int numClasses;
+		int size = 0;
+		byte[] kind = new byte[64];
+		int[] attribute = new int[64];
+		double[] split = new double[64];
+		int[] firstChild = new int[64];
+		int[] childCount = new int[64];
+		int[] leafOffset = new int[64];
+		int distributionSize = 0;
+		double[] leafDistributions = new double[256];
+
+		Builder(int numClasses) {
+			this.numClasses = numClasses;
+		}
+
+		/**
+		 * Adds the tree of the classifier. Returns the index of its root or -1 if
+		 * the classifier isn't supported.
+		 */
+		int addClassifier(Classifier classifier) throws ReflectiveOperationException {
+			if (classifier.getClass() == RandomTree.class) {
+				if (field(classifier, "m_zeroR") != null) {
+					return -1;
+				}
+				Object tree = field(classifier, "m_Tree");
+				Instances info = (Instances) field(classifier, "m_Info");
+				if (tree == null || info == null || !info.classAttribute().isNominal()) {
+					return -1;
+				}
+				int root = reserve(1);
+				return addRandomTreeNode(root, tree, info) ? root : -1;
+			}
+			if (classifier.getClass() == J48.class) {
+				if ((Boolean) field(classifier, "m_useLaplace")) {
+					return -1;
+				}
+				ClassifierTree tree = (ClassifierTree) field(classifier, "m_root");
+				if (tree == null) {
+					return -1;
+				}
+				int root = reserve(1);
+				return addJ48Node(root, tree) ? root : -1;
+			}
+			return -1;
+		}
+
+		private boolean addRandomTreeNode(int node, Object tree, Instances info) throws ReflectiveOperationException {
+			int att = (Integer) field(tree, "m_Attribute");
+			if (att == -1) {
+				double[] distribution = (double[]) field(tree, "m_ClassDistribution");
+				if (distribution == null || distribution.length != numClasses) {
+					return false;
+				}
+				distribution = distribution.clone();
+				double sum = Utils.sum(distribution);
+				if (sum == 0 || Double.isNaN(sum)) { // weka would fail to normalize.
+					return false;
+				}
+				Utils.normalize(distribution, sum);
+				setLeaf(node, distribution);
+				return true;
+			}
+			Object[] successors = (Object[]) field(tree, "m_Successors");
+			boolean nominal = info.attribute(att).isNominal();
+			if (!nominal && successors.length != 2) {
+				return false;
+			}
+			int children = reserve(successors.length);
+			setSplit(node, nominal ? NOMINAL : NUMERIC_LESS, att, (Double) field(tree, "m_SplitPoint"), children,
+					successors.length);
+			for (int i = 0; i < successors.length; i++) {
+				if (!addRandomTreeNode(children + i, successors[i], info)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private boolean addJ48Node(int node, ClassifierTree tree) throws ReflectiveOperationException {
+			ClassifierSplitModel model = (ClassifierSplitModel) field(tree, "m_localModel");
+			if ((Boolean) field(tree, "m_isLeaf")) {
+				if (!(model instanceof NoSplit)) {
+					return false;
+				}
+				setLeaf(node, classProbs(model, -1));
+				return true;
+			}
+			ClassifierTree[] sons = (ClassifierTree[]) field(tree, "m_sons");
+			Instances train = (Instances) field(tree, "m_train");
+			byte splitKind;
+			int att;
+			double splitPoint;
+			if (model instanceof C45Split) {
+				att = (Integer) field(model, "m_attIndex");
+				splitPoint = (Double) field(model, "m_splitPoint");
+				splitKind = train.attribute(att).isNominal() ? NOMINAL : NUMERIC_LESS_OR_EQUAL;
+			} else if (model instanceof BinC45Split) {
+				att = (Integer) field(model, "m_attIndex");
+				splitPoint = (Double) field(model, "m_splitPoint");
+				splitKind = train.attribute(att).isNominal() ? NOMINAL_EQUAL : NUMERIC_LESS_OR_EQUAL;
+			} else {
+				return false;
+			}
+			int children = reserve(sons.length);
+			setSplit(node, splitKind, att, splitPoint, children, sons.length);
+			for (int i = 0; i < sons.length; i++) {
+				if ((Boolean) field(sons[i], "m_isEmpty")) {
+					// empty sons are predicted by the distribution of the split.
+					setLeaf(children + i, classProbs(model, i));
+				} else if (!addJ48Node(children + i, sons[i])) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private double[] classProbs(ClassifierSplitModel model, int subset) {
+			double[] probs = new double[numClasses];
+			try {
+				for (int c = 0; c < numClasses; c++) {
+					// the instance is only used if the subset is -1 and the model isn't a leaf.
+					probs[c] = model.classProb(c, null, subset);
+				}
+			} catch (Exception e) {
+				// Mask this excpetion
+				throw new RuntimeException(e);
+			}
+			return probs;
+		}
+
+		private int reserve(int count) {
+			int first = size;
+			size += count;
+			if (size > kind.length) {
+				int capacity = Math.max(size, kind.length * 2);
+				kind = Arrays.copyOf(kind, capacity);
+				attribute = Arrays.copyOf(attribute, capacity);
+				split = Arrays.copyOf(split, capacity);
+				firstChild = Arrays.copyOf(firstChild, capacity);
+				childCount = Arrays.copyOf(childCount, capacity);
+				leafOffset = Arrays.copyOf(leafOffset, capacity);
+			}
+			return first;
+		}
+
+		private void setSplit(int node, byte splitKind, int att, double splitPoint, int children, int count) {
+			kind[node] = splitKind;
+			attribute[node] = att;
+			split[node] = splitPoint;
+			firstChild[node] = children;
+			childCount[node] = count;
+		}
+
+		private void setLeaf(int node, double[] distribution) {
+			kind[node] = LEAF;
+			if (distributionSize + numClasses > leafDistributions.length) {
+				leafDistributions = Arrays.copyOf(leafDistributions,
+						Math.max(distributionSize + numClasses, leafDistributions.length * 2));
+			}
+			System.arraycopy(distribution, 0, leafDistributions, distributionSize, numClasses);
+			leafOffset[node] = distributionSize;
+			distributionSize += numClasses;
+		}
+	}
+}
@@ -0,0 +1,258 @@
+package de.upb.crc901.services.wrappers;
+
+import weka.classifiers.Classifier;
+import weka.classifiers.functions.Logistic;
+import weka.classifiers.functions.SGD;
+import weka.core.Instances;
+import weka.filters.Filter;
+
+/**
+ * The coefficients of a trained linear classifier copied into primitive arrays.
+ * A row is classified by a dot product of its values with the coefficients of
+ * each class, without the filters weka runs on every instance.
+ *
+ * The operations are done in the same order as weka does them, so the
+ * predictions are exactly the ones of the weka model. Rows with missing values
+ * are left to the weka model, as it replaces them by the means of the training
+ * data.
+ *
+ * Supported are Logistic and SGD trained on numeric attributes.
+ *
+ * @author aminfaez
+ *
+ */
+final class LinearModel implements CompiledModel {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Index of the row value that is multiplied with each coefficient. The
+	 * intercept is multiplied with 1, its index is INTERCEPT.
+	 */
+	private static final int INTERCEPT = -1;
+
+	private final int[] attribute;
+
+	/**
+	 * Coefficients of every class concatenated: the coefficient of attribute[k]
+	 * for class j is at j * attribute.length + k.
+	 */
+	private final double[] coefficients;
+
+	/**
+	 * Only used by SGD if it normalizes the values: a value is normalized by
+	 * (value - min) / range * scale + translation. A range of NaN marks a constant
+	 * attribute, whose values are normalized to 0.
+	 */
+	private final double[] min;
+	private final double[] range;
+	private final double scale;
+	private final double translation;
+
+	private final Kind kind;
+
+	private enum Kind {
+		/**
+		 * Multinomial logistic regression. The last class has no coefficients.
+		 */
+		LOGISTIC,
+		/**
+		 * Binary classification by the sign of the dot product.
+		 */
+		HINGE,
+		/**
+		 * Binary logistic regression.
+		 */
+		LOG_LOSS
+	}
+
+	private LinearModel(Kind kind, int[] attribute, double[] coefficients, double[] min, double[] range,
+			double scale, double translation) {
+		this.kind = kind;
+		this.attribute = attribute;
+		this.coefficients = coefficients;
+		this.min = min;
+		this.range = range;
+		this.scale = scale;
+		this.translation = translation;
+	}
+
+	/**
+	 * Copies the coefficients of the given trained classifier. Returns null if the
+	 * classifier isn't supported.
+	 *
+	 * @param attributeCount
+	 *            amount of attributes of the training data including the class
+	 *            attribute, which is the last one.
+	 */
+	static LinearModel extract(Classifier classifier, int attributeCount, int numClasses) {
+		try {
+			if (classifier instanceof Logistic) {
+				return extractLogistic((Logistic) classifier, attributeCount, numClasses);
+			}
+			if (classifier instanceof SGD) {
+				return extractSGD((SGD) classifier, attributeCount, numClasses);
+			}
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// not the structure this weka version is expected to have.
+		}
+		return null;
+	}
+
+	private static LinearModel extractLogistic(Logistic logistic, int attributeCount, int numClasses)
+			throws ReflectiveOperationException {
+		double[][] par = logistic.coefficients();
+		Filter replaceMissing = (Filter) CompiledTrees.field(logistic, "m_ReplaceMissingValues");
+		Filter attributeFilter = (Filter) CompiledTrees.field(logistic, "m_AttFilter");
+		Filter nominalToBinary = (Filter) CompiledTrees.field(logistic, "m_NominalToBinary");
+		if (par == null || replaceMissing == null || attributeFilter == null || nominalToBinary == null) {
+			return null;
+		}
+		Instances filtered = nominalToBinary.getOutputFormat();
+		Instances trained = attributeFilter.getOutputFormat();
+		int numPredictors = (Integer) CompiledTrees.field(logistic, "m_NumPredictors");
+		int classIndex = (Integer) CompiledTrees.field(logistic, "m_ClassIndex");
+		if ((Integer) CompiledTrees.field(logistic, "m_NumClasses") != numClasses
+				|| filtered.numAttributes() != trained.numAttributes() || par.length != numPredictors + 1) {
+			return null;
+		}
+		// replacing missing values keeps the attributes of the training data:
+		Instances input = replaceMissing.getOutputFormat();
+		if (input.numAttributes() != attributeCount) {
+			return null;
+		}
+		int[] attribute = new int[numPredictors + 1];
+		attribute[0] = INTERCEPT;
+		int k = 1;
+		for (int att = 0; att <= numPredictors; att++) {
+			if (att == classIndex) {
+				continue;
+			}
+			if (!filtered.attribute(att).isNumeric()) {
+				return null;
+			}
+			attribute[k++] = input.attribute(filtered.attribute(att).name()).index();
+		}
+		double[] coefficients = new double[(numClasses - 1) * attribute.length];
+		for (int j = 0; j < numClasses - 1; j++) {
+			for (k = 0; k < attribute.length; k++) {
+				coefficients[j * attribute.length + k] = par[k][j];
+			}
+		}
+		return new LinearModel(Kind.LOGISTIC, attribute, coefficients, null, null, 0, 0);
+	}
+
+	private static LinearModel extractSGD(SGD sgd, int attributeCount, int numClasses)
+			throws ReflectiveOperationException {
+		double[] weights = sgd.getWeights();
+		int loss = (Integer) CompiledTrees.field(sgd, "m_loss");
+		if (weights == null || numClasses != 2 || weights.length != attributeCount + 1
+				|| (loss != SGD.HINGE && loss != SGD.LOGLOSS)
+				|| CompiledTrees.field(sgd, "m_nominalToBinary") != null) {
+			return null;
+		}
+		Filter normalize = (Filter) CompiledTrees.field(sgd, "m_normalize");
+		int columns = attributeCount - 1;
+		int[] attribute = new int[columns];
+		for (int att = 0; att < columns; att++) {
+			attribute[att] = att;
+		}
+		Kind kind = loss == SGD.HINGE ? Kind.HINGE : Kind.LOG_LOSS;
+		if (normalize == null) {
+			return new LinearModel(kind, attribute, weights.clone(), null, null, 0, 0);
+		}
+		if (normalize.getOutputFormat().classIndex() != columns) {
+			return null;
+		}
+		double[] minArray = (double[]) CompiledTrees.field(normalize, "m_MinArray");
+		double[] maxArray = (double[]) CompiledTrees.field(normalize, "m_MaxArray");
+		double[] min = new double[columns];
+		double[] range = new double[columns];
+		for (int att = 0; att < columns; att++) {
+			min[att] = minArray[att];
+			boolean constant = Double.isNaN(minArray[att]) || maxArray[att] == minArray[att];
+			range[att] = constant ? Double.NaN : maxArray[att] - minArray[att];
+		}
+		return new LinearModel(kind, attribute, weights.clone(), min, range,
+				(Double) CompiledTrees.field(normalize, "m_Scale"),
+				(Double) CompiledTrees.field(normalize, "m_Translation"));
+	}
+
+	@Override
+	public int classify(double[] row) {
+		switch (kind) {
+		case LOGISTIC:
+			return classifyLogistic(row);
+		default:
+			return classifyBinary(row);
+		}
+	}
+
+	private int classifyLogistic(double[] row) {
+		int predictors = attribute.length;
+		int numClasses = coefficients.length / predictors + 1;
+		double[] v = new double[numClasses];
+		for (int j = 0; j < numClasses - 1; j++) {
+			int offset = j * predictors;
+			double sum = 0.0;
+			for (int k = 0; k < predictors; k++) {
+				double value;
+				if (attribute[k] == INTERCEPT) {
+					value = 1.0;
+				} else {
+					value = row[attribute[k]];
+					if (Double.isNaN(value)) {
+						return UNHANDLED;
+					}
+				}
+				sum = sum + coefficients[offset + k] * value;
+			}
+			v[j] = sum;
+		}
+		double max = 0;
+		int maxIndex = 0;
+		for (int m = 0; m < numClasses; m++) {
+			double sum = 0.0;
+			for (int n = 0; n < numClasses - 1; n++) {
+				sum += Math.exp(v[n] - v[m]);
+			}
+			double prob = 1.0 / (sum + Math.exp(-v[m]));
+			if (prob > max) {
+				maxIndex = m;
+				max = prob;
+			}
+		}
+		return maxIndex;
+	}
+
+	private int classifyBinary(double[] row) {
+		int columns = attribute.length;
+		double wx = 0.0;
+		for (int att = 0; att < columns; att++) {
+			double value = row[att];
+			if (Double.isNaN(value)) {
+				return UNHANDLED;
+			}
+			if (range != null) {
+				value = Double.isNaN(range[att]) ? 0.0 : (value - min[att]) / range[att] * scale + translation;
+			}
+			wx += value * coefficients[att];
+		}
+		double z = wx + coefficients[coefficients.length - 1];
+		double[] distribution = new double[2];
+		if (z <= 0.0) {
+			if (kind == Kind.LOG_LOSS) {
+				distribution[0] = 1.0 / (1.0 + Math.exp(z));
+				distribution[1] = 1.0 - distribution[0];
+			} else {
+				distribution[0] = 1.0;
+			}
+		} else if (kind == Kind.LOG_LOSS) {
+			distribution[1] = 1.0 / (1.0 + Math.exp(-z));
+			distribution[0] = 1.0 - distribution[1];
+		} else {
+			distribution[1] = 1.0;
+		}
+		return distribution[1] > distribution[0] ? 1 : 0;
+	}
+}
@@ -0,0 +1,203 @@
+package de.upb.crc901.services.wrappers;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+import de.upb.crc901.services.core.ServiceHandle;
+import de.upb.crc901.services.core.ServiceManager;
+import de.upb.crc901.services.core.TimeLogger;
+import de.upb.crc901.services.types.DoubleArrayInstance;
+import jaicore.ml.core.SimpleInstancesImpl;
+import jaicore.ml.interfaces.Instance;
+import jaicore.ml.interfaces.LabeledInstance;
+import jaicore.ml.interfaces.LabeledInstances;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+/**
+ * Service that chains preprocessors and a classifier, which were created on the
+ * same server, behind one train and one predict operation. The data is handed
+ * from stage to stage in memory as weka instances, so no intermediate results
+ * are put into the environment state or sent anywhere.
+ *
+ * The stages are appended by add_stage in the order they are applied. Filters
+ * (WekaFilterWrapper) and attribute selections
+ * (WekaAttributeSelectionWrapper) can be used as preprocessors. The last stage
+ * needs to be a classifier (WekaClassifierWrapper).
+ *
+ * The stages are kept as handles and resolved by the ServiceManager on every
+ * call, so the pipeline works on the services of the server even after it or
+ * the stages were written to disk and read again.
+ *
+ * @author aminfaez
+ *
+ */
+public class PipelineService implements Serializable {
+
+	/**
+	 *
+	 */
+	private static final long serialVersionUID = 1L;
+
+	private final List<ServiceHandle> stages = new ArrayList<>();
+
+	/**
+	 * Header of the training data before it is preprocessed. Null if train wasn't
+	 * called.
+	 */
+	private Instances inputHeader;
+
+	/**
+	 * Appends the service of the given handle to the stages. The service needs to
+	 * live on this server.
+	 */
+	public synchronized void add_stage(ServiceHandle stage) {
+		Object service = ServiceManager.SINGLETON().getService(stage);
+		if (!(service instanceof WekaFilterWrapper || service instanceof WekaAttributeSelectionWrapper
+				|| service instanceof WekaClassifierWrapper)) {
+			throw new IllegalArgumentException(stage.getClasspath() + " can't be used as a stage of a pipeline.");
+		}
+		if (!stages.isEmpty() && resolve(stages.get(stages.size() - 1)) instanceof WekaClassifierWrapper) {
+			throw new IllegalArgumentException("The classifier needs to be the last stage of the pipeline.");
+		}
+		// only the reference is kept. The service itself stays with the ServiceManager.
+		stages.add(new ServiceHandle(stage.getClasspath(), stage.getId()));
+		inputHeader = null;
+	}
+
+	/**
+	 * Trains the stages one after another. Each preprocessor is trained with the
+	 * output of the previous stages, and the classifier with the output of the
+	 * last preprocessor.
+	 */
+	public synchronized void train(LabeledInstances<String> trainingData) {
+		TimeLogger.STOP_TIME("Pipeline train envoced");
+		List<Object> services = resolveStages();
+		WekaClassifierWrapper classifier = classifier(services);
+		Instances header = createHeader(trainingData);
+		Instances data = new Instances(header, trainingData.getNumberOfRows());
+		int columns = header.numAttributes() - 1;
+		for (LabeledInstance<String> row : trainingData) {
+			double[] values = new double[columns + 1];
+			DoubleArrayInstance.copy(row, values, columns);
+			values[columns] = header.classAttribute().indexOfValue(row.getLabel());
+			data.add(new DenseInstance(1.0, values));
+		}
+		try {
+			for (int i = 0; i < services.size() - 1; i++) {
+				Object stage = services.get(i);
+				if (stage instanceof WekaFilterWrapper) {
+					((WekaFilterWrapper) stage).train(data);
+					data = ((WekaFilterWrapper) stage).transform(data);
+				} else {
+					((WekaAttributeSelectionWrapper) stage).train(data);
+					data = ((WekaAttributeSelectionWrapper) stage).preprocess(data);
+				}
+				TimeLogger.STOP_TIME("Pipeline stage " + i + " trained");
+			}
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			// Mask this excpetion
+			throw new RuntimeException(e);
+		}
+		classifier.trainOn(data);
+		inputHeader = header;
+		TimeLogger.STOP_TIME("Pipeline train concluded");
+	}
+
+	/**
+	 * Preprocesses the given rows by every preprocessor and returns the
+	 * predictions of the classifier.
+	 */
+	public List<String> predict(SimpleInstancesImpl instances) {
+		TimeLogger.STOP_TIME("Pipeline predict envoced");
+		List<Object> trainedStages;
+		Instances header;
+		synchronized (this) {
+			if (inputHeader == null) {
+				throw new IllegalStateException("The pipeline needs to be trained before it can predict.");
+			}
+			trainedStages = resolveStages();
+			header = inputHeader;
+		}
+		int columns = header.numAttributes() - 1;
+		Instances data = new Instances(header, instances.size());
+		for (Instance row : instances) {
+			if (row.getNumberOfColumns() != columns) {
+				throw new RuntimeException("Data column size (=" + row.getNumberOfColumns()
+						+ ") doesn't match the column size of the training data(=" + columns + ").");
+			}
+			double[] values = new double[columns + 1];
+			DoubleArrayInstance.copy(row, values, columns);
+			values[columns] = Utils.missingValue();
+			data.add(new DenseInstance(1.0, values));
+		}
+		try {
+			for (int i = 0; i < trainedStages.size() - 1; i++) {
+				Object stage = trainedStages.get(i);
+				if (stage instanceof WekaFilterWrapper) {
+					data = ((WekaFilterWrapper) stage).transform(data);
+				} else {
+					data = ((WekaAttributeSelectionWrapper) stage).preprocess(data);
+				}
+			}
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			// Mask this excpetion
+			throw new RuntimeException(e);
+		}
+		List<String> predictions = ((WekaClassifierWrapper) trainedStages.get(trainedStages.size() - 1))
+				.predictPreprocessed(data);
+		TimeLogger.STOP_TIME("Pipeline predict concluded");
+		return predictions;
+	}
+
+	private static Object resolve(ServiceHandle stage) {
+		return ServiceManager.SINGLETON().getService(stage);
+	}
+
+	/**
+	 * Looks up the services of the stages in their order.
+	 */
+	private List<Object> resolveStages() {
+		List<Object> services = new ArrayList<>(stages.size());
+		for (ServiceHandle stage : stages) {
+			services.add(resolve(stage));
+		}
+		return services;
+	}
+
+	private static WekaClassifierWrapper classifier(List<Object> services) {
+		if (services.isEmpty() || !(services.get(services.size() - 1) instanceof WekaClassifierWrapper)) {
+			throw new IllegalStateException("The last stage of the pipeline needs to be a classifier.");
+		}
+		return (WekaClassifierWrapper) services.get(services.size() - 1);
+	}
+
+	/**
+	 * Creates the header of the data like WekaClassifierWrapper does: the
+	 * attributes a1, a2, ... and the nominal class attribute 'label', whose values
+	 * are the sorted labels of the data.
+	 */
+	private static Instances createHeader(LabeledInstances<String> data) {
+		TreeSet<String> labels = new TreeSet<>();
+		for (LabeledInstance<String> row : data) {
+			labels.add(row.getLabel());
+		}
+		int columns = data.getNumberOfColumns();
+		ArrayList<Attribute> attributes = new ArrayList<>(columns + 1);
+		for (int i = 1; i <= columns; i++) {
+			attributes.add(new Attribute("a" + i));
+		}
+		attributes.add(new Attribute("label", new ArrayList<>(labels)));
+		Instances header = new Instances("JAICore-extracted dataset", attributes, 0);
+		header.setClassIndex(columns);
+		return header;
+	}
+}
@@ -9,8 +9,10 @@ import weka.attributeSelection.ASEvaluation;
 import weka.attributeSelection.ASSearch;
 import weka.attributeSelection.AttributeSelection;
 import weka.core.Attribute;
+import weka.core.DenseInstance;
 import weka.core.Instance;
 import weka.core.Instances;
+import weka.core.Utils;
 
 public class WekaAttributeSelectionWrapper extends ServiceWrapper {
 
@@ -23,28 +25,95 @@ public class WekaAttributeSelectionWrapper extends ServiceWrapper {
 	private Attribute cachedClassAttribute;
 	private Instances cachedInstances;
 	
+	/**
+	 * Indices of the attributes that were selected by the last fit, including the class index. 
+	 * Null if the selection wasn't fitted yet.
+	 */
+	private int[] selectedAttributes;
 	
+	/**
+	 * Header of the reduced data. Null if the selected attributes can't simply be gathered from the input, 
+	 * e.g. if the evaluator transforms the attributes like principal components do.
+	 */
+	private Instances reducedHeader;
 	
 	
 	public WekaAttributeSelectionWrapper(Constructor<? extends Object> delegateConstructor, JASEDataObject[] values) {
 		super(delegateConstructor, values);
 	}
 	
+	/**
+	 * Fits the attribute selection to the given instances. Later calls of preprocess use this selection.
+	 * Call train again to refit the selection.
+	 */
 	public void train(Instances instances) throws Exception {
 		this.SelectAttributes(instances);
 	}
 	
+	/**
+	 * Reduces the given instances to the attributes that were selected when the selection was fitted.
+	 * If the selection wasn't fitted before, it is fitted to the given instances first.
+	 */
 	public Instances preprocess(Instances instances) throws Exception {
-		this.SelectAttributes(instances);
-		return this.reduceDimensionality(instances);
+		if(selectedAttributes == null) {
+			this.SelectAttributes(instances);
+		}
+		if(reducedHeader == null) {
+			return this.reduceDimensionality(instances);
+		}
+		return gatherSelectedAttributes(instances);
 	}
 	
-	public void SelectAttributes(Instances instances) throws Exception {
-		if(cachedClassAttribute==null) {
-			cachedClassAttribute = instances.classAttribute();
-			cachedInstances = new Instances(instances, 0);
+	public synchronized void SelectAttributes(Instances instances) throws Exception {
+		cachedClassAttribute = instances.classAttribute();
+		cachedInstances = new Instances(instances, 0);
+		AttributeSelection selection = (AttributeSelection)delegate;
+		selection.SelectAttributes(instances);
+		selectedAttributes = selection.selectedAttributes();
+		// check if the reduced data consists of the selected attributes of the input:
+		Instances header = selection.reduceDimensionality(new Instances(instances, 0));
+		boolean gathered = header.numAttributes() == selectedAttributes.length;
+		for(int i = 0; gathered && i < selectedAttributes.length; i++) {
+			gathered = header.attribute(i).name().equals(instances.attribute(selectedAttributes[i]).name());
+		}
+		reducedHeader = gathered ? header : null;
+	}
+	
+	/**
+	 * Copies the values of the selected attributes of each instance into a new instance of the reduced header.
+	 * Class values are mapped by their label, in case the class attribute of the given instances declares its 
+	 * values in a different order.
+	 */
+	private Instances gatherSelectedAttributes(Instances instances) {
+		int[] selected = selectedAttributes;
+		Instances reduced = new Instances(reducedHeader, instances.numInstances());
+		if(instances.numAttributes() != cachedInstances.numAttributes()) {
+			throw new RuntimeException("Data column size (=" + instances.numAttributes() 
+					+ ") doesn't match the column size the selection was fitted with (=" + cachedInstances.numAttributes() + ").");
+		}
+		int classIndex = instances.classIndex();
+		int reducedClassIndex = reduced.classIndex();
+		double[] classMapping = null;
+		if(classIndex >= 0 && reducedClassIndex >= 0 && instances.classAttribute().isNominal()) {
+			Attribute from = instances.classAttribute();
+			Attribute to = reduced.classAttribute();
+			classMapping = new double[from.numValues()];
+			for(int value = 0; value < classMapping.length; value++) {
+				int mapped = to.indexOfValue(from.value(value));
+				classMapping[value] = mapped < 0 ? Utils.missingValue() : mapped;
+			}
+		}
+		for(Instance instance : instances) {
+			double[] values = new double[selected.length];
+			for(int i = 0; i < selected.length; i++) {
+				values[i] = instance.value(selected[i]);
+			}
+			if(classMapping != null && !Double.isNaN(values[reducedClassIndex])) {
+				values[reducedClassIndex] = classMapping[(int) values[reducedClassIndex]];
+			}
+			reduced.add(new DenseInstance(instance.weight(), values));
 		}
-		((AttributeSelection)delegate).SelectAttributes(instances);
+		return reduced;
 	}
 	
 	public Instance reduceDimensionality(Instance instance) throws Exception {
@@ -0,0 +1,119 @@
+package de.upb.crc901.services.wrappers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import de.upb.crc901.services.core.ServiceManager;
+import de.upb.crc901.services.core.TimeLogger;
+import de.upb.crc901.services.types.DoubleArrayInstance;
+import de.upb.crc901.services.types.NumberList;
+import de.upb.crc901.services.types.PredictionTable;
+import de.upb.crc901.services.types.ServiceHandleList;
+import jaicore.ml.core.SimpleInstancesImpl;
+import jaicore.ml.core.SimpleLabeledInstancesImpl;
+import jaicore.ml.interfaces.Instance;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+/**
+ * Service that runs many trained classifiers of this server on the same data,
+ * e.g. to select the members of an ensemble. The data is received and
+ * converted once and shared by all models, which predict concurrently.
+ *
+ * @author aminfaez
+ *
+ */
+public class WekaClassifierEnsemble {
+
+	/**
+	 * Predicts the given rows with every given model.
+	 *
+	 * @param models
+	 *            handles of trained classifiers that live on this server.
+	 * @return table with one column of predictions per model, in the order of the
+	 *         handles.
+	 */
+	public PredictionTable predict_all(ServiceHandleList models, SimpleInstancesImpl instances) {
+		TimeLogger.STOP_TIME("Predict all envoced");
+		PredictionTable table = PredictionTable.fromPredictions(predictAll(models, instances));
+		TimeLogger.STOP_TIME("Predict all concluded");
+		return table;
+	}
+
+	/**
+	 * Scores every given model by its accuracy on the given data like
+	 * predict_and_score does.
+	 *
+	 * @param models
+	 *            handles of trained classifiers that live on this server.
+	 * @return the accuracy of each model, in the order of the handles.
+	 */
+	public NumberList score_all(ServiceHandleList models, SimpleLabeledInstancesImpl labeledInstances) {
+		TimeLogger.STOP_TIME("Score all envoced");
+		List<List<String>> predictions = predictAll(models, labeledInstances);
+		double[] scores = new double[predictions.size()];
+		for (int model = 0; model < scores.length; model++) {
+			int correct = 0;
+			List<String> modelPredictions = predictions.get(model);
+			for (int row = 0; row < modelPredictions.size(); row++) {
+				if (labeledInstances.get(row).getLabel().equals(modelPredictions.get(row))) {
+					correct++;
+				}
+			}
+			scores[model] = ((double) correct) / ((double) labeledInstances.size());
+		}
+		TimeLogger.STOP_TIME("Score all concluded");
+		return new NumberList(scores);
+	}
+
+	/**
+	 * Converts the rows once and lets every model predict them concurrently. The
+	 * models classify the converted weka instances without copying their values.
+	 * Each model splits the rows among the threads of the common fork-join pool
+	 * itself.
+	 */
+	private List<List<String>> predictAll(ServiceHandleList models, List<? extends Instance> rows) {
+		List<WekaClassifierWrapper> classifiers = new ArrayList<>(models.size());
+		for (int i = 0; i < models.size(); i++) {
+			Object service = ServiceManager.SINGLETON().getService(models.get(i));
+			if (!(service instanceof WekaClassifierWrapper)) {
+				throw new IllegalArgumentException(models.get(i).getClasspath() + " isn't a weka classifier.");
+			}
+			classifiers.add((WekaClassifierWrapper) service);
+		}
+		Instances data = toWekaInstances(rows);
+		TimeLogger.STOP_TIME("Data converted for " + classifiers.size() + " models");
+		return IntStream.range(0, classifiers.size()).parallel()
+				.mapToObj(model -> classifiers.get(model).predictPreprocessed(data)).collect(Collectors.toList());
+	}
+
+	/**
+	 * Converts the rows into weka instances with a missing class value in the
+	 * last column. The header only serves to hold the values.
+	 */
+	private static Instances toWekaInstances(List<? extends Instance> rows) {
+		int columns = rows.isEmpty() ? 0 : rows.get(0).getNumberOfColumns();
+		ArrayList<Attribute> attributes = new ArrayList<>(columns + 1);
+		for (int i = 1; i <= columns; i++) {
+			attributes.add(new Attribute("a" + i));
+		}
+		attributes.add(new Attribute("label"));
+		Instances data = new Instances("JAICore-extracted dataset", attributes, rows.size());
+		data.setClassIndex(columns);
+		for (Instance row : rows) {
+			if (row.getNumberOfColumns() != columns) {
+				throw new RuntimeException("Data column size (=" + row.getNumberOfColumns()
+						+ ") doesn't match previous data column size(=" + columns + ").");
+			}
+			double[] values = new double[columns + 1];
+			DoubleArrayInstance.copy(row, values, columns);
+			values[columns] = Utils.missingValue();
+			data.add(new DenseInstance(1.0, values));
+		}
+		return data;
+	}
+}
@@ -0,0 +1,150 @@
+package de.upb.crc901.services.wrappers;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import de.upb.crc901.services.core.JASEDataObject;
+import de.upb.crc901.services.core.ServiceHandle;
+import de.upb.crc901.services.core.ServiceManager;
+import de.upb.crc901.services.core.TimeLogger;
+import de.upb.crc901.services.types.Scoreboard;
+import jaicore.ml.interfaces.LabeledInstances;
+import weka.classifiers.Classifier;
+import weka.core.Instances;
+
+/**
+ * Service that evaluates many configurations of one weka classifier at once.
+ * The training and validation data are sent and converted only once and are
+ * shared by all candidates.
+ * 
+ * @author aminfaez
+ *
+ */
+public class WekaClassifierSweep {
+
+	/**
+	 * A candidate whose evaluation is done.
+	 */
+	private static class Result {
+		final int index;
+		final double score;
+		WekaClassifierWrapper trained;
+
+		Result(int index, double score, WekaClassifierWrapper trained) {
+			this.index = index;
+			this.score = score;
+			this.trained = trained;
+		}
+	}
+
+	/** Orders the results by score, the best first. Failed candidates come last. */
+	private static final Comparator<Result> BEST_FIRST = Comparator
+			.comparingDouble((Result r) -> Double.isNaN(r.score) ? Double.NEGATIVE_INFINITY : r.score).reversed()
+			.thenComparingInt(r -> r.index);
+
+	/**
+	 * Trains one candidate per option vector and scores them by their accuracy
+	 * on the validation data. The candidates are trained concurrently on a pool
+	 * with one thread per core.
+	 * 
+	 * @param classpath
+	 *            classpath of the weka classifier.
+	 * @param optionVectors
+	 *            one entry per candidate, e.g. "-C 0.25 -M 2".
+	 * @param trainingData
+	 *            data all candidates are trained on.
+	 * @param validationData
+	 *            data all candidates are scored on.
+	 * @param topK
+	 *            amount of the best candidates whose trained services are kept.
+	 * @return the scoreboard. The entries of the best topK candidates contain the
+	 *         handle of their trained service.
+	 */
+	public Scoreboard sweep(String classpath, ArrayList<String> optionVectors, LabeledInstances<String> trainingData,
+			LabeledInstances<String> validationData, int topK) {
+		TimeLogger.STOP_TIME("Sweep envoced");
+		Constructor<?> constructor;
+		try {
+			Class<?> classifierClass = Class.forName(classpath);
+			if (!Classifier.class.isAssignableFrom(classifierClass)) {
+				throw new IllegalArgumentException(classpath + " isn't a weka classifier.");
+			}
+			constructor = classifierClass.getConstructor();
+		} catch (ClassNotFoundException | NoSuchMethodException e) {
+			throw new IllegalArgumentException(e);
+		}
+
+		// convert the data once. All candidates share it.
+		WekaClassifierWrapper converter = createCandidate(constructor, "");
+		converter.declareData(Arrays.asList(trainingData, validationData));
+		Instances trainingInstances = converter.toWekaInstances(trainingData);
+		Instances validationInstances = converter.toWekaInstances(validationData);
+		TimeLogger.STOP_TIME("Sweep data converted");
+
+		// the best topK results which still hold their trained candidate. The worst is at the head.
+		PriorityQueue<Result> kept = new PriorityQueue<>(BEST_FIRST.reversed());
+		int threads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), optionVectors.size()));
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		List<Future<Result>> futures = new ArrayList<>(optionVectors.size());
+		try {
+			for (int i = 0; i < optionVectors.size(); i++) {
+				final int index = i;
+				futures.add(pool.submit(() -> {
+					Result result;
+					try {
+						WekaClassifierWrapper candidate = createCandidate(constructor, optionVectors.get(index));
+						candidate.trainOn(trainingInstances, converter);
+						result = new Result(index, candidate.score(validationInstances), candidate);
+					} catch (RuntimeException e) {
+						// this configuration doesn't work.
+						return new Result(index, Double.NaN, null);
+					}
+					// only keep the trained candidate if it's among the best.
+					synchronized (kept) {
+						kept.add(result);
+						if (kept.size() > topK) {
+							kept.poll().trained = null;
+						}
+					}
+					return result;
+				}));
+			}
+			List<Result> results = new ArrayList<>(futures.size());
+			for (Future<Result> future : futures) {
+				results.add(future.get());
+			}
+			results.sort(BEST_FIRST);
+			List<Scoreboard.Entry> entries = new ArrayList<>(results.size());
+			synchronized (kept) {
+				for (Result result : results) {
+					ServiceHandle service = null;
+					if (result.trained != null) {
+						// register the trained candidate like a constructed service.
+						service = new ServiceHandle(classpath, UUID.randomUUID().toString(), result.trained);
+						ServiceManager.SINGLETON().addService(service);
+					}
+					entries.add(new Scoreboard.Entry(optionVectors.get(result.index), result.score, service));
+				}
+			}
+			TimeLogger.STOP_TIME("Sweep concluded");
+			return new Scoreboard(entries);
+		} catch (Exception e) {
+			// Mask this excpetion
+			throw new RuntimeException(e);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private WekaClassifierWrapper createCandidate(Constructor<?> constructor, String options) {
+		return new WekaClassifierWrapper(constructor, new JASEDataObject[] { new JASEDataObject("String", options) });
+	}
+}
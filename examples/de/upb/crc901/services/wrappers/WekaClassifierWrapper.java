@@ -1,15 +1,41 @@
 package de.upb.crc901.services.wrappers;
 
+import java.io.Closeable;
 import java.lang.reflect.Constructor;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
 
 import de.upb.crc901.services.ExchangeTest;
+import de.upb.crc901.services.core.ConversionCache;
 import de.upb.crc901.services.core.JASEDataObject;
+import de.upb.crc901.services.core.MicroBatcher;
 import de.upb.crc901.services.core.ServiceWrapper;
 import de.upb.crc901.services.core.TimeLogger;
+import de.upb.crc901.services.types.DoubleArrayInstance;
+import de.upb.crc901.services.types.DoubleArrayInstances;
+import de.upb.crc901.services.types.InstanceStream;
+import de.upb.crc901.services.types.LabelStream;
+import de.upb.crc901.services.types.LabeledInstanceStream;
+import de.upb.crc901.services.types.NumberList;
+import de.upb.crc901.services.types.ProbabilityMatrix;
+import de.upb.crc901.services.types.SparseInstances;
+import de.upb.crc901.services.types.SparseLabeledInstances;
+import de.upb.crc901.services.types.TypedInstances;
 import jaicore.basic.MathExt;
 import jaicore.ml.core.SimpleInstancesImpl;
 import jaicore.ml.core.SimpleLabeledInstancesImpl;
@@ -19,13 +45,18 @@ import jaicore.ml.interfaces.LabeledInstances;
 import weka.attributeSelection.ASEvaluation;
 import weka.attributeSelection.ASSearch;
 import weka.attributeSelection.AttributeSelection;
+import weka.classifiers.AbstractClassifier;
 import weka.classifiers.Classifier;
+import weka.classifiers.UpdateableClassifier;
 import weka.core.Attribute;
+import weka.core.BatchPredictor;
 import weka.core.DenseInstance;
 import weka.core.Instances;
 import weka.core.OptionHandler;
 import weka.core.SparseInstance;
 import weka.core.Utils;
+import weka.filters.Filter;
+import weka.filters.unsupervised.attribute.Reorder;
 
 /**
  * Wraps the weka.classifiers.Classifier.
@@ -56,21 +87,27 @@ public class WekaClassifierWrapper extends ServiceWrapper {
 			// if the classifier doesn't have 'setOptions' exit:
 			return;
 		}
-		for(Object value : constructorValues) {
-			OptionHandler classifier = (OptionHandler) super.delegate;
-			// extract all options who are strings:
-			ArrayList<String> optionsList = new ArrayList<>();
-			for(Object arg : constructorValues) {
-				if(arg instanceof String) {
-					optionsList.add((String)arg);
+		OptionHandler classifier = (OptionHandler) super.delegate;
+		// extract all options. Strings are split like a command line, StringLists are taken as they are.
+		ArrayList<String> optionsList = new ArrayList<>();
+		try {
+			for(JASEDataObject arg : constructorValues) {
+				if(arg == null) {
+					continue;
+				}
+				if(arg.getData() instanceof String) {
+					optionsList.addAll(Arrays.asList(Utils.splitOptions((String) arg.getData())));
+				} else if(arg.getData() instanceof List) {
+					for(Object option : (List<?>) arg.getData()) {
+						optionsList.add(option.toString());
+					}
 				}
 			}
 			String[] options = optionsList.toArray(new String [optionsList.size()]);
-			try {
-				classifier.setOptions(options);
-			} catch (Exception e) {
-				e.printStackTrace();
-			}
+			classifier.setOptions(options);
+		} catch (Exception e) {
+			// Mask this excpetion
+			throw new RuntimeException(e);
 		}
 	}
 
@@ -95,9 +132,68 @@ public class WekaClassifierWrapper extends ServiceWrapper {
 	/** A list of Attribute which is only assigned once in collectAttributes. */
 	private ArrayList<Attribute> attributeList;
 
+	/**
+	 * True if the delegate was built by buildClassifier, so that incremental
+	 * training can continue updating it.
+	 */
+	private boolean modelBuilt = false;
+
 	/** Use TreeSet to get O(log(n)) time for add and contains. */
 	private Set<String> classLabelSet = new TreeSet<String>();
 
+	/**
+	 * Amount of rows a single fork-join task predicts. Bigger inputs are split
+	 * until every task has at most this many rows.
+	 */
+	private static final int PREDICTION_CHUNK_SIZE = 1024;
+
+	/** Amount of rows that are predicted and written together by predict_stream. */
+	private static final int STREAM_CHUNK_SIZE = 256;
+
+	/** Amount of parsed chunks of rows that may wait for their prediction. */
+	private static final int STREAM_QUEUE_CAPACITY = 8;
+
+	/**
+	 * Predict requests with at most this many rows are batched with the requests
+	 * that other clients send concurrently to the same classifier.
+	 */
+	private static final int MICRO_BATCH_MAX_ROWS = 16;
+
+	/**
+	 * Maximum amount of requests that are predicted together. Batching is off by
+	 * default, as it only pays off if a single prediction has a high fixed cost,
+	 * e.g. for batch predictors.
+	 */
+	private static final int MICRO_BATCH_SIZE = Integer.getInteger("jase.microbatch.size", 1);
+
+	/**
+	 * Milliseconds a batch waits for more requests. By default a batch isn't
+	 * delayed and requests are only batched if they arrive while every core
+	 * predicts a batch.
+	 */
+	private static final long MICRO_BATCH_LINGER = Long.getLong("jase.microbatch.linger.ms", 0L);
+
+	/**
+	 * Pool of copies of the trained delegate. Weka doesn't tell if a classifier
+	 * can be used by several threads at once, so every prediction task borrows
+	 * its own copy. The delegate itself is the first element. Reset after
+	 * training.
+	 */
+	private transient Deque<Classifier> classifierReplicas;
+
+	/** Set to true by compile. The model is compiled again after each training. */
+	private boolean compileRequested = false;
+
+	/**
+	 * The trained delegate extracted into arrays. Linear models are extracted
+	 * after every training, trees only if compile was called. Null if the
+	 * delegate isn't supported.
+	 */
+	private volatile CompiledModel compiledModel;
+
+	/** Batches small predict requests. Created on the first one. */
+	private transient MicroBatcher<List<? extends Instance>, int[]> microBatcher;
+
 	/**
 	 * If not attributesAssignedFlag, this method fills the attributeList based on
 	 * the amount of attributes. Else it will throw an Exception indicating that the
@@ -141,16 +237,27 @@ public class WekaClassifierWrapper extends ServiceWrapper {
 	 *            labels so the column size may be 0.
 	 */
 	public void declare_classes(LabeledInstances<String> labeledInstances) {
+		List<String> labels = new ArrayList<>(labeledInstances.size());
+		for (LabeledInstance<String> labeledInstance : labeledInstances) {
+			labels.add(labeledInstance.getLabel());
+		}
+		declareLabels(labels);
+	}
+
+	/**
+	 * Expands the classLabelSet and the classAttribute with the given labels. See
+	 * declare_classes.
+	 */
+	private void declareLabels(Iterable<String> labels) {
 		/*
-		 * extendedClasses indicates if the labeledInstances contains a label which
-		 * wasn't specified in previous declareClasses invocations. If true the
-		 * wekaInstaces object will be extended so is the inner classifier.
+		 * extendedClasses indicates if the labels contain a label which wasn't
+		 * specified in previous declareClasses invocations. If true the wekaInstaces
+		 * object will be extended so is the inner classifier.
 		 */
 		boolean extendedClasses = false;
-		for (LabeledInstance<String> labeledInstance : labeledInstances) {
-			if (!classLabelSet.contains(labeledInstance.getLabel())) {
+		for (String label : labels) {
+			if (!classLabelSet.contains(label)) {
 				/* A class that wasn't defined before. */
-				String label = labeledInstance.getLabel();
 				// Add it to the tree to mark it known as of now.
 				classLabelSet.add(label);
 				extendedClasses = true;
@@ -200,6 +307,10 @@ public class WekaClassifierWrapper extends ServiceWrapper {
 
 		// Now create a weka.core.Instances object and fill our data to it.
 		Instances trainingInstances = createWekaInstances(trainingData);
+		buildDelegate(trainingInstances);
+	}
+
+	private void buildDelegate(Instances trainingInstances) {
 		TimeLogger.STOP_TIME("Training starts");
 		try {
 			((Classifier) super.delegate).buildClassifier(trainingInstances);
@@ -207,59 +318,645 @@ public class WekaClassifierWrapper extends ServiceWrapper {
 			// Mask this excpetion
 			throw new RuntimeException(e);
 		}
+		modelBuilt = true;
+		// copies of the old model are outdated now.
+		resetReplicas();
 		TimeLogger.STOP_TIME("Training concluded");
 	}
 
 	/**
-	 * Contains logic to do prediction based on an iterator of Instance.
+	 * Trains the delegate on data with nominal attributes. The header of the data
+	 * replaces the attributes of this classifier, so nominal attributes are
+	 * handed to the delegate as they are instead of being binarized. The class
+	 * attribute needs to be nominal. Rows that are predicted afterwards contain
+	 * the value indices of nominal attributes.
+	 */
+	public void train(TypedInstances trainingData) {
+		TimeLogger.STOP_TIME("Typed train method envoced");
+		int classIndex = trainingData.getClassIndex();
+		if (classIndex < 0 || !trainingData.isNominal(classIndex)) {
+			throw new IllegalArgumentException("The training data needs a nominal class attribute.");
+		}
+		if (trainingData.getNumberOfRows() < 1) { // no data. do nothing.
+			return;
+		}
+		trainWithHeader(trainingData.toWekaInstancesClassLast());
+	}
+
+	/**
+	 * Trains the delegate on weka instances without converting them. Like the
+	 * TypedInstances version, the header replaces the attributes of this
+	 * classifier. The class attribute needs to be nominal.
+	 */
+	public void train(Instances trainingData) {
+		TimeLogger.STOP_TIME("Weka train method envoced");
+		if (trainingData.classIndex() < 0 || !trainingData.classAttribute().isNominal()) {
+			throw new IllegalArgumentException("The training data needs a nominal class attribute.");
+		}
+		if (trainingData.isEmpty()) { // no data. do nothing.
+			return;
+		}
+		trainWithHeader(classLast(trainingData));
+	}
+
+	/**
+	 * Adopts the header of the given instances, whose class attribute is the last
+	 * one, and trains the delegate on them.
+	 */
+	private void trainWithHeader(Instances trainingInstances) {
+		checkAttributes(trainingInstances.numAttributes() - 1);
+		ArrayList<Attribute> attributes = new ArrayList<>(trainingInstances.numAttributes());
+		for (int att = 0; att < trainingInstances.numAttributes(); att++) {
+			attributes.add(trainingInstances.attribute(att));
+		}
+		this.attributeList = attributes;
+		classLabelSet = new TreeSet<>(TypedInstances.nominalValuesOf(trainingInstances.classAttribute()));
+		declaredClasses = true;
+		buildDelegate(trainingInstances);
+	}
+
+	/**
+	 * Moves the class attribute of the given instances behind the other
+	 * attributes.
+	 */
+	private static Instances classLast(Instances data) {
+		int classIndex = data.classIndex();
+		if (classIndex == data.numAttributes() - 1) {
+			return data;
+		}
+		int[] order = new int[data.numAttributes()];
+		int position = 0;
+		for (int att = 0; att < order.length; att++) {
+			if (att != classIndex) {
+				order[position++] = att;
+			}
+		}
+		order[position] = classIndex;
+		try {
+			Reorder reorder = new Reorder();
+			reorder.setAttributeIndicesArray(order);
+			reorder.setInputFormat(data);
+			return Filter.useFilter(data, reorder);
+		} catch (Exception e) {
+			// Mask this excpetion
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Trains the delegate on sparse data. The rows are converted into weka
+	 * SparseInstances, so the zeros are never materialized.
+	 */
+	public void train(SparseLabeledInstances trainingData) {
+		train((LabeledInstances<String>) trainingData);
+	}
+
+	/**
+	 * Trains the delegate row by row while the rows are still being received.
+	 * Only works for delegates that implement weka's UpdateableClassifier. Each
+	 * row is fed to updateClassifier and dropped afterwards, so the memory used
+	 * doesn't depend on the amount of rows.
+	 * 
+	 * If the delegate was trained before, the model is updated further.
+	 * Otherwise it is initialized on an empty dataset first. The class labels
+	 * need to be known in advance: either by declare_classes or by the classes
+	 * in the header of the stream.
+	 * 
+	 * @param trainingData
+	 *            training rows
+	 */
+	public void train_incremental(LabeledInstanceStream trainingData) {
+		TimeLogger.STOP_TIME("Incremental train method envoced");
+		if (!(super.delegate instanceof UpdateableClassifier)) {
+			throw new UnsupportedOperationException(
+					super.delegate.getClass().getName() + " can't be trained incrementally.");
+		}
+		Iterator<LabeledInstance<String>> rows = trainingData.iterator();
+		if (!rows.hasNext()) { // no data. do nothing.
+			return;
+		}
+		LabeledInstance<String> firstRow = rows.next();
+		// does the data match in column size?
+		checkAttributes(firstRow.size());
+		if (!declaredClasses) {
+			if (!trainingData.hasClasses()) {
+				throw new IllegalStateException(
+						"Class labels need to be declared before training incrementally.");
+			}
+			declareLabels(trainingData.getClasses());
+		}
+		int classIndex = attributeList.size() - 1;
+		Instances header = new Instances("JAICore-extracted dataset", this.attributeList, 0);
+		header.setClassIndex(classIndex); // the last item is the class attribute.
+		Attribute classAttribute = attributeList.get(classIndex);
+		UpdateableClassifier updateable = (UpdateableClassifier) super.delegate;
+		try {
+			if (!modelBuilt) {
+				((Classifier) super.delegate).buildClassifier(header);
+				modelBuilt = true;
+			}
+			LabeledInstance<String> row = firstRow;
+			while (row != null) {
+				if (row.size() != classIndex) {
+					throw new RuntimeException("Data column size (=" + row.size()
+							+ ") doesn't match previous data column size(=" + classIndex + ").");
+				}
+				double[] values = new double[classIndex + 1];
+				DoubleArrayInstance.copy(row, values, classIndex);
+				int labelIndex = classAttribute.indexOfValue(row.getLabel());
+				if (labelIndex < 0) {
+					throw new RuntimeException("Label " + row.getLabel() + " wasn't declared.");
+				}
+				values[classIndex] = labelIndex;
+				weka.core.Instance wekaInstance = new DenseInstance(1.0, values);
+				wekaInstance.setDataset(header);
+				updateable.updateClassifier(wekaInstance);
+				row = rows.hasNext() ? rows.next() : null;
+			}
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			// Mask this excpetion
+			throw new RuntimeException(e);
+		} finally {
+			// copies of the old model are outdated now.
+			resetReplicas();
+		}
+		TimeLogger.STOP_TIME("Incremental training concluded");
+	}
+
+	/**
+	 * Contains logic to do prediction based on a list of Instance.
 	 * 
 	 * @param data
-	 *            Iterable of subtype of Instance. Each Instance is converted to a
+	 *            List of subtype of Instance. Each Instance is converted to a
 	 *            Weka Instance whose it's class is set to be missing.
 	 * @param rows
-	 *            indicates how many times data can iterate. Used to preallocate the
+	 *            indicates how many rows data has. Used to preallocate the
 	 *            predictions list.
 	 * @param columns
-	 *            indicates how many numerical entries each Instance from iterable
+	 *            indicates how many numerical entries each Instance from data
 	 *            has.
 	 * @return List of predictions made by the inner classifier referenced by
 	 *         super.delegate.
 	 */
-	private List<String> predictInstanceIterable(Iterable<? extends Instance> data, int rows, int columns) {
-		List<Double> predicitons = new ArrayList<>(rows);
-		Classifier innerClassfier = (Classifier) super.delegate;
-		// translate to weka instances
-		weka.core.Instances wekaInstances = createWekaInstances(data, rows, columns);
-		// iterate over weka instances and feed it to the train algorithm.
-		for (weka.core.Instance wekaInstance : wekaInstances) {
-			try {
-				// try to do a prediction:
-				Double prediction = innerClassfier.classifyInstance(wekaInstance);
-				predicitons.add(prediction);
-			} catch (Exception ex) {
-				// Else put a missing value if the prediciton failed.
-				predicitons.add(Utils.missingValue());
-			}
-		}
-		List<String> labeledPredictions = new ArrayList<>(rows);
+	private List<String> predictInstanceIterable(List<? extends Instance> data, int rows, int columns) {
+		return toLabels(predictClassIndices(data, columns));
+	}
+
+	private List<String> toLabels(int[] predictions) {
+		List<String> labeledPredictions = new ArrayList<>(predictions.length);
 		Attribute classAttribute = attributeList.get(attributeList.size() - 1);
-		for (double predictionIndex : predicitons) {
-			int index = (int) predictionIndex;
-			String label = classAttribute.value(index);
+		for (int predictionIndex : predictions) {
+			String label = classAttribute.value(predictionIndex);
 			labeledPredictions.add(label);
 		}
 		TimeLogger.STOP_TIME("Predictions made");
 		return labeledPredictions;
 	}
 
+	/**
+	 * Predicts the class index of every row in data. The rows are split among
+	 * the threads of the common fork-join pool.
+	 * 
+	 * @return array with the index of the predicted class value for each row.
+	 */
+	private int[] predictClassIndices(List<? extends Instance> data, int columns) {
+		return predictClassIndices(new InstanceRows(data, columns), columns);
+	}
+
+	private int[] predictClassIndices(PredictionRows rows, int columns) {
+		if (this.attributeList == null) {
+			throw new IllegalStateException("Trying to predict before attribute list has been determined.");
+		}
+		int[] predictions = new int[rows.size()];
+		// header that is shared by all prediction tasks. It is never written to.
+		weka.core.Instances header = new Instances("JAICore-extracted dataset", this.attributeList, 0);
+		header.setClassIndex(columns); // the last item is the class attribute.
+		new PredictionTask(rows, columns, header, predictions, 0, rows.size()).invoke();
+		return predictions;
+	}
+
+	/**
+	 * The rows handed to a PredictionTask. The class value of a row is its last
+	 * value and is ignored.
+	 */
+	private interface PredictionRows {
+
+		int size();
+
+		/**
+		 * Returns the row as a weka instance without a dataset. The caller may assign
+		 * one, so the instance isn't shared with other callers.
+		 */
+		weka.core.Instance wekaInstance(int row);
+
+		/**
+		 * Returns the values of the row. The given buffer, which has one item per
+		 * attribute, may be filled and returned.
+		 */
+		double[] values(int row, double[] buffer);
+	}
+
+	/**
+	 * JAICore rows, which are converted when they are predicted.
+	 */
+	private static final class InstanceRows implements PredictionRows {
+		private final List<? extends Instance> data;
+		private final int columns;
+
+		InstanceRows(List<? extends Instance> data, int columns) {
+			this.data = data;
+			this.columns = columns;
+		}
+
+		@Override
+		public int size() {
+			return data.size();
+		}
+
+		@Override
+		public weka.core.Instance wekaInstance(int row) {
+			return toWekaInstance(data.get(row), columns);
+		}
+
+		@Override
+		public double[] values(int row, double[] buffer) {
+			DoubleArrayInstance.copy(data.get(row), buffer, columns);
+			return buffer;
+		}
+	}
+
+	/**
+	 * Weka instances, which are predicted as they are. The values are shared, only
+	 * the dataset of each row is replaced by the header of this classifier.
+	 */
+	private static final class WekaRows implements PredictionRows {
+		private final Instances instances;
+
+		WekaRows(Instances instances) {
+			this.instances = instances;
+		}
+
+		@Override
+		public int size() {
+			return instances.numInstances();
+		}
+
+		@Override
+		public weka.core.Instance wekaInstance(int row) {
+			// a shallow copy, so that other threads can predict the same row.
+			return (weka.core.Instance) instances.instance(row).copy();
+		}
+
+		@Override
+		public double[] values(int row, double[] buffer) {
+			return instances.instance(row).toDoubleArray();
+		}
+	}
+
+	/**
+	 * Recursively splits the rows [from, to) in halves until they are small
+	 * enough to be predicted by a single task. Each task writes the predicted
+	 * class indices into its own range of the shared predictions array.
+	 */
+	private final class PredictionTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final PredictionRows rows;
+		private final int columns;
+		private final Instances header;
+		private final int[] predictions;
+		private final int from, to;
+
+		PredictionTask(PredictionRows rows, int columns, Instances header, int[] predictions, int from, int to) {
+			this.rows = rows;
+			this.columns = columns;
+			this.header = header;
+			this.predictions = predictions;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= PREDICTION_CHUNK_SIZE) {
+				predictChunk();
+			} else {
+				int middle = (from + to) >>> 1;
+				invokeAll(new PredictionTask(rows, columns, header, predictions, from, middle),
+						new PredictionTask(rows, columns, header, predictions, middle, to));
+			}
+		}
+
+		private void predictChunk() {
+			CompiledModel compiled = compiledModel;
+			if (compiled != null) {
+				predictCompiledChunk(compiled);
+				return;
+			}
+			Replica replica = borrowReplica();
+			try {
+				if (replica.classifier instanceof BatchPredictor
+						&& ((BatchPredictor) replica.classifier).implementsMoreEfficientBatchPrediction()) {
+					Instances batch = new Instances(header, to - from);
+					for (int row = from; row < to; row++) {
+						batch.add(rows.wekaInstance(row));
+					}
+					try {
+						double[][] distributions = ((BatchPredictor) replica.classifier).distributionsForInstances(batch);
+						for (int row = from; row < to; row++) {
+							predictions[row] = maxIndex(distributions[row - from]);
+						}
+						return;
+					} catch (Exception ex) {
+						// fall back to predicting row by row.
+					}
+				}
+				for (int row = from; row < to; row++) {
+					weka.core.Instance wekaInstance = rows.wekaInstance(row);
+					wekaInstance.setDataset(header);
+					double prediction;
+					try {
+						// try to do a prediction:
+						prediction = replica.classifier.classifyInstance(wekaInstance);
+					} catch (Exception ex) {
+						// Else put a missing value if the prediciton failed.
+						prediction = Utils.missingValue();
+					}
+					// a missing value is casted to 0, the first label.
+					predictions[row] = (int) prediction;
+				}
+			} finally {
+				returnReplica(replica);
+			}
+		}
+
+		/**
+		 * Predicts the rows with the compiled model. Rows that it doesn't handle are
+		 * predicted by a copy of the delegate.
+		 */
+		private void predictCompiledChunk(CompiledModel compiled) {
+			double[] buffer = new double[columns + 1]; // the last item is the class attribute.
+			buffer[columns] = Utils.missingValue();
+			Replica replica = null;
+			try {
+				for (int row = from; row < to; row++) {
+					int prediction = compiled.classify(rows.values(row, buffer));
+					if (prediction == CompiledModel.UNHANDLED) {
+						if (replica == null) {
+							replica = borrowReplica();
+						}
+						weka.core.Instance wekaInstance = rows.wekaInstance(row);
+						wekaInstance.setDataset(header);
+						try {
+							// a missing value is casted to 0, the first label.
+							prediction = (int) replica.classifier.classifyInstance(wekaInstance);
+						} catch (Exception ex) {
+							prediction = (int) Utils.missingValue();
+						}
+					}
+					predictions[row] = prediction;
+				}
+			} finally {
+				if (replica != null) {
+					returnReplica(replica);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the index of the biggest value in the distribution the same way
+	 * AbstractClassifier.classifyInstance does. If no value is positive, 0 is
+	 * returned like a missing prediction would.
+	 */
+	private static int maxIndex(double[] distribution) {
+		double max = 0;
+		int maxIndex = 0;
+		for (int i = 0; i < distribution.length; i++) {
+			if (distribution[i] > max) {
+				maxIndex = i;
+				max = distribution[i];
+			}
+		}
+		return maxIndex;
+	}
+
+	/**
+	 * Takes a copy of the trained delegate out of the pool. Creates a new copy if
+	 * all copies are in use.
+	 */
+	private Replica borrowReplica() {
+		Deque<Classifier> pool = classifierReplicas();
+		Classifier replica = pool.pollFirst();
+		if (replica == null) {
+			try {
+				replica = AbstractClassifier.makeCopy((Classifier) super.delegate);
+			} catch (Exception e) {
+				throw new RuntimeException(e);
+			}
+		}
+		return new Replica(replica, pool);
+	}
+
+	/**
+	 * Puts the copy back into the pool it was taken from. If the delegate was
+	 * trained in the meantime, the pool was reset and the outdated copy is
+	 * dropped.
+	 */
+	private void returnReplica(Replica replica) {
+		synchronized (this) {
+			if (replica.pool != classifierReplicas) {
+				return;
+			}
+		}
+		replica.pool.offerFirst(replica.classifier);
+	}
+
+	/**
+	 * A borrowed copy of the delegate and the pool it belongs to.
+	 */
+	private static final class Replica {
+		final Classifier classifier;
+		final Deque<Classifier> pool;
+
+		Replica(Classifier classifier, Deque<Classifier> pool) {
+			this.classifier = classifier;
+			this.pool = pool;
+		}
+	}
+
+	private synchronized Deque<Classifier> classifierReplicas() {
+		if (classifierReplicas == null) {
+			classifierReplicas = new ConcurrentLinkedDeque<>();
+			classifierReplicas.add((Classifier) super.delegate);
+		}
+		return classifierReplicas;
+	}
+
+	/**
+	 * Drops the copies of the old model. A requested compilation is redone for
+	 * the new model.
+	 */
+	private synchronized void resetReplicas() {
+		classifierReplicas = null;
+		compiledModel = null;
+		if (modelBuilt) {
+			int numClasses = attributeList.get(attributeList.size() - 1).numValues();
+			compiledModel = LinearModel.extract((Classifier) super.delegate, attributeList.size(), numClasses);
+			if (compiledModel == null && compileRequested) {
+				compiledModel = CompiledTrees.compile((Classifier) super.delegate, numClasses);
+			}
+		}
+	}
+
+	/**
+	 * Compiles the trained tree model of the delegate into primitive arrays, that
+	 * are used by predict instead of the delegate. Supports RandomTree, J48 and
+	 * RandomForest. The model is compiled again whenever the delegate is trained.
+	 * Rows that the compiled model can't handle, e.g. with missing values, are
+	 * still predicted by the delegate.
+	 * 
+	 * @return true if the delegate is supported and was compiled. False if it
+	 *         isn't supported or hasn't been trained yet.
+	 */
+	public boolean compile() {
+		compileRequested = true;
+		resetReplicas();
+		return compiledModel != null;
+	}
+
 	/**
 	 * Takes Instances and returns a list of predictions made by the inner
 	 * classifier.
 	 */
 	public List<String> predict(SimpleInstancesImpl instances) {
+		int columns = instances.getNumberOfColumns();
+		if (MICRO_BATCH_SIZE > 1 && instances.getNumberOfRows() <= MICRO_BATCH_MAX_ROWS && attributeList != null
+				&& columns == attributeList.size() - 1) {
+			return toLabels(microBatcher().submit(instances));
+		}
 		return predictInstanceIterable(instances, instances.getNumberOfRows(), instances.getNumberOfColumns());
 	}
 
+	private synchronized MicroBatcher<List<? extends Instance>, int[]> microBatcher() {
+		if (microBatcher == null) {
+			microBatcher = new MicroBatcher<>(this::predictBatch, MICRO_BATCH_SIZE, MICRO_BATCH_LINGER,
+					Runtime.getRuntime().availableProcessors());
+		}
+		return microBatcher;
+	}
+
+	/**
+	 * Predicts the rows of several requests at once and splits the predictions
+	 * among the requests.
+	 */
+	private List<int[]> predictBatch(List<List<? extends Instance>> requests) {
+		List<Instance> rows = new ArrayList<>();
+		for (List<? extends Instance> request : requests) {
+			rows.addAll(request);
+		}
+		int[] predictions = predictClassIndices(rows, attributeList.size() - 1);
+		List<int[]> results = new ArrayList<>(requests.size());
+		int from = 0;
+		for (List<? extends Instance> request : requests) {
+			results.add(Arrays.copyOfRange(predictions, from, from + request.size()));
+			from += request.size();
+		}
+		TimeLogger.STOP_TIME("Predicted " + requests.size() + " batched requests");
+		return results;
+	}
+
+	/**
+	 * Takes sparse Instances and returns a list of predictions made by the inner
+	 * classifier. The rows are handed to the delegate as weka SparseInstances.
+	 */
+	public List<String> predict(SparseInstances instances) {
+		if (this.attributeList == null) {
+			throw new IllegalStateException("Trying to predict before attribute list has been determined.");
+		}
+		checkAttributes(instances.getNumberOfColumns());
+		return predictInstanceIterable(instances, instances.getNumberOfRows(), instances.getNumberOfColumns());
+	}
+
+	/**
+	 * Takes TypedInstances and predicts ignoring the class attribute. The value
+	 * indices of nominal attributes are mapped to the values of the training
+	 * data. Values that weren't in the training data are missing.
+	 */
+	public List<String> predict(TypedInstances instances) {
+		return predictWithHeader(instances.getNumberOfAttributes(), instances.getClassIndex(),
+				instances::getNominalValues, instances.getNumberOfRows(), instances::get);
+	}
+
+	/**
+	 * Takes weka instances and predicts ignoring the class attribute. Nominal
+	 * values are mapped like in the TypedInstances version.
+	 */
+	public List<String> predict(Instances instances) {
+		return predictWithHeader(instances.numAttributes(), instances.classIndex(),
+				att -> TypedInstances.nominalValuesOf(instances.attribute(att)), instances.size(),
+				(row, att) -> instances.instance(row).value(att));
+	}
+
+	/**
+	 * Predicts the rows of a dataset with the given header. The value indices of
+	 * nominal attributes are mapped to the values of the training data. Indices
+	 * that aren't valid for the header are treated as missing values.
+	 */
+	private List<String> predictWithHeader(int attributeCount, int classIndex,
+			IntFunction<List<String>> nominalValues, int rows, RowValues rowValues) {
+		if (this.attributeList == null) {
+			throw new IllegalStateException("Trying to predict before attribute list has been determined.");
+		}
+		int columns = attributeCount - (classIndex < 0 ? 0 : 1);
+		checkAttributes(columns);
+		// the index in the training header of each value of each attribute.
+		int[][] valueMappings = new int[attributeCount][];
+		int column = 0;
+		for (int att = 0; att < attributeCount; att++) {
+			if (att == classIndex) {
+				continue;
+			}
+			Attribute trained = attributeList.get(column++);
+			List<String> values = nominalValues.apply(att);
+			if (values != null && trained.isNominal()) {
+				valueMappings[att] = new int[values.size()];
+				for (int value = 0; value < values.size(); value++) {
+					valueMappings[att][value] = trained.indexOfValue(values.get(value));
+				}
+			}
+		}
+		double[] values = new double[rows * columns];
+		for (int row = 0; row < rows; row++) {
+			column = 0;
+			for (int att = 0; att < attributeCount; att++) {
+				if (att == classIndex) {
+					continue;
+				}
+				double value = rowValues.get(row, att);
+				if (valueMappings[att] != null && !Double.isNaN(value)) {
+					int index = (int) value;
+					// indices that don't belong to a value of the attribute are missing, too.
+					int mapped = index == value && index >= 0 && index < valueMappings[att].length
+							? valueMappings[att][index] : -1;
+					value = mapped < 0 ? Utils.missingValue() : mapped;
+				}
+				values[row * columns + column++] = value;
+			}
+		}
+		return predictInstanceIterable(new DoubleArrayInstances(values, rows, columns), rows, columns);
+	}
+
+	/**
+	 * The values of a dataset by row and attribute.
+	 */
+	private interface RowValues {
+		double get(int row, int att);
+	}
+
 	/**
 	 * Takes LabeledInstances and predicts ignoring the labels.
 	 */
@@ -268,6 +965,192 @@ public class WekaClassifierWrapper extends ServiceWrapper {
 				labeledinstances.getNumberOfColumns());
 	}
 
+	/**
+	 * Predicts the class probabilities of each row using distributionForInstance
+	 * of the delegate. The rows are split into chunks that are predicted in
+	 * parallel. The probabilities are sent as single precision floats.
+	 * 
+	 * @return matrix with one row per instance and one column per class label.
+	 */
+	public ProbabilityMatrix predict_proba(SimpleInstancesImpl instances) {
+		if (this.attributeList == null) {
+			throw new IllegalStateException("Trying to predict before attribute list has been determined.");
+		}
+		int columns = instances.getNumberOfColumns();
+		checkAttributes(columns);
+		Attribute classAttribute = attributeList.get(attributeList.size() - 1);
+		List<String> labels = new ArrayList<>(classAttribute.numValues());
+		for (int i = 0; i < classAttribute.numValues(); i++) {
+			labels.add(classAttribute.value(i));
+		}
+		int rows = instances.size();
+		int width = labels.size();
+		double[] probabilities = new double[rows * width];
+		// header that is shared by all chunks. It is never written to.
+		weka.core.Instances header = new Instances("JAICore-extracted dataset", this.attributeList, 0);
+		header.setClassIndex(columns);
+		int chunks = (rows + PREDICTION_CHUNK_SIZE - 1) / PREDICTION_CHUNK_SIZE;
+		IntStream.range(0, chunks).parallel().forEach(chunk -> {
+			int from = chunk * PREDICTION_CHUNK_SIZE;
+			int to = Math.min(rows, from + PREDICTION_CHUNK_SIZE);
+			Replica replica = borrowReplica();
+			try {
+				for (int row = from; row < to; row++) {
+					weka.core.Instance wekaInstance = toWekaInstance(instances.get(row), columns);
+					wekaInstance.setDataset(header);
+					double[] distribution = replica.classifier.distributionForInstance(wekaInstance);
+					System.arraycopy(distribution, 0, probabilities, row * width, width);
+				}
+			} catch (Exception e) {
+				// Mask this excpetion
+				throw new RuntimeException(e);
+			} finally {
+				returnReplica(replica);
+			}
+		});
+		TimeLogger.STOP_TIME("Probabilities predicted");
+		return new ProbabilityMatrix(labels, rows, probabilities, true);
+	}
+
+	/**
+	 * Predicts the rows while they are being received. The returned labels are
+	 * produced lazily: when the response is written, a background thread parses
+	 * the rows into chunks which are classified and written one after another.
+	 * Only a few chunks are held in memory at any time.
+	 */
+	public LabelStream predict_stream(InstanceStream instances) {
+		if (this.attributeList == null) {
+			throw new IllegalStateException("Trying to predict before attribute list has been determined.");
+		}
+		return new LabelStream(new StreamingPrediction(instances));
+	}
+
+	/**
+	 * The pipeline behind predict_stream. Parsing runs in its own thread and
+	 * passes chunks of rows through a bounded queue. Each call of next classifies
+	 * one chunk.
+	 */
+	private final class StreamingPrediction implements Iterator<List<String>>, Closeable {
+
+		/** Marks the end of the rows in the queue. */
+		private final List<Instance> endOfRows = Collections.emptyList();
+
+		private final InstanceStream instances;
+
+		private final BlockingQueue<List<Instance>> parsedChunks = new ArrayBlockingQueue<>(STREAM_QUEUE_CAPACITY);
+
+		private Thread parser;
+
+		private volatile boolean closed = false;
+
+		private volatile Throwable parseFailure;
+
+		private List<Instance> nextChunk;
+
+		private boolean finished = false;
+
+		StreamingPrediction(InstanceStream instances) {
+			this.instances = instances;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (nextChunk != null) {
+				return true;
+			}
+			if (finished) {
+				return false;
+			}
+			if (parser == null) {
+				parser = new Thread(this::parseChunks, "predict-stream-parser");
+				parser.setDaemon(true);
+				parser.start();
+			}
+			try {
+				List<Instance> chunk = parsedChunks.take();
+				if (chunk != endOfRows) {
+					nextChunk = chunk;
+					return true;
+				}
+				finished = true;
+				parser.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			}
+			if (parseFailure != null) {
+				throw new RuntimeException(parseFailure);
+			}
+			return false;
+		}
+
+		@Override
+		public List<String> next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			List<Instance> chunk = nextChunk;
+			nextChunk = null;
+			int[] predictions = predictClassIndices(chunk, attributeList.size() - 1);
+			List<String> labels = new ArrayList<>(predictions.length);
+			Attribute classAttribute = attributeList.get(attributeList.size() - 1);
+			for (int predictionIndex : predictions) {
+				labels.add(classAttribute.value(predictionIndex));
+			}
+			return labels;
+		}
+
+		@Override
+		public void close() {
+			closed = true;
+			if (parser != null) {
+				try {
+					parser.join();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+
+		private void parseChunks() {
+			try {
+				List<Instance> chunk = new ArrayList<>(STREAM_CHUNK_SIZE);
+				for (Instance row : instances) {
+					if (closed) {
+						return;
+					}
+					chunk.add(row);
+					if (chunk.size() == STREAM_CHUNK_SIZE) {
+						handOver(chunk);
+						chunk = new ArrayList<>(STREAM_CHUNK_SIZE);
+					}
+				}
+				if (!chunk.isEmpty()) {
+					handOver(chunk);
+				}
+			} catch (Throwable e) {
+				parseFailure = e;
+			} finally {
+				try {
+					handOver(endOfRows);
+				} catch (InterruptedException e) {
+					// nobody is waiting.
+				}
+			}
+		}
+
+		/**
+		 * Puts the chunk into the queue. Gives up once the pipeline was closed.
+		 */
+		private void handOver(List<Instance> chunk) throws InterruptedException {
+			while (!closed) {
+				if (parsedChunks.offer(chunk, 100, TimeUnit.MILLISECONDS)) {
+					return;
+				}
+			}
+		}
+	}
+
 	/**
 	 * First predicts the input objects using the predict method. Then calculated
 	 * the accuracy of the model and return it.
@@ -298,6 +1181,200 @@ public class WekaClassifierWrapper extends ServiceWrapper {
 		}
 	}
 
+	/**
+	 * Estimates the accuracy of the classifier by k-fold cross validation. The
+	 * rows are shuffled using the given seed and dealt to the folds. All folds
+	 * are trained and evaluated concurrently on copies of the untrained delegate.
+	 * The folds share the rows of a single converted dataset, whose header is
+	 * created from the given data. Neither the delegate nor the attributes and
+	 * class labels of this wrapper are changed.
+	 * 
+	 * @param data
+	 *            the data to split into folds
+	 * @param folds
+	 *            amount of folds, at least 2 and at most the amount of rows.
+	 * @param seed
+	 *            seed of the shuffle.
+	 * @return the accuracy of each fold.
+	 */
+	public NumberList cross_validate(LabeledInstances<String> data, int folds, int seed) {
+		TimeLogger.STOP_TIME("Cross validation envoced");
+		int rows = data.getNumberOfRows();
+		if (folds < 2 || folds > rows) {
+			throw new IllegalArgumentException(
+					"Can't split " + rows + " rows into " + folds + " folds.");
+		}
+		Instances allInstances = createWekaInstances(data, createAttributes(data));
+		// deal the shuffled rows to the folds.
+		int[] order = new int[rows];
+		for (int i = 0; i < rows; i++) {
+			order[i] = i;
+		}
+		Random random = new Random(seed);
+		for (int i = rows - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int swap = order[i];
+			order[i] = order[j];
+			order[j] = swap;
+		}
+		double[] accuracies = IntStream.range(0, folds).parallel()
+				.mapToDouble(fold -> evaluateFold(allInstances, order, folds, fold)).toArray();
+		TimeLogger.STOP_TIME("Cross validation concluded");
+		return new NumberList(accuracies);
+	}
+
+	/**
+	 * Trains a copy of the delegate on every row that isn't part of the given fold
+	 * and returns its accuracy on the rows of the fold. The rows of the fold are
+	 * every folds-th entry of order starting at the fold index.
+	 * 
+	 * Adding an instance to weka.core.Instances only creates a shallow copy, the
+	 * values are shared with allInstances.
+	 */
+	private double evaluateFold(Instances allInstances, int[] order, int folds, int fold) {
+		Instances trainFold = new Instances(allInstances, order.length);
+		Instances testFold = new Instances(allInstances, order.length / folds + 1);
+		for (int i = 0; i < order.length; i++) {
+			if (i % folds == fold) {
+				testFold.add(allInstances.instance(order[i]));
+			} else {
+				trainFold.add(allInstances.instance(order[i]));
+			}
+		}
+		try {
+			Classifier classifier = AbstractClassifier.makeCopy((Classifier) super.delegate);
+			classifier.buildClassifier(trainFold);
+			return accuracy(classifier, testFold);
+		} catch (Exception e) {
+			// Mask this excpetion
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * Returns the fraction of the instances whose class the classifier predicts
+	 * correctly.
+	 */
+	static double accuracy(Classifier classifier, Instances testInstances) {
+		int correct = 0;
+		for (weka.core.Instance testInstance : testInstances) {
+			double prediction;
+			try {
+				prediction = classifier.classifyInstance(testInstance);
+			} catch (Exception ex) {
+				prediction = Utils.missingValue();
+			}
+			// a missing value is casted to 0, the first label, like in predict.
+			if ((int) prediction == (int) testInstance.classValue()) {
+				correct++;
+			}
+		}
+		return ((double) correct) / testInstances.numInstances();
+	}
+
+	/*
+	 * ----------------- SHARED DATA -----------------
+	 * Used to train several wrappers on the same converted data.
+	 */
+
+	/**
+	 * Assigns the attributes and the class labels of this wrapper, so that all of
+	 * the given datasets can be converted by toWekaInstances.
+	 */
+	void declareData(List<LabeledInstances<String>> datasets) {
+		List<String> labels = new ArrayList<>();
+		for (LabeledInstances<String> dataset : datasets) {
+			checkAttributes(dataset.getNumberOfColumns());
+			for (LabeledInstance<String> labeledInstance : dataset) {
+				labels.add(labeledInstance.getLabel());
+			}
+		}
+		declareLabels(labels);
+	}
+
+	/**
+	 * Converts the data using the attributes of this wrapper.
+	 */
+	Instances toWekaInstances(LabeledInstances<String> data) {
+		return createWekaInstances(data);
+	}
+
+	/**
+	 * Trains the delegate on data that was converted by the given wrapper. The
+	 * attributes and class labels are taken over from that wrapper. The data
+	 * isn't modified, as weka's classifiers copy their training data before they
+	 * change it.
+	 */
+	void trainOn(Instances trainingInstances, WekaClassifierWrapper converter) {
+		this.attributeList = new ArrayList<>(converter.attributeList);
+		this.attributesAssignedFlag = converter.attributesAssignedFlag;
+		this.classLabelSet = new TreeSet<>(converter.classLabelSet);
+		this.declaredClasses = converter.declaredClasses;
+		try {
+			((Classifier) super.delegate).buildClassifier(trainingInstances);
+		} catch (Exception e) {
+			// Mask this excpetion
+			throw new RuntimeException(e);
+		}
+		modelBuilt = true;
+		resetReplicas();
+	}
+
+	/**
+	 * Trains the delegate on weka instances that were preprocessed by the stages
+	 * of a pipeline. The attributes and class labels are taken from the header of
+	 * the data, whose class attribute needs to be the last one.
+	 */
+	void trainOn(Instances trainingInstances) {
+		int classIndex = trainingInstances.numAttributes() - 1;
+		if (trainingInstances.classIndex() != classIndex || !trainingInstances.classAttribute().isNominal()) {
+			throw new IllegalArgumentException("The last attribute of the data needs to be the nominal class.");
+		}
+		ArrayList<Attribute> attributes = new ArrayList<>(trainingInstances.numAttributes());
+		for (int i = 0; i < trainingInstances.numAttributes(); i++) {
+			attributes.add((Attribute) trainingInstances.attribute(i).copy());
+		}
+		Set<String> labels = new TreeSet<>();
+		for (int i = 0; i < trainingInstances.classAttribute().numValues(); i++) {
+			labels.add(trainingInstances.classAttribute().value(i));
+		}
+		this.attributeList = attributes;
+		this.attributesAssignedFlag = true;
+		this.classLabelSet = labels;
+		this.declaredClasses = true;
+		try {
+			((Classifier) super.delegate).buildClassifier(trainingInstances);
+		} catch (Exception e) {
+			// Mask this excpetion
+			throw new RuntimeException(e);
+		}
+		modelBuilt = true;
+		resetReplicas();
+	}
+
+	/**
+	 * Predicts weka instances that were preprocessed by the stages of a pipeline
+	 * like the data given to trainOn, or that were converted once for several
+	 * models. The rows are classified as they are, their values aren't copied.
+	 * The class values are ignored.
+	 */
+	List<String> predictPreprocessed(Instances instances) {
+		int columns = instances.numAttributes() - 1;
+		if (this.attributeList != null && columns != attributeList.size() - 1) {
+			throw new RuntimeException("Data column size (=" + columns
+					+ ") doesn't match previous data column size(=" + (attributeList.size() - 1) + ").");
+		}
+		return toLabels(predictClassIndices(new WekaRows(instances), columns));
+	}
+
+	/**
+	 * Returns the accuracy of the delegate on data that was converted by
+	 * toWekaInstances.
+	 */
+	double score(Instances testInstances) {
+		return accuracy((Classifier) super.delegate, testInstances);
+	}
+
 	/*
 	 * ----------------- UTILITY FUNCTIONS -----------------
 	 */
@@ -306,59 +1383,101 @@ public class WekaClassifierWrapper extends ServiceWrapper {
 	 * Creates a weka.core.Instances object containing the given training data ready
 	 * to be used to train the delegate using buildClassifier from weka's Classifier
 	 * class.
+	 * 
+	 * The conversion is cached for as long as data is in use, so handing the same
+	 * data to several wrappers with the same attributes converts it only once. The
+	 * returned object is a copy of the cached conversion that shares its values.
 	 */
 	private weka.core.Instances createWekaInstances(LabeledInstances<String> data) {
+		return createWekaInstances(data, new ArrayList<>(this.attributeList));
+	}
+
+	private static weka.core.Instances createWekaInstances(LabeledInstances<String> data,
+			ArrayList<Attribute> attributes) {
+		long cellCount = ((long) data.getNumberOfRows()) * attributes.size();
+		if (data instanceof SparseLabeledInstances) {
+			// only the stored values and the class values are converted.
+			cellCount = ((SparseLabeledInstances) data).getInstances().getNumberOfValues() + data.getNumberOfRows();
+		}
+		Instances converted = ConversionCache.shared().computeIfAbsent(data, attributes, cellCount,
+				() -> convertToWekaInstances(data, attributes));
+		return new Instances(converted);
+	}
+
+	/**
+	 * Creates the attributes that checkAttributes and declare_classes would assign
+	 * for the given data: a1, a2, ... and the nominal class attribute 'label',
+	 * whose values are the sorted labels of the data.
+	 */
+	private static ArrayList<Attribute> createAttributes(LabeledInstances<String> data) {
+		TreeSet<String> labels = new TreeSet<>();
+		for (LabeledInstance<String> labeledInstance : data) {
+			labels.add(labeledInstance.getLabel());
+		}
+		int columns = data.getNumberOfColumns();
+		ArrayList<Attribute> attributes = new ArrayList<>(columns + 1);
+		for (int i = 1; i <= columns; i++) {
+			attributes.add(new Attribute("a" + i));
+		}
+		attributes.add(new Attribute("label", new ArrayList<>(labels)));
+		return attributes;
+	}
 
-		int attributeCount = data.getNumberOfColumns() + 1; // the amount of attributes including the class label.
-		weka.core.Instances wekaInstances = new Instances("JAICore-extracted dataset", this.attributeList,
+	private static weka.core.Instances convertToWekaInstances(LabeledInstances<String> data,
+			ArrayList<Attribute> attributes) {
+		int attributeCount = attributes.size(); // the amount of attributes including the class label.
+		weka.core.Instances wekaInstances = new Instances("JAICore-extracted dataset", attributes,
 				data.getNumberOfRows());
 		wekaInstances.setClassIndex(attributeCount - 1); // the last item is the class attribute.
-		Attribute classAttribute = this.attributeList.get(attributeCount - 1); // the attribute containing all the
-																				// classes.
+		Attribute classAttribute = attributes.get(attributeCount - 1); // the attribute containing all the
+																		// classes.
 		// take every labeled instance and put it into the wekaInstances.
 		for (jaicore.ml.interfaces.LabeledInstance<String> labeledInstance : data) {
-			double[] values = new double[attributeCount];
-			for (int i = 0; i < attributeCount - 1; i++) {
-				values[i] = labeledInstance.get(i);
+			if (labeledInstance instanceof SparseInstances.Row) {
+				double classValue = classAttribute.indexOfValue(labeledInstance.getLabel());
+				wekaInstances.add(toSparseWekaInstance((SparseInstances.Row) labeledInstance, attributeCount, classValue));
+				continue;
 			}
-			weka.core.Instance wekaInstance = new DenseInstance(1.0, values);
+			double[] values = new double[attributeCount];
+			DoubleArrayInstance.copy(labeledInstance, values, attributeCount - 1);
 			// classValue in a weka.core.Instance is the index of the class value.
-			Double classIndex = new Double(classAttribute.indexOfValue(labeledInstance.getLabel()));
-			wekaInstance.setDataset(wekaInstances);
-			wekaInstance.setClassValue(classIndex);
-			wekaInstances.add(wekaInstance);
+			values[attributeCount - 1] = classAttribute.indexOfValue(labeledInstance.getLabel());
+			wekaInstances.add(new DenseInstance(1.0, values));
 		}
 		return wekaInstances;
 	}
 
 	/**
-	 * From the Instances object given this function creates a weka.core.Instances
-	 * object ready to be used by classifyInstance function from Classifier. The
-	 * class value is set to missing.
+	 * Creates a weka.core.Instance from the given Instance ready to be used by
+	 * classifyInstance function from Classifier. The class value is set to
+	 * missing. The dataset is not assigned.
 	 */
-	private weka.core.Instances createWekaInstances(Iterable<? extends Instance> data, int rows, int columns) {
-		int attributeCount = columns + 1; // the amount of attributes including the class label.
-		weka.core.Instances wekaInstances = null;
-		if (this.attributeList == null) {
-			throw new IllegalStateException("Trying to create a WekaInstances object before attribute list has been determined.");
+	private static weka.core.Instance toWekaInstance(Instance instance, int columns) {
+		if (instance instanceof SparseInstances.Row) {
+			return toSparseWekaInstance((SparseInstances.Row) instance, columns + 1, Utils.missingValue());
 		}
-		try {
-			wekaInstances = new Instances("JAICore-extracted dataset", this.attributeList, rows);
-		}catch(NullPointerException ex) {
-			ex.printStackTrace();
-		}
-		wekaInstances.setClassIndex(attributeCount - 1); // the last item is the class attribute.
-		for (Instance instance : data) {
-			double[] values = new double[attributeCount];
-			for (int i = 0; i < attributeCount - 1; i++) {
-				values[i] = instance.get(i);
-			}
-			weka.core.Instance wekaInstance = new DenseInstance(1.0, values);
-			wekaInstance.setDataset(wekaInstances);
-			wekaInstance.setClassMissing();
-			wekaInstances.add(wekaInstance);
+		double[] values = new double[columns + 1]; // the last item is the class attribute.
+		DoubleArrayInstance.copy(instance, values, columns);
+		values[columns] = Utils.missingValue();
+		return new DenseInstance(1.0, values);
+	}
+
+	/**
+	 * Creates a weka.core.SparseInstance from the stored values of the row. The
+	 * class value is stored as the last attribute.
+	 */
+	private static weka.core.Instance toSparseWekaInstance(SparseInstances.Row row, int attributeCount,
+			double classValue) {
+		int count = row.end() - row.start();
+		double[] values = new double[count + 1];
+		int[] indices = new int[count + 1];
+		for (int k = 0; k < count; k++) {
+			indices[k] = row.indexAt(row.start() + k);
+			values[k] = row.valueAt(row.start() + k);
 		}
-		return wekaInstances;
+		indices[count] = attributeCount - 1;
+		values[count] = classValue;
+		return new SparseInstance(1.0, values, indices, attributeCount);
 	}
 
 }
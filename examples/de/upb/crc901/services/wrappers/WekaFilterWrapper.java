@@ -1,46 +1,261 @@
 package de.upb.crc901.services.wrappers;
 
 import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
 
 import de.upb.crc901.services.core.JASEDataObject;
 import de.upb.crc901.services.core.ServiceWrapper;
+import de.upb.crc901.services.types.InstanceStream;
+import de.upb.crc901.services.types.DoubleArrayInstance;
 import jaicore.ml.WekaUtil;
 import jaicore.ml.core.SimpleInstancesImpl;
 import jaicore.ml.core.SimpleLabeledInstancesImpl;
+import jaicore.ml.interfaces.Instance;
 import jaicore.ml.interfaces.LabeledInstances;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
 import weka.core.Instances;
 import weka.filters.Filter;
+import weka.filters.StreamableFilter;
 
 public class WekaFilterWrapper extends ServiceWrapper{
 
 	/**
-	 * 
+	 *
 	 */
 	private static final long serialVersionUID = 1L;
 
+	/**
+	 * Amount of rows that are filtered at once by preprocess_stream.
+	 */
+	private static final int STREAM_CHUNK_SIZE = 1024;
+
+	/**
+	 * Header of the data the filter was trained with. Null if train wasn't called.
+	 */
+	private Instances trainingHeader;
+
 	public WekaFilterWrapper(Constructor<? extends Object> delegateConstructor, JASEDataObject[] values) {
 		super(delegateConstructor, values);
 	}
-	
+
+	/**
+	 * Sets the input format of the filter and runs the first batch on the given instances.
+	 * Filters like Normalize or Standardize fix their statistics in the first batch,
+	 * so later calls of preprocess use the statistics of the training data.
+	 * If training fails, the filter counts as untrained.
+	 */
 	public void train(Instances instances) throws Exception {
 		try {
-			((Filter) super.delegate).setInputFormat(instances);
+			Filter filter = (Filter) super.delegate;
+			synchronized (filter) {
+				trainingHeader = null;
+				filter.setInputFormat(instances);
+				for (weka.core.Instance instance : instances) {
+					filter.input(instance);
+				}
+				filter.batchFinished();
+				while (filter.output() != null) {
+					// the output of the training data is dropped.
+				}
+				trainingHeader = new Instances(instances, 0);
+			}
 		} catch(Exception ex) {
-			ex.printStackTrace();
+			// Mask this excpetion
+			throw new RuntimeException(ex);
 		}
 	}
 	/**
-	 * Applies the useFilter function from Filter using the wrapped filter, delegate. 
+	 * Applies the useFilter function from Filter using the wrapped filter, delegate.
 	 * @param instances Data to be preprocessed.
 	 * @return Preprocessed data
 	 * @throws Exception throws by useFilter
 	 */
 	public Instances preprocess(SimpleInstancesImpl instances) throws Exception {
 		Instances wekaInstances = WekaUtil.fromJAICoreInstances(instances);
-		Instances filteredInstances = Filter.useFilter(wekaInstances, (Filter) super.delegate);
+		Instances filteredInstances;
+		synchronized (super.delegate) {
+			filteredInstances = Filter.useFilter(wekaInstances, (Filter) super.delegate);
+		}
 		//jaicore.ml.interfaces.Instances returnVal = WekaUtil.toJAICoreInstances(filteredInstances);
 		return filteredInstances;
 	}
-	
+
+	/**
+	 * Filters weka instances as they were received, e.g. as WekaInstances. Like
+	 * transform, the class attribute is kept.
+	 */
+	public Instances preprocess(Instances instances) throws Exception {
+		return transform(instances);
+	}
+
+	/**
+	 * Filters weka instances with the structure of the training data, e.g. inside
+	 * of a pipeline. The class attribute is kept.
+	 */
+	Instances transform(Instances instances) throws Exception {
+		if (trainingHeader == null) {
+			throw new IllegalStateException(super.delegate.getClass().getName()
+					+ " needs to be trained before data can be preprocessed.");
+		}
+		synchronized (super.delegate) {
+			return Filter.useFilter(instances, (Filter) super.delegate);
+		}
+	}
+
+	/**
+	 * Filters the given rows while they are received and returns the filtered rows
+	 * as a stream that is written while it is produced. The rows are filtered in
+	 * chunks of STREAM_CHUNK_SIZE rows, so the memory used doesn't depend on the
+	 * amount of rows.
+	 *
+	 * Only works for filters that handle each row on its own: filters that were
+	 * trained before, e.g. Normalize or Standardize which then use the statistics of
+	 * the training data, and streamable filters. If the filter was trained with
+	 * labeled data, the class value of the rows is missing and it is dropped from
+	 * the filtered rows.
+	 *
+	 * @param instances
+	 *            rows to be preprocessed.
+	 * @return stream of the preprocessed rows.
+	 */
+	public InstanceStream preprocess_stream(InstanceStream instances) {
+		Filter filter = (Filter) super.delegate;
+		if (trainingHeader == null && !(filter instanceof StreamableFilter)) {
+			throw new IllegalStateException(filter.getClass().getName()
+					+ " needs to be trained before rows can be streamed through it.");
+		}
+		return new InstanceStream(new StreamingFilter(instances.iterator()));
+	}
+
+	/**
+	 * Pulls chunks of rows from the input, pushes them through the filter and hands
+	 * out the filtered rows.
+	 */
+	private final class StreamingFilter implements Iterator<Instance> {
+
+		private final Iterator<Instance> rows;
+
+		private Iterator<Instance> filteredChunk = Collections.emptyIterator();
+
+		/** Header of the rows that are fed to the filter. Assigned with the first row. */
+		private Instances header;
+
+		/** Set to true after the first chunk was fed to the filter. */
+		private boolean formatSet = false;
+
+		StreamingFilter(Iterator<Instance> rows) {
+			this.rows = rows;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (!filteredChunk.hasNext() && rows.hasNext()) {
+				filteredChunk = filterChunk().iterator();
+			}
+			return filteredChunk.hasNext();
+		}
+
+		@Override
+		public Instance next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return filteredChunk.next();
+		}
+
+		private List<Instance> filterChunk() {
+			List<weka.core.Instance> chunk = new ArrayList<>(STREAM_CHUNK_SIZE);
+			while (chunk.size() < STREAM_CHUNK_SIZE && rows.hasNext()) {
+				Instance row = rows.next();
+				if (header == null) {
+					header = headerFor(row.getNumberOfColumns());
+				}
+				chunk.add(toWekaInstance(row));
+			}
+			List<Instance> filtered = new ArrayList<>(chunk.size());
+			Filter filter = (Filter) WekaFilterWrapper.super.delegate;
+			try {
+				// the filter is locked for the whole chunk so the output isn't mixed up with other requests.
+				synchronized (filter) {
+					if (!formatSet && trainingHeader == null) {
+						// untrained streamable filter:
+						filter.setInputFormat(header);
+					}
+					formatSet = true;
+					for (weka.core.Instance instance : chunk) {
+						filter.input(instance);
+					}
+					if (!rows.hasNext()) {
+						filter.batchFinished();
+					}
+					int classIndex = filter.getOutputFormat().classIndex();
+					weka.core.Instance output;
+					while ((output = filter.output()) != null) {
+						filtered.add(toJAICoreInstance(output, classIndex));
+					}
+				}
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				// Mask this excpetion
+				throw new RuntimeException(e);
+			}
+			return filtered;
+		}
+
+		/**
+		 * The header of the training data if there is one. Otherwise a header like the one
+		 * WekaUtil creates.
+		 */
+		private Instances headerFor(int columns) {
+			if (trainingHeader != null) {
+				int expectedColumns = trainingHeader.numAttributes() - (trainingHeader.classIndex() < 0 ? 0 : 1);
+				if (columns != expectedColumns) {
+					throw new RuntimeException("Data column size (=" + columns
+							+ ") doesn't match the column size of the training data(=" + expectedColumns + ").");
+				}
+				return trainingHeader;
+			}
+			ArrayList<Attribute> attributes = new ArrayList<>(columns);
+			for (int i = 1; i <= columns; i++) {
+				attributes.add(new Attribute("a" + i));
+			}
+			return new Instances("JAICore-extracted dataset", attributes, 0);
+		}
+
+		/**
+		 * Copies the row into a weka instance of the header. The class value is missing.
+		 */
+		private weka.core.Instance toWekaInstance(Instance row) {
+			int classIndex = header.classIndex();
+			double[] values = new double[header.numAttributes()];
+			int column = 0;
+			for (int att = 0; att < values.length; att++) {
+				values[att] = att == classIndex ? weka.core.Utils.missingValue() : row.get(column++);
+			}
+			weka.core.Instance instance = new DenseInstance(1.0, values);
+			instance.setDataset(header);
+			return instance;
+		}
+
+		private Instance toJAICoreInstance(weka.core.Instance output, int classIndex) {
+			if (classIndex < 0) {
+				return new DoubleArrayInstance(output.toDoubleArray());
+			}
+			double[] values = new double[output.numAttributes() - 1];
+			int column = 0;
+			for (int att = 0; att < output.numAttributes(); att++) {
+				if (att != classIndex) {
+					values[column++] = output.value(att);
+				}
+			}
+			return new DoubleArrayInstance(values);
+		}
+	}
 
 }
@@ -0,0 +1,248 @@
+package de.upb.crc901.services.core;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Remembers the result of converting a source object to another representation.
+ * Used to convert the same dataset only once, when it is handed to several
+ * operations of a composition.
+ *
+ * The source objects are compared by identity and are only weakly referenced, so
+ * an entry lives as long as its source is in use, e.g. as a field of an
+ * environment state. Additionally a variant object can be given, that
+ * distinguishes conversions of the same source to different targets. Variants are
+ * compared by equals.
+ *
+ * The cache is bounded by the amount of cells (e.g. rows * columns) held by the
+ * conversions. The least recently used conversions are dropped first. The bound
+ * can be set by the system property "jase.conversioncache.cells".
+ *
+ * Only conversions of sources that were marked read-only are cached, because a
+ * source that is modified in place doesn't notice the cache. Data that HttpBody
+ * reads by a stream handler is marked read-only: services must not modify their
+ * received inputs in place. Conversions of other sources are calculated on
+ * every call.
+ *
+ * Cached conversions are shared. Callers that hand them out to code that may
+ * modify them, need to copy them first.
+ *
+ * @author aminfaez
+ *
+ */
+public final class ConversionCache {
+
+	private static final Logger logger = LoggerFactory.getLogger(ConversionCache.class);
+
+	/**
+	 * Default bound of the shared cache: ~160 MB worth of double values.
+	 */
+	private static final long DEFAULT_MAX_CELLS = 20_000_000L;
+
+	private static final ConversionCache shared = new ConversionCache(
+			Long.getLong("jase.conversioncache.cells", DEFAULT_MAX_CELLS));
+
+	/**
+	 * Conversions in the order of their last access.
+	 */
+	private final LinkedHashMap<Key, Conversion> conversions = new LinkedHashMap<>(16, 0.75f, true);
+
+	/**
+	 * Sources that are never modified. Only their conversions are cached.
+	 */
+	private final HashMap<Key, Boolean> readOnlySources = new HashMap<>();
+
+	/**
+	 * Receives the keys whose sources were garbage collected.
+	 */
+	private final ReferenceQueue<Object> collectedSources = new ReferenceQueue<>();
+
+	private final long maxCells;
+
+	private long cells = 0;
+
+	public ConversionCache(long maxCells) {
+		this.maxCells = maxCells;
+	}
+
+	/**
+	 * Returns the cache shared by all services of this vm.
+	 */
+	public static ConversionCache shared() {
+		return shared;
+	}
+
+	/**
+	 * Marks the given source as read-only: it isn't modified as long as it is in
+	 * use. Conversions of the source are cached from now on.
+	 */
+	public synchronized void markReadOnly(Object source) {
+		Objects.requireNonNull(source);
+		expungeCollected();
+		readOnlySources.put(new Key(source, null, collectedSources), Boolean.TRUE);
+	}
+
+	/**
+	 * Returns the cached conversion of source to the given variant. If there is
+	 * none, the conversion is calculated by the given supplier and cached if it
+	 * fits into the bound and the source is read-only.
+	 *
+	 * The conversion is calculated outside of the lock. If two threads convert the
+	 * same source at once, both calculate it and the latter one is kept.
+	 *
+	 * @param cellCount
+	 *            size of the conversion, e.g. rows * columns.
+	 */
+	public <T> T computeIfAbsent(Object source, Object variant, long cellCount, Supplier<T> conversion) {
+		Objects.requireNonNull(source);
+		if (maxCells <= 0 || cellCount > maxCells) {
+			return conversion.get();
+		}
+		Key lookup = new Key(source, variant, null);
+		synchronized (this) {
+			expungeCollected();
+			if (!readOnlySources.containsKey(new Key(source, null, null))) {
+				lookup = null;
+			} else {
+				Conversion cached = conversions.get(lookup);
+				if (cached != null) {
+					@SuppressWarnings("unchecked")
+					T value = (T) cached.value;
+					return value;
+				}
+			}
+		}
+		if (lookup == null) {
+			// the source may be modified, so its conversion can't be reused.
+			return conversion.get();
+		}
+		T value = conversion.get();
+		if (value == null) {
+			return null;
+		}
+		synchronized (this) {
+			Key key = new Key(source, variant, collectedSources);
+			Conversion previous = conversions.put(key, new Conversion(value, cellCount));
+			if (previous != null) {
+				cells -= previous.cellCount;
+			}
+			cells += cellCount;
+			evict();
+		}
+		return value;
+	}
+
+	/**
+	 * Drops every conversion of the given source.
+	 */
+	public synchronized void invalidate(Object source) {
+		Iterator<Map.Entry<Key, Conversion>> iterator = conversions.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<Key, Conversion> entry = iterator.next();
+			if (entry.getKey().get() == source) {
+				cells -= entry.getValue().cellCount;
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * Drops every conversion.
+	 */
+	public synchronized void clear() {
+		conversions.clear();
+		readOnlySources.clear();
+		cells = 0;
+		while (collectedSources.poll() != null) {
+			// drain the queue
+		}
+	}
+
+	/**
+	 * Amount of cells currently cached.
+	 */
+	public synchronized long cachedCells() {
+		return cells;
+	}
+
+	/**
+	 * Removes the least recently used conversions until the cache is within its
+	 * bound.
+	 */
+	private void evict() {
+		Iterator<Conversion> iterator = conversions.values().iterator();
+		while (cells > maxCells && iterator.hasNext()) {
+			Conversion eldest = iterator.next();
+			cells -= eldest.cellCount;
+			iterator.remove();
+			logger.debug("Dropped a conversion of {} cells from the cache.", eldest.cellCount);
+		}
+	}
+
+	private void expungeCollected() {
+		Object collected;
+		while ((collected = collectedSources.poll()) != null) {
+			remove((Key) collected);
+		}
+	}
+
+	private void remove(Key key) {
+		readOnlySources.remove(key);
+		Conversion removed = conversions.remove(key);
+		if (removed != null) {
+			cells -= removed.cellCount;
+		}
+	}
+
+	private static final class Conversion {
+		final Object value;
+		final long cellCount;
+
+		Conversion(Object value, long cellCount) {
+			this.value = value;
+			this.cellCount = cellCount;
+		}
+	}
+
+	/**
+	 * Weak identity reference to the source together with the variant. A key
+	 * whose source was collected only equals itself.
+	 */
+	private static final class Key extends WeakReference<Object> {
+		private final int hash;
+		private final Object variant;
+
+		Key(Object source, Object variant, ReferenceQueue<Object> queue) {
+			super(source, queue);
+			this.variant = variant;
+			this.hash = 31 * System.identityHashCode(source) + Objects.hashCode(variant);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			Object source = get();
+			return source != null && source == other.get() && Objects.equals(variant, other.variant);
+		}
+	}
+}
@@ -0,0 +1,213 @@
+package de.upb.crc901.services.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+
+/**
+ * Output stream that hands the written bytes to a background thread, which
+ * writes them to the target stream. Writing to this stream never blocks on the
+ * target: once MEMORY_CHUNKS chunks are pending, the following bytes are
+ * spooled to a temporary file, so the memory used is bounded even if the
+ * receiver doesn't read.
+ *
+ * The server uses it for responses that are written while the request is still
+ * being received. A client that only starts reading the response after sending
+ * the whole request, like HttpServiceClient, would otherwise dead lock with the
+ * server once the socket buffers are full.
+ *
+ * @author aminfaez
+ *
+ */
+final class DecoupledOutputStream extends OutputStream {
+
+	/** Amount of bytes that are collected before they are handed over. */
+	private static final int CHUNK_SIZE = 1 << 13;
+
+	/** Amount of chunks that are kept in memory, more are spooled to disk. */
+	static final int MEMORY_CHUNKS = 128;
+
+	private final OutputStream target;
+
+	private final ByteArrayOutputStream currentChunk = new ByteArrayOutputStream(CHUNK_SIZE);
+
+	private final Thread writerThread;
+
+	/* guarded by this: */
+
+	/** Chunks in the order they are written. All of them precede the spool. */
+	private final ArrayDeque<byte[]> pendingChunks = new ArrayDeque<>();
+
+	/** Temporary file for the bytes that didn't fit into memory. */
+	private FileChannel spool;
+
+	/** The bytes between these positions of the spool are pending. */
+	private long spoolReadPosition = 0, spoolWritePosition = 0;
+
+	private boolean flushRequested = false, closeRequested = false;
+
+	private volatile IOException failure;
+
+	private boolean closed = false;
+
+	DecoupledOutputStream(OutputStream target) {
+		this.target = target;
+		this.writerThread = new Thread(this::writeChunks, "decoupled-output-writer");
+		this.writerThread.setDaemon(true);
+		this.writerThread.start();
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		currentChunk.write(b);
+		if (currentChunk.size() >= CHUNK_SIZE) {
+			handOver();
+		}
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		currentChunk.write(b, off, len);
+		if (currentChunk.size() >= CHUNK_SIZE) {
+			handOver();
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		handOver();
+		synchronized (this) {
+			flushRequested = true;
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Waits until every pending chunk was written and closes the target.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		handOver();
+		synchronized (this) {
+			closeRequested = true;
+			notifyAll();
+		}
+		try {
+			writerThread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the receiver.");
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Returns true if pending bytes are in the spool.
+	 */
+	synchronized boolean isSpooling() {
+		return spoolWritePosition > spoolReadPosition;
+	}
+
+	private void handOver() throws IOException {
+		if (failure != null) {
+			throw failure;
+		}
+		if (currentChunk.size() == 0) {
+			return;
+		}
+		synchronized (this) {
+			if (!isSpooling() && pendingChunks.size() < MEMORY_CHUNKS) {
+				pendingChunks.add(currentChunk.toByteArray());
+			} else {
+				// once the spool is used, it has to be emptied first to keep the order.
+				if (spool == null) {
+					Path file = Files.createTempFile("decoupled-output", ".spool");
+					spool = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+							StandardOpenOption.DELETE_ON_CLOSE);
+				}
+				ByteBuffer bytes = ByteBuffer.wrap(currentChunk.toByteArray());
+				while (bytes.hasRemaining()) {
+					spoolWritePosition += spool.write(bytes, spoolWritePosition);
+				}
+			}
+			notifyAll();
+		}
+		currentChunk.reset();
+	}
+
+	/**
+	 * Waits for the next bytes to write. Returns null if the target is to be
+	 * flushed and an empty buffer if the stream was closed.
+	 */
+	private synchronized ByteBuffer nextChunk(ByteBuffer spoolBuffer) throws InterruptedException, IOException {
+		while (pendingChunks.isEmpty() && !isSpooling() && !flushRequested && !closeRequested) {
+			wait();
+		}
+		if (!pendingChunks.isEmpty()) {
+			return ByteBuffer.wrap(pendingChunks.poll());
+		}
+		if (isSpooling()) {
+			spoolBuffer.clear();
+			spoolBuffer.limit((int) Math.min(spoolBuffer.capacity(), spoolWritePosition - spoolReadPosition));
+			while (spoolBuffer.hasRemaining()) {
+				spoolReadPosition += spool.read(spoolBuffer, spoolReadPosition);
+			}
+			if (!isSpooling()) {
+				// start over at the beginning of the file.
+				spoolReadPosition = spoolWritePosition = 0;
+			}
+			spoolBuffer.flip();
+			return spoolBuffer;
+		}
+		if (flushRequested) {
+			flushRequested = false;
+			return null;
+		}
+		return ByteBuffer.allocate(0);
+	}
+
+	private void writeChunks() {
+		ByteBuffer spoolBuffer = ByteBuffer.allocate(CHUNK_SIZE * 8);
+		try {
+			while (true) {
+				ByteBuffer chunk = nextChunk(spoolBuffer);
+				if (chunk == null) {
+					target.flush();
+				} else if (chunk.hasRemaining()) {
+					target.write(chunk.array(), chunk.position(), chunk.remaining());
+				} else {
+					target.close();
+					return;
+				}
+			}
+		} catch (IOException e) {
+			failure = e;
+		} catch (InterruptedException e) {
+			failure = new InterruptedIOException("Interrupted while writing to the receiver.");
+		} finally {
+			synchronized (this) {
+				pendingChunks.clear();
+				if (spool != null) {
+					try {
+						spool.close();
+					} catch (IOException e) {
+						// nothing is pending anymore.
+					}
+				}
+			}
+		}
+	}
+}
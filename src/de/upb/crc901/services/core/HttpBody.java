@@ -45,6 +45,12 @@ public final class HttpBody {
 	private int maxIndex = -1;
 	private EnvironmentState envState = new EnvironmentState();
 
+	/**
+	 * The streamed input which the reading of this body stopped at. Null if the
+	 * body was read completely.
+	 */
+	private StreamedData openStream = null;
+
 	private OntologicalTypeMarshallingSystem otms = new OntologicalTypeMarshallingSystem();
 
 	public HttpBody() {
@@ -237,21 +243,40 @@ public final class HttpBody {
 		jsonOut.writeFieldName(HttpBody.INPUTS_FIELDNAME);
 		jsonOut.writeStartObject();
 
+		// streamed data is written at the very end because the reader stops there.
+		String streamedFieldName = null;
+
 		// positional arguments
 		jsonOut.writeFieldName(HttpBody.ARGLIST_FIELDNAME);
 		jsonOut.writeStartArray();
 		for (String fieldName : getState().positionalFieldNames()) {
-			writeObject(jsonOut, getState().retrieveField(fieldName));
+			JASEDataObject data = getState().retrieveField(fieldName);
+			if (isStreamed(data)) {
+				streamedFieldName = checkSingleStream(streamedFieldName, fieldName);
+				jsonOut.writeNull(); // keeps the position of the following arguments.
+			} else {
+				writeObject(jsonOut, data);
+			}
 		}
 		jsonOut.writeEndArray();
 
 		// keyword arguments
 		for (String keyword : getState().keywordFieldNames()) {
 			JASEDataObject data = getState().retrieveField(keyword);
+			if (isStreamed(data)) {
+				streamedFieldName = checkSingleStream(streamedFieldName, keyword);
+				continue;
+			}
 			jsonOut.writeFieldName(keyword);
 			writeObject(jsonOut, data);
 		}
 
+		// streamed argument. Positional fields are written by their name, e.g. "i2".
+		if (streamedFieldName != null) {
+			jsonOut.writeFieldName(streamedFieldName);
+			writeObject(jsonOut, getState().retrieveField(streamedFieldName));
+		}
+
 		// end of arguments
 		jsonOut.writeEndObject();
 		// end of body
@@ -259,6 +284,18 @@ public final class HttpBody {
 		jsonOut.flush();
 	}
 
+	private boolean isStreamed(JASEDataObject jdo) {
+		return jdo != null && jdo.getData() instanceof StreamedData;
+	}
+
+	private String checkSingleStream(String previousStreamedField, String streamedField) {
+		if (previousStreamedField != null) {
+			throw new RuntimeException("Only one streamed input is allowed per body. Found: " + previousStreamedField
+					+ " and " + streamedField);
+		}
+		return streamedField;
+	}
+
 	private void writeObject(JsonGenerator jsonOut, JASEDataObject jdo) throws IOException {
 		jsonOut.writeStartObject();
 		jsonOut.writeStringField("type", jdo.getType());
@@ -273,7 +310,11 @@ public final class HttpBody {
 		jsonOut.writeEndObject();
 	}
 
-	private void streamObject(JsonGenerator jsonOut, JASEDataObject jdo) throws IOException {
+	/**
+	 * Writes the data of the given non-primitive object by the streamhandler of its
+	 * semantic type.
+	 */
+	static void streamObject(JsonGenerator jsonOut, JASEDataObject jdo) throws IOException {
 		String streamHandlerClassName = "de.upb.crc901.services.streamhandlers." + jdo.getType() + "StreamHandler";
 		Class<?> streamHandlerClass;
 		try {
@@ -350,6 +391,11 @@ public final class HttpBody {
 								jdo = readObject(jsonIn);
 							}
 							addPositionalArgument(jdo);
+							if (isStreamed(jdo)) {
+								// the rest of the body is read while the stream is consumed.
+								openStream = (StreamedData) jdo.getData();
+								return;
+							}
 						}
 					} else {
 						String keywrod = fieldname;
@@ -359,6 +405,11 @@ public final class HttpBody {
 						}
 						JASEDataObject jdo = readObject(jsonIn);
 						addKeyworkArgument(keywrod, jdo);
+						if (isStreamed(jdo)) {
+							// the rest of the body is read while the stream is consumed.
+							openStream = (StreamedData) jdo.getData();
+							return;
+						}
 					}
 				}
 			}
@@ -379,6 +430,10 @@ public final class HttpBody {
 				if (type != null) {
 					jsonIn.nextToken();
 					data = parseData(jsonIn, type);
+					if (data instanceof StreamedData) {
+						// don't read any further. The consumer of data reads the stream.
+						break;
+					}
 				} else {
 					throw new RuntimeException("The incoming json string doesn't specify type before the data.");
 				}
@@ -401,7 +456,12 @@ public final class HttpBody {
 				assert read != null : "Could not find method \"write(" + JsonParser.class
 						+ ")\" in streamhandler class " + streamHandlerClassName;
 
-				return read.invoke(handler, jsonIn);
+				Object data = read.invoke(handler, jsonIn);
+				if (data != null) {
+					// received data isn't modified by services, so its conversions can be cached.
+					ConversionCache.shared().markReadOnly(data);
+				}
+				return data;
 			} catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
 				e.printStackTrace();
 			} catch (ClassNotFoundException e) {
@@ -417,6 +477,27 @@ public final class HttpBody {
 		readfromJsonBody(input);
 	}
 
+	/**
+	 * Returns true if the reading of this body stopped at a streamed input which
+	 * wasn't finished yet.
+	 */
+	public boolean hasOpenStream() {
+		return openStream != null;
+	}
+
+	/**
+	 * If the reading of this body stopped at a streamed input, the part of the
+	 * stream which wasn't consumed yet is skipped. Call this after the inputs have
+	 * been used.
+	 */
+	public void finishReading() throws IOException {
+		if (openStream != null) {
+			StreamedData stream = openStream;
+			openStream = null;
+			stream.skipRemaining();
+		}
+	}
+
 	public boolean equals(Object object) {
 		if (object instanceof HttpBody) {
 			return equals((HttpBody) object);
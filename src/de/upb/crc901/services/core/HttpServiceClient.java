@@ -74,6 +74,9 @@ public class HttpServiceClient {
 		con.setConnectTimeout(2000);
 		con.setChunkedStreamingMode(1<<20); // 1 MByte buffer
 		con.setRequestProperty("Content-Type", "application/json");
+		if(!SerializationHints.current().isEmpty()) {
+			con.setRequestProperty(SerializationHints.HEADER, SerializationHints.toHeader());
+		}
 		con.setRequestMethod("POST");
 		con.setDoOutput(true);
 		TimeLogger.STOP_TIME("Sending data started");
@@ -127,13 +130,19 @@ public class HttpServiceClient {
 		
 		
 		if(responseCode.get() == 200) {
-			try (InputStream in = con.getInputStream()){
+			InputStream in = con.getInputStream();
+			try {
 				returnedBody.readfromBody(in);
 			}catch(IOException ex) {
 				ex.printStackTrace();
 			}
 			catch(Exception ex) {
 				ex.printStackTrace();
+			} finally {
+				// a streamed result is read while it is consumed, so the input stays open.
+				if(!returnedBody.hasOpenStream()) {
+					in.close();
+				}
 			}
 			ServiceCompositionResult result = new ServiceCompositionResult();
 			translateServiceHandlers(returnedBody.getState(), "local", host);
@@ -169,6 +178,7 @@ public class HttpServiceClient {
 	
 	/**
 	 * Changes the host attribute of all servicehandlers in the given envirenment state map. 
+	 * This includes the handles inside of ServiceHandleContainer objects.
 	 */
 	public void translateServiceHandlers(EnvironmentState envState, String from, String to) {
 		for(String field : envState.serviceHandleFieldNames()) {
@@ -184,6 +194,13 @@ public class HttpServiceClient {
 					(ServiceHandle.class.getSimpleName(), serviceHandle));
 			
 		}
+		// handles that are contained in other objects:
+		for(String field : envState.currentFieldNames()) {
+			JASEDataObject data = envState.retrieveField(field);
+			if(data != null && data.getData() instanceof ServiceHandleContainer) {
+				((ServiceHandleContainer) data.getData()).translateServiceHandles(from, to);
+			}
+		}
 	}
 	@Deprecated
 	public ServiceCompositionResult callServiceOperation(String serviceCall, Object... inputs) throws IOException {
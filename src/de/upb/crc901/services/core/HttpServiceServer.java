@@ -100,6 +100,7 @@ public class HttpServiceServer {
 		public void handle(HttpExchange t) throws IOException {
 
 			String response = "";
+			HttpBody body = new HttpBody();
 			HttpBody returnBody = null;
 			List<Throwable> exceptions = new ArrayList<>();
 			try {
@@ -112,9 +113,10 @@ public class HttpServiceServer {
 				if ((!"post".equalsIgnoreCase(t.getRequestMethod()))) {
 					throw new UnsupportedEncodingException("No post request");
 				}
+				// hints of the client about the data it is able to receive:
+				SerializationHints.setFromHeader(t.getRequestHeaders().getFirst(SerializationHints.HEADER));
 				InputStream input =  t.getRequestBody();
 				
-				HttpBody body = new HttpBody();
 				body.readfromBody(input);
 				
         		
@@ -292,8 +294,17 @@ public class HttpServiceServer {
 				if(exceptions.isEmpty()) {
 					t.sendResponseHeaders(200, 0);
 					os = t.getResponseBody();
-					returnBody.writeBody(os);
+					if(body.hasOpenStream()) {
+						// results may be written while the rest of the request is still received.
+						os = new DecoupledOutputStream(os);
+					}
+					try {
+						returnBody.writeBody(os);
+					} finally {
+						finishReading(body);
+					}
 				} else {
+					finishReading(body);
 					t.sendResponseHeaders(400, 0);
 					os = t.getResponseBody();
 					StringBuilder sb = new StringBuilder();
@@ -309,11 +320,21 @@ public class HttpServiceServer {
 					os.flush();
 				}
 				os.close();
+				SerializationHints.clear();
 			}
 
 		}
 
-		
+		/**
+		 * Skips whatever is left of a streamed input of the request.
+		 */
+		private void finishReading(HttpBody body) {
+			try {
+				body.finishReading();
+			} catch (IOException | RuntimeException e) {
+				logger.error("Couldn't read the rest of the request: {}", e.getMessage());
+			}
+		}
 	}
 	
 	private boolean canExecute(OperationInvocation opInv) {
@@ -706,23 +727,47 @@ public class HttpServiceServer {
 		return true;
 	}
 
+	/**
+	 * Returns the amount of the given inputs that are handed to the parameters as they are, without being converted.
+	 */
+	private int countUnconvertedParameters(Class<?>[] requiredTypes, List<JASEDataObject> providedTypes) {
+		int count = 0;
+		for (int i = 0; i < requiredTypes.length; i++) {
+			if (requiredTypes[i].isInstance(providedTypes.get(i).getData())) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the method that accepts the given inputs. If several overloads accept them, the one that needs the least
+	 * conversions is chosen.
+	 */
 	private Method getMethod(Class<?> clazz, String methodName, List<JASEDataObject> providedTypes) {
 		if (!classesConfig.methodKnown(clazz.getName(), methodName)) {
 			logger.warn("The operation " + clazz.getName() + "::" + methodName + " is not supported by this server.");
 			return null;
 		}
+		Method chosenMethod = null;
+		int chosenUnconverted = -1;
 		for (Method method : clazz.getMethods()) {
 			if (!method.getName().equals(methodName))
 				continue;
 			Class<?> requiredParams[] = method.getParameterTypes();
-			if (matchParameters(requiredParams, providedTypes))
-				return method;
+			if (matchParameters(requiredParams, providedTypes)) {
+				int unconverted = countUnconvertedParameters(requiredParams, providedTypes);
+				if (unconverted > chosenUnconverted) {
+					chosenMethod = method;
+					chosenUnconverted = unconverted;
+				}
+			}
 			else {
 				logger.debug("Method {} with params {} matches the required method name but is not satisfied by ", methodName, Arrays.toString(requiredParams),
 						providedTypes);
 			}
 		}
-		return null;
+		return chosenMethod;
 	}
 	
 	/**
@@ -767,6 +812,7 @@ public class HttpServiceServer {
         });
         
 		server.createContext("/", new JavaClassHandler());
+		server.createContext(ServeHandler.CONTEXT, new ServeHandler(classesConfig, otms));
 		server.start();
 		logger.info("Server is up ...");
 		
@@ -779,6 +825,11 @@ public class HttpServiceServer {
 	}
 
 	public static void main(String[] args) throws Exception {
+		// small answers, e.g. of /serve/, would wait for delayed acks otherwise.
+		// The http server reads the flag once, so it is set before the first server starts:
+		if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+			System.setProperty("sun.net.httpserver.nodelay", "true");
+		}
 //		new HttpServiceServer(8000);
 		TEST_SERVER();
 	}
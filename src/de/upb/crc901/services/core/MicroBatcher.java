@@ -0,0 +1,188 @@
+package de.upb.crc901.services.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Collects items that are submitted concurrently by several threads and hands
+ * them to the batch function together. Used to serve many small requests to the
+ * same service with one call, e.g. single rows that need to be predicted.
+ *
+ * There is no background thread: a waiting thread becomes a leader if less
+ * than maxConcurrentBatches batches are running. It waits up to the linger
+ * time for more items, takes up to maxBatchSize items, runs the batch function
+ * and hands the results back to the threads that submitted them. Items that
+ * are submitted while all batches are running are taken by the next leader.
+ * With a linger time of 0 nothing is delayed and items are only batched if
+ * they queued up because the batch function is busy.
+ *
+ * @author aminfaez
+ *
+ */
+public final class MicroBatcher<I, O> {
+
+	private final Function<List<I>, List<O>> batchFunction;
+
+	private final int maxBatchSize;
+
+	private final long lingerNanos;
+
+	private final int maxConcurrentBatches;
+
+	private final Deque<Pending<I, O>> queue = new ArrayDeque<>();
+
+	/**
+	 * Amount of leaders that collect or run a batch. Guarded by queue.
+	 */
+	private int leaders = 0;
+
+	/**
+	 * @param batchFunction
+	 *            returns one result per item in the order of the items.
+	 * @param maxBatchSize
+	 *            maximum amount of items in a batch.
+	 * @param lingerMillis
+	 *            time the leader waits for more items before it runs the batch.
+	 * @param maxConcurrentBatches
+	 *            maximum amount of batches that are run at the same time.
+	 */
+	public MicroBatcher(Function<List<I>, List<O>> batchFunction, int maxBatchSize, long lingerMillis,
+			int maxConcurrentBatches) {
+		if (maxBatchSize < 1 || maxConcurrentBatches < 1) {
+			throw new IllegalArgumentException("The batch size and the amount of concurrent batches need to be positive: "
+					+ maxBatchSize + ", " + maxConcurrentBatches);
+		}
+		this.maxConcurrentBatches = maxConcurrentBatches;
+		this.batchFunction = batchFunction;
+		this.maxBatchSize = maxBatchSize;
+		this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+	}
+
+	/**
+	 * Submits the item and blocks until the batch containing it was run.
+	 *
+	 * @return the result of the item.
+	 */
+	public O submit(I item) {
+		Pending<I, O> pending = new Pending<>(item);
+		synchronized (queue) {
+			queue.add(pending);
+			if (queue.size() >= maxBatchSize) {
+				// a lingering leader doesn't need to wait any longer.
+				queue.notifyAll();
+			}
+		}
+		while (true) {
+			List<Pending<I, O>> batch;
+			synchronized (queue) {
+				// only lead while the own item is still queued. Otherwise wait for the batch that took it.
+				while (!pending.done && (pending.taken || leaders >= maxConcurrentBatches)) {
+					waitOn(queue, 0);
+				}
+				if (pending.done) {
+					return pending.result();
+				}
+				leaders++;
+				boolean leading = false;
+				try {
+					long deadline = System.nanoTime() + lingerNanos;
+					long left;
+					while (queue.size() < maxBatchSize && (left = deadline - System.nanoTime()) > 0) {
+						waitOn(queue, left);
+					}
+					if (pending.taken) {
+						// another leader took the item while this one lingered.
+						continue;
+					}
+					batch = new ArrayList<>(Math.min(queue.size(), maxBatchSize));
+					while (batch.size() < maxBatchSize && !queue.isEmpty()) {
+						Pending<I, O> taken = queue.poll();
+						taken.taken = true;
+						batch.add(taken);
+					}
+					leading = true;
+				} finally {
+					if (!leading) {
+						// e.g. interrupted while lingering. The queued items are left to the next leader.
+						leaders--;
+						queue.notifyAll();
+					}
+				}
+			}
+			try {
+				runBatch(batch);
+			} finally {
+				synchronized (queue) {
+					leaders--;
+					queue.notifyAll();
+				}
+			}
+		}
+	}
+
+	private void runBatch(List<Pending<I, O>> batch) {
+		List<I> items = new ArrayList<>(batch.size());
+		for (Pending<I, O> pending : batch) {
+			items.add(pending.item);
+		}
+		List<O> results = null;
+		RuntimeException failure = null;
+		try {
+			results = batchFunction.apply(items);
+			if (results.size() != items.size()) {
+				failure = new IllegalStateException(
+						"The batch function returned " + results.size() + " results for " + items.size() + " items.");
+			}
+		} catch (RuntimeException e) {
+			failure = e;
+		}
+		synchronized (queue) {
+			for (int i = 0; i < batch.size(); i++) {
+				Pending<I, O> pending = batch.get(i);
+				if (failure == null) {
+					pending.result = results.get(i);
+				} else {
+					pending.failure = failure;
+				}
+				pending.done = true;
+			}
+		}
+	}
+
+	private static void waitOn(Object monitor, long nanos) {
+		try {
+			if (nanos <= 0) {
+				monitor.wait();
+			} else {
+				TimeUnit.NANOSECONDS.timedWait(monitor, nanos);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+	}
+
+	private static final class Pending<I, O> {
+		final I item;
+		O result;
+		RuntimeException failure;
+		/** true once a leader took the item out of the queue. */
+		boolean taken = false;
+		boolean done = false;
+
+		Pending(I item) {
+			this.item = item;
+		}
+
+		O result() {
+			if (failure != null) {
+				throw failure;
+			}
+			return result;
+		}
+	}
+}
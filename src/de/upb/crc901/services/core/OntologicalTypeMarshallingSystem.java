@@ -223,7 +223,7 @@ public class OntologicalTypeMarshallingSystem {
 	
 
 	public <T> T allFromSemantic(JASEDataObject jdo, Class<T> clazz) {
-		if(clazz.getSimpleName().equals(jdo.getType())){
+		if(clazz.getSimpleName().equals(jdo.getType()) && clazz.isInstance(jdo.getData())){
 			return (T) jdo.getData();
 		}
 		if(isPrimitive(jdo)) {
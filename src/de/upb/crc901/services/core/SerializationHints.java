@@ -0,0 +1,84 @@
+package de.upb.crc901.services.core;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Hints that tell serializers what the receiving side is able to handle, e.g. that
+ * a conversion can be skipped. Hints are bound to the current thread.
+ *
+ * A client sends the hints of its thread to the server in the header
+ * "X-JASE-Hints" as a comma separated list. The server binds them to the thread
+ * that handles the request, so they are also forwarded to other services.
+ *
+ * @author aminfaez
+ *
+ */
+public final class SerializationHints {
+
+	/**
+	 * Name of the http header that contains the hints.
+	 */
+	public static final String HEADER = "X-JASE-Hints";
+
+	private static final ThreadLocal<Set<String>> hints = ThreadLocal.withInitial(Collections::emptySet);
+
+	private SerializationHints() {
+	}
+
+	/**
+	 * Returns true if the given hint is set for the current thread.
+	 */
+	public static boolean isSet(String hint) {
+		return hints.get().contains(hint);
+	}
+
+	/**
+	 * Returns the hints of the current thread.
+	 */
+	public static Set<String> current() {
+		return hints.get();
+	}
+
+	/**
+	 * Replaces the hints of the current thread with the given ones.
+	 */
+	public static void set(Collection<String> newHints) {
+		if (newHints == null || newHints.isEmpty()) {
+			hints.remove();
+		} else {
+			hints.set(Collections.unmodifiableSet(new HashSet<>(newHints)));
+		}
+	}
+
+	/**
+	 * Removes all hints of the current thread.
+	 */
+	public static void clear() {
+		hints.remove();
+	}
+
+	/**
+	 * Returns the hints of the current thread as the value of the header.
+	 */
+	public static String toHeader() {
+		return String.join(",", hints.get());
+	}
+
+	/**
+	 * Binds the hints in the given header value to the current thread.
+	 */
+	public static void setFromHeader(String headerValue) {
+		Set<String> parsed = new HashSet<>();
+		if (headerValue != null) {
+			for (String hint : headerValue.split(",")) {
+				if (!hint.trim().isEmpty()) {
+					parsed.add(hint.trim());
+				}
+			}
+		}
+		set(parsed);
+	}
+}
@@ -0,0 +1,279 @@
+package de.upb.crc901.services.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import jaicore.ml.core.SimpleInstanceImpl;
+import jaicore.ml.core.SimpleInstancesImpl;
+import jaicore.ml.interfaces.Instance;
+
+/**
+ * Handles requests to /serve/&lt;classpath&gt;/&lt;id&gt;/&lt;method&gt;, which
+ * call a method of an existing service with rows of numbers, e.g. predict of a
+ * trained classifier. There is no composition and no envelope: the body only
+ * contains the rows and the answer only contains the result of the method.
+ *
+ * The rows are sent either as json, a single row [1.0,2.0] or a batch
+ * [[1.0,2.0],[3.0,4.0]], or with the content type application/octet-stream as
+ * little-endian doubles, row after row. In that case the header X-Columns
+ * contains the amount of columns. The result is written as json by the
+ * streamhandler of its semantic type, e.g. ["a","b"] for a list of labels.
+ *
+ * The method needs to be configured for the class of the service and needs to
+ * take a single argument of type Instances. It is looked up once per class and
+ * method name.
+ *
+ * @author aminfaez
+ *
+ */
+class ServeHandler implements HttpHandler {
+
+	private static final Logger logger = LoggerFactory.getLogger(ServeHandler.class);
+
+	static final String CONTEXT = "/serve/";
+
+	static final String BINARY_CONTENT_TYPE = "application/octet-stream";
+
+	static final String COLUMNS_HEADER = "X-Columns";
+
+	private static final JsonFactory jsonFactory = new JsonFactory();
+
+	private final ClassesConfiguration classesConfig;
+
+	private final OntologicalTypeMarshallingSystem otms;
+
+	/**
+	 * Invokers of the methods that were served before, by classpath and method
+	 * name.
+	 */
+	private final Map<String, Invoker> invokers = new ConcurrentHashMap<>();
+
+	ServeHandler(ClassesConfiguration classesConfig, OntologicalTypeMarshallingSystem otms) {
+		this.classesConfig = classesConfig;
+		this.otms = otms;
+	}
+
+	@Override
+	public void handle(HttpExchange t) throws IOException {
+		int status = 200;
+		byte[] response;
+		try (InputStream input = t.getRequestBody()) {
+			if (!"post".equalsIgnoreCase(t.getRequestMethod())) {
+				throw new IllegalArgumentException("No post request");
+			}
+			String[] parts = t.getRequestURI().getPath().substring(CONTEXT.length()).split("/");
+			if (parts.length != 3) {
+				throw new IllegalArgumentException("The address needs to be " + CONTEXT + "<classpath>/<id>/<method>.");
+			}
+			ServiceHandle handle;
+			try {
+				handle = ServiceManager.SINGLETON().getHandle(parts[0], parts[1]);
+			} catch (ClassNotFoundException | IOException e) {
+				status = 404;
+				throw new IllegalArgumentException("The service " + parts[0] + " with id " + parts[1]
+						+ " doesn't live on this server.");
+			}
+			SimpleInstancesImpl rows;
+			String contentType = t.getRequestHeaders().getFirst("Content-Type");
+			if (contentType != null && contentType.startsWith(BINARY_CONTENT_TYPE)) {
+				rows = readBinary(input, t.getRequestHeaders().getFirst(COLUMNS_HEADER));
+			} else {
+				rows = readJson(input);
+			}
+			Object result = invoker(parts[0], parts[2]).invoke(handle.getService(), rows);
+			response = writeResult(result);
+		} catch (Exception e) {
+			if (status == 200) {
+				status = 400;
+			}
+			Throwable cause = e instanceof InvocationTargetException ? e.getCause() : e;
+			logger.error("Serving {} failed: {}", t.getRequestURI(), cause.getMessage());
+			response = (cause.getClass().getName() + "\n" + cause.getMessage() + "\n")
+					.getBytes(StandardCharsets.UTF_8);
+		}
+		t.getResponseHeaders().set("Content-Type", status == 200 ? "application/json" : "text/plain");
+		t.sendResponseHeaders(status, response.length);
+		try (OutputStream os = t.getResponseBody()) {
+			os.write(response);
+		}
+	}
+
+	private Invoker invoker(String classpath, String methodName) throws ClassNotFoundException {
+		String key = classpath + "::" + methodName;
+		Invoker invoker = invokers.get(key);
+		if (invoker == null) {
+			invoker = createInvoker(classpath, methodName);
+			invokers.put(key, invoker);
+		}
+		return invoker;
+	}
+
+	/**
+	 * Finds the method like HttpServiceServer does: the wrapper is searched first,
+	 * then the wrapped class.
+	 */
+	private Invoker createInvoker(String classpath, String methodName) throws ClassNotFoundException {
+		boolean wrapped = classesConfig.isWrapped(classpath);
+		if (wrapped) {
+			Method method = findMethod(classesConfig.getWrapperClasspath(classpath), methodName);
+			if (method != null) {
+				return new Invoker(method, false);
+			}
+		}
+		Method method = findMethod(classpath, methodName);
+		if (method == null) {
+			throw new UnsupportedOperationException("Cannot serve " + classpath + "::" + methodName
+					+ ". The method isn't configured or doesn't take Instances.");
+		}
+		return new Invoker(method, wrapped);
+	}
+
+	private Method findMethod(String classpath, String methodName) throws ClassNotFoundException {
+		if (!classesConfig.methodKnown(classpath, methodName)) {
+			return null;
+		}
+		for (Method method : Class.forName(classpath).getMethods()) {
+			if (method.getName().equals(methodName) && method.getParameterCount() == 1
+					&& method.getParameterTypes()[0].isAssignableFrom(SimpleInstancesImpl.class)) {
+				return method;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Reads a single row or an array of rows.
+	 */
+	private static SimpleInstancesImpl readJson(InputStream input) throws IOException {
+		SimpleInstancesImpl rows = new SimpleInstancesImpl();
+		try (JsonParser jsonIn = jsonFactory.createParser(input)) {
+			if (jsonIn.nextToken() != JsonToken.START_ARRAY) {
+				throw new IOException("The body needs to be a row or an array of rows.");
+			}
+			JsonToken token = jsonIn.nextToken();
+			if (token == JsonToken.START_ARRAY) {
+				while (token == JsonToken.START_ARRAY) {
+					rows.add(readRow(jsonIn));
+					token = jsonIn.nextToken();
+				}
+				if (token != JsonToken.END_ARRAY) {
+					throw new IOException("Type mismatch: " + token + " isn't a row.");
+				}
+			} else {
+				Instance row = new SimpleInstanceImpl();
+				while (token != JsonToken.END_ARRAY) {
+					row.add(readValue(jsonIn, token));
+					token = jsonIn.nextToken();
+				}
+				rows.add(row);
+			}
+		}
+		return rows;
+	}
+
+	private static Instance readRow(JsonParser jsonIn) throws IOException {
+		Instance row = new SimpleInstanceImpl();
+		JsonToken token;
+		while ((token = jsonIn.nextToken()) != JsonToken.END_ARRAY) {
+			row.add(readValue(jsonIn, token));
+		}
+		return row;
+	}
+
+	private static double readValue(JsonParser jsonIn, JsonToken token) throws IOException {
+		if (token != null && token.isNumeric()) {
+			return jsonIn.getDoubleValue();
+		}
+		if (token == JsonToken.VALUE_STRING && "NaN".equals(jsonIn.getText())) {
+			return Double.NaN;
+		}
+		throw new IOException("Type mismatch: " + token + " isn't numeric.");
+	}
+
+	/**
+	 * Reads rows of little-endian doubles.
+	 */
+	private static SimpleInstancesImpl readBinary(InputStream input, String columnsHeader) throws IOException {
+		if (columnsHeader == null) {
+			throw new IOException("Binary rows need the header " + COLUMNS_HEADER + ".");
+		}
+		int columns = Integer.parseInt(columnsHeader.trim());
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		while ((read = input.read(buffer)) != -1) {
+			bytes.write(buffer, 0, read);
+		}
+		ByteBuffer values = ByteBuffer.wrap(bytes.toByteArray()).order(ByteOrder.LITTLE_ENDIAN);
+		if (columns <= 0 || values.remaining() % (8 * columns) != 0) {
+			throw new IOException(values.remaining() + " bytes can't be split into rows of " + columns + " doubles.");
+		}
+		int rowCount = values.remaining() / (8 * columns);
+		SimpleInstancesImpl rows = new SimpleInstancesImpl();
+		for (int i = 0; i < rowCount; i++) {
+			Instance row = new SimpleInstanceImpl(columns);
+			for (int column = 0; column < columns; column++) {
+				row.add(values.getDouble());
+			}
+			rows.add(row);
+		}
+		return rows;
+	}
+
+	private byte[] writeResult(Object result) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (JsonGenerator jsonOut = jsonFactory.createGenerator(bytes, JsonEncoding.UTF8)) {
+			if (result == null) {
+				jsonOut.writeNull();
+			} else if (result instanceof Number) {
+				jsonOut.writeNumber(result.toString());
+			} else if (result instanceof Boolean) {
+				jsonOut.writeBoolean((Boolean) result);
+			} else if (result instanceof String) {
+				jsonOut.writeString((String) result);
+			} else {
+				HttpBody.streamObject(jsonOut, otms.allToSemantic(result, false));
+			}
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * A served method and whether it is called on the wrapped object.
+	 */
+	private static final class Invoker {
+		private final Method method;
+		private final boolean onDelegate;
+
+		Invoker(Method method, boolean onDelegate) {
+			this.method = method;
+			this.onDelegate = onDelegate;
+		}
+
+		Object invoke(Object service, SimpleInstancesImpl rows)
+				throws IllegalAccessException, InvocationTargetException {
+			Object target = onDelegate ? ((ServiceWrapper) service).delegate : service;
+			return method.invoke(target, rows);
+		}
+	}
+}
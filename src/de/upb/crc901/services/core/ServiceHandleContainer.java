@@ -0,0 +1,19 @@
+package de.upb.crc901.services.core;
+
+/**
+ * Data objects which contain service handles, e.g. a list of trained services.
+ * HttpServiceClient translates the hosts of the contained handles like it does
+ * for handles that are sent directly.
+ * 
+ * @author aminfaez
+ *
+ */
+public interface ServiceHandleContainer {
+
+	/**
+	 * Replaces every contained service handle whose host equals from by a handle
+	 * with host to.
+	 */
+	public void translateServiceHandles(String from, String to);
+
+}
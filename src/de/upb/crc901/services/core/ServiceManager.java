@@ -94,6 +94,26 @@ public class ServiceManager {
 	}
 	
 	
+	/**
+	 * Returns the service that the given handle refers to. Handles that were sent
+	 * by a client don't contain their service, so it is looked up among the
+	 * services of this server.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the service doesn't live on this server.
+	 */
+	public Object getService(ServiceHandle handle) {
+		if (handle.containService() && handle.getService() != null) {
+			return handle.getService();
+		}
+		try {
+			return getHandle(handle.getClasspath(), handle.getId()).getService();
+		} catch (ClassNotFoundException | IOException e) {
+			throw new IllegalArgumentException("The service " + handle.getClasspath() + " with id " + handle.getId()
+					+ " doesn't live on this server.", e);
+		}
+	}
+	
 	public static ServiceManager SINGLETON() {
 		return singlton;
 	}
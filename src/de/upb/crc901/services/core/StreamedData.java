@@ -0,0 +1,25 @@
+package de.upb.crc901.services.core;
+
+import java.io.IOException;
+
+/**
+ * Data objects which are read from the body while they are being consumed. For
+ * example a service can train on the rows of a dataset while the rest of the
+ * rows are still being transmitted.
+ * 
+ * HttpBody stops reading a body once it has encountered such an object. Thus
+ * HttpBody writes them as the last input of a body and only one of them is
+ * allowed per body.
+ * 
+ * @author aminfaez
+ *
+ */
+public interface StreamedData {
+
+	/**
+	 * Reads and drops everything that the consumer of this object didn't read.
+	 * Afterwards the underlying stream is positioned behind this object.
+	 */
+	public void skipRemaining() throws IOException;
+
+}
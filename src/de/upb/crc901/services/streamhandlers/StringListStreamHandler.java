@@ -2,16 +2,39 @@ package de.upb.crc901.services.streamhandlers;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
 
+import de.upb.crc901.services.core.SerializationHints;
 import de.upb.crc901.services.core.StreamHandler;
 
+/**
+ * Streamhandler implementation for the semantic type: StringList
+ *
+ * Example of a string list: ["A","B","A"]
+ *
+ * If the hint LABEL_DICTIONARY is set, lists with repeated values, e.g. labels
+ * or predictions, are written as a dictionary of the distinct values and the
+ * index of each value in the dictionary: {"dictionary":["A","B"],"codes":[0,1,0]}
+ *
+ * Both forms are read. Equal values of the read list are the same String
+ * object.
+ *
+ * @author aminfaez
+ *
+ */
 public class StringListStreamHandler implements StreamHandler<List<String>> {
 
+	/**
+	 * Hint of a receiver that reads the dictionary form of string lists.
+	 */
+	public static final String LABEL_DICTIONARY = "label-dictionary";
+
 	@Override
 	public Class<List<String>> getSupportedSemanticClass() {
 		Class<?> listClass = List.class;
@@ -20,12 +43,44 @@ public class StringListStreamHandler implements StreamHandler<List<String>> {
 
 	@Override
 	public List<String> read(JsonParser jsonIn) throws IOException {
+		if (jsonIn.currentToken() == JsonToken.START_OBJECT) {
+			return readDictionary(jsonIn);
+		}
 		List<String> stringList = new ArrayList<>();
+		Map<String, String> distinct = new HashMap<>();
 		// next string is start array
 		assert jsonIn.currentToken() == JsonToken.START_ARRAY;
 		while(jsonIn.nextToken() != JsonToken.END_ARRAY) {
 			if(jsonIn.currentToken() == JsonToken.VALUE_STRING) {
-				stringList.add(jsonIn.getValueAsString());
+				String value = jsonIn.getValueAsString();
+				String previous = distinct.putIfAbsent(value, value);
+				stringList.add(previous == null ? value : previous);
+			}
+		}
+		return stringList;
+	}
+
+	private List<String> readDictionary(JsonParser jsonIn) throws IOException {
+		List<String> dictionary = new ArrayList<>();
+		List<String> stringList = new ArrayList<>();
+		while (jsonIn.nextToken() != JsonToken.END_OBJECT) {
+			String fieldname = jsonIn.getCurrentName();
+			jsonIn.nextToken();
+			if ("dictionary".equals(fieldname)) {
+				while (jsonIn.nextToken() != JsonToken.END_ARRAY) {
+					dictionary.add(jsonIn.getValueAsString());
+				}
+			} else if ("codes".equals(fieldname)) {
+				// the dictionary is written first.
+				while (jsonIn.nextToken() != JsonToken.END_ARRAY) {
+					int code = jsonIn.getIntValue();
+					if (code < 0 || code >= dictionary.size()) {
+						throw new IOException("The code " + code + " isn't in the dictionary of size " + dictionary.size());
+					}
+					stringList.add(dictionary.get(code));
+				}
+			} else {
+				jsonIn.skipChildren();
 			}
 		}
 		return stringList;
@@ -33,6 +88,9 @@ public class StringListStreamHandler implements StreamHandler<List<String>> {
 
 	@Override
 	public void write(JsonGenerator jsonOut, List<String> data) throws IOException {
+		if (SerializationHints.isSet(LABEL_DICTIONARY) && !data.isEmpty() && writeDictionary(jsonOut, data)) {
+			return;
+		}
 		jsonOut.writeStartArray();
 		for(String value : data) {
 			jsonOut.writeString(value);
@@ -40,4 +98,44 @@ public class StringListStreamHandler implements StreamHandler<List<String>> {
 		jsonOut.writeEndArray();
 	}
 
+	/**
+	 * Writes the dictionary form if the values repeat enough for it to be smaller.
+	 *
+	 * @return false if nothing was written.
+	 */
+	private boolean writeDictionary(JsonGenerator jsonOut, List<String> data) throws IOException {
+		Map<String, Integer> codeOf = new HashMap<>();
+		List<String> dictionary = new ArrayList<>();
+		int[] codes = new int[data.size()];
+		int i = 0;
+		for (String value : data) {
+			Integer code = codeOf.get(value);
+			if (code == null) {
+				if (value == null || dictionary.size() * 2 >= codes.length) {
+					// null can't be encoded; mostly distinct values are smaller as they are.
+					return false;
+				}
+				code = dictionary.size();
+				codeOf.put(value, code);
+				dictionary.add(value);
+			}
+			codes[i++] = code;
+		}
+		jsonOut.writeStartObject();
+		jsonOut.writeFieldName("dictionary");
+		jsonOut.writeStartArray();
+		for (String value : dictionary) {
+			jsonOut.writeString(value);
+		}
+		jsonOut.writeEndArray();
+		jsonOut.writeFieldName("codes");
+		jsonOut.writeStartArray();
+		for (int code : codes) {
+			jsonOut.writeNumber(code);
+		}
+		jsonOut.writeEndArray();
+		jsonOut.writeEndObject();
+		return true;
+	}
+
 }
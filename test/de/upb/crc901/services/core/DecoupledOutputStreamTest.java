@@ -0,0 +1,120 @@
+package de.upb.crc901.services.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks that writing to DecoupledOutputStream doesn't wait for the receiver
+ * and that the bytes arrive in order.
+ *
+ * @author aminfaez
+ *
+ */
+public class DecoupledOutputStreamTest {
+
+	/**
+	 * Receiver that doesn't accept any bytes until it is opened.
+	 */
+	private static final class ClosedReceiver extends OutputStream {
+		final ByteArrayOutputStream received = new ByteArrayOutputStream();
+		final CountDownLatch opened = new CountDownLatch(1);
+		final CountDownLatch flushed = new CountDownLatch(1);
+		volatile boolean closed = false;
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] { (byte) b }, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			try {
+				opened.await();
+			} catch (InterruptedException e) {
+				throw new IOException(e);
+			}
+			received.write(b, off, len);
+		}
+
+		@Override
+		public void flush() {
+			flushed.countDown();
+		}
+
+		@Override
+		public void close() {
+			closed = true;
+		}
+	}
+
+	private static byte[] randomBytes(int length) {
+		byte[] bytes = new byte[length];
+		new Random(1).nextBytes(bytes);
+		return bytes;
+	}
+
+	@Test(timeout = 20000)
+	public void testWritingDoesntWaitForTheReceiver() throws Exception {
+		ClosedReceiver receiver = new ClosedReceiver();
+		byte[] bytes = randomBytes(5 << 20);
+		DecoupledOutputStream out = new DecoupledOutputStream(receiver);
+		// more than what is kept in memory, in pieces of different sizes.
+		int position = 0;
+		for (int length = 1; position < bytes.length; length = length * 3 % 70001) {
+			int end = Math.min(bytes.length, position + length);
+			out.write(bytes, position, end - position);
+			position = end;
+		}
+		out.write(42);
+		Assert.assertTrue(out.isSpooling());
+		Assert.assertEquals(0, receiver.received.size());
+
+		receiver.opened.countDown();
+		out.close();
+		Assert.assertTrue(receiver.closed);
+		Assert.assertFalse(out.isSpooling());
+		byte[] expected = new byte[bytes.length + 1];
+		System.arraycopy(bytes, 0, expected, 0, bytes.length);
+		expected[bytes.length] = 42;
+		Assert.assertArrayEquals(expected, receiver.received.toByteArray());
+	}
+
+	@Test(timeout = 20000)
+	public void testFlush() throws Exception {
+		ClosedReceiver receiver = new ClosedReceiver();
+		receiver.opened.countDown();
+		DecoupledOutputStream out = new DecoupledOutputStream(receiver);
+		out.write(randomBytes(100));
+		out.flush();
+		Assert.assertTrue(receiver.flushed.await(10, TimeUnit.SECONDS));
+		Assert.assertArrayEquals(randomBytes(100), receiver.received.toByteArray());
+		out.close();
+	}
+
+	@Test(timeout = 20000)
+	public void testFailingReceiver() throws Exception {
+		OutputStream failing = new OutputStream() {
+			@Override
+			public void write(int b) throws IOException {
+				throw new IOException("Connection reset");
+			}
+		};
+		DecoupledOutputStream out = new DecoupledOutputStream(failing);
+		try {
+			for (int i = 0; i < 1000; i++) {
+				out.write(randomBytes(1 << 13));
+			}
+			out.close();
+			Assert.fail("The failure of the receiver wasn't reported.");
+		} catch (IOException e) {
+			Assert.assertEquals("Connection reset", e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,187 @@
+package de.upb.crc901.services.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Submits items to a MicroBatcher from many threads at once.
+ *
+ * @author aminfaez
+ *
+ */
+public class MicroBatcherTest {
+
+	private static final int THREADS = 16;
+
+	/**
+	 * Submits items from THREADS threads and returns the results by thread.
+	 */
+	private static List<List<Integer>> submitConcurrently(MicroBatcher<Integer, Integer> batcher, int itemsPerThread)
+			throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		CountDownLatch start = new CountDownLatch(1);
+		try {
+			List<Future<List<Integer>>> futures = new ArrayList<>();
+			for (int thread = 0; thread < THREADS; thread++) {
+				int first = thread * itemsPerThread;
+				futures.add(executor.submit(() -> {
+					start.await();
+					List<Integer> results = new ArrayList<>();
+					for (int item = first; item < first + itemsPerThread; item++) {
+						results.add(batcher.submit(item));
+					}
+					return results;
+				}));
+			}
+			start.countDown();
+			List<List<Integer>> results = new ArrayList<>();
+			for (Future<List<Integer>> future : futures) {
+				results.add(future.get(60, TimeUnit.SECONDS));
+			}
+			return results;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testResultsAndBounds() throws Exception {
+		int maxBatchSize = 8;
+		int maxConcurrentBatches = 3;
+		ConcurrentLinkedQueue<Integer> batchSizes = new ConcurrentLinkedQueue<>();
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger maxRunning = new AtomicInteger();
+		Function<List<Integer>, List<Integer>> doubling = items -> {
+			maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+			batchSizes.add(items.size());
+			List<Integer> results = new ArrayList<>();
+			for (int item : items) {
+				results.add(2 * item);
+			}
+			Thread.yield();
+			running.decrementAndGet();
+			return results;
+		};
+		MicroBatcher<Integer, Integer> batcher = new MicroBatcher<>(doubling, maxBatchSize, 1,
+				maxConcurrentBatches);
+		int itemsPerThread = 300;
+		List<List<Integer>> results = submitConcurrently(batcher, itemsPerThread);
+		for (int thread = 0; thread < THREADS; thread++) {
+			for (int i = 0; i < itemsPerThread; i++) {
+				Assert.assertEquals(2 * (thread * itemsPerThread + i), (int) results.get(thread).get(i));
+			}
+		}
+		int items = 0;
+		for (int size : batchSizes) {
+			Assert.assertTrue("Batch of " + size + " items.", size >= 1 && size <= maxBatchSize);
+			items += size;
+		}
+		// every item was in exactly one batch.
+		Assert.assertEquals(THREADS * itemsPerThread, items);
+		Assert.assertTrue(maxRunning.get() <= maxConcurrentBatches);
+	}
+
+	@Test
+	public void testItemsQueueUpWhileBusy() throws Exception {
+		ConcurrentLinkedQueue<Integer> batchSizes = new ConcurrentLinkedQueue<>();
+		MicroBatcher<Integer, Integer> batcher = new MicroBatcher<>(items -> {
+			batchSizes.add(items.size());
+			try {
+				Thread.sleep(20);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return items;
+		}, 64, 0, 1);
+		submitConcurrently(batcher, 5);
+		int largest = 0;
+		for (int size : batchSizes) {
+			largest = Math.max(largest, size);
+		}
+		Assert.assertTrue("No items were batched.", largest > 1);
+		Assert.assertTrue(batchSizes.size() < THREADS * 5);
+	}
+
+	@Test
+	public void testFailureReachesEverySubmitter() throws Exception {
+		MicroBatcher<Integer, Integer> batcher = new MicroBatcher<>(items -> {
+			throw new IllegalArgumentException("bad batch");
+		}, 4, 1, 2);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<Integer>> futures = new ArrayList<>();
+			for (int thread = 0; thread < THREADS; thread++) {
+				int item = thread;
+				futures.add(executor.submit(() -> batcher.submit(item)));
+			}
+			for (Future<Integer> future : futures) {
+				try {
+					future.get(60, TimeUnit.SECONDS);
+					Assert.fail("The failure of the batch wasn't thrown.");
+				} catch (ExecutionException e) {
+					Assert.assertEquals("bad batch", e.getCause().getMessage());
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * A leader that is interrupted while it waits for more items gives up its
+	 * place, so the next submitter can lead and also runs the abandoned item.
+	 */
+	@Test(timeout = 20000)
+	public void testInterruptedLeader() throws Exception {
+		ConcurrentLinkedQueue<List<Integer>> batches = new ConcurrentLinkedQueue<>();
+		MicroBatcher<Integer, Integer> batcher = new MicroBatcher<>(items -> {
+			batches.add(items);
+			return items;
+		}, 2, TimeUnit.MINUTES.toMillis(10), 1);
+		AtomicInteger interrupted = new AtomicInteger();
+		Thread leader = new Thread(() -> {
+			try {
+				batcher.submit(1);
+			} catch (RuntimeException e) {
+				if (e.getCause() instanceof InterruptedException && Thread.currentThread().isInterrupted()) {
+					interrupted.incrementAndGet();
+				}
+			}
+		});
+		leader.start();
+		// the leader lingers for a second item.
+		while (leader.getState() != Thread.State.TIMED_WAITING) {
+			Thread.sleep(1);
+		}
+		leader.interrupt();
+		leader.join();
+		Assert.assertEquals(1, interrupted.get());
+		Assert.assertEquals(Integer.valueOf(2), batcher.submit(2));
+		Assert.assertEquals(1, batches.size());
+		Assert.assertEquals(Arrays.asList(1, 2), batches.peek());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testMissingResults() {
+		MicroBatcher<Integer, Integer> batcher = new MicroBatcher<>(items -> new ArrayList<>(), 4, 0, 1);
+		batcher.submit(1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testEmptyBatchSize() {
+		new MicroBatcher<Integer, Integer>(items -> items, 0, 0, 1);
+	}
+}
@@ -0,0 +1,226 @@
+package de.upb.crc901.services.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jaicore.ml.core.SimpleInstanceImpl;
+import jaicore.ml.core.SimpleInstancesImpl;
+import jaicore.ml.core.SimpleLabeledInstanceImpl;
+import jaicore.ml.core.SimpleLabeledInstancesImpl;
+import jaicore.ml.interfaces.Instance;
+
+/**
+ * Sends rows to /serve/ of a running server and compares the answers to the
+ * predictions of a composition.
+ *
+ * @author aminfaez
+ *
+ */
+public class ServeHandlerTest {
+
+	private static final int PORT = 8330;
+
+	private static final int COLUMNS = 5;
+
+	private static HttpServiceServer server;
+
+	private static ServiceHandle classifier;
+
+	private static SimpleInstancesImpl testData;
+
+	/** Predictions of the test data by a composition. */
+	private static List<String> expected;
+
+	/**
+	 * Answer of the server.
+	 */
+	private static final class Response {
+		final int status;
+		final String body;
+
+		Response(int status, String body) {
+			this.status = status;
+			this.body = body;
+		}
+
+		List<?> labels() throws IOException {
+			Assert.assertEquals(body, 200, status);
+			return new ObjectMapper().readValue(body, List.class);
+		}
+	}
+
+	@BeforeClass
+	public static void trainClassifier() throws Exception {
+		server = new HttpServiceServer(PORT, "testrsc/conf/classifiers.json");
+		String host = "localhost:" + PORT;
+		classifier = (ServiceHandle) new EasyClient().withHost(host)
+				.withAddedConstructOperation("out", "weka.classifiers.trees.J48").dispatch().get("out").getData();
+		Random random = new Random(1);
+		SimpleLabeledInstancesImpl trainingData = new SimpleLabeledInstancesImpl();
+		testData = new SimpleInstancesImpl();
+		for (int row = 0; row < 600; row++) {
+			SimpleLabeledInstanceImpl instance = new SimpleLabeledInstanceImpl();
+			for (int column = 0; column < COLUMNS; column++) {
+				instance.add(random.nextGaussian() + (column == 0 ? row % 3 * 2 : 0));
+			}
+			instance.setLabel("c" + row % 3);
+			if (row < 400) {
+				trainingData.add(instance);
+			} else {
+				SimpleInstanceImpl unlabeled = new SimpleInstanceImpl();
+				unlabeled.addAll(instance);
+				testData.add(unlabeled);
+			}
+		}
+		new EasyClient().withService(classifier).withKeywordArgument("s1", classifier)
+				.withPositionalArgument(trainingData).withAddedMethodOperation("empty", "s1", "train", "i1").dispatch();
+		@SuppressWarnings("unchecked")
+		List<String> predictions = (List<String>) new EasyClient().withService(classifier)
+				.withKeywordArgument("s1", classifier).withPositionalArgument(testData)
+				.withAddedMethodOperation("out", "s1", "predict", "i1").dispatch().get("out").getData();
+		expected = predictions;
+	}
+
+	@AfterClass
+	public static void stopServer() {
+		server.shutdown();
+	}
+
+	private static Response post(String path, byte[] body, String contentType, String columns) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + PORT + path).openConnection();
+		connection.setDoOutput(true);
+		connection.setRequestMethod("POST");
+		if (contentType != null) {
+			connection.setRequestProperty("Content-Type", contentType);
+		}
+		if (columns != null) {
+			connection.setRequestProperty(ServeHandler.COLUMNS_HEADER, columns);
+		}
+		try (OutputStream out = connection.getOutputStream()) {
+			out.write(body);
+		}
+		int status = connection.getResponseCode();
+		ByteArrayOutputStream answer = new ByteArrayOutputStream();
+		try (InputStream in = status == 200 ? connection.getInputStream() : connection.getErrorStream()) {
+			byte[] buffer = new byte[4096];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				answer.write(buffer, 0, read);
+			}
+		}
+		return new Response(status, new String(answer.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	private static String servePath(String method) {
+		return ServeHandler.CONTEXT + classifier.getClasspath() + "/" + classifier.getId() + "/" + method;
+	}
+
+	private static byte[] json(Instance row) {
+		return row.toJson().getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void testJsonRows() throws Exception {
+		StringBuilder body = new StringBuilder("[");
+		for (Instance row : testData) {
+			body.append(body.length() > 1 ? "," : "").append(row.toJson());
+		}
+		body.append("]");
+		Response response = post(servePath("predict"), body.toString().getBytes(StandardCharsets.UTF_8),
+				"application/json", null);
+		Assert.assertEquals(expected, response.labels());
+	}
+
+	/**
+	 * A single row is answered with a list of one label. The content type is
+	 * optional.
+	 */
+	@Test
+	public void testSingleRow() throws Exception {
+		for (int row = 0; row < 5; row++) {
+			Response response = post(servePath("predict"), json(testData.get(row)), null, null);
+			Assert.assertEquals(Collections.singletonList(expected.get(row)), response.labels());
+		}
+	}
+
+	@Test
+	public void testBinaryRows() throws Exception {
+		ByteBuffer body = ByteBuffer.allocate(testData.size() * COLUMNS * 8).order(ByteOrder.LITTLE_ENDIAN);
+		for (Instance row : testData) {
+			for (double value : row) {
+				body.putDouble(value);
+			}
+		}
+		Response response = post(servePath("predict"), body.array(), ServeHandler.BINARY_CONTENT_TYPE,
+				String.valueOf(COLUMNS));
+		Assert.assertEquals(expected, response.labels());
+	}
+
+	/**
+	 * NaN is sent as a string in json and predicted like a missing value.
+	 */
+	@Test
+	public void testMissingValue() throws Exception {
+		Response response = post(servePath("predict"), "[\"NaN\",0.1,0.2,0.3,0.4]".getBytes(StandardCharsets.UTF_8),
+				null, null);
+		Assert.assertEquals(1, response.labels().size());
+	}
+
+	@Test
+	public void testUnknownService() throws Exception {
+		Response response = post(ServeHandler.CONTEXT + classifier.getClasspath() + "/no-such-id/predict",
+				json(testData.get(0)), null, null);
+		Assert.assertEquals(404, response.status);
+		Assert.assertTrue(response.body, response.body.contains("no-such-id"));
+	}
+
+	/**
+	 * train takes labeled rows, so it can't be served.
+	 */
+	@Test
+	public void testUnservableMethod() throws Exception {
+		for (String method : Arrays.asList("train", "no_such_method")) {
+			Response response = post(servePath(method), json(testData.get(0)), null, null);
+			Assert.assertEquals(400, response.status);
+			Assert.assertTrue(response.body,
+					response.body.startsWith(UnsupportedOperationException.class.getName()));
+		}
+	}
+
+	@Test
+	public void testMalformedRequests() throws Exception {
+		byte[] sevenDoubles = new byte[7 * 8];
+		List<Response> responses = Arrays.asList(
+				// the address lacks the method.
+				post(ServeHandler.CONTEXT + classifier.getClasspath() + "/" + classifier.getId(),
+						json(testData.get(0)), null, null),
+				// not an array.
+				post(servePath("predict"), "{\"row\":[1,2]}".getBytes(StandardCharsets.UTF_8), null, null),
+				// not numeric.
+				post(servePath("predict"), "[[1,2,\"x\",4,5]]".getBytes(StandardCharsets.UTF_8), null, null),
+				// the columns are missing or don't split the bytes.
+				post(servePath("predict"), sevenDoubles, ServeHandler.BINARY_CONTENT_TYPE, null),
+				post(servePath("predict"), sevenDoubles, ServeHandler.BINARY_CONTENT_TYPE, String.valueOf(COLUMNS)));
+		for (Response response : responses) {
+			Assert.assertEquals(response.body, 400, response.status);
+		}
+	}
+}
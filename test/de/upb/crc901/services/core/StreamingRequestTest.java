@@ -0,0 +1,132 @@
+package de.upb.crc901.services.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import de.upb.crc901.services.types.InstanceStream;
+import de.upb.crc901.services.types.LabelStream;
+import jaicore.ml.core.SimpleInstanceImpl;
+import jaicore.ml.core.SimpleLabeledInstanceImpl;
+import jaicore.ml.core.SimpleLabeledInstancesImpl;
+import jaicore.ml.interfaces.Instance;
+
+/**
+ * Sends requests whose results are written by the server while it still
+ * receives the rows.
+ *
+ * @author aminfaez
+ *
+ */
+public class StreamingRequestTest {
+
+	private static final String HOST = "localhost:8310";
+
+	/** Long labels, so the answer fills the socket buffers quickly. */
+	private static final String[] LABELS = new String[2];
+
+	private static HttpServiceServer server;
+
+	@BeforeClass
+	public static void startServer() throws Exception {
+		server = new HttpServiceServer(8310, "testrsc/conf/classifiers.json");
+		char[] padding = new char[400];
+		Arrays.fill(padding, '-');
+		LABELS[0] = "small" + new String(padding);
+		LABELS[1] = "large" + new String(padding);
+	}
+
+	@AfterClass
+	public static void stopServer() {
+		server.shutdown();
+	}
+
+	/**
+	 * The first value decides the class, the others are noise.
+	 */
+	private static SimpleLabeledInstanceImpl createRow(Random random, int label) {
+		SimpleLabeledInstanceImpl row = new SimpleLabeledInstanceImpl();
+		row.add(label * 10.0 + random.nextGaussian());
+		for (int column = 1; column < 10; column++) {
+			row.add(random.nextDouble());
+		}
+		row.setLabel(LABELS[label]);
+		return row;
+	}
+
+	private static ServiceHandle trainNaiveBayes() throws Exception {
+		ServiceHandle classifier = (ServiceHandle) new EasyClient().withHost(HOST)
+				.withAddedConstructOperation("out", "weka.classifiers.bayes.NaiveBayesUpdateable").dispatch().get("out")
+				.getData();
+		SimpleLabeledInstancesImpl trainingData = new SimpleLabeledInstancesImpl();
+		Random random = new Random(1);
+		for (int row = 0; row < 200; row++) {
+			trainingData.add(createRow(random, row % 2));
+		}
+		new EasyClient().withService(classifier).withKeywordArgument("s1", classifier)
+				.withPositionalArgument(trainingData).withAddedMethodOperation("empty", "s1", "train", "i1").dispatch();
+		return classifier;
+	}
+
+	/**
+	 * HttpServiceClient sends the whole request before it reads the answer, which
+	 * the server starts to write early. Once the answer exceeds what the server
+	 * keeps in memory, the rest of it is spooled instead of waiting for the
+	 * client.
+	 */
+	@Test(timeout = 120000)
+	public void testAnswerBiggerThanTheBuffers() throws Exception {
+		ServiceHandle classifier = trainNaiveBayes();
+		int rows = 60000;
+		Random random = new Random(2);
+		List<Instance> testData = new ArrayList<>(rows);
+		int[] expected = new int[rows];
+		for (int row = 0; row < rows; row++) {
+			expected[row] = random.nextInt(2);
+			SimpleInstanceImpl instance = new SimpleInstanceImpl();
+			instance.addAll(createRow(random, expected[row]));
+			testData.add(instance);
+		}
+		JASEDataObject result = new EasyClient().withService(classifier).withKeywordArgument("s1", classifier)
+				.withPositionalArgument(new InstanceStream(testData))
+				.withAddedMethodOperation("predictions", "s1", "predict_stream", "i1").dispatch().get("predictions");
+		Assert.assertEquals("LabelStream", result.getType());
+		List<String> predictions = ((LabelStream) result.getData()).toList();
+		Assert.assertEquals(rows, predictions.size());
+		for (int row = 0; row < rows; row++) {
+			Assert.assertEquals("row " + row, LABELS[expected[row]], predictions.get(row));
+		}
+	}
+
+	/**
+	 * The server skips the rest of the streamed rows before it answers with the
+	 * failure.
+	 */
+	@Test(timeout = 60000)
+	public void testFailureWhileRowsAreSent() throws Exception {
+		ServiceHandle untrained = (ServiceHandle) new EasyClient().withHost(HOST)
+				.withAddedConstructOperation("out", "weka.classifiers.bayes.NaiveBayesUpdateable").dispatch().get("out")
+				.getData();
+		Random random = new Random(3);
+		List<Instance> testData = new ArrayList<>();
+		for (int row = 0; row < 20000; row++) {
+			SimpleInstanceImpl instance = new SimpleInstanceImpl();
+			instance.addAll(createRow(random, row % 2));
+			testData.add(instance);
+		}
+		try {
+			new EasyClient().withService(untrained).withKeywordArgument("s1", untrained)
+					.withPositionalArgument(new InstanceStream(testData))
+					.withAddedMethodOperation("predictions", "s1", "predict_stream", "i1").dispatch();
+			Assert.fail("An untrained classifier predicted.");
+		} catch (RuntimeException e) {
+			Assert.assertTrue(e.getMessage(), e.getMessage().contains("before attribute list has been determined"));
+		}
+	}
+}
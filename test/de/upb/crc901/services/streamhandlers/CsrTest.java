@@ -0,0 +1,107 @@
+package de.upb.crc901.services.streamhandlers;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.upb.crc901.services.types.SparseInstances;
+import de.upb.crc901.services.types.SparseLabeledInstances;
+
+/**
+ * Round trips of sparse instances in CSR layout.
+ *
+ * @author aminfaez
+ *
+ */
+public class CsrTest {
+
+	private static final int COLUMNS = 50;
+
+	/**
+	 * Rows with about 5 non-zero values, every 7th row is empty.
+	 */
+	private static SparseLabeledInstances createInstances(int rows) {
+		SparseLabeledInstances instances = new SparseLabeledInstances(COLUMNS);
+		Random random = new Random(1);
+		int[] indices = new int[COLUMNS];
+		double[] values = new double[COLUMNS];
+		for (int row = 0; row < rows; row++) {
+			int count = 0;
+			for (int column = 0; column < COLUMNS && row % 7 != 0; column++) {
+				if (random.nextInt(10) == 0) {
+					indices[count] = column;
+					values[count] = random.nextInt(5) == 0 ? -0.0 : random.nextGaussian();
+					count++;
+				}
+			}
+			instances.addRow(indices, values, count, "c" + (row % 3));
+		}
+		return instances;
+	}
+
+	private static void assertSameRows(SparseInstances expected, SparseInstances actual) {
+		Assert.assertEquals(expected.getNumberOfColumns(), actual.getNumberOfColumns());
+		Assert.assertEquals(expected.getNumberOfRows(), actual.getNumberOfRows());
+		Assert.assertEquals(expected.getNumberOfValues(), actual.getNumberOfValues());
+		for (int row = 0; row < expected.getNumberOfRows(); row++) {
+			Assert.assertEquals(expected.rowStart(row), actual.rowStart(row));
+		}
+		for (int position = 0; position < expected.getNumberOfValues(); position++) {
+			Assert.assertEquals(expected.indexAt(position), actual.indexAt(position));
+			Assert.assertEquals(Double.doubleToLongBits(expected.valueAt(position)),
+					Double.doubleToLongBits(actual.valueAt(position)));
+		}
+	}
+
+	@Test
+	public void testSparseInstances() throws Exception {
+		SparseInstances instances = createInstances(200).getInstances();
+		SparseInstancesStreamHandler handler = new SparseInstancesStreamHandler();
+		String json = RoundTrip.write(handler, instances);
+		Assert.assertTrue(json, json.startsWith("{\"columns\":50,\"pointers\":[0,"));
+		SparseInstances read = RoundTrip.read(handler, json);
+		assertSameRows(instances, read);
+		Assert.assertEquals(new ArrayList<>(instances), new ArrayList<>(read));
+	}
+
+	@Test
+	public void testSparseLabeledInstances() throws Exception {
+		SparseLabeledInstances instances = createInstances(200);
+		SparseLabeledInstancesStreamHandler handler = new SparseLabeledInstancesStreamHandler();
+		SparseLabeledInstances read = RoundTrip.read(handler, RoundTrip.write(handler, instances));
+		assertSameRows(instances.getInstances(), read.getInstances());
+		for (int row = 0; row < instances.size(); row++) {
+			Assert.assertEquals(instances.get(row).getLabel(), read.get(row).getLabel());
+		}
+	}
+
+	@Test
+	public void testEmptyInstances() throws Exception {
+		SparseInstancesStreamHandler handler = new SparseInstancesStreamHandler();
+		SparseInstances empty = new SparseInstances(COLUMNS);
+		assertSameRows(empty, RoundTrip.read(handler, RoundTrip.write(handler, empty)));
+	}
+
+	@Test
+	public void testJson() throws Exception {
+		SparseLabeledInstances instances = createInstances(30);
+		SparseLabeledInstances read = new SparseLabeledInstances(COLUMNS);
+		read.addAllFromJson(instances.toJson());
+		Assert.assertEquals(instances, read);
+	}
+
+	@Test(expected = IOException.class)
+	public void testDescendingIndices() throws Exception {
+		RoundTrip.read(new SparseInstancesStreamHandler(),
+				"{\"columns\":4,\"pointers\":[0,2],\"indices\":[3,1],\"values\":[1.0,2.0]}");
+	}
+
+	@Test(expected = IOException.class)
+	public void testMissingValues() throws Exception {
+		RoundTrip.read(new SparseInstancesStreamHandler(),
+				"{\"columns\":4,\"pointers\":[0,3],\"indices\":[0,1],\"values\":[1.0,2.0]}");
+	}
+}
@@ -0,0 +1,76 @@
+package de.upb.crc901.services.streamhandlers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import jaicore.ml.core.SimpleLabeledInstanceImpl;
+import jaicore.ml.core.SimpleLabeledInstancesImpl;
+import jaicore.ml.interfaces.LabeledInstances;
+
+/**
+ * Round trips of string lists and labeled instances whose labels are dictionary
+ * encoded.
+ *
+ * @author aminfaez
+ *
+ */
+public class LabelDictionaryTest {
+
+	private static final String DICTIONARY = StringListStreamHandler.LABEL_DICTIONARY;
+
+	private final StringListStreamHandler listHandler = new StringListStreamHandler();
+
+	@Test
+	public void testStringList() throws Exception {
+		List<String> labels = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			labels.add("class-" + (i % 3));
+		}
+		String json = RoundTrip.write(listHandler, labels, DICTIONARY);
+		Assert.assertTrue(json, json.startsWith("{\"dictionary\":[\"class-0\",\"class-1\",\"class-2\"],\"codes\":[0,1,2,0,"));
+		List<String> read = RoundTrip.read(listHandler, json);
+		Assert.assertEquals(labels, read);
+		// equal labels are one object.
+		Assert.assertSame(read.get(0), read.get(3));
+
+		// without the hint the plain form is written, which is read as well.
+		json = RoundTrip.write(listHandler, labels);
+		Assert.assertTrue(json, json.startsWith("[\"class-0\","));
+		Assert.assertEquals(labels, RoundTrip.read(listHandler, json));
+	}
+
+	@Test
+	public void testSmallLists() throws Exception {
+		for (List<String> labels : Arrays.asList(Collections.<String>emptyList(), Arrays.asList("a"),
+				Arrays.asList("a", "b"), Arrays.asList("", "a", ""))) {
+			String json = RoundTrip.write(listHandler, labels, DICTIONARY);
+			Assert.assertEquals(labels, RoundTrip.read(listHandler, json));
+		}
+	}
+
+	@Test
+	public void testLabeledInstances() throws Exception {
+		SimpleLabeledInstancesImpl instances = new SimpleLabeledInstancesImpl();
+		for (int row = 0; row < 50; row++) {
+			SimpleLabeledInstanceImpl instance = new SimpleLabeledInstanceImpl();
+			instance.add((double) row);
+			instance.add(row * 0.5);
+			instance.setLabel(row % 4 == 0 ? "rare" : "common");
+			instances.add(instance);
+		}
+		LabeledInstancesStreamHandler handler = new LabeledInstancesStreamHandler();
+		String json = RoundTrip.write(handler, instances, DICTIONARY);
+		Assert.assertTrue(json, json.contains("\"labels\":{\"dictionary\":[\"rare\",\"common\"]"));
+		LabeledInstances<String> read = RoundTrip.read(handler, json);
+		Assert.assertEquals(instances.size(), read.size());
+		for (int row = 0; row < instances.size(); row++) {
+			Assert.assertEquals(new ArrayList<>(instances.get(row)), new ArrayList<>(read.get(row)));
+			Assert.assertEquals(instances.get(row).getLabel(), read.get(row).getLabel());
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package de.upb.crc901.services.streamhandlers;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.upb.crc901.services.types.DoubleArrayInstance;
+import de.upb.crc901.services.types.DoubleArrayInstances;
+import jaicore.ml.interfaces.Instance;
+import jaicore.ml.interfaces.Instances;
+
+/**
+ * Round trips of instances whose values are packed into binary columns.
+ *
+ * @author aminfaez
+ *
+ */
+public class PackedValuesTest {
+
+	private static final String PACKED = InstancesStreamHandler.PACKED_VALUES;
+
+	private static final String FLOAT32 = InstancesStreamHandler.FLOAT32_VALUES;
+
+	/**
+	 * One column per type: i8, u8, i16, u16, i32, f32, f64 and a column with
+	 * missing values and -0.0.
+	 */
+	private static final double[][] COLUMNS = { { -3, 0, 127, -128 }, { 0, 255, 17, 200 },
+			{ -30000, 5, 300, 0 }, { 65535, 0, 1, 40000 }, { 1e9, -1e9, 70000, 3 }, { 0.5, -2.25, 1e-3f, 3.5 },
+			{ 0.1, 1.0 / 3, -7.7, 1e300 }, { Double.NaN, -0.0, 2.5, Double.NaN } };
+
+	private static final String[] TYPES = { "i8", "u8", "i16", "u16", "i32", "f32", "f64", "f32" };
+
+	private static Instances createInstances() {
+		int rows = COLUMNS[0].length;
+		int columns = COLUMNS.length;
+		double[] values = new double[rows * columns];
+		for (int row = 0; row < rows; row++) {
+			for (int column = 0; column < columns; column++) {
+				values[row * columns + column] = COLUMNS[column][row];
+			}
+		}
+		return new DoubleArrayInstances(values, rows, columns);
+	}
+
+	/**
+	 * Compares the bits of the values, so -0.0 doesn't equal 0.0.
+	 */
+	private static void assertSameValues(Instance expected, Instance actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int column = 0; column < expected.size(); column++) {
+			Assert.assertEquals("column " + column, Double.doubleToLongBits(expected.get(column)),
+					Double.doubleToLongBits(actual.get(column)));
+		}
+	}
+
+	@Test
+	public void testLosslessInstances() throws Exception {
+		InstancesStreamHandler handler = new InstancesStreamHandler();
+		Instances instances = createInstances();
+		String json = RoundTrip.write(handler, instances, PACKED);
+		StringBuilder dtypes = new StringBuilder("\"dtypes\":[");
+		for (int column = 0; column < TYPES.length; column++) {
+			dtypes.append(column == 0 ? "" : ",").append('"').append(TYPES[column]).append('"');
+		}
+		Assert.assertTrue(json, json.startsWith("{\"rows\":4,\"columns\":8," + dtypes + "]"));
+		Instances read = RoundTrip.read(handler, json);
+		Assert.assertEquals(instances.size(), read.size());
+		for (int row = 0; row < instances.size(); row++) {
+			assertSameValues(instances.get(row), read.get(row));
+		}
+	}
+
+	@Test
+	public void testFloat32Instances() throws Exception {
+		InstancesStreamHandler handler = new InstancesStreamHandler();
+		Instances instances = createInstances();
+		Instances read = RoundTrip.read(handler, RoundTrip.write(handler, instances, FLOAT32));
+		for (int row = 0; row < instances.size(); row++) {
+			for (int column = 0; column < COLUMNS.length; column++) {
+				double value = instances.get(row).get(column);
+				// only values that aren't integral are reduced.
+				Assert.assertEquals(Double.doubleToLongBits((float) value),
+						Double.doubleToLongBits(read.get(row).get(column)));
+			}
+		}
+	}
+
+	@Test
+	public void testInstance() throws Exception {
+		InstanceStreamHandler handler = new InstanceStreamHandler();
+		for (double[] values : COLUMNS) {
+			Instance instance = new DoubleArrayInstance(values);
+			String json = RoundTrip.write(handler, instance, PACKED);
+			Assert.assertTrue(json, json.startsWith("{\"dtype\":"));
+			assertSameValues(instance, RoundTrip.read(handler, json));
+		}
+	}
+
+	@Test
+	public void testEmptyInstances() throws Exception {
+		InstancesStreamHandler handler = new InstancesStreamHandler();
+		Instances empty = new DoubleArrayInstances(new double[0], 0, 0);
+		Instances read = RoundTrip.read(handler, RoundTrip.write(handler, empty, PACKED));
+		Assert.assertTrue(read.isEmpty());
+	}
+}
@@ -0,0 +1,120 @@
+package de.upb.crc901.services.streamhandlers;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import de.upb.crc901.services.core.SerializationHints;
+import de.upb.crc901.services.types.DoubleArrayInstance;
+import de.upb.crc901.services.types.DoubleArrayInstances;
+import jaicore.ml.interfaces.Instance;
+
+/**
+ * Checks that rows encoded on several cores are written exactly like rows
+ * written one after another.
+ *
+ * @author aminfaez
+ *
+ */
+public class ParallelArrayWriterTest {
+
+	private static final JsonFactory jsonFactory = new JsonFactory();
+
+	private final InstanceStreamHandler rowHandler = new InstanceStreamHandler();
+
+	@Before
+	public void requireParallelism() {
+		// with a single core the rows are written by the calling thread.
+		Assume.assumeTrue(ForkJoinPool.getCommonPoolParallelism() >= 2);
+	}
+
+	/**
+	 * Sparse, dense and missing values.
+	 */
+	private static DoubleArrayInstances createInstances(int rows, int columns) {
+		Random random = new Random(1);
+		double[] values = new double[rows * columns];
+		for (int i = 0; i < values.length; i++) {
+			if (i % 13 == 0) {
+				values[i] = Double.NaN;
+			} else if ((i / columns) % 3 == 0 || random.nextInt(4) == 0) {
+				values[i] = random.nextGaussian();
+			}
+		}
+		return new DoubleArrayInstances(values, rows, columns);
+	}
+
+	private interface Writer {
+		void write(JsonGenerator jsonOut) throws IOException;
+	}
+
+	private static String write(boolean quoteNonNumeric, Writer writer) throws IOException {
+		StringWriter json = new StringWriter();
+		try (JsonGenerator jsonOut = jsonFactory.createGenerator(json)) {
+			jsonOut.configure(JsonGenerator.Feature.QUOTE_NON_NUMERIC_NUMBERS, quoteNonNumeric);
+			writer.write(jsonOut);
+		}
+		return json.toString();
+	}
+
+	private String writeSequentially(List<? extends Instance> rows, boolean quoteNonNumeric) throws IOException {
+		return write(quoteNonNumeric, jsonOut -> {
+			jsonOut.writeStartArray();
+			for (Instance row : rows) {
+				rowHandler.write(jsonOut, row);
+			}
+			jsonOut.writeEndArray();
+		});
+	}
+
+	private String writeInParallel(List<? extends Instance> rows, boolean quoteNonNumeric) throws IOException {
+		return write(quoteNonNumeric, jsonOut -> ParallelArrayWriter.writeArray(jsonOut, rows, rowHandler::write));
+	}
+
+	@Test
+	public void testSameOutput() throws Exception {
+		DoubleArrayInstances instances = createInstances(30000, 20);
+		// the features of the generator apply to the chunks, e.g. how NaN is written.
+		for (boolean quoteNonNumeric : new boolean[] { true, false }) {
+			String expected = writeSequentially(instances, quoteNonNumeric);
+			Assert.assertEquals(expected, writeInParallel(instances, quoteNonNumeric));
+		}
+	}
+
+	@Test
+	public void testHintsReachTheWorkers() throws Exception {
+		List<Instance> rows = new ArrayList<>();
+		for (int row = 0; row < 20000; row++) {
+			double[] values = { row, row % 3, row % 5 == 0 ? 0.5 : 1.0 / 3 };
+			rows.add(new DoubleArrayInstance(values, 0, row % 2 == 0 ? 3 : 2));
+		}
+		SerializationHints.set(Arrays.asList(InstancesStreamHandler.PACKED_VALUES));
+		try {
+			String expected = writeSequentially(rows, true);
+			Assert.assertTrue(expected, expected.startsWith("[{\"dtype\":"));
+			Assert.assertEquals(expected, writeInParallel(rows, true));
+		} finally {
+			SerializationHints.clear();
+		}
+	}
+
+	@Test
+	public void testSmallArrays() throws Exception {
+		for (int rows : new int[] { 0, 1, 1023, 1025 }) {
+			DoubleArrayInstances instances = createInstances(rows, 5);
+			Assert.assertEquals(writeSequentially(instances, true), writeInParallel(instances, true));
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package de.upb.crc901.services.streamhandlers;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.upb.crc901.services.types.ProbabilityMatrix;
+
+/**
+ * Reads probability matrices as other clients write them.
+ *
+ * @author aminfaez
+ *
+ */
+public class ProbabilityMatrixStreamHandlerTest {
+
+	private final ProbabilityMatrixStreamHandler handler = new ProbabilityMatrixStreamHandler();
+
+	/**
+	 * The example of the javadoc: the floats 1, 0, 0.5 and 0.5.
+	 */
+	@Test
+	public void testFloat32() throws Exception {
+		ProbabilityMatrix matrix = RoundTrip.read(handler,
+				"{\"labels\":[\"A\",\"B\"],\"rows\":2,\"dtype\":\"float32\",\"data\":\"AACAPwAAAAAAAAA/AAAAPw==\"}");
+		Assert.assertEquals(Arrays.asList("A", "B"), matrix.getLabels());
+		Assert.assertTrue(matrix.isSinglePrecision());
+		Assert.assertArrayEquals(new double[] { 1, 0, 0.5, 0.5 }, matrix.getValues(), 0.0);
+		Assert.assertEquals(Arrays.asList("A", "A"), matrix.toLabels());
+	}
+
+	/**
+	 * Double precision is kept exactly. Unknown fields are skipped.
+	 */
+	@Test
+	public void testFloat64() throws Exception {
+		double[] values = { 0.1, 0.9, 1.0 / 3, 2.0 / 3, 0.7, 0.3 };
+		ProbabilityMatrix matrix = new ProbabilityMatrix(Arrays.asList("x", "y"), 3, values, false);
+		String json = RoundTrip.write(handler, matrix);
+		Assert.assertTrue(json, json.contains("\"dtype\":\"float64\""));
+		ProbabilityMatrix read = RoundTrip.read(handler, json.replace("\"rows\"", "\"source\":{\"a\":[1]},\"rows\""));
+		Assert.assertFalse(read.isSinglePrecision());
+		Assert.assertArrayEquals(values, read.getValues(), 0.0);
+		Assert.assertEquals(Arrays.asList("y", "y", "x"), read.toLabels());
+	}
+
+	@Test(expected = IOException.class)
+	public void testUnknownDtype() throws Exception {
+		RoundTrip.read(handler, "{\"labels\":[\"A\"],\"rows\":1,\"dtype\":\"int8\",\"data\":\"AQ==\"}");
+	}
+
+	@Test(expected = IOException.class)
+	public void testTooFewValues() throws Exception {
+		RoundTrip.read(handler, "{\"labels\":[\"A\",\"B\"],\"rows\":2,\"dtype\":\"float32\",\"data\":\"AACAPwAAAAA=\"}");
+	}
+}
@@ -0,0 +1,47 @@
+package de.upb.crc901.services.streamhandlers;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+
+import de.upb.crc901.services.core.SerializationHints;
+import de.upb.crc901.services.core.StreamHandler;
+
+/**
+ * Writes data by a streamhandler for a receiver with the given hints and reads
+ * it back.
+ *
+ * @author aminfaez
+ *
+ */
+final class RoundTrip {
+
+	private static final JsonFactory jsonFactory = new JsonFactory();
+
+	private RoundTrip() {
+	}
+
+	static <T> String write(StreamHandler<T> handler, T data, String... hints) throws IOException {
+		Set<String> previousHints = SerializationHints.current();
+		SerializationHints.set(Arrays.asList(hints));
+		StringWriter json = new StringWriter();
+		try (JsonGenerator jsonOut = jsonFactory.createGenerator(json)) {
+			handler.write(jsonOut, data);
+		} finally {
+			SerializationHints.set(previousHints);
+		}
+		return json.toString();
+	}
+
+	static <T> T read(StreamHandler<T> handler, String json) throws IOException {
+		try (JsonParser jsonIn = jsonFactory.createParser(json)) {
+			jsonIn.nextToken();
+			return handler.read(jsonIn);
+		}
+	}
+}
@@ -0,0 +1,93 @@
+package de.upb.crc901.services.streamhandlers;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.upb.crc901.services.types.DoubleArrayInstance;
+import jaicore.ml.core.SimpleInstancesImpl;
+import jaicore.ml.interfaces.Instance;
+import jaicore.ml.interfaces.Instances;
+
+/**
+ * Round trips of instances that are written sparse or dense, whichever is
+ * smaller.
+ *
+ * @author aminfaez
+ *
+ */
+public class SparseDenseRowsTest {
+
+	private final InstanceStreamHandler handler = new InstanceStreamHandler();
+
+	private static double[] sparseRow() {
+		double[] values = new double[20];
+		values[1] = 2.5;
+		values[7] = -0.0;
+		values[12] = Double.NaN;
+		return values;
+	}
+
+	private static double[] denseRow() {
+		double[] values = new double[20];
+		for (int column = 0; column < values.length; column++) {
+			values[column] = column % 3 == 0 ? 0 : column * 1.5;
+		}
+		return values;
+	}
+
+	private static void assertSameValues(double[] expected, Instance actual) {
+		Assert.assertEquals(expected.length, actual.size());
+		for (int column = 0; column < expected.length; column++) {
+			Assert.assertEquals("column " + column, Double.doubleToLongBits(expected[column]),
+					Double.doubleToLongBits(actual.get(column)));
+		}
+	}
+
+	@Test
+	public void testSparseRow() throws Exception {
+		double[] values = sparseRow();
+		String json = RoundTrip.write(handler, new DoubleArrayInstance(values));
+		// -0.0 keeps its sign and the last column is written to keep the size.
+		Assert.assertEquals("{\"1\":2.5,\"7\":-0.0,\"12\":\"NaN\",\"19\":0.0}", json);
+		assertSameValues(values, RoundTrip.read(handler, json));
+	}
+
+	@Test
+	public void testDenseRow() throws Exception {
+		double[] values = denseRow();
+		String json = RoundTrip.write(handler, new DoubleArrayInstance(values));
+		Assert.assertTrue(json, json.startsWith("[0.0,1.5,3.0,0.0,"));
+		assertSameValues(values, RoundTrip.read(handler, json));
+	}
+
+	@Test
+	public void testZeroRows() throws Exception {
+		for (double[] values : new double[][] { new double[0], new double[1], new double[5] }) {
+			assertSameValues(values, RoundTrip.read(handler, RoundTrip.write(handler, new DoubleArrayInstance(values))));
+		}
+	}
+
+	@Test
+	public void testMixedInstances() throws Exception {
+		InstancesStreamHandler instancesHandler = new InstancesStreamHandler();
+		SimpleInstancesImpl instances = new SimpleInstancesImpl();
+		double[][] rows = { sparseRow(), denseRow(), new double[20], denseRow(), sparseRow() };
+		for (double[] row : rows) {
+			instances.add(new DoubleArrayInstance(row));
+		}
+		String json = RoundTrip.write(instancesHandler, instances);
+		Assert.assertTrue(json, json.startsWith("[{\"1\":2.5,") && json.contains("},[0.0,1.5,"));
+		Instances read = RoundTrip.read(instancesHandler, json);
+		Assert.assertEquals(rows.length, read.size());
+		for (int row = 0; row < rows.length; row++) {
+			assertSameValues(rows[row], read.get(row));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRowsOfDifferentSizes() throws Exception {
+		RoundTrip.read(new InstancesStreamHandler(), "[{\"1\":2.5,\"19\":0.0}," + Arrays.toString(new double[19]) + "]");
+	}
+}
@@ -0,0 +1,91 @@
+package de.upb.crc901.services.streamhandlers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.upb.crc901.services.types.TypedInstances;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+/**
+ * Round trips of typed instances, whose nominal attributes aren't binarized.
+ *
+ * @author aminfaez
+ *
+ */
+public class TypedInstancesTest {
+
+	/**
+	 * Numeric and nominal attributes. The class is the 2nd attribute. If missing
+	 * is set, every 11th row has a missing value.
+	 */
+	static Instances createWekaInstances(int rows, boolean missing) {
+		ArrayList<Attribute> attributes = new ArrayList<>();
+		attributes.add(new Attribute("width"));
+		attributes.add(new Attribute("label", Arrays.asList("small", "large")));
+		attributes.add(new Attribute("color", Arrays.asList("red", "green", "blue")));
+		attributes.add(new Attribute("count"));
+		Instances data = new Instances("typed", attributes, rows);
+		data.setClassIndex(1);
+		Random random = new Random(1);
+		for (int row = 0; row < rows; row++) {
+			double[] values = { random.nextGaussian(), row % 2, random.nextInt(3), random.nextInt(1000) };
+			if (missing && row % 11 == 0) {
+				values[row % values.length] = Utils.missingValue();
+			}
+			data.add(new DenseInstance(1.0, values));
+		}
+		return data;
+	}
+
+	static void assertEqualInstances(Instances expected, Instances actual) {
+		Assert.assertTrue(expected.equalHeaders(actual));
+		Assert.assertEquals(expected.classIndex(), actual.classIndex());
+		Assert.assertEquals(expected.numInstances(), actual.numInstances());
+		for (int row = 0; row < expected.numInstances(); row++) {
+			Assert.assertArrayEquals(expected.instance(row).toDoubleArray(), actual.instance(row).toDoubleArray(), 0.0);
+		}
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		Instances wekaInstances = createWekaInstances(100, true);
+		TypedInstances typed = TypedInstances.fromWekaInstances(wekaInstances);
+		TypedInstancesStreamHandler handler = new TypedInstancesStreamHandler();
+		for (String[] hints : new String[][] { {}, { InstancesStreamHandler.PACKED_VALUES } }) {
+			String json = RoundTrip.write(handler, typed, hints);
+			Assert.assertTrue(json, json.startsWith("{\"attributes\":[{\"name\":\"width\"},"
+					+ "{\"name\":\"label\",\"values\":[\"small\",\"large\"]},"));
+			TypedInstances read = RoundTrip.read(handler, json);
+			Assert.assertEquals(typed.getNumberOfAttributes(), read.getNumberOfAttributes());
+			Assert.assertEquals(typed.getClassIndex(), read.getClassIndex());
+			for (int att = 0; att < typed.getNumberOfAttributes(); att++) {
+				Assert.assertEquals(typed.getAttributeName(att), read.getAttributeName(att));
+				Assert.assertEquals(typed.getNominalValues(att), read.getNominalValues(att));
+			}
+			assertEqualInstances(wekaInstances, read.toWekaInstances());
+		}
+	}
+
+	@Test
+	public void testNominalColumnsArePackedIntoBytes() throws Exception {
+		TypedInstances typed = TypedInstances.fromWekaInstances(createWekaInstances(100, false));
+		String json = RoundTrip.write(new TypedInstancesStreamHandler(), typed, InstancesStreamHandler.PACKED_VALUES);
+		Assert.assertTrue(json, json.contains("\"dtypes\":[\"f64\",\"i8\",\"i8\",\"i16\"]"));
+	}
+
+	@Test
+	public void testUnsupportedAttributes() {
+		ArrayList<Attribute> attributes = new ArrayList<>();
+		attributes.add(new Attribute("width"));
+		attributes.add(new Attribute("name", (ArrayList<String>) null));
+		Assert.assertFalse(TypedInstances.isSupported(new Instances("strings", attributes, 0)));
+		Assert.assertTrue(TypedInstances.isSupported(createWekaInstances(0, false)));
+	}
+}
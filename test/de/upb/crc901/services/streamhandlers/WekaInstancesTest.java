@@ -0,0 +1,126 @@
+package de.upb.crc901.services.streamhandlers;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.upb.crc901.services.core.JASEDataObject;
+import de.upb.crc901.services.core.SerializationHints;
+import de.upb.crc901.services.typeserializers.InstancesOntologySerializer;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.SparseInstance;
+import weka.core.Utils;
+
+/**
+ * Round trips of weka instances that are sent as WekaInstances.
+ *
+ * @author aminfaez
+ *
+ */
+public class WekaInstancesTest {
+
+	private final WekaInstancesStreamHandler handler = new WekaInstancesStreamHandler();
+
+	/**
+	 * Numeric and nominal attributes with missing values, zeros and weights. The
+	 * class is the 2nd attribute.
+	 */
+	private static Instances createInstances(int rows) {
+		ArrayList<Attribute> attributes = new ArrayList<>();
+		attributes.add(new Attribute("x"));
+		attributes.add(new Attribute("cls", Arrays.asList("no", "yes")));
+		attributes.add(new Attribute("city", Arrays.asList("paderborn", "bielefeld", "dortmund")));
+		attributes.add(new Attribute("y"));
+		Instances data = new Instances("cities", attributes, rows);
+		data.setClassIndex(1);
+		Random random = new Random(1);
+		for (int row = 0; row < rows; row++) {
+			double[] values = { random.nextGaussian(), random.nextInt(2), random.nextInt(3), random.nextGaussian() };
+			if (row % 13 == 0) {
+				values[2] = Utils.missingValue();
+			}
+			if (row % 5 == 0) {
+				values[3] = 0;
+			}
+			data.add(new DenseInstance(row % 11 == 0 ? 2.0 : 1.0, values));
+		}
+		return data;
+	}
+
+	private static void assertEqualInstances(Instances expected, Instances actual) {
+		TypedInstancesTest.assertEqualInstances(expected, actual);
+		Assert.assertEquals(expected.relationName(), actual.relationName());
+		for (int row = 0; row < expected.numInstances(); row++) {
+			Assert.assertEquals(expected.instance(row).weight(), actual.instance(row).weight(), 0.0);
+		}
+	}
+
+	@Test
+	public void testRoundTrip() throws Exception {
+		Instances instances = createInstances(200);
+		for (String[] hints : new String[][] { {}, { InstancesStreamHandler.PACKED_VALUES } }) {
+			String json = RoundTrip.write(handler, instances, hints);
+			Assert.assertTrue(json, json.startsWith("{\"relation\":\"cities\",\"attributes\":[{\"name\":\"x\"},"));
+			Assert.assertTrue(json, json.contains("\"class\":1,\"weights\":["));
+			assertEqualInstances(instances, RoundTrip.read(handler, json));
+		}
+	}
+
+	@Test
+	public void testSparseAndEmptyInstances() throws Exception {
+		Instances instances = createInstances(3);
+		instances.add(new SparseInstance(1.0, new double[] { 0, 1, 0, 0 }));
+		assertEqualInstances(instances, RoundTrip.read(handler, RoundTrip.write(handler, instances)));
+		Instances empty = new Instances(instances, 0);
+		String json = RoundTrip.write(handler, empty);
+		Assert.assertFalse(json, json.contains("weights"));
+		assertEqualInstances(empty, RoundTrip.read(handler, json));
+	}
+
+	@Test(expected = IOException.class)
+	public void testRowsOfDifferentSizes() throws Exception {
+		RoundTrip.read(handler, "{\"attributes\":[{\"name\":\"x\"},{\"name\":\"y\"}],\"rows\":[[1.0,2.0],[3.0]]}");
+	}
+
+	/**
+	 * Values of the nominal attribute city that aren't one of its 3 value indices
+	 * are rejected, dense and packed.
+	 */
+	@Test
+	public void testInvalidNominalValues() throws Exception {
+		for (double invalid : new double[] { 3, -1, 1.5 }) {
+			Instances instances = createInstances(5);
+			instances.instance(3).setValue(2, invalid);
+			for (String[] hints : new String[][] { {}, { InstancesStreamHandler.PACKED_VALUES } }) {
+				String json = RoundTrip.write(handler, instances, hints);
+				try {
+					RoundTrip.read(handler, json);
+					Assert.fail(invalid + " was read as a value of city.");
+				} catch (IOException e) {
+					Assert.assertTrue(e.getMessage(), e.getMessage().endsWith("nominal attribute city."));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testSerializerHint() {
+		Instances instances = createInstances(10);
+		InstancesOntologySerializer serializer = new InstancesOntologySerializer();
+		try {
+			SerializationHints.set(Arrays.asList(InstancesOntologySerializer.WEKA_INSTANCES));
+			JASEDataObject serialized = serializer.serialize(instances);
+			Assert.assertEquals("WekaInstances", serialized.getType());
+			Assert.assertSame(instances, serialized.getData());
+		} finally {
+			SerializationHints.clear();
+		}
+		Assert.assertEquals("LabeledInstances", serializer.serialize(instances).getType());
+	}
+}
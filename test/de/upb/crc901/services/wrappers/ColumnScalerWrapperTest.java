@@ -0,0 +1,117 @@
+package de.upb.crc901.services.wrappers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.upb.crc901.services.core.JASEDataObject;
+import jaicore.ml.core.SimpleInstanceImpl;
+import jaicore.ml.core.SimpleInstancesImpl;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.OptionHandler;
+import weka.core.Utils;
+import weka.filters.Filter;
+
+/**
+ * Checks that ColumnScalerWrapper scales exactly like the weka implementation of
+ * Normalize and Standardize.
+ *
+ * @author aminfaez
+ *
+ */
+public class ColumnScalerWrapperTest {
+
+	private static final String NORMALIZE = "weka.filters.unsupervised.attribute.Normalize";
+
+	private static final String STANDARDIZE = "weka.filters.unsupervised.attribute.Standardize";
+
+	/**
+	 * Numeric attributes with missing values, of which the 4th is constant, and a
+	 * nominal class.
+	 */
+	private static Instances createData(int rows, long seed) {
+		ArrayList<Attribute> attributes = new ArrayList<>();
+		for (int i = 1; i <= 8; i++) {
+			attributes.add(new Attribute("a" + i));
+		}
+		attributes.add(new Attribute("label", Arrays.asList("c0", "c1")));
+		Instances data = new Instances("scaler", attributes, rows);
+		data.setClassIndex(attributes.size() - 1);
+		Random random = new Random(seed);
+		for (int row = 0; row < rows; row++) {
+			double[] values = new double[attributes.size()];
+			for (int att = 0; att < 8; att++) {
+				values[att] = att == 3 ? 7.0 : random.nextGaussian() * 5 + att;
+			}
+			if (row % 13 == 0) {
+				values[row % 8] = Utils.missingValue();
+			}
+			values[8] = row % 2;
+			data.add(new DenseInstance(1.0, values));
+		}
+		return data;
+	}
+
+	/**
+	 * Sets the options of the filter of the given wrapper.
+	 */
+	private static <W extends WekaFilterWrapper> W withOptions(W wrapper, String options) throws Exception {
+		((OptionHandler) wrapper.getDelegate()).setOptions(Utils.splitOptions(options));
+		return wrapper;
+	}
+
+	private static void assertEqualInstances(Instances expected, Instances actual) {
+		Assert.assertTrue(expected.equalHeaders(actual));
+		Assert.assertEquals(expected.numInstances(), actual.numInstances());
+		for (int row = 0; row < expected.numInstances(); row++) {
+			Assert.assertArrayEquals(expected.instance(row).toDoubleArray(), actual.instance(row).toDoubleArray(), 0.0);
+		}
+	}
+
+	private static void assertSameOutput(String classname, String options) throws Exception {
+		Instances train = createData(3000, 1);
+		Instances test = createData(1000, 2);
+		ColumnScalerWrapper scaler = withOptions(
+				new ColumnScalerWrapper(Class.forName(classname).getConstructor(), new JASEDataObject[0]), options);
+		scaler.train(train);
+		Filter filter = (Filter) Class.forName(classname).newInstance();
+		filter.setOptions(Utils.splitOptions(options));
+		filter.setInputFormat(train);
+		Filter.useFilter(train, filter);
+		assertEqualInstances(Filter.useFilter(test, filter), scaler.transform(test));
+
+		// rows are scaled like WekaFilterWrapper scales them, which is trained without the class.
+		Instances unlabeled = new Instances(train);
+		unlabeled.setClassIndex(-1);
+		unlabeled.deleteAttributeAt(unlabeled.numAttributes() - 1);
+		WekaFilterWrapper wrapper = withOptions(
+				new WekaFilterWrapper(Class.forName(classname).getConstructor(), new JASEDataObject[0]), options);
+		wrapper.train(unlabeled);
+		scaler.train(unlabeled);
+		SimpleInstancesImpl rows = new SimpleInstancesImpl();
+		for (weka.core.Instance instance : test) {
+			SimpleInstanceImpl row = new SimpleInstanceImpl();
+			for (int att = 0; att < test.numAttributes() - 1; att++) {
+				row.add(instance.value(att));
+			}
+			rows.add(row);
+		}
+		assertEqualInstances(wrapper.preprocess(rows), scaler.preprocess(rows));
+	}
+
+	@Test
+	public void testNormalize() throws Exception {
+		assertSameOutput(NORMALIZE, "");
+		assertSameOutput(NORMALIZE, "-S 2 -T -1");
+	}
+
+	@Test
+	public void testStandardize() throws Exception {
+		assertSameOutput(STANDARDIZE, "");
+	}
+}
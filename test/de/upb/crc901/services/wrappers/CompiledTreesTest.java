@@ -0,0 +1,110 @@
+package de.upb.crc901.services.wrappers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import weka.classifiers.AbstractClassifier;
+import weka.classifiers.Classifier;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+/**
+ * Checks that the flattened trees predict the same classes as the weka models
+ * they were compiled from.
+ *
+ * @author aminfaez
+ *
+ */
+public class CompiledTreesTest {
+
+	/**
+	 * Three classes, numeric attributes and one nominal attribute. If missing is
+	 * set, every 25th row has a missing value.
+	 */
+	static Instances createData(int rows, long seed, boolean missing) {
+		ArrayList<Attribute> attributes = new ArrayList<>();
+		for (int i = 1; i <= 6; i++) {
+			attributes.add(new Attribute("a" + i));
+		}
+		attributes.add(new Attribute("color", Arrays.asList("red", "green", "blue", "black")));
+		attributes.add(new Attribute("label", Arrays.asList("c0", "c1", "c2")));
+		Instances data = new Instances("trees", attributes, rows);
+		data.setClassIndex(attributes.size() - 1);
+		Random random = new Random(seed);
+		for (int row = 0; row < rows; row++) {
+			int label = row % 3;
+			double[] values = new double[attributes.size()];
+			for (int att = 0; att < 6; att++) {
+				values[att] = random.nextGaussian() + (att < 3 ? label * 0.8 : 0);
+			}
+			values[6] = (label + random.nextInt(2)) % 4;
+			values[7] = label;
+			if (missing && row % 25 == 0) {
+				values[random.nextInt(7)] = Utils.missingValue();
+			}
+			data.add(new DenseInstance(1.0, values));
+		}
+		return data;
+	}
+
+	private static void assertSamePredictions(String classname, String... options) throws Exception {
+		assertSamePredictions(createData(2000, 1, false), createData(2000, 2, true), classname, options);
+	}
+
+	private static void assertSamePredictions(Instances train, Instances test, String classname, String... options)
+			throws Exception {
+		Classifier classifier = AbstractClassifier.forName(classname, options);
+		classifier.buildClassifier(train);
+		CompiledTrees compiled = CompiledTrees.compile(classifier, train.numClasses());
+		Assert.assertNotNull(classname + " wasn't compiled.", compiled);
+		int handled = 0;
+		for (Instance instance : test) {
+			double[] row = instance.toDoubleArray();
+			row[test.classIndex()] = Utils.missingValue();
+			int predicted = compiled.classify(row);
+			if (predicted != CompiledModel.UNHANDLED) {
+				Assert.assertEquals((int) classifier.classifyInstance(instance), predicted);
+				handled++;
+			}
+		}
+		// only rows with missing values may be left to weka.
+		Assert.assertTrue(handled >= test.size() * 24 / 25);
+	}
+
+	@Test
+	public void testJ48() throws Exception {
+		assertSamePredictions("weka.classifiers.trees.J48");
+		assertSamePredictions("weka.classifiers.trees.J48", "-B");
+	}
+
+	@Test
+	public void testRandomTree() throws Exception {
+		assertSamePredictions("weka.classifiers.trees.RandomTree");
+		assertSamePredictions("weka.classifiers.trees.RandomTree", "-K", "3");
+	}
+
+	@Test
+	public void testRandomForest() throws Exception {
+		// the trees of small bags have empty leaves below nominal splits, which aren't compiled.
+		Instances train = createData(2000, 1, false);
+		Instances test = createData(2000, 2, true);
+		train.deleteAttributeAt(6);
+		test.deleteAttributeAt(6);
+		assertSamePredictions(train, test, "weka.classifiers.trees.RandomForest", "-I", "50");
+	}
+
+	@Test
+	public void testUnsupportedClassifier() throws Exception {
+		Instances train = createData(200, 1, false);
+		Classifier classifier = AbstractClassifier.forName("weka.classifiers.bayes.NaiveBayes", new String[0]);
+		classifier.buildClassifier(train);
+		Assert.assertNull(CompiledTrees.compile(classifier, train.numClasses()));
+	}
+}
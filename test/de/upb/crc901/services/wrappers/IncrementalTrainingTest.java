@@ -0,0 +1,157 @@
+package de.upb.crc901.services.wrappers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.upb.crc901.services.core.JASEDataObject;
+import de.upb.crc901.services.types.LabeledInstanceStream;
+import jaicore.ml.core.SimpleInstanceImpl;
+import jaicore.ml.core.SimpleInstancesImpl;
+import jaicore.ml.core.SimpleLabeledInstanceImpl;
+import jaicore.ml.core.SimpleLabeledInstancesImpl;
+import jaicore.ml.interfaces.LabeledInstance;
+import weka.classifiers.bayes.NaiveBayesUpdateable;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+/**
+ * Checks that train_incremental builds the same model as weka's
+ * updateClassifier.
+ *
+ * @author aminfaez
+ *
+ */
+public class IncrementalTrainingTest {
+
+	private static final List<String> CLASSES = Arrays.asList("A", "B", "C");
+
+	private static final int COLUMNS = 4;
+
+	private static SimpleLabeledInstancesImpl createData(int rows, long seed) {
+		SimpleLabeledInstancesImpl data = new SimpleLabeledInstancesImpl();
+		Random random = new Random(seed);
+		for (int row = 0; row < rows; row++) {
+			SimpleLabeledInstanceImpl instance = new SimpleLabeledInstanceImpl();
+			int label = random.nextInt(3);
+			for (int column = 0; column < COLUMNS; column++) {
+				instance.add(random.nextGaussian() + (column == 0 ? label : 0));
+			}
+			instance.setLabel(CLASSES.get(label));
+			data.add(instance);
+		}
+		return data;
+	}
+
+	private static Instances createHeader() {
+		ArrayList<Attribute> attributes = new ArrayList<>();
+		for (int i = 1; i <= COLUMNS; i++) {
+			attributes.add(new Attribute("a" + i));
+		}
+		attributes.add(new Attribute("label", CLASSES));
+		Instances header = new Instances("incremental", attributes, 0);
+		header.setClassIndex(COLUMNS);
+		return header;
+	}
+
+	private static Instance toWekaInstance(LabeledInstance<String> row, Instances header, boolean labeled) {
+		double[] values = new double[COLUMNS + 1];
+		for (int column = 0; column < COLUMNS; column++) {
+			values[column] = row.get(column);
+		}
+		values[COLUMNS] = labeled ? CLASSES.indexOf(row.getLabel()) : Utils.missingValue();
+		Instance instance = new DenseInstance(1.0, values);
+		instance.setDataset(header);
+		return instance;
+	}
+
+	private static WekaClassifierWrapper createWrapper(String classname) throws Exception {
+		return new WekaClassifierWrapper(Class.forName(classname).getConstructor(), new JASEDataObject[0]);
+	}
+
+	private static void assertSamePredictions(NaiveBayesUpdateable expected, WekaClassifierWrapper wrapper)
+			throws Exception {
+		SimpleLabeledInstancesImpl test = createData(500, 3);
+		SimpleInstancesImpl rows = new SimpleInstancesImpl();
+		for (LabeledInstance<String> labeled : test) {
+			SimpleInstanceImpl row = new SimpleInstanceImpl();
+			row.addAll(labeled);
+			rows.add(row);
+		}
+		List<String> predictions = wrapper.predict(rows);
+		Instances header = createHeader();
+		for (int row = 0; row < test.size(); row++) {
+			int predicted = (int) expected.classifyInstance(toWekaInstance(test.get(row), header, false));
+			Assert.assertEquals("row " + row, CLASSES.get(predicted), predictions.get(row));
+		}
+	}
+
+	@Test
+	public void testSameModelAsUpdateClassifier() throws Exception {
+		SimpleLabeledInstancesImpl data = createData(1000, 1);
+		WekaClassifierWrapper wrapper = createWrapper("weka.classifiers.bayes.NaiveBayesUpdateable");
+		wrapper.train_incremental(new LabeledInstanceStream(CLASSES, data));
+
+		Instances header = createHeader();
+		NaiveBayesUpdateable expected = new NaiveBayesUpdateable();
+		expected.buildClassifier(header);
+		for (LabeledInstance<String> row : data) {
+			expected.updateClassifier(toWekaInstance(row, header, true));
+		}
+		assertSamePredictions(expected, wrapper);
+	}
+
+	/**
+	 * A model that was built by train is updated further.
+	 */
+	@Test
+	public void testUpdateTrainedModel() throws Exception {
+		SimpleLabeledInstancesImpl first = createData(300, 1);
+		SimpleLabeledInstancesImpl second = createData(700, 2);
+		WekaClassifierWrapper wrapper = createWrapper("weka.classifiers.bayes.NaiveBayesUpdateable");
+		wrapper.train(first);
+		// the classes were declared by train.
+		wrapper.train_incremental(new LabeledInstanceStream(second));
+
+		Instances header = createHeader();
+		Instances firstInstances = new Instances(header, first.size());
+		for (LabeledInstance<String> row : first) {
+			firstInstances.add(toWekaInstance(row, header, true));
+		}
+		NaiveBayesUpdateable expected = new NaiveBayesUpdateable();
+		expected.buildClassifier(firstInstances);
+		for (LabeledInstance<String> row : second) {
+			expected.updateClassifier(toWekaInstance(row, header, true));
+		}
+		assertSamePredictions(expected, wrapper);
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void testNotUpdateable() throws Exception {
+		createWrapper("weka.classifiers.trees.J48").train_incremental(new LabeledInstanceStream(CLASSES, createData(10, 1)));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testUnknownClasses() throws Exception {
+		createWrapper("weka.classifiers.bayes.NaiveBayesUpdateable")
+				.train_incremental(new LabeledInstanceStream(createData(10, 1)));
+	}
+
+	@Test
+	public void testUndeclaredLabel() throws Exception {
+		WekaClassifierWrapper wrapper = createWrapper("weka.classifiers.bayes.NaiveBayesUpdateable");
+		try {
+			wrapper.train_incremental(new LabeledInstanceStream(Arrays.asList("A", "B"), createData(100, 1)));
+			Assert.fail("A row with the undeclared label C was trained.");
+		} catch (RuntimeException e) {
+			Assert.assertEquals("Label C wasn't declared.", e.getMessage());
+		}
+	}
+}
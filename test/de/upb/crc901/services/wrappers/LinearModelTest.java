@@ -0,0 +1,101 @@
+package de.upb.crc901.services.wrappers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import weka.classifiers.AbstractClassifier;
+import weka.classifiers.Classifier;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+/**
+ * Checks that the extracted coefficient vectors predict the same classes as the
+ * weka models they were extracted from.
+ *
+ * @author aminfaez
+ *
+ */
+public class LinearModelTest {
+
+	/**
+	 * Numeric attributes, of which the 5th is constant. If missing is set, every
+	 * 25th row has a missing value.
+	 */
+	private static Instances createData(int numClasses, int rows, long seed, boolean missing) {
+		ArrayList<Attribute> attributes = new ArrayList<>();
+		for (int i = 1; i <= 6; i++) {
+			attributes.add(new Attribute("a" + i));
+		}
+		List<String> labels = new ArrayList<>();
+		for (int c = 0; c < numClasses; c++) {
+			labels.add("c" + c);
+		}
+		attributes.add(new Attribute("label", labels));
+		Instances data = new Instances("linear", attributes, rows);
+		data.setClassIndex(attributes.size() - 1);
+		Random random = new Random(seed);
+		for (int row = 0; row < rows; row++) {
+			int label = row % numClasses;
+			double[] values = new double[attributes.size()];
+			for (int att = 0; att < 6; att++) {
+				values[att] = att == 4 ? 3.0 : random.nextGaussian() * 2 + (att < 3 ? label * 0.7 : 0);
+			}
+			values[6] = label;
+			if (missing && row % 25 == 0) {
+				values[random.nextInt(6)] = Utils.missingValue();
+			}
+			data.add(new DenseInstance(1.0, values));
+		}
+		return data;
+	}
+
+	private static void assertSamePredictions(int numClasses, String classname, String... options) throws Exception {
+		Instances train = createData(numClasses, 1000, 1, false);
+		Instances test = createData(numClasses, 2000, 2, true);
+		Classifier classifier = AbstractClassifier.forName(classname, options);
+		classifier.buildClassifier(train);
+		LinearModel model = LinearModel.extract(classifier, train.numAttributes(), train.numClasses());
+		Assert.assertNotNull(classname + " " + Arrays.toString(options) + " wasn't extracted.", model);
+		int handled = 0;
+		for (Instance instance : test) {
+			double[] row = instance.toDoubleArray();
+			row[test.classIndex()] = Utils.missingValue();
+			int predicted = model.classify(row);
+			if (predicted != CompiledModel.UNHANDLED) {
+				Assert.assertEquals((int) classifier.classifyInstance(instance), predicted);
+				handled++;
+			}
+		}
+		// only rows with missing values may be left to weka.
+		Assert.assertTrue(handled >= test.size() * 24 / 25);
+	}
+
+	@Test
+	public void testLogistic() throws Exception {
+		assertSamePredictions(2, "weka.classifiers.functions.Logistic");
+		assertSamePredictions(3, "weka.classifiers.functions.Logistic");
+	}
+
+	@Test
+	public void testSGD() throws Exception {
+		assertSamePredictions(2, "weka.classifiers.functions.SGD");
+		assertSamePredictions(2, "weka.classifiers.functions.SGD", "-F", "1");
+		assertSamePredictions(2, "weka.classifiers.functions.SGD", "-F", "1", "-N");
+	}
+
+	@Test
+	public void testUnsupportedClassifier() throws Exception {
+		Instances train = createData(2, 200, 1, false);
+		Classifier classifier = AbstractClassifier.forName("weka.classifiers.bayes.NaiveBayes", new String[0]);
+		classifier.buildClassifier(train);
+		Assert.assertNull(LinearModel.extract(classifier, train.numAttributes(), train.numClasses()));
+	}
+}
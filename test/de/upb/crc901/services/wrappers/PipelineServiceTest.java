@@ -0,0 +1,140 @@
+package de.upb.crc901.services.wrappers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.upb.crc901.services.core.JASEDataObject;
+import de.upb.crc901.services.core.ServiceHandle;
+import de.upb.crc901.services.core.ServiceManager;
+import jaicore.ml.core.SimpleInstanceImpl;
+import jaicore.ml.core.SimpleInstancesImpl;
+import jaicore.ml.core.SimpleLabeledInstanceImpl;
+import jaicore.ml.core.SimpleLabeledInstancesImpl;
+import jaicore.ml.interfaces.LabeledInstance;
+import weka.classifiers.AbstractClassifier;
+import weka.classifiers.Classifier;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.Utils;
+import weka.filters.Filter;
+
+/**
+ * Checks that a pipeline predicts like its stages applied one after another by
+ * weka.
+ *
+ * @author aminfaez
+ *
+ */
+public class PipelineServiceTest {
+
+	private static final String[] LABELS = { "c0", "c1", "c2" };
+
+	private static SimpleLabeledInstancesImpl createData(int rows, long seed) {
+		SimpleLabeledInstancesImpl data = new SimpleLabeledInstancesImpl();
+		Random random = new Random(seed);
+		for (int row = 0; row < rows; row++) {
+			SimpleLabeledInstanceImpl instance = new SimpleLabeledInstanceImpl();
+			for (int column = 0; column < 5; column++) {
+				instance.add(random.nextGaussian() * (column + 1) + (column < 2 ? row % 3 : 0) * 2);
+			}
+			instance.setLabel(LABELS[row % 3]);
+			data.add(instance);
+		}
+		return data;
+	}
+
+	private static SimpleInstancesImpl withoutLabels(SimpleLabeledInstancesImpl data) {
+		SimpleInstancesImpl rows = new SimpleInstancesImpl();
+		for (LabeledInstance<String> labeled : data) {
+			SimpleInstanceImpl row = new SimpleInstanceImpl();
+			row.addAll(labeled);
+			rows.add(row);
+		}
+		return rows;
+	}
+
+	/**
+	 * The data with the header that the pipeline gives to its first stage.
+	 */
+	private static Instances toWekaInstances(SimpleLabeledInstancesImpl data, boolean labeled) {
+		ArrayList<Attribute> attributes = new ArrayList<>();
+		for (int i = 1; i <= 5; i++) {
+			attributes.add(new Attribute("a" + i));
+		}
+		attributes.add(new Attribute("label", Arrays.asList(LABELS)));
+		Instances instances = new Instances("JAICore-extracted dataset", attributes, data.size());
+		instances.setClassIndex(5);
+		for (LabeledInstance<String> row : data) {
+			double[] values = new double[6];
+			for (int column = 0; column < 5; column++) {
+				values[column] = row.get(column);
+			}
+			values[5] = labeled ? Arrays.asList(LABELS).indexOf(row.getLabel()) : Utils.missingValue();
+			instances.add(new DenseInstance(1.0, values));
+		}
+		return instances;
+	}
+
+	/**
+	 * Creates the service and puts it into the ServiceManager, like the server
+	 * does. The returned handle only refers to it.
+	 */
+	private static ServiceHandle createService(Object service, String id) {
+		ServiceManager.SINGLETON().addService(new ServiceHandle(service.getClass().getName(), id, service));
+		return new ServiceHandle(service.getClass().getName(), id);
+	}
+
+	private static void assertSamePredictions(String filterName, String classifierName) throws Exception {
+		SimpleLabeledInstancesImpl train = createData(600, 1);
+		SimpleLabeledInstancesImpl test = createData(300, 2);
+		String prefix = "pipeline-test-" + classifierName;
+		PipelineService pipeline = new PipelineService();
+		pipeline.add_stage(createService(
+				new WekaFilterWrapper(Class.forName(filterName).getConstructor(), new JASEDataObject[0]),
+				prefix + "-filter"));
+		pipeline.add_stage(createService(
+				new WekaClassifierWrapper(Class.forName(classifierName).getConstructor(), new JASEDataObject[0]),
+				prefix + "-classifier"));
+		pipeline.train(train);
+		List<String> predictions = pipeline.predict(withoutLabels(test));
+
+		Filter filter = (Filter) Class.forName(filterName).newInstance();
+		Instances trainInstances = toWekaInstances(train, true);
+		filter.setInputFormat(trainInstances);
+		Instances filteredTrain = Filter.useFilter(trainInstances, filter);
+		Classifier classifier = AbstractClassifier.forName(classifierName, new String[0]);
+		classifier.buildClassifier(filteredTrain);
+		Instances filteredTest = Filter.useFilter(toWekaInstances(test, false), filter);
+		Assert.assertEquals(test.size(), predictions.size());
+		for (int row = 0; row < test.size(); row++) {
+			String expected = LABELS[(int) classifier.classifyInstance(filteredTest.instance(row))];
+			Assert.assertEquals("row " + row, expected, predictions.get(row));
+		}
+	}
+
+	@Test
+	public void testTree() throws Exception {
+		assertSamePredictions("weka.filters.unsupervised.attribute.Normalize", "weka.classifiers.trees.J48");
+	}
+
+	/**
+	 * Logistic is predicted by the extracted linear model.
+	 */
+	@Test
+	public void testLinearModel() throws Exception {
+		assertSamePredictions("weka.filters.unsupervised.attribute.Standardize",
+				"weka.classifiers.functions.Logistic");
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testUntrainedPipeline() {
+		PipelineService pipeline = new PipelineService();
+		pipeline.predict(withoutLabels(createData(3, 1)));
+	}
+}
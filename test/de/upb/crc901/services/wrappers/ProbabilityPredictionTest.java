@@ -0,0 +1,161 @@
+package de.upb.crc901.services.wrappers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import de.upb.crc901.services.core.EasyClient;
+import de.upb.crc901.services.core.HttpServiceServer;
+import de.upb.crc901.services.core.JASEDataObject;
+import de.upb.crc901.services.core.ServiceHandle;
+import de.upb.crc901.services.types.ProbabilityMatrix;
+import jaicore.ml.core.SimpleInstanceImpl;
+import jaicore.ml.core.SimpleInstancesImpl;
+import jaicore.ml.core.SimpleLabeledInstanceImpl;
+import jaicore.ml.core.SimpleLabeledInstancesImpl;
+import jaicore.ml.interfaces.LabeledInstance;
+import weka.classifiers.Classifier;
+import weka.classifiers.bayes.NaiveBayes;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+/**
+ * Checks that predict_proba returns the distributions of weka's
+ * distributionForInstance, locally and through the server.
+ *
+ * @author aminfaez
+ *
+ */
+public class ProbabilityPredictionTest {
+
+	private static final String HOST = "localhost:8320";
+
+	private static final List<String> LABELS = Arrays.asList("class-0", "class-1", "class-2");
+
+	private static HttpServiceServer server;
+
+	private static SimpleLabeledInstancesImpl trainingData;
+
+	/** More rows than one chunk of the prediction. */
+	private static SimpleInstancesImpl testData;
+
+	/** NaiveBayes trained by weka on the training data. */
+	private static Classifier expected;
+
+	private static Instances header;
+
+	@BeforeClass
+	public static void setUp() throws Exception {
+		server = new HttpServiceServer(8320, "testrsc/conf/classifiers.json");
+		trainingData = createData(600, 1);
+		testData = new SimpleInstancesImpl();
+		for (LabeledInstance<String> labeled : createData(2500, 2)) {
+			SimpleInstanceImpl row = new SimpleInstanceImpl();
+			row.addAll(labeled);
+			testData.add(row);
+		}
+		ArrayList<Attribute> attributes = new ArrayList<>();
+		for (int i = 1; i <= 4; i++) {
+			attributes.add(new Attribute("a" + i));
+		}
+		attributes.add(new Attribute("label", LABELS));
+		header = new Instances("proba", attributes, 0);
+		header.setClassIndex(4);
+		Instances train = new Instances(header, trainingData.size());
+		for (LabeledInstance<String> row : trainingData) {
+			train.add(toWekaInstance(row, LABELS.indexOf(row.getLabel())));
+		}
+		expected = new NaiveBayes();
+		expected.buildClassifier(train);
+	}
+
+	@AfterClass
+	public static void stopServer() {
+		server.shutdown();
+	}
+
+	/**
+	 * Overlapping classes, so the distributions aren't all zeros and ones.
+	 */
+	private static SimpleLabeledInstancesImpl createData(int rows, long seed) {
+		SimpleLabeledInstancesImpl data = new SimpleLabeledInstancesImpl();
+		Random random = new Random(seed);
+		for (int row = 0; row < rows; row++) {
+			SimpleLabeledInstanceImpl instance = new SimpleLabeledInstanceImpl();
+			instance.add(random.nextGaussian() + row % 3);
+			instance.add(random.nextGaussian() - row % 3 * 0.5);
+			instance.add(random.nextDouble());
+			instance.add((double) random.nextInt(4));
+			instance.setLabel(LABELS.get(row % 3));
+			data.add(instance);
+		}
+		return data;
+	}
+
+	private static weka.core.Instance toWekaInstance(List<Double> row, double classValue) {
+		double[] values = new double[5];
+		for (int column = 0; column < 4; column++) {
+			values[column] = row.get(column);
+		}
+		values[4] = classValue;
+		weka.core.Instance instance = new DenseInstance(1.0, values);
+		instance.setDataset(header);
+		return instance;
+	}
+
+	/**
+	 * Compares the matrix to the distributions of weka, each rounded to the
+	 * precision of the matrix.
+	 */
+	private static void assertSameDistributions(ProbabilityMatrix matrix, boolean rounded) throws Exception {
+		Assert.assertEquals(LABELS, matrix.getLabels());
+		Assert.assertEquals(testData.size(), matrix.getNumberOfRows());
+		Assert.assertTrue(matrix.isSinglePrecision());
+		for (int row = 0; row < testData.size(); row++) {
+			double[] distribution = expected.distributionForInstance(toWekaInstance(testData.get(row), Utils.missingValue()));
+			for (int label = 0; label < distribution.length; label++) {
+				double value = rounded ? (float) distribution[label] : distribution[label];
+				Assert.assertEquals("row " + row, value, matrix.get(row, label), 0.0);
+			}
+		}
+	}
+
+	@Test
+	public void testLocalPrediction() throws Exception {
+		WekaClassifierWrapper wrapper = new WekaClassifierWrapper(NaiveBayes.class.getConstructor(),
+				new JASEDataObject[0]);
+		wrapper.train(trainingData);
+		ProbabilityMatrix matrix = wrapper.predict_proba(testData);
+		assertSameDistributions(matrix, false);
+		Assert.assertEquals(wrapper.predict(testData), matrix.toLabels());
+	}
+
+	/**
+	 * The matrix is sent as single precision floats.
+	 */
+	@Test(timeout = 60000)
+	public void testRemotePrediction() throws Exception {
+		ServiceHandle classifier = (ServiceHandle) new EasyClient().withHost(HOST)
+				.withAddedConstructOperation("out", "weka.classifiers.bayes.NaiveBayes").dispatch().get("out").getData();
+		new EasyClient().withService(classifier).withKeywordArgument("s1", classifier)
+				.withPositionalArgument(trainingData).withAddedMethodOperation("empty", "s1", "train", "i1").dispatch();
+		JASEDataObject result = new EasyClient().withService(classifier).withKeywordArgument("s1", classifier)
+				.withPositionalArgument(testData).withAddedMethodOperation("out", "s1", "predict_proba", "i1")
+				.dispatch().get("out");
+		Assert.assertEquals("ProbabilityMatrix", result.getType());
+		assertSameDistributions((ProbabilityMatrix) result.getData(), true);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testUntrained() throws Exception {
+		new WekaClassifierWrapper(NaiveBayes.class.getConstructor(), new JASEDataObject[0]).predict_proba(testData);
+	}
+}
@@ -0,0 +1,152 @@
+package de.upb.crc901.services.wrappers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.upb.crc901.services.core.JASEDataObject;
+import weka.attributeSelection.ASEvaluation;
+import weka.attributeSelection.ASSearch;
+import weka.attributeSelection.AttributeSelection;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+
+/**
+ * Checks that the selection is fitted once and that preprocess reduces the
+ * data like weka's AttributeSelection.
+ *
+ * @author aminfaez
+ *
+ */
+public class WekaAttributeSelectionWrapperTest {
+
+	private static final String RANKER = "weka.attributeSelection.Ranker";
+
+	private static final String INFO_GAIN = "weka.attributeSelection.InfoGainAttributeEval";
+
+	/**
+	 * Six attributes of which the ones at the given indices tell the class.
+	 */
+	private static Instances createData(int rows, long seed, int... informative) {
+		return createData(rows, seed, Arrays.asList("yes", "no"), informative);
+	}
+
+	private static Instances createData(int rows, long seed, List<String> labels, int... informative) {
+		ArrayList<Attribute> attributes = new ArrayList<>();
+		for (int i = 1; i <= 6; i++) {
+			attributes.add(new Attribute("a" + i));
+		}
+		attributes.add(new Attribute("label", labels));
+		Instances data = new Instances("selection", attributes, rows);
+		data.setClassIndex(6);
+		Random random = new Random(seed);
+		for (int row = 0; row < rows; row++) {
+			int label = row % 2;
+			double[] values = new double[7];
+			for (int att = 0; att < 6; att++) {
+				values[att] = random.nextGaussian();
+			}
+			for (int att : informative) {
+				values[att] += label * 4;
+			}
+			values[6] = labels.indexOf(label == 0 ? "yes" : "no");
+			data.add(new DenseInstance(1.0, values));
+		}
+		return data;
+	}
+
+	private static WekaAttributeSelectionWrapper createWrapper(String evaluator, String... searchOptions)
+			throws Exception {
+		return new WekaAttributeSelectionWrapper(AttributeSelection.class.getConstructor(),
+				new JASEDataObject[] { new JASEDataObject("String", RANKER),
+						new JASEDataObject("StringList", Arrays.asList(searchOptions)),
+						new JASEDataObject("String", evaluator) });
+	}
+
+	private static AttributeSelection createSelection(String evaluator, String... searchOptions) throws Exception {
+		AttributeSelection selection = new AttributeSelection();
+		selection.setSearch(ASSearch.forName(RANKER, searchOptions));
+		selection.setEvaluator(ASEvaluation.forName(evaluator, new String[0]));
+		return selection;
+	}
+
+	private static void assertSameData(Instances expected, Instances actual) {
+		Assert.assertEquals(expected.numAttributes(), actual.numAttributes());
+		Assert.assertEquals(expected.classIndex(), actual.classIndex());
+		Assert.assertEquals(expected.numInstances(), actual.numInstances());
+		for (int att = 0; att < expected.numAttributes(); att++) {
+			Assert.assertEquals(expected.attribute(att).name(), actual.attribute(att).name());
+		}
+		for (int row = 0; row < expected.numInstances(); row++) {
+			Assert.assertArrayEquals("row " + row, expected.instance(row).toDoubleArray(),
+					actual.instance(row).toDoubleArray(), 1e-12);
+		}
+	}
+
+	@Test
+	public void testSelectedAttributes() throws Exception {
+		Instances train = createData(300, 1, 1, 4);
+		WekaAttributeSelectionWrapper wrapper = createWrapper(INFO_GAIN, "-N", "2");
+		wrapper.train(train);
+		Instances reduced = wrapper.preprocess(createData(100, 2, 1, 4));
+
+		AttributeSelection selection = createSelection(INFO_GAIN, "-N", "2");
+		selection.SelectAttributes(train);
+		assertSameData(selection.reduceDimensionality(createData(100, 2, 1, 4)), reduced);
+		Assert.assertEquals(3, reduced.numAttributes());
+	}
+
+	/**
+	 * Data in which other attributes tell the class doesn't change the selection
+	 * that was fitted by train.
+	 */
+	@Test
+	public void testFittedOnce() throws Exception {
+		WekaAttributeSelectionWrapper wrapper = createWrapper(INFO_GAIN, "-N", "2");
+		wrapper.train(createData(300, 1, 1, 4));
+		Instances reduced = wrapper.preprocess(createData(300, 3, 0, 2));
+		Assert.assertEquals(Arrays.asList("a2", "a5", "label"), Arrays.asList(reduced.attribute(0).name(),
+				reduced.attribute(1).name(), reduced.attribute(2).name()));
+	}
+
+	/**
+	 * Without train, the selection is fitted to the first data that is
+	 * preprocessed.
+	 */
+	@Test
+	public void testFittedByPreprocess() throws Exception {
+		WekaAttributeSelectionWrapper wrapper = createWrapper(INFO_GAIN, "-N", "1");
+		Assert.assertEquals("a3", wrapper.preprocess(createData(300, 1, 2)).attribute(0).name());
+		Assert.assertEquals("a3", wrapper.preprocess(createData(300, 1, 5)).attribute(0).name());
+	}
+
+	/**
+	 * Class values are mapped by their label.
+	 */
+	@Test
+	public void testOtherOrderOfLabels() throws Exception {
+		WekaAttributeSelectionWrapper wrapper = createWrapper(INFO_GAIN, "-N", "2");
+		wrapper.train(createData(300, 1, 1, 4));
+		Instances test = createData(50, 2, Arrays.asList("no", "yes"), 1, 4);
+		Instances reduced = wrapper.preprocess(test);
+		for (int row = 0; row < test.numInstances(); row++) {
+			Assert.assertEquals(test.instance(row).stringValue(6), reduced.instance(row).stringValue(2));
+		}
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void testOtherColumns() throws Exception {
+		WekaAttributeSelectionWrapper wrapper = createWrapper(INFO_GAIN, "-N", "2");
+		wrapper.train(createData(300, 1, 1, 4));
+		Instances test = createData(10, 2, 1, 4);
+		test.setClassIndex(-1);
+		test.deleteAttributeAt(0);
+		test.setClassIndex(5);
+		wrapper.preprocess(test);
+	}
+}
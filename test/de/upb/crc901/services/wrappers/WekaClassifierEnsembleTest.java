@@ -0,0 +1,117 @@
+package de.upb.crc901.services.wrappers;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import de.upb.crc901.services.core.JASEDataObject;
+import de.upb.crc901.services.core.ServiceHandle;
+import de.upb.crc901.services.core.ServiceManager;
+import de.upb.crc901.services.types.NumberList;
+import de.upb.crc901.services.types.PredictionTable;
+import de.upb.crc901.services.types.ServiceHandleList;
+import jaicore.ml.core.SimpleInstanceImpl;
+import jaicore.ml.core.SimpleInstancesImpl;
+import jaicore.ml.core.SimpleLabeledInstanceImpl;
+import jaicore.ml.core.SimpleLabeledInstancesImpl;
+import jaicore.ml.interfaces.LabeledInstance;
+
+/**
+ * Checks that the models of an ensemble predict the shared data like they
+ * predict it on their own.
+ *
+ * @author aminfaez
+ *
+ */
+public class WekaClassifierEnsembleTest {
+
+	private static final String[] CLASSIFIERS = { "weka.classifiers.trees.J48", "weka.classifiers.bayes.NaiveBayes",
+			"weka.classifiers.functions.Logistic", "weka.classifiers.trees.RandomTree" };
+
+	private static SimpleLabeledInstancesImpl testData;
+
+	private static WekaClassifierWrapper[] models;
+
+	private static ServiceHandleList handles;
+
+	@BeforeClass
+	public static void trainModels() throws Exception {
+		SimpleLabeledInstancesImpl trainingData = createData(800, 1);
+		testData = createData(3000, 2);
+		models = new WekaClassifierWrapper[CLASSIFIERS.length];
+		handles = new ServiceHandleList();
+		for (int i = 0; i < CLASSIFIERS.length; i++) {
+			models[i] = new WekaClassifierWrapper(Class.forName(CLASSIFIERS[i]).getConstructor(),
+					new JASEDataObject[0]);
+			models[i].train(trainingData);
+			String id = "ensemble-test-" + i;
+			ServiceManager.SINGLETON().addService(new ServiceHandle(CLASSIFIERS[i], id, models[i]));
+			handles.add(new ServiceHandle(CLASSIFIERS[i], id));
+		}
+		// the tree is predicted by its compiled arrays, Logistic by its coefficients.
+		Assert.assertTrue(models[0].compile());
+	}
+
+	/**
+	 * Three classes that depend on the first attributes.
+	 */
+	private static SimpleLabeledInstancesImpl createData(int rows, long seed) {
+		SimpleLabeledInstancesImpl data = new SimpleLabeledInstancesImpl();
+		Random random = new Random(seed);
+		for (int row = 0; row < rows; row++) {
+			SimpleLabeledInstanceImpl instance = new SimpleLabeledInstanceImpl();
+			int label = random.nextInt(3);
+			for (int column = 0; column < 6; column++) {
+				instance.add(random.nextGaussian() + (column < 3 ? label * 0.9 : 0));
+			}
+			instance.setLabel("class-" + label);
+			data.add(instance);
+		}
+		return data;
+	}
+
+	private static SimpleInstancesImpl withoutLabels(SimpleLabeledInstancesImpl data) {
+		SimpleInstancesImpl rows = new SimpleInstancesImpl();
+		for (LabeledInstance<String> labeled : data) {
+			SimpleInstanceImpl row = new SimpleInstanceImpl();
+			row.addAll(labeled);
+			rows.add(row);
+		}
+		return rows;
+	}
+
+	@Test
+	public void testPredictAll() {
+		SimpleInstancesImpl rows = withoutLabels(testData);
+		PredictionTable table = new WekaClassifierEnsemble().predict_all(handles, rows);
+		Assert.assertEquals(models.length, table.getNumberOfModels());
+		for (int model = 0; model < models.length; model++) {
+			List<String> expected = models[model].predict(rows);
+			Assert.assertEquals(CLASSIFIERS[model], expected, table.getPredictions(model));
+		}
+	}
+
+	@Test
+	public void testScoreAll() {
+		NumberList scores = new WekaClassifierEnsemble().score_all(handles, testData);
+		Assert.assertEquals(models.length, scores.size());
+		for (int model = 0; model < models.length; model++) {
+			double expected = models[model].predict_and_score(testData);
+			Assert.assertEquals(CLASSIFIERS[model], expected, scores.get(model), 0.0);
+			Assert.assertTrue(CLASSIFIERS[model], scores.get(model) > 0.5);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoClassifier() {
+		ServiceManager.SINGLETON()
+				.addService(new ServiceHandle(PipelineService.class.getName(), "ensemble-test-pipeline",
+						new PipelineService()));
+		ServiceHandleList mixed = new ServiceHandleList(handles);
+		mixed.add(new ServiceHandle(PipelineService.class.getName(), "ensemble-test-pipeline"));
+		new WekaClassifierEnsemble().predict_all(mixed, withoutLabels(testData));
+	}
+}
@@ -0,0 +1,133 @@
+package de.upb.crc901.services.wrappers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import de.upb.crc901.services.core.JASEDataObject;
+import de.upb.crc901.services.core.ServiceManager;
+import de.upb.crc901.services.types.Scoreboard;
+import jaicore.ml.core.SimpleInstanceImpl;
+import jaicore.ml.core.SimpleInstancesImpl;
+import jaicore.ml.core.SimpleLabeledInstanceImpl;
+import jaicore.ml.core.SimpleLabeledInstancesImpl;
+import jaicore.ml.interfaces.LabeledInstance;
+
+/**
+ * Checks that every candidate of a sweep is scored like a classifier that is
+ * trained and scored on its own.
+ *
+ * @author aminfaez
+ *
+ */
+public class WekaClassifierSweepTest {
+
+	private static final String J48 = "weka.classifiers.trees.J48";
+
+	/** The last one isn't a valid option of J48. */
+	private static final ArrayList<String> OPTIONS = new ArrayList<>(
+			Arrays.asList("-C 0.25 -M 2", "-U -M 1", "-C 0.05 -M 40", "-M 300", "-C 0.5 -M 10", "-no-such-option"));
+
+	private static SimpleLabeledInstancesImpl trainingData;
+
+	private static SimpleLabeledInstancesImpl validationData;
+
+	/** The scores of the candidates trained one by one. */
+	private static Map<String, Double> expectedScores;
+
+	@BeforeClass
+	public static void scoreCandidates() throws Exception {
+		trainingData = createData(600, 1);
+		validationData = createData(400, 2);
+		expectedScores = new HashMap<>();
+		for (String options : OPTIONS.subList(0, OPTIONS.size() - 1)) {
+			expectedScores.put(options, createCandidate(options).predict_and_score(validationData));
+		}
+	}
+
+	/**
+	 * Noisy classes, so the configurations score differently.
+	 */
+	private static SimpleLabeledInstancesImpl createData(int rows, long seed) {
+		SimpleLabeledInstancesImpl data = new SimpleLabeledInstancesImpl();
+		Random random = new Random(seed);
+		for (int row = 0; row < rows; row++) {
+			SimpleLabeledInstanceImpl instance = new SimpleLabeledInstanceImpl();
+			double sum = 0;
+			for (int column = 0; column < 4; column++) {
+				double value = random.nextGaussian();
+				instance.add(value);
+				sum += value * (column + 1);
+			}
+			sum += random.nextGaussian() * 3;
+			instance.setLabel(sum < -2 ? "low" : sum < 2 ? "mid" : "high");
+			data.add(instance);
+		}
+		return data;
+	}
+
+	private static WekaClassifierWrapper createCandidate(String options) throws Exception {
+		WekaClassifierWrapper candidate = new WekaClassifierWrapper(Class.forName(J48).getConstructor(),
+				new JASEDataObject[] { new JASEDataObject("String", options) });
+		candidate.train(trainingData);
+		return candidate;
+	}
+
+	@Test
+	public void testScores() {
+		Scoreboard scoreboard = new WekaClassifierSweep().sweep(J48, OPTIONS, trainingData, validationData, 2);
+		Assert.assertEquals(OPTIONS.size(), scoreboard.getEntries().size());
+		double previous = Double.POSITIVE_INFINITY;
+		for (Scoreboard.Entry entry : scoreboard.getEntries().subList(0, OPTIONS.size() - 1)) {
+			Assert.assertEquals(entry.getOptions(), expectedScores.get(entry.getOptions()), entry.getScore(), 1e-12);
+			Assert.assertTrue(entry.getScore() <= previous);
+			previous = entry.getScore();
+		}
+		// the failed candidate comes last.
+		Scoreboard.Entry failed = scoreboard.getEntries().get(OPTIONS.size() - 1);
+		Assert.assertEquals("-no-such-option", failed.getOptions());
+		Assert.assertTrue(Double.isNaN(failed.getScore()));
+		Assert.assertFalse(failed.hasService());
+	}
+
+	/**
+	 * Only the best candidates are kept and they predict like the candidates
+	 * trained on their own.
+	 */
+	@Test
+	public void testKeptCandidates() throws Exception {
+		Scoreboard scoreboard = new WekaClassifierSweep().sweep(J48, OPTIONS, trainingData, validationData, 2);
+		SimpleInstancesImpl rows = new SimpleInstancesImpl();
+		for (LabeledInstance<String> labeled : validationData) {
+			SimpleInstanceImpl row = new SimpleInstanceImpl();
+			row.addAll(labeled);
+			rows.add(row);
+		}
+		for (int rank = 0; rank < OPTIONS.size(); rank++) {
+			Scoreboard.Entry entry = scoreboard.getEntries().get(rank);
+			Assert.assertEquals(entry.getOptions(), rank < 2, entry.hasService());
+			if (entry.hasService()) {
+				WekaClassifierWrapper kept = (WekaClassifierWrapper) ServiceManager.SINGLETON()
+						.getService(entry.getService());
+				Assert.assertEquals(createCandidate(entry.getOptions()).predict(rows), kept.predict(rows));
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testNoClassifier() {
+		new WekaClassifierSweep().sweep("weka.filters.unsupervised.attribute.Normalize", OPTIONS, trainingData,
+				validationData, 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownClass() {
+		new WekaClassifierSweep().sweep("weka.classifiers.NoSuchClassifier", OPTIONS, trainingData, validationData, 1);
+	}
+}
@@ -0,0 +1,126 @@
+package de.upb.crc901.services.wrappers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.upb.crc901.services.core.JASEDataObject;
+import de.upb.crc901.services.types.NumberList;
+import jaicore.ml.core.SimpleInstanceImpl;
+import jaicore.ml.core.SimpleInstancesImpl;
+import jaicore.ml.core.SimpleLabeledInstanceImpl;
+import jaicore.ml.core.SimpleLabeledInstancesImpl;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+/**
+ * Checks how WekaClassifierWrapper treats the data it is given.
+ *
+ * @author aminfaez
+ *
+ */
+public class WekaClassifierWrapperTest {
+
+	private static WekaClassifierWrapper createWrapper(String classname) throws Exception {
+		return new WekaClassifierWrapper(Class.forName(classname).getConstructor(), new JASEDataObject[0]);
+	}
+
+	/**
+	 * Rows whose label is told by the first value.
+	 */
+	private static SimpleLabeledInstancesImpl createLabeledData(int rows, int columns, String... labels) {
+		SimpleLabeledInstancesImpl data = new SimpleLabeledInstancesImpl();
+		Random random = new Random(columns);
+		for (int row = 0; row < rows; row++) {
+			SimpleLabeledInstanceImpl instance = new SimpleLabeledInstanceImpl();
+			int label = row % labels.length;
+			instance.add(label * 5.0 + random.nextGaussian());
+			for (int column = 1; column < columns; column++) {
+				instance.add(random.nextGaussian());
+			}
+			instance.setLabel(labels[label]);
+			data.add(instance);
+		}
+		return data;
+	}
+
+	/**
+	 * A numeric and a nominal attribute, which both tell the class.
+	 */
+	private static Instances createNominalData(int rows) {
+		ArrayList<Attribute> attributes = new ArrayList<>();
+		attributes.add(new Attribute("size"));
+		attributes.add(new Attribute("color", Arrays.asList("red", "green")));
+		attributes.add(new Attribute("label", Arrays.asList("apple", "pear")));
+		Instances data = new Instances("fruit", attributes, rows);
+		data.setClassIndex(2);
+		Random random = new Random(1);
+		for (int row = 0; row < rows; row++) {
+			int label = row % 2;
+			data.add(new DenseInstance(1.0, new double[] { label + random.nextGaussian(), label, label }));
+		}
+		return data;
+	}
+
+	/**
+	 * Value indices of a nominal attribute that don't belong to one of its values
+	 * are predicted like missing values.
+	 */
+	@Test
+	public void testInvalidNominalIndices() throws Exception {
+		WekaClassifierWrapper wrapper = createWrapper("weka.classifiers.bayes.NaiveBayes");
+		wrapper.train(createNominalData(100));
+		Instances test = createNominalData(4);
+		test.instance(0).setValue(1, 2);
+		test.instance(1).setValue(1, -1);
+		test.instance(2).setValue(1, 0.5);
+		test.instance(3).setValue(1, 1e10);
+		Instances missing = createNominalData(4);
+		for (int row = 0; row < 4; row++) {
+			missing.instance(row).setValue(1, Utils.missingValue());
+		}
+		List<String> expected = wrapper.predict(missing);
+		Assert.assertEquals(expected, wrapper.predict(test));
+	}
+
+	@Test
+	public void testCrossValidation() throws Exception {
+		WekaClassifierWrapper wrapper = createWrapper("weka.classifiers.trees.J48");
+		SimpleLabeledInstancesImpl data = createLabeledData(300, 4, "a", "b", "c");
+		NumberList accuracies = wrapper.cross_validate(data, 5, 7);
+		Assert.assertEquals(5, accuracies.size());
+		for (double accuracy : accuracies) {
+			Assert.assertTrue(accuracies.toString(), accuracy > 0.9);
+		}
+		Assert.assertEquals(accuracies, wrapper.cross_validate(data, 5, 7));
+	}
+
+	/**
+	 * Cross validating an untrained wrapper doesn't fix its columns and labels.
+	 */
+	@Test
+	public void testCrossValidationLeavesTheWrapperUntrained() throws Exception {
+		WekaClassifierWrapper wrapper = createWrapper("weka.classifiers.bayes.NaiveBayes");
+		wrapper.cross_validate(createLabeledData(100, 4, "a", "b"), 2, 1);
+		SimpleLabeledInstancesImpl trainingData = createLabeledData(90, 2, "x", "y", "z");
+		wrapper.train(trainingData);
+		SimpleInstancesImpl rows = new SimpleInstancesImpl();
+		for (int row = 0; row < 3; row++) {
+			SimpleInstanceImpl instance = new SimpleInstanceImpl();
+			instance.addAll(trainingData.get(row));
+			rows.add(instance);
+		}
+		Assert.assertEquals(Arrays.asList("x", "y", "z"), wrapper.predict(rows));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testTooManyFolds() throws Exception {
+		createWrapper("weka.classifiers.trees.J48").cross_validate(createLabeledData(3, 2, "a", "b"), 4, 1);
+	}
+}
@@ -0,0 +1,180 @@
+package de.upb.crc901.services.wrappers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.upb.crc901.services.core.JASEDataObject;
+import de.upb.crc901.services.types.InstanceStream;
+import jaicore.ml.core.SimpleInstanceImpl;
+import jaicore.ml.interfaces.Instance;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.Utils;
+import weka.filters.Filter;
+
+/**
+ * Checks that rows streamed through WekaFilterWrapper are filtered like weka's
+ * useFilter filters them.
+ *
+ * @author aminfaez
+ *
+ */
+public class WekaFilterWrapperTest {
+
+	private static WekaFilterWrapper createWrapper(String classname) throws Exception {
+		return new WekaFilterWrapper(Class.forName(classname).getConstructor(), new JASEDataObject[0]);
+	}
+
+	/**
+	 * Three numeric attributes of different scales and a class attribute.
+	 */
+	private static Instances createData(int rows, long seed) {
+		ArrayList<Attribute> attributes = new ArrayList<>();
+		for (int i = 1; i <= 3; i++) {
+			attributes.add(new Attribute("a" + i));
+		}
+		attributes.add(new Attribute("label", Arrays.asList("yes", "no")));
+		Instances data = new Instances("filter", attributes, rows);
+		data.setClassIndex(3);
+		Random random = new Random(seed);
+		for (int row = 0; row < rows; row++) {
+			data.add(new DenseInstance(1.0, new double[] { random.nextGaussian() * 100 - 20,
+					random.nextDouble() - 0.5, random.nextInt(7), row % 2 }));
+		}
+		return data;
+	}
+
+	/**
+	 * The values of the rows without their class.
+	 */
+	private static List<Instance> toRows(Instances data) {
+		List<Instance> rows = new ArrayList<>(data.numInstances());
+		for (weka.core.Instance instance : data) {
+			SimpleInstanceImpl row = new SimpleInstanceImpl();
+			for (int att = 0; att < data.numAttributes(); att++) {
+				if (att != data.classIndex()) {
+					row.add(instance.value(att));
+				}
+			}
+			rows.add(row);
+		}
+		return rows;
+	}
+
+	private static void assertSameRows(Instances expected, InstanceStream actual) {
+		List<Instance> expectedRows = toRows(expected);
+		Iterator<Instance> actualRows = actual.iterator();
+		for (int row = 0; row < expectedRows.size(); row++) {
+			Assert.assertTrue("row " + row + " is missing", actualRows.hasNext());
+			Instance actualRow = actualRows.next();
+			Assert.assertEquals(expectedRows.get(row).getNumberOfColumns(), actualRow.getNumberOfColumns());
+			for (int column = 0; column < actualRow.getNumberOfColumns(); column++) {
+				Assert.assertEquals("row " + row, expectedRows.get(row).get(column), actualRow.get(column), 1e-12);
+			}
+		}
+		Assert.assertFalse(actualRows.hasNext());
+	}
+
+	/**
+	 * More rows than one chunk are filtered with the statistics of the training
+	 * data.
+	 */
+	@Test
+	public void testTrainedFilter() throws Exception {
+		Instances train = createData(500, 1);
+		Instances test = createData(5000, 2);
+		WekaFilterWrapper wrapper = createWrapper("weka.filters.unsupervised.attribute.Standardize");
+		wrapper.train(train);
+		InstanceStream filtered = wrapper.preprocess_stream(new InstanceStream(toRows(test)));
+
+		Filter standardize = (Filter) Class.forName("weka.filters.unsupervised.attribute.Standardize").newInstance();
+		standardize.setInputFormat(train);
+		Filter.useFilter(train, standardize);
+		Instances unlabeled = new Instances(test);
+		for (weka.core.Instance instance : unlabeled) {
+			instance.setClassMissing();
+		}
+		assertSameRows(Filter.useFilter(unlabeled, standardize), filtered);
+	}
+
+	/**
+	 * A streamable filter doesn't need to be trained. The rows get the attributes
+	 * a1..an, Add appends a missing value to them.
+	 */
+	@Test
+	public void testStreamableFilter() throws Exception {
+		Instances test = createData(3000, 3);
+		WekaFilterWrapper wrapper = createWrapper("weka.filters.unsupervised.attribute.Add");
+		InstanceStream filtered = wrapper.preprocess_stream(new InstanceStream(toRows(test)));
+
+		test.setClassIndex(-1);
+		test.deleteAttributeAt(3);
+		Filter add = (Filter) Class.forName("weka.filters.unsupervised.attribute.Add").newInstance();
+		add.setInputFormat(test);
+		Instances expected = Filter.useFilter(test, add);
+		Assert.assertEquals(4, expected.numAttributes());
+		assertSameRows(expected, filtered);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testUntrainedFilter() throws Exception {
+		createWrapper("weka.filters.unsupervised.attribute.Normalize")
+				.preprocess_stream(new InstanceStream(toRows(createData(10, 1))));
+	}
+
+	@Test
+	public void testOtherColumns() throws Exception {
+		WekaFilterWrapper wrapper = createWrapper("weka.filters.unsupervised.attribute.Normalize");
+		wrapper.train(createData(50, 1));
+		SimpleInstanceImpl row = new SimpleInstanceImpl();
+		row.addAll(Arrays.asList(1.0, 2.0));
+		Iterator<Instance> filtered = wrapper.preprocess_stream(new InstanceStream(Arrays.asList(row))).iterator();
+		try {
+			filtered.hasNext();
+			Assert.fail("A row with too few columns was filtered.");
+		} catch (RuntimeException e) {
+			Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Data column size (=2)"));
+		}
+	}
+
+	/**
+	 * A filter whose training failed counts as untrained.
+	 */
+	@Test
+	public void testFailedTraining() throws Exception {
+		WekaFilterWrapper wrapper = createWrapper("weka.filters.supervised.attribute.Discretize");
+		wrapper.train(createData(50, 1));
+		// the supervised filter needs a class attribute.
+		Instances unlabeled = createData(50, 1);
+		unlabeled.setClassIndex(-1);
+		try {
+			wrapper.train(unlabeled);
+			Assert.fail("The failed training wasn't reported.");
+		} catch (RuntimeException e) {
+			// expected
+		}
+		try {
+			wrapper.preprocess(createData(10, 2));
+			Assert.fail("A filter whose training failed preprocessed.");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testMissingValues() throws Exception {
+		WekaFilterWrapper wrapper = createWrapper("weka.filters.unsupervised.attribute.Normalize");
+		wrapper.train(createData(50, 1));
+		SimpleInstanceImpl row = new SimpleInstanceImpl();
+		row.addAll(Arrays.asList(Utils.missingValue(), 0.0, 3.0));
+		Instance filtered = wrapper.preprocess_stream(new InstanceStream(Arrays.asList(row))).iterator().next();
+		Assert.assertTrue(Utils.isMissingValue(filtered.get(0)));
+	}
+}